@@ -0,0 +1,93 @@
+package com.example.fuzzymachineefficiency.benchmark;
+
+import com.example.fuzzymachineefficiency.dto.MachineDto;
+import com.example.fuzzymachineefficiency.dto.MachineFilterRequest;
+import com.example.fuzzymachineefficiency.dto.MachineRecommendationDto;
+import com.example.fuzzymachineefficiency.dto.MachineStatisticsDto;
+import com.example.fuzzymachineefficiency.dto.ProductionTargetRequest;
+import com.example.fuzzymachineefficiency.service.FuzzyService;
+import com.example.fuzzymachineefficiency.service.MachineService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FleetBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int fleetSize;
+
+    @Param({"native"})
+    public String engine;
+
+    private MachineService machineService;
+    private ProductionTargetRequest targetRequest;
+    private MachineFilterRequest filterRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FuzzyService fuzzyService = FleetFixture.fuzzyService(engine);
+        machineService = FleetFixture.machineService(FleetFixture.syntheticFleet(fleetSize, fuzzyService), fuzzyService);
+
+        targetRequest = new ProductionTargetRequest();
+        targetRequest.setDailyProductionTarget(20000);
+        targetRequest.setDeadlineDays(10);
+        targetRequest.setMaxBudget(15000);
+        targetRequest.setPrioritizeQuality(true);
+
+        filterRequest = new MachineFilterRequest();
+        filterRequest.setMinEfficiency(40.0);
+        filterRequest.setMaxEfficiency(60.0);
+        filterRequest.setMinEnergy(100.0);
+        filterRequest.setSize(50);
+    }
+
+    @Benchmark
+    public MachineStatisticsDto statistics() {
+        return machineService.getMachineStatistics();
+    }
+
+    @Benchmark
+    public void exportCsv() throws IOException {
+        machineService.exportMachinesToExcel(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public List<MachineRecommendationDto> recommend() {
+        return machineService.recommendMachines(targetRequest);
+    }
+
+    @Benchmark
+    public List<MachineRecommendationDto> recommendTop20() {
+        return machineService.recommendMachines(targetRequest, 20);
+    }
+
+    @Benchmark
+    public List<MachineDto> filterByScoreAndEnergy() {
+        return machineService.filterMachinesByEfficiency(filterRequest);
+    }
+
+    @Benchmark
+    public List<MachineDto> searchByName() {
+        return machineService.searchMachinesByName("kine-12", 20);
+    }
+}
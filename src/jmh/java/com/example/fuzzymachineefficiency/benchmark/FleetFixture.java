@@ -0,0 +1,79 @@
+package com.example.fuzzymachineefficiency.benchmark;
+
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.index.MachineCapacityIndex;
+import com.example.fuzzymachineefficiency.index.MachineNameIndex;
+import com.example.fuzzymachineefficiency.index.MachineScoreIndex;
+import com.example.fuzzymachineefficiency.mapper.MachineMapperImpl;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.service.EfficiencyOptimizer;
+import com.example.fuzzymachineefficiency.service.FleetScoringExecutor;
+import com.example.fuzzymachineefficiency.service.FleetStatisticsAggregator;
+import com.example.fuzzymachineefficiency.service.FuzzyService;
+import com.example.fuzzymachineefficiency.service.MachineService;
+import com.example.fuzzymachineefficiency.service.MonteCarloSimulator;
+import com.example.fuzzymachineefficiency.service.ScoreHistoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds services wired against an in-memory fleet. Keep every benchmark going through here so
+ * constructor changes in the service layer only need to be mirrored once.
+ */
+final class FleetFixture {
+
+    private FleetFixture() {
+    }
+
+    static FuzzyService fuzzyService(String engine) {
+        return new FuzzyService(engine, 1, "", 1000, 1, 64, true, new SimpleMeterRegistry());
+    }
+
+    static List<Machine> syntheticFleet(int size, FuzzyService fuzzyService) {
+        SplittableRandom random = new SplittableRandom(size);
+        List<Machine> machines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Machine machine = new Machine();
+            machine.setId((long) i + 1);
+            machine.setName("Makine-" + (i + 1));
+            machine.setDailyProduction(random.nextDouble(100, 5000));
+            machine.setErrorMargin(random.nextDouble(0, 25));
+            machine.setMaintenanceInterval(random.nextDouble(1, 200));
+            machine.setStandbyTime(random.nextDouble(0, 400));
+            machine.setEnergyConsumption(random.nextDouble(10, 160));
+
+            double score = fuzzyService.score(machine.getDailyProduction(), machine.getErrorMargin(),
+            machine.getMaintenanceInterval(), machine.getStandbyTime(), machine.getEnergyConsumption());
+            machine.setEfficiencyScore(Math.round(score * 100.0) / 100.0);
+            machine.setScoreModelVersion(fuzzyService.getModelVersion());
+            machines.add(machine);
+        }
+        return machines;
+    }
+
+    static MachineService machineService(List<Machine> fleet, FuzzyService fuzzyService) {
+        MachineRepository repository = InMemoryMachineRepository.create(fleet);
+        FleetStatisticsAggregator statisticsAggregator = new FleetStatisticsAggregator(repository);
+        statisticsAggregator.reconcile();
+        MachineNameIndex machineNameIndex = new MachineNameIndex(repository);
+        machineNameIndex.rebuild();
+        MachineScoreIndex machineScoreIndex = new MachineScoreIndex(repository);
+        machineScoreIndex.rebuild();
+        MachineCapacityIndex machineCapacityIndex = new MachineCapacityIndex(repository, fuzzyService);
+        machineCapacityIndex.rebuild();
+        FleetScoringExecutor fleetScoringExecutor = new FleetScoringExecutor(0, 256);
+        return new MachineService(repository, fuzzyService, new MachineMapperImpl(), event -> {
+        }, statisticsAggregator, machineNameIndex, machineScoreIndex, machineCapacityIndex,
+        fleetScoringExecutor, new SimpleMeterRegistry(),
+        new EfficiencyOptimizer(fuzzyService, 2000, Duration.ofMillis(100)),
+        new MonteCarloSimulator(fleetScoringExecutor, 1_000_000, Duration.ofSeconds(2)),
+        new ScoreHistoryService(new JdbcTemplate(), new DataSourceTransactionManager(), ZoneId.of("Europe/Istanbul"), 1000));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.fuzzymachineefficiency.benchmark;
+
+import com.example.fuzzymachineefficiency.dto.MachineAnalysisResponse;
+import com.example.fuzzymachineefficiency.dto.MachineDataRequest;
+import com.example.fuzzymachineefficiency.service.FuzzyService;
+import net.sourceforge.jFuzzyLogic.FIS;
+import net.sourceforge.jFuzzyLogic.FunctionBlock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FuzzyEngineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({"native", "jfuzzylogic", "lut"})
+        public String engine;
+
+        FuzzyService fuzzyService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fuzzyService = FleetFixture.fuzzyService(engine);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Inputs {
+
+        private static final int SIZE = 4096;
+
+        final MachineDataRequest[] requests = new MachineDataRequest[SIZE];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+            for (int i = 0; i < SIZE; i++) {
+                MachineDataRequest request = new MachineDataRequest();
+                request.setDailyProduction(random.nextDouble(100, 5000));
+                request.setErrorMargin(random.nextDouble(0, 25));
+                request.setMaintenanceInterval(random.nextDouble(1, 200));
+                request.setStandbyTime(random.nextDouble(0, 400));
+                request.setEnergyConsumption(random.nextDouble(10, 160));
+                requests[i] = request;
+            }
+        }
+
+        MachineDataRequest next() {
+            next = (next + 1) & (SIZE - 1);
+            return requests[next];
+        }
+    }
+
+    // The pre-caching code path: read and parse the FCL file for every evaluation.
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double coldParse(Inputs inputs) throws Exception {
+        MachineDataRequest request = inputs.next();
+        try (InputStream in = FuzzyEngineBenchmark.class.getClassLoader().getResourceAsStream("machineefficiency.fcl")) {
+            FunctionBlock fb = FIS.load(in, false).getFunctionBlock(null);
+            fb.setVariable("productionAmount", request.getDailyProduction());
+            fb.setVariable("errorRate", request.getErrorMargin());
+            fb.setVariable("maintenanceInterval", request.getMaintenanceInterval());
+            fb.setVariable("standbyTime", request.getStandbyTime());
+            fb.setVariable("energyConsumption", request.getEnergyConsumption());
+            fb.evaluate();
+            return fb.getVariable("efficiencyScore").getValue();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public MachineAnalysisResponse warmCalculate(Engine engine, Inputs inputs) {
+        return engine.fuzzyService.calculate(inputs.next());
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public MachineAnalysisResponse throughput1Thread(Engine engine, Inputs inputs) {
+        return engine.fuzzyService.calculate(inputs.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public MachineAnalysisResponse throughput4Threads(Engine engine, Inputs inputs) {
+        return engine.fuzzyService.calculate(inputs.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public MachineAnalysisResponse throughputMaxThreads(Engine engine, Inputs inputs) {
+        return engine.fuzzyService.calculate(inputs.next());
+    }
+}
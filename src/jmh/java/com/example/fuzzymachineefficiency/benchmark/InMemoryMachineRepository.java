@@ -0,0 +1,116 @@
+package com.example.fuzzymachineefficiency.benchmark;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read-only, list backed stand-in for {@link MachineRepository} so fleet benchmarks measure the service
+ * layer without a database. Only the methods the benchmarked code paths call are implemented.
+ */
+final class InMemoryMachineRepository implements InvocationHandler {
+
+    private final List<Machine> machines;
+    private final Map<Long, Machine> byId;
+
+    private InMemoryMachineRepository(List<Machine> machines) {
+        this.machines = machines;
+        this.byId = machines.stream().collect(Collectors.toMap(Machine::getId, machine -> machine));
+    }
+
+    static MachineRepository create(List<Machine> machines) {
+        return (MachineRepository) Proxy.newProxyInstance(MachineRepository.class.getClassLoader(),
+        new Class<?>[]{MachineRepository.class}, new InMemoryMachineRepository(machines));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "findAll" -> {
+                if (args == null) {
+                    yield new ArrayList<>(machines);
+                }
+                if (args[0] instanceof Pageable pageable) {
+                    yield page(machines.stream(), pageable);
+                }
+                throw new UnsupportedOperationException("findAll(" + args[0].getClass().getSimpleName() + ")");
+            }
+            case "findById" -> Optional.ofNullable(byId.get((Long) args[0]));
+            case "existsById" -> byId.containsKey((Long) args[0]);
+            case "count" -> (long) machines.size();
+            case "findAllById" -> {
+                List<Machine> result = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    Machine machine = byId.get((Long) id);
+                    if (machine != null) {
+                        result.add(machine);
+                    }
+                }
+                yield result;
+            }
+            case "findByEfficiencyScoreNotNull" ->
+            page(filter(machine -> machine.getEfficiencyScore() != null), (Pageable) args[0]).getContent();
+            case "findByEfficiencyScoreLessThan" ->
+            page(filter(machine -> machine.getEfficiencyScore() < (Double) args[0]), (Pageable) args[1]).getContent();
+            case "findByScoreModelVersionIsNullOrScoreModelVersionNot" -> List.of();
+            case "findExportRowsAfter" -> machines.stream()
+            .filter(machine -> machine.getId() > (Long) args[0])
+            .limit(((Pageable) args[1]).getPageSize())
+            .map(machine -> new MachineExportRow(machine.getId(), machine.getName(), machine.getDailyProduction(),
+            machine.getErrorMargin(), machine.getMaintenanceInterval(), machine.getStandbyTime(),
+            machine.getEnergyConsumption(), machine.getEfficiencyScore()))
+            .toList();
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> "InMemoryMachineRepository[" + machines.size() + "]";
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+    }
+
+    private Stream<Machine> filter(Predicate<Machine> predicate) {
+        return machines.stream().filter(machine -> machine.getEfficiencyScore() != null).filter(predicate);
+    }
+
+    private Page<Machine> page(Stream<Machine> stream, Pageable pageable) {
+        Comparator<Machine> comparator = null;
+        for (var order : pageable.getSort()) {
+            Comparator<Machine> next = Comparator.comparing(machine -> property(machine, order.getProperty()),
+            Comparator.nullsLast(Comparator.naturalOrder()));
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (comparator != null) {
+            stream = stream.sorted(comparator);
+        }
+        List<Machine> content = stream.skip(pageable.getOffset()).limit(pageable.getPageSize()).toList();
+        return new PageImpl<>(content, pageable, machines.size());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable property(Machine machine, String property) {
+        return switch (property) {
+            case "id" -> machine.getId();
+            case "efficiencyScore" -> machine.getEfficiencyScore();
+            case "dailyProduction" -> machine.getDailyProduction();
+            case "name" -> machine.getName();
+            default -> throw new UnsupportedOperationException("sort by " + property);
+        };
+    }
+}
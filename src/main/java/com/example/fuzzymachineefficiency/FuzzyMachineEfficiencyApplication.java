@@ -1,22 +1,52 @@
 package com.example.fuzzymachineefficiency;
 
+import com.example.fuzzymachineefficiency.index.MachineCapacityIndex;
+import com.example.fuzzymachineefficiency.index.MachineNameIndex;
+import com.example.fuzzymachineefficiency.index.MachineScoreIndex;
+import com.example.fuzzymachineefficiency.service.FleetStatisticsAggregator;
+import com.example.fuzzymachineefficiency.service.MachineImportService;
+import com.example.fuzzymachineefficiency.service.MachineService;
+import com.example.fuzzymachineefficiency.service.ScoreHistoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.context.event.ApplicationStartedEvent;
-import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Slf4j
 @RequiredArgsConstructor
+@EnableScheduling
 @SpringBootApplication(scanBasePackages = "com.example.fuzzymachineefficiency")
-public class FuzzyMachineEfficiencyApplication implements ApplicationListener<ApplicationStartedEvent> {
+public class FuzzyMachineEfficiencyApplication implements SmartInitializingSingleton {
+
+    private final MachineService machineService;
+    private final MachineImportService machineImportService;
+    private final FleetStatisticsAggregator statisticsAggregator;
+    private final MachineNameIndex machineNameIndex;
+    private final MachineScoreIndex machineScoreIndex;
+    private final MachineCapacityIndex machineCapacityIndex;
+    private final ScoreHistoryService scoreHistoryService;
+
     public static void main(String[] args) {
         SpringApplication.run(FuzzyMachineEfficiencyApplication.class,args);
     }
 
+    // Runs once every singleton (and every @EventListener) is in place but before the web server starts and
+    // scheduled tasks begin, so no request sees a half-built index or statistics.
     @Override
-    public void onApplicationEvent(ApplicationStartedEvent event) {
+    public void afterSingletonsInstantiated() {
+        machineImportService.alignIdSequence();
+
+        int rescored = machineService.rescoreStaleMachines();
+        if (rescored > 0) {
+            log.info("Rule base changed, rescored {} machines", rescored);
+        }
 
+        statisticsAggregator.reconcile();
+        machineNameIndex.rebuild();
+        machineScoreIndex.rebuild();
+        machineCapacityIndex.rebuild();
+        scoreHistoryService.loadFleetRollups();
     }
 }
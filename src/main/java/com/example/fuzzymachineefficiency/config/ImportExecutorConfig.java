@@ -0,0 +1,30 @@
+package com.example.fuzzymachineefficiency.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ImportExecutorConfig {
+
+    /** Imports beyond the running jobs and the queue are rejected with {@code RejectedExecutionException}. */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService machineImportExecutor(@Value("${import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                                 @Value("${import.queue-capacity:8}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+
+        return new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+            Thread thread = new Thread(runnable, "machine-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.fuzzymachineefficiency.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ScoringExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchScoringExecutor(@Value("${scoring.batch.threads:0}") int threads,
+                                                @Value("${scoring.batch.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+            Thread thread = new Thread(runnable, "batch-scoring-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.fuzzymachineefficiency.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many fleet-wide requests run at once so a burst of them cannot hold every database
+ * connection while cheap lookups wait. Admitted work runs on its own virtual thread; callers over the
+ * limit get 503 with Retry-After straight away, and work running past the timeout is interrupted and
+ * answered with 503 as well.
+ */
+@Component
+public class FleetRequestBulkhead {
+
+    private final Semaphore permits;
+    private final Duration timeout;
+    private final ExecutorService executor =
+    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fleet-request-", 0).factory());
+
+    public FleetRequestBulkhead(@Value("${fleet.requests.max-concurrent:4}") int maxConcurrent,
+                                @Value("${fleet.requests.timeout:PT2M}") Duration timeout) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.timeout = timeout;
+    }
+
+    public <T> DeferredResult<ResponseEntity<T>> submit(Supplier<T> work) {
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(timeout.toMillis(),
+        () -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        if (!permits.tryAcquire()) {
+            result.setResult(rejected());
+            return result;
+        }
+
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    result.setResult(ResponseEntity.ok(work.get()));
+                } catch (RuntimeException e) {
+                    result.setErrorResult(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        result.onTimeout(() -> future.cancel(true));
+        return result;
+    }
+
+    /** For responses that stream on their own: take a permit up front and hand it back when done. */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public <T> ResponseEntity<T> rejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "5")
+        .build();
+    }
+}
@@ -2,24 +2,43 @@ package com.example.fuzzymachineefficiency.controller;
 
 import com.example.fuzzymachineefficiency.dto.*;
 import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.service.BatchScoringService;
+import com.example.fuzzymachineefficiency.service.EfficiencySweepService;
+import com.example.fuzzymachineefficiency.service.FleetMaintenanceScheduler;
+import com.example.fuzzymachineefficiency.service.MachineImportService;
 import com.example.fuzzymachineefficiency.service.MachineService;
+import com.example.fuzzymachineefficiency.service.TelemetryIngestionService;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/machines")
+@Timed(value = "machines.api", histogram = true)
 @RequiredArgsConstructor
 public class MachineController {
 
     private final MachineService machineService;
+    private final BatchScoringService batchScoringService;
+    private final MachineImportService machineImportService;
+    private final FleetRequestBulkhead fleetRequestBulkhead;
+    private final FleetMaintenanceScheduler fleetMaintenanceScheduler;
+    private final EfficiencySweepService efficiencySweepService;
+    private final TelemetryIngestionService telemetryIngestionService;
 
     @PostMapping("/add")
     public ResponseEntity<Machine> addMachine(@RequestBody MachineDto machineDto) {
@@ -31,6 +50,15 @@ public class MachineController {
         return ResponseEntity.ok(machineService.simulate(request));
     }
 
+    @PostMapping(value = "/score-batch", consumes = {"application/x-ndjson", "text/csv"})
+    public void scoreBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = request.getContentType() != null && request.getContentType().startsWith("text/csv");
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        batchScoringService.scoreStream(request.getInputStream(), csv, response.getOutputStream());
+    }
+
     @GetMapping
     public ResponseEntity<List<MachineDto>> getAllMachines() {
         return ResponseEntity.ok(machineService.getAllMachines());
@@ -58,8 +86,8 @@ public class MachineController {
     }
 
     @GetMapping("/filter")
-    public ResponseEntity<List<MachineDto>> filterMachinesByEfficiency(@RequestParam(required = false) Double minEfficiency, @RequestParam(required = false) Double maxEfficiency) {
-        return ResponseEntity.ok(machineService.filterMachinesByEfficiency(minEfficiency, maxEfficiency));
+    public ResponseEntity<List<MachineDto>> filterMachinesByEfficiency(@ModelAttribute MachineFilterRequest request) {
+        return ResponseEntity.ok(machineService.filterMachinesByEfficiency(request));
     }
 
     @GetMapping("/{id}/efficiency-analysis")
@@ -67,11 +95,26 @@ public class MachineController {
         return ResponseEntity.ok(machineService.getEfficiencyAnalysis(id));
     }
 
+    @PostMapping("/{id}/sweep")
+    public ResponseEntity<SweepResponse> sweepEfficiency(@PathVariable Long id, @RequestBody SweepRequest request) {
+        return ResponseEntity.ok(efficiencySweepService.sweep(id, request));
+    }
+
     @PostMapping("/{id}/maintenance-plan")
     public ResponseEntity<MaintenancePlanResponse> createMaintenancePlan(@PathVariable Long id, @RequestBody MaintenancePlanRequest request) {
         return ResponseEntity.ok(machineService.createMaintenancePlan(id, request));
     }
 
+    @PostMapping("/{id}/maintenance-plan/occurrences")
+    public ResponseEntity<List<ScheduledMaintenance>> getMaintenanceOccurrences(@PathVariable Long id, @RequestBody MaintenancePlanRequest request, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(machineService.getMaintenanceOccurrences(id, request, page, size));
+    }
+
+    @PostMapping("/maintenance-schedule")
+    public DeferredResult<ResponseEntity<FleetMaintenanceScheduleResponse>> scheduleFleetMaintenance(@RequestBody FleetMaintenanceRequest request) {
+        return fleetRequestBulkhead.submit(() -> fleetMaintenanceScheduler.schedule(request));
+    }
+
     @PostMapping("/compare")
     public ResponseEntity<MachineComparisonResponse> compareMachines(@RequestBody MachineComparisonRequest request) {
         return ResponseEntity.ok(machineService.compareMachines(request));
@@ -83,35 +126,68 @@ public class MachineController {
     }
 
     @PostMapping("/recommend")
-    public ResponseEntity<List<MachineRecommendationDto>> recommendMachines(@RequestBody ProductionTargetRequest request) {
-        return ResponseEntity.ok(machineService.recommendMachines(request));
+    public DeferredResult<ResponseEntity<List<MachineRecommendationDto>>> recommendMachines(@RequestBody ProductionTargetRequest request, @RequestParam(required = false) Integer limit) {
+        return fleetRequestBulkhead.submit(() -> machineService.recommendMachines(request, limit));
     }
 
     @GetMapping("/top-performers")
-    public ResponseEntity<List<MachineDto>> getTopPerformingMachines(@RequestParam(defaultValue = "5") int limit) {
-        return ResponseEntity.ok(machineService.getTopPerformingMachines(limit));
+    public ResponseEntity<List<MachineDto>> getTopPerformingMachines(@RequestParam(defaultValue = "5") int limit, @RequestParam(defaultValue = "top") String order) {
+        return ResponseEntity.ok(machineService.getTopPerformingMachines(limit, "bottom".equalsIgnoreCase(order)));
     }
 
     @GetMapping("/needs-improvement")
-    public ResponseEntity<List<MachineDto>> getMachinesNeedingImprovement() {
-        return ResponseEntity.ok(machineService.getMachinesNeedingImprovement());
+    public ResponseEntity<List<MachineDto>> getMachinesNeedingImprovement(@RequestParam(defaultValue = "50") double threshold, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(machineService.getMachinesNeedingImprovement(threshold, page, size));
     }
 
     @GetMapping("/export/excel")
-    public ResponseEntity<Resource> exportMachinesToExcel() {
-        Resource resource = machineService.exportMachinesToExcel();
+    public ResponseEntity<StreamingResponseBody> exportMachinesToExcel() {
+        if (!fleetRequestBulkhead.tryAcquire()) {
+            return fleetRequestBulkhead.rejected();
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                machineService.exportMachinesToExcel(out);
+            } finally {
+                fleetRequestBulkhead.release();
+            }
+        };
 
-        
-        
         return ResponseEntity.ok()
         .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=machines.csv")
         .contentType(MediaType.parseMediaType("text/csv"))
-        .body(resource);
+        .body(body);
     }
 
     @PostMapping("/import/excel")
-    public ResponseEntity<ImportResponse> importMachinesFromExcel(@RequestParam("file") MultipartFile file) {
-        return ResponseEntity.ok(machineService.importMachinesFromExcel(file));
+    public DeferredResult<ResponseEntity<ImportResponse>> importMachinesFromExcel(@RequestParam("file") MultipartFile file) {
+        return fleetRequestBulkhead.submit(() -> machineImportService.importMachines(file));
+    }
+
+    @PostMapping("/import/excel/async")
+    public ResponseEntity<ImportJobStatus> startImport(@RequestParam("file") MultipartFile file) throws IOException {
+        return ResponseEntity.accepted().body(machineImportService.startImport(file));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> importQueueFull() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "30").build();
+    }
+
+    @GetMapping("/import/jobs/{jobId}")
+    public ResponseEntity<ImportJobStatus> getImportJobStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(machineImportService.getJobStatus(jobId));
+    }
+
+    @PostMapping("/telemetry")
+    public ResponseEntity<TelemetryIngestResponse> ingestTelemetry(@RequestBody List<TelemetryReading> readings) {
+        return switch (telemetryIngestionService.offer(readings)) {
+            case ACCEPTED -> ResponseEntity.accepted().body(telemetryIngestionService.describe(readings.size()));
+            case BUFFER_FULL -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+            case TOO_LARGE -> ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+            case UNAVAILABLE -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        };
     }
 
     @GetMapping("/statistics")
@@ -120,7 +196,7 @@ public class MachineController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<MachineDto>> searchMachinesByName(@RequestParam String name) {
-        return ResponseEntity.ok(machineService.searchMachinesByName(name));
+    public ResponseEntity<List<MachineDto>> searchMachinesByName(@RequestParam String name, @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(machineService.searchMachinesByName(name, limit));
     }
 }
\ No newline at end of file
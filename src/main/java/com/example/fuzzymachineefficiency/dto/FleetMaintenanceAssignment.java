@@ -0,0 +1,22 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceTaskPriority;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class FleetMaintenanceAssignment {
+    private Long machineId;
+    private String machineName;
+    private String taskName;
+    private MaintenanceTaskPriority priority;
+    private int estimatedHours;
+    private List<String> requiredResources;
+    private LocalDate plannedDate;
+    private LocalDate scheduledDate;
+    private int delayDays;
+    private String status;
+    private String reason;
+}
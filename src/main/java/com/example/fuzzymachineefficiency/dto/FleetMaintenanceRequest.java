@@ -0,0 +1,17 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class FleetMaintenanceRequest {
+    private LocalDate startDate;
+    private int horizonDays = 365;
+    private int dailyTechnicianHours;
+    private Map<String, Integer> dailyResourceCapacity;
+    private boolean workOnWeekends;
+    private List<MachineMaintenancePlan> machines;
+}
@@ -0,0 +1,15 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class FleetMaintenanceScheduleResponse {
+    private List<FleetMaintenanceAssignment> assignments;
+    private List<FleetMaintenanceAssignment> unscheduled;
+    private long totalScheduledHours;
+    private long totalDelayDays;
+    private int peakDailyHours;
+    private int improvementMoves;
+}
@@ -12,4 +12,6 @@ public class FullAnalysisResponse {
     private Double calculatedDays;
     private Boolean isDeadlineMet;
     private String costDetails;
+
+    private MonteCarloResult monteCarlo;
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+@Data
+public class HistogramBin {
+    private double lowerBound;
+    private double upperBound;
+    private long count;
+}
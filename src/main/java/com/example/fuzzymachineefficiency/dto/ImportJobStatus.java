@@ -0,0 +1,18 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class ImportJobStatus {
+    private String jobId;
+    private String status;
+    private long processedRecords;
+    private long successfulImports;
+    private long failedImports;
+    private List<String> errors;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
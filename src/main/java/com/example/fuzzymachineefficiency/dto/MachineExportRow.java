@@ -0,0 +1,17 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MachineExportRow {
+    private Long id;
+    private String name;
+    private Double dailyProduction;
+    private Double errorMargin;
+    private Double maintenanceInterval;
+    private Double standbyTime;
+    private Double energyConsumption;
+    private Double efficiencyScore;
+}
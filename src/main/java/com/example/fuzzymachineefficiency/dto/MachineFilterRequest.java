@@ -0,0 +1,15 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+@Data
+public class MachineFilterRequest {
+    private Double minEfficiency;
+    private Double maxEfficiency;
+    private Double minEnergy;
+    private Double maxEnergy;
+    private Double minProduction;
+    private Double maxProduction;
+    private int page;
+    private Integer size;
+}
@@ -0,0 +1,9 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+@Data
+public class MachineMaintenancePlan {
+    private Long machineId;
+    private MaintenancePlanRequest plan;
+}
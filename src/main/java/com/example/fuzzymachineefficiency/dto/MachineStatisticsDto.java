@@ -15,5 +15,6 @@ public class MachineStatisticsDto {
     private double averageMaintenanceInterval;
     private double averageEnergyConsumption;
     private List<ChartData> efficiencyTrendByMonth;
+    private List<ChartData> efficiencyTrendByDay;
     private List<ChartData> productionVsEfficiency;
 }
\ No newline at end of file
@@ -8,8 +8,9 @@ import java.util.List;
 public class MaintenancePlanResponse {
     private Long machineId;
     private String machineName;
+    private MaintenanceRecurrenceDto recurrence;
     private List<ScheduledMaintenance> scheduledMaintenances;
-    private int totalMaintenanceHours;
+    private long totalMaintenanceHours;
     private double estimatedCost;
     private String nextMaintenanceDate;
 }
\ No newline at end of file
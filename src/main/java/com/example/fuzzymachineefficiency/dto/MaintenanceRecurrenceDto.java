@@ -0,0 +1,18 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceFrequency;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class MaintenanceRecurrenceDto {
+    private MaintenanceFrequency frequency;
+    private LocalDate firstDate;
+    private LocalDate untilDate;
+    private boolean weekendsShiftedToMonday;
+    private long occurrenceCount;
+    private int hoursPerOccurrence;
+    private List<MaintenanceTask> tasks;
+}
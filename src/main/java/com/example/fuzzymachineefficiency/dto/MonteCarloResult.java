@@ -0,0 +1,26 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MonteCarloResult {
+    private long trials;
+    private long seed;
+    private boolean budgetExhausted;
+    private long elapsedMillis;
+    private double relativeAccuracy;
+
+    private double meanCost;
+    private double costP50;
+    private double costP90;
+    private double costP99;
+
+    private double daysP50;
+    private double daysP90;
+    private double daysP99;
+    private double deadlineMetProbability;
+
+    private List<HistogramBin> costHistogram;
+}
@@ -11,4 +11,6 @@ public class OptimizationResponse {
     private double currentEfficiencyScore;
     private List<OptimizationSuggestion> suggestions;
     private OptimizedState potentialOptimizedState;
+    private int searchEvaluations;
+    private boolean searchConverged;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import com.example.fuzzymachineefficiency.entity.enums.DistributionType;
+import lombok.Data;
+
+/**
+ * FIXED uses mean; UNIFORM min..max; NORMAL mean and stdDev, clamped to min/max when given;
+ * TRIANGULAR min, mode and max. A missing mean or mode falls back to the machine's own value.
+ */
+@Data
+public class ParameterDistribution {
+    private DistributionType type;
+    private Double mean;
+    private Double stdDev;
+    private Double min;
+    private Double max;
+    private Double mode;
+}
@@ -0,0 +1,15 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+@Data
+public class ParameterSensitivity {
+    private String parameter;
+    private double currentValue;
+    // score change per unit of the parameter at the current values
+    private double derivative;
+    // percent score change per percent parameter change at the current values
+    private double elasticity;
+    // mean |score slope| over the swept grid; null for parameters that were not swept
+    private Double meanAbsoluteSlope;
+}
@@ -11,4 +11,11 @@ public class SimulationRequest {
     private double laborCostPerHour;
     private double maintenanceCostPerSession;
 
+    // Monte Carlo mode when trials > 0; parameters without a distribution keep the machine's value
+    private Integer trials;
+    private Long seed;
+    private ParameterDistribution errorMarginDistribution;
+    private ParameterDistribution standbyTimeDistribution;
+    // share of working days lost to unplanned downtime, in percent (0 when not given)
+    private ParameterDistribution downtimeDistribution;
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+@Data
+public class SweepAxis {
+    // dailyProduction, errorMargin, maintenanceInterval, standbyTime or energyConsumption
+    private String parameter;
+    // default to half and one and a half times the machine's current value
+    private Double min;
+    private Double max;
+    private Integer steps;
+}
@@ -0,0 +1,11 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SweepRequest {
+    // one axis for a curve, two for a surface (first axis = columns, second = rows)
+    private List<SweepAxis> axes;
+}
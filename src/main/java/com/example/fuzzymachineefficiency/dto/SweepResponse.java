@@ -0,0 +1,20 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SweepResponse {
+    private Long machineId;
+    private String machineName;
+    private double currentScore;
+    private String columnParameter;
+    private String rowParameter;
+    private double[] columnValues;
+    private double[] rowValues;
+    // scores[row][column]: rows follow rowValues (a single row for a 1-D sweep), columns follow columnValues
+    private double[][] scores;
+    private List<ParameterSensitivity> sensitivities;
+    private long evaluations;
+}
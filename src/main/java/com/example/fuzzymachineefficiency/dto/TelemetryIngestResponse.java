@@ -0,0 +1,10 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+@Data
+public class TelemetryIngestResponse {
+    private int acceptedReadings;
+    private int bufferedReadings;
+    private int bufferCapacity;
+}
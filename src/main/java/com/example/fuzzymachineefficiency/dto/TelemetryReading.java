@@ -0,0 +1,17 @@
+package com.example.fuzzymachineefficiency.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/** One PLC reading; every amount covers the {@code intervalSeconds} ending at {@code timestamp}. */
+@Data
+public class TelemetryReading {
+    private Long machineId;
+    private Instant timestamp;
+    private double intervalSeconds;
+    private double producedUnits;
+    private double defectiveUnits;
+    private double energyKwh;
+    private double standbySeconds;
+}
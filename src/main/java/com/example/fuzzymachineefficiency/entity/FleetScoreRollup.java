@@ -0,0 +1,44 @@
+package com.example.fuzzymachineefficiency.entity;
+
+import com.example.fuzzymachineefficiency.entity.enums.RollupGranularity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Each machine's average score over a day or a month, summed over the fleet. Rewritten by
+ * {@code ScoreHistoryService} from the period's {@link MachineScoreRollup} rows whenever they change.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "fleet_score_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_fleet_score_rollup", columnNames = {"granularity", "period_start"})
+})
+public class FleetScoreRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    @Column(name = "score_min", nullable = false)
+    private double scoreMin;
+
+    @Column(name = "score_max", nullable = false)
+    private double scoreMax;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+}
@@ -7,11 +7,15 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "machines")
+@Table(name = "machines", indexes = {
+    @Index(name = "idx_machines_efficiency_score", columnList = "efficiency_score"),
+    @Index(name = "idx_machines_efficiency_status", columnList = "efficiency_status")
+})
 public class Machine {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "machines_seq")
+    @SequenceGenerator(name = "machines_seq", sequenceName = "machines_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -21,4 +25,13 @@ public class Machine {
     private Double maintenanceInterval;
     private Double standbyTime;
     private Double energyConsumption;
-}
\ No newline at end of file
+
+    @Column(name = "efficiency_score")
+    private Double efficiencyScore;
+
+    @Column(name = "efficiency_status")
+    private String efficiencyStatus;
+
+    @Column(name = "score_model_version")
+    private String scoreModelVersion;
+}
@@ -0,0 +1,47 @@
+package com.example.fuzzymachineefficiency.entity;
+
+import com.example.fuzzymachineefficiency.entity.enums.RollupGranularity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Score snapshots of one machine summed over a day or a month. Mapped for the schema only: rows are
+ * upserted by {@code ScoreHistoryService}, which adds every flushed batch of snapshots to them.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "machine_score_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_machine_score_rollup", columnNames = {"granularity", "period_start", "machine_id"})
+})
+public class MachineScoreRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "machine_id", nullable = false)
+    private Long machineId;
+
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    @Column(name = "score_min", nullable = false)
+    private double scoreMin;
+
+    @Column(name = "score_max", nullable = false)
+    private double scoreMax;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+}
@@ -0,0 +1,48 @@
+package com.example.fuzzymachineefficiency.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Readings of one machine coalesced over one window. Mapped for the schema only: rows are written by
+ * {@code TelemetryIngestionService} with batched JDBC upserts that add late readings to their window.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "machine_telemetry_windows", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_telemetry_machine_window", columnNames = {"machine_id", "window_start"})
+})
+public class TelemetryWindow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "machine_id", nullable = false)
+    private Long machineId;
+
+    @Column(name = "window_start", nullable = false)
+    private Instant windowStart;
+
+    @Column(name = "reading_count", nullable = false)
+    private long readingCount;
+
+    @Column(name = "covered_seconds", nullable = false)
+    private double coveredSeconds;
+
+    @Column(name = "produced_units", nullable = false)
+    private double producedUnits;
+
+    @Column(name = "defective_units", nullable = false)
+    private double defectiveUnits;
+
+    @Column(name = "energy_kwh", nullable = false)
+    private double energyKwh;
+
+    @Column(name = "standby_seconds", nullable = false)
+    private double standbySeconds;
+}
@@ -0,0 +1,5 @@
+package com.example.fuzzymachineefficiency.entity.enums;
+
+public enum DistributionType {
+    FIXED, UNIFORM, NORMAL, TRIANGULAR
+}
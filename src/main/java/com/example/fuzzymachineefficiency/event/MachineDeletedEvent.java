@@ -0,0 +1,4 @@
+package com.example.fuzzymachineefficiency.event;
+
+public record MachineDeletedEvent(Long machineId) {
+}
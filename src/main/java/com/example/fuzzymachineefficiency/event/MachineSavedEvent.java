@@ -0,0 +1,10 @@
+package com.example.fuzzymachineefficiency.event;
+
+import com.example.fuzzymachineefficiency.entity.Machine;
+
+/**
+ * Published after a machine has been inserted or updated. Listeners run synchronously on the saving
+ * thread and must only read the entity.
+ */
+public record MachineSavedEvent(Machine machine) {
+}
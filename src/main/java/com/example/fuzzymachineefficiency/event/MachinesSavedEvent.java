@@ -0,0 +1,13 @@
+package com.example.fuzzymachineefficiency.event;
+
+import com.example.fuzzymachineefficiency.entity.Machine;
+
+import java.util.List;
+
+/**
+ * Published once after a batch of machines has been inserted or updated, in place of one
+ * {@link MachineSavedEvent} per machine, so listeners can apply the batch under one lock. Same rules:
+ * listeners run synchronously on the saving thread and must only read the entities.
+ */
+public record MachinesSavedEvent(List<Machine> machines) {
+}
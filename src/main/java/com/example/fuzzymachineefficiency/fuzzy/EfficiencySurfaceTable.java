@@ -0,0 +1,402 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed output surface of a {@link FuzzyModel} answered by multilinear interpolation.
+ * <p>
+ * Grid nodes are placed on every term breakpoint of each input (optionally subdivided), so each
+ * fuzzified membership is exactly linear inside a cell and values beyond the outermost breakpoints
+ * clamp without error. Nodes where no rule fires are stored as NaN: the exact surface jumps to the
+ * DEFAULT value there, which no interpolation can follow, so cells touching such a node are handed to
+ * the model and the result stays NaN exactly where the model's would.
+ * <p>
+ * Where the surface curves too much for its cell, interpolation is not good enough either. Every cell is
+ * probed at its centre and a quarter of the way along each axis from it; a cell where any probe is off by
+ * more than a quarter of the tolerance is marked and evaluated by the model from then on. Samples and
+ * marks are stored row-major and can be persisted and memory-mapped on the next start. The deviation
+ * from the exact model is measured on random points after loading.
+ */
+@Slf4j
+public final class EfficiencySurfaceTable implements FuzzyEngine {
+
+    private static final int MAGIC = 0x465a4c54;
+    private static final int FORMAT_VERSION = 3;
+    // the probes see 2d + 1 points of a cell, so they are held to a fraction of the tolerance; at a quarter
+    // the shipped rule base stays within the tolerance everywhere the validation samples look
+    private static final double PROBE_MARGIN = 4.0;
+
+    private final FuzzyModel model;
+    private final double[][] axes;
+    private final int[] strides;
+    private final FloatBuffer values;
+    // indexed by a cell's lowest corner node
+    private final BitSet exactCells;
+    private double maxError;
+    private double meanError;
+
+    private EfficiencySurfaceTable(FuzzyModel model, double[][] axes, FloatBuffer values, BitSet exactCells) {
+        this.model = model;
+        this.axes = axes;
+        this.values = values;
+        this.exactCells = exactCells;
+        this.strides = new int[axes.length];
+        int stride = 1;
+        for (int d = axes.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= axes[d].length;
+        }
+    }
+
+    /**
+     * Samples the surface, or maps it from {@code file} when that holds the same rule base, resolution and
+     * tolerance. Cells that interpolate worse than {@code tolerance} score points are left to the model; an
+     * infinite tolerance interpolates every cell where rules fire.
+     */
+    public static EfficiencySurfaceTable build(FuzzyModel model, long fingerprint, int subdivisions,
+                                               Path file, int validationSamples, double tolerance) {
+        double[][] axes = new double[model.getInputCount()][];
+        for (int input = 0; input < axes.length; input++) {
+            axes[input] = buildAxis(model.getInputBreakpoints(input), subdivisions);
+        }
+
+        EfficiencySurfaceTable table = file != null ? tryMap(model, file, fingerprint, tolerance, axes) : null;
+        if (table == null) {
+            long start = System.nanoTime();
+            table = new EfficiencySurfaceTable(model, axes, sample(model, axes), new BitSet());
+            table.markExactCells(tolerance / PROBE_MARGIN);
+            log.info("Efficiency surface sampled: {} nodes in {} ms, {} cells left to the model",
+            table.values.capacity(), (System.nanoTime() - start) / 1_000_000, table.exactCells.cardinality());
+            if (file != null) {
+                table.write(file, fingerprint, tolerance);
+            }
+        }
+
+        table.measureError(model, validationSamples);
+        log.info("Efficiency surface interpolation error over {} samples: max {}, mean {}", validationSamples,
+        table.maxError, table.meanError);
+        return table;
+    }
+
+    @Override
+    public double evaluate(FuzzyWorkspace workspace) {
+        int base = locate(workspace);
+        if (base < 0 || exactCells.get(base)) {
+            return model.evaluate(workspace);
+        }
+        double result = interpolate(workspace, base);
+        return Double.isNaN(result) ? model.evaluate(workspace) : result;
+    }
+
+    // index of the lowest corner node of the cell holding the workspace inputs, -1 for a NaN input, which
+    // lies in no cell; fills the cell fractions
+    private int locate(FuzzyWorkspace workspace) {
+        int base = 0;
+        int[] cells = workspace.gridCells;
+        double[] fractions = workspace.gridFractions;
+        for (int d = 0; d < axes.length; d++) {
+            double[] axis = axes[d];
+            double x = workspace.inputs[d];
+            int cell;
+            double fraction;
+            if (Double.isNaN(x)) {
+                return -1;
+            }
+            if (axis.length == 1 || x <= axis[0]) {
+                cell = 0;
+                fraction = 0.0;
+            } else if (x >= axis[axis.length - 1]) {
+                cell = axis.length - 2;
+                fraction = 1.0;
+            } else {
+                int found = Arrays.binarySearch(axis, x);
+                cell = found >= 0 ? Math.min(found, axis.length - 2) : -found - 2;
+                fraction = (x - axis[cell]) / (axis[cell + 1] - axis[cell]);
+            }
+            cells[d] = cell;
+            fractions[d] = fraction;
+            base += cell * strides[d];
+        }
+        return base;
+    }
+
+    // NaN when a corner with weight fires no rule
+    private double interpolate(FuzzyWorkspace workspace, int base) {
+        double[] fractions = workspace.gridFractions;
+        double result = 0.0;
+        for (int corner = 0; corner < (1 << axes.length); corner++) {
+            double weight = 1.0;
+            int index = base;
+            for (int d = 0; d < axes.length; d++) {
+                if ((corner & (1 << d)) != 0) {
+                    weight *= fractions[d];
+                    if (axes[d].length > 1) {
+                        index += strides[d];
+                    }
+                } else {
+                    weight *= 1.0 - fractions[d];
+                }
+            }
+            if (weight != 0.0) {
+                float value = values.get(index);
+                if (Float.isNaN(value)) {
+                    return Double.NaN;
+                }
+                result += weight * value;
+            }
+        }
+        return result;
+    }
+
+    public double getMaxError() {
+        return maxError;
+    }
+
+    public double getMeanError() {
+        return meanError;
+    }
+
+    public int getNodeCount() {
+        return values.capacity();
+    }
+
+    /** Cells evaluated by the model because interpolating them would miss the tolerance. */
+    public int getExactCellCount() {
+        return exactCells.cardinality();
+    }
+
+    private static double[] buildAxis(double[] breakpoints, int subdivisions) {
+        TreeSet<Double> nodes = new TreeSet<>();
+        for (double breakpoint : breakpoints) {
+            nodes.add(breakpoint);
+        }
+        Double previous = null;
+        for (Double node : new TreeSet<>(nodes)) {
+            if (previous != null) {
+                for (int s = 1; s < subdivisions; s++) {
+                    nodes.add(previous + (node - previous) * s / subdivisions);
+                }
+            }
+            previous = node;
+        }
+        return nodes.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static FloatBuffer sample(FuzzyModel model, double[][] axes) {
+        int total = 1;
+        for (double[] axis : axes) {
+            total = Math.multiplyExact(total, axis.length);
+        }
+        float[] data = new float[total];
+        int innerSize = total / axes[0].length;
+
+        IntStream.range(0, axes[0].length).parallel().forEach(first -> {
+            FuzzyWorkspace workspace = model.newWorkspace();
+            workspace.setInput(0, axes[0][first]);
+            for (int offset = 0; offset < innerSize; offset++) {
+                int remainder = offset;
+                for (int d = axes.length - 1; d >= 1; d--) {
+                    workspace.setInput(d, axes[d][remainder % axes[d].length]);
+                    remainder /= axes[d].length;
+                }
+                data[first * innerSize + offset] = (float) model.evaluate(workspace);
+            }
+        });
+        return FloatBuffer.wrap(data);
+    }
+
+    private void markExactCells(double probeTolerance) {
+        if (Double.isInfinite(probeTolerance)) {
+            return;
+        }
+        int[] cellCounts = new int[axes.length];
+        int innerCells = 1;
+        for (int d = 0; d < axes.length; d++) {
+            cellCounts[d] = Math.max(1, axes[d].length - 1);
+            if (d > 0) {
+                innerCells *= cellCounts[d];
+            }
+        }
+        int cellsPerSlice = innerCells;
+        boolean[] exact = new boolean[values.capacity()];
+
+        IntStream.range(0, cellCounts[0]).parallel().forEach(first -> {
+            FuzzyWorkspace workspace = model.newWorkspace();
+            int[] cell = new int[axes.length];
+            cell[0] = first;
+            for (int offset = 0; offset < cellsPerSlice; offset++) {
+                int remainder = offset;
+                for (int d = axes.length - 1; d >= 1; d--) {
+                    cell[d] = remainder % cellCounts[d];
+                    remainder /= cellCounts[d];
+                }
+                // probe 0 is the centre, then a quarter below and above it on each axis
+                for (int probe = 0; probe <= 2 * axes.length; probe++) {
+                    for (int d = 0; d < axes.length; d++) {
+                        double fraction = probe == 0 || (probe - 1) / 2 != d ? 0.5 : (probe % 2 == 1 ? 0.25 : 0.75);
+                        double[] axis = axes[d];
+                        workspace.setInput(d, axis.length == 1 ? axis[0]
+                        : axis[cell[d]] + fraction * (axis[cell[d] + 1] - axis[cell[d]]));
+                    }
+                    int base = locate(workspace);
+                    double approximate = interpolate(workspace, base);
+                    if (Double.isNaN(approximate)) {
+                        // already left to the model through its corners
+                        break;
+                    }
+                    double exactValue = model.evaluate(workspace);
+                    if (Double.isNaN(exactValue) || Math.abs(exactValue - approximate) > probeTolerance) {
+                        exact[base] = true;
+                        break;
+                    }
+                }
+            }
+        });
+        for (int node = 0; node < exact.length; node++) {
+            if (exact[node]) {
+                exactCells.set(node);
+            }
+        }
+    }
+
+    // A point where only one side has no firing rule would be off by the whole DEFAULT jump; cells
+    // touching such nodes are evaluated exactly, so it counts as an infinite error if it ever happens.
+    private void measureError(FuzzyModel model, int samples) {
+        FuzzyWorkspace workspace = model.newWorkspace();
+        SplittableRandom random = new SplittableRandom(samples);
+        double worst = 0.0;
+        double total = 0.0;
+        for (int n = 0; n < samples; n++) {
+            for (int d = 0; d < axes.length; d++) {
+                double[] axis = axes[d];
+                if (axis.length == 1) {
+                    workspace.setInput(d, axis[0]);
+                    continue;
+                }
+                int cell = random.nextInt(axis.length - 1);
+                workspace.setInput(d, axis[cell] + random.nextDouble() * (axis[cell + 1] - axis[cell]));
+            }
+            double exact = model.evaluate(workspace);
+            double approximate = evaluate(workspace);
+            double error = Double.isNaN(exact) || Double.isNaN(approximate)
+            ? (Double.isNaN(exact) == Double.isNaN(approximate) ? 0.0 : Double.POSITIVE_INFINITY)
+            : Math.abs(exact - approximate);
+            worst = Math.max(worst, error);
+            total += error;
+        }
+        maxError = worst;
+        meanError = samples > 0 ? total / samples : 0.0;
+    }
+
+    private static EfficiencySurfaceTable tryMap(FuzzyModel model, Path file, long fingerprint, double tolerance,
+                                                 double[][] axes) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        long total = 1;
+        for (double[] axis : axes) {
+            total *= axis.length;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // a truncated or foreign file must not reach the header reads below
+            if (channel.size() != headerSize(axes) + total * Float.BYTES + markWords(total) * Long.BYTES) {
+                log.info("Efficiency surface file {} has an unexpected size, resampling", file);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getLong() != fingerprint
+            || Double.compare(buffer.getDouble(), tolerance) != 0 || buffer.getInt() != axes.length) {
+                log.info("Efficiency surface file {} is stale, resampling", file);
+                return null;
+            }
+            for (double[] axis : axes) {
+                if (buffer.getInt() != axis.length) {
+                    return null;
+                }
+            }
+            for (double[] axis : axes) {
+                for (double node : axis) {
+                    if (buffer.getDouble() != node) {
+                        return null;
+                    }
+                }
+            }
+            FloatBuffer values = buffer.slice(buffer.position(), (int) total * Float.BYTES).asFloatBuffer();
+            LongBuffer marks = buffer.slice(buffer.position() + (int) total * Float.BYTES,
+            (int) markWords(total) * Long.BYTES).asLongBuffer();
+            log.info("Efficiency surface mapped from {}", file);
+            return new EfficiencySurfaceTable(model, axes, values, BitSet.valueOf(marks));
+        } catch (IOException e) {
+            log.warn("Efficiency surface file {} could not be mapped: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static int headerSize(double[][] axes) {
+        int size = 4 + 4 + 8 + 8 + 4 + axes.length * 4;
+        for (double[] axis : axes) {
+            size += axis.length * 8;
+        }
+        return size;
+    }
+
+    private static long markWords(long nodes) {
+        return (nodes + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private void write(Path file, long fingerprint, double tolerance) {
+        ByteBuffer header = ByteBuffer.allocate(headerSize(axes));
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(fingerprint).putDouble(tolerance).putInt(axes.length);
+        for (double[] axis : axes) {
+            header.putInt(axis.length);
+        }
+        for (double[] axis : axes) {
+            for (double node : axis) {
+                header.putDouble(node);
+            }
+        }
+        header.flip();
+
+        int nodes = values.capacity();
+        ByteBuffer body = ByteBuffer.allocate(nodes * Float.BYTES + (int) markWords(nodes) * Long.BYTES);
+        body.asFloatBuffer().put(values.duplicate().rewind());
+        long[] marks = exactCells.toLongArray();
+        body.position(nodes * Float.BYTES);
+        body.asLongBuffer().put(marks);
+        body.rewind();
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+            }
+            log.info("Efficiency surface written to {}", file);
+        } catch (IOException e) {
+            log.warn("Efficiency surface file {} could not be written: {}", file, e.getMessage());
+        }
+    }
+}
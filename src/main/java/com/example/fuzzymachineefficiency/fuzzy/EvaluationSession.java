@@ -0,0 +1,167 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import java.util.Arrays;
+
+/**
+ * Stateful what-if evaluation of one input vector that changes a few inputs at a time. The session keeps
+ * every input's memberships and, per rule, the MIN over its antecedents on each input. Changing an input
+ * re-fuzzifies only that input and recomputes only the rules that use it. When the memberships do not
+ * move, nothing downstream is touched. Defuzzification runs only when the clipping level of some output
+ * term changed; otherwise the previous score is returned as is.
+ * <p>
+ * Inputs are addressed by their position in the order the session was opened with ({@link
+ * com.example.fuzzymachineefficiency.service.FuzzyService#openSession} uses the argument order of
+ * {@code score}). With an engine other than the native model the session still skips unchanged points
+ * but evaluates changed ones in full. Not thread-safe; open one session per thread.
+ */
+public final class EvaluationSession {
+
+    private final FuzzyModel model;
+    private final FuzzyEngine engine;
+    private final FuzzyWorkspace workspace;
+    private final int[] inputOrder;
+    private final int inputCount;
+    private final boolean incremental;
+
+    private final boolean[] dirty;
+    private final double[] previousMemberships;
+    // partials[rule * inputCount + input]: MIN over the rule's antecedents on that input
+    private final double[] partials;
+    private final double[] ruleStrengths;
+    private final boolean[] ruleChanged;
+    private final int[] changedRules;
+    private final double[] previousOutputStrengths;
+
+    private boolean anyDirty = true;
+    private boolean scored;
+    private double score;
+    private long evaluations;
+    private long defuzzifications;
+
+    public EvaluationSession(FuzzyModel model, FuzzyEngine engine, int[] inputOrder, double[] values) {
+        if (inputOrder.length != values.length) {
+            throw new IllegalArgumentException("Input order and values differ in length");
+        }
+        this.model = model;
+        this.engine = engine;
+        this.workspace = model.newWorkspace();
+        this.inputOrder = inputOrder.clone();
+        this.inputCount = model.getInputCount();
+        this.incremental = engine == model;
+        this.dirty = new boolean[inputCount];
+        Arrays.fill(dirty, true);
+        this.previousMemberships = new double[workspace.memberships.length];
+        this.partials = new double[model.getRuleCount() * inputCount];
+        Arrays.fill(partials, 1.0);
+        this.ruleStrengths = new double[model.getRuleCount()];
+        this.ruleChanged = new boolean[model.getRuleCount()];
+        this.changedRules = new int[model.getRuleCount()];
+        this.previousOutputStrengths = new double[model.outputTermCount()];
+        for (int i = 0; i < values.length; i++) {
+            workspace.inputs[this.inputOrder[i]] = values[i];
+        }
+    }
+
+    public void set(int position, double value) {
+        int input = inputOrder[position];
+        if (workspace.inputs[input] != value || Double.isNaN(value)) {
+            workspace.inputs[input] = value;
+            dirty[input] = true;
+            anyDirty = true;
+        }
+    }
+
+    public double get(int position) {
+        return workspace.inputs[inputOrder[position]];
+    }
+
+    /** Crisp output for the current inputs; the rule base's DEFAULT when no rule fires. */
+    public double evaluate() {
+        if (!anyDirty && scored) {
+            return score;
+        }
+        evaluations++;
+        if (!incremental) {
+            Arrays.fill(dirty, false);
+            anyDirty = false;
+            defuzzifications++;
+            score = orDefault(engine.evaluate(workspace));
+            scored = true;
+            return score;
+        }
+
+        int changedCount = 0;
+        for (int input = 0; input < inputCount; input++) {
+            if (!dirty[input]) {
+                continue;
+            }
+            dirty[input] = false;
+            if (!refuzzify(input) && scored) {
+                continue;
+            }
+            for (int r = model.inputRuleStart(input); r < model.inputRuleStart(input + 1); r++) {
+                int rule = model.inputRule(r);
+                partials[rule * inputCount + input] = model.antecedentStrength(workspace, rule, input);
+                if (!ruleChanged[rule]) {
+                    ruleChanged[rule] = true;
+                    changedRules[changedCount++] = rule;
+                }
+            }
+        }
+        anyDirty = false;
+
+        for (int i = 0; i < changedCount; i++) {
+            int rule = changedRules[i];
+            ruleChanged[rule] = false;
+            double strength = 1.0;
+            for (int input = 0, p = rule * inputCount; input < inputCount; input++, p++) {
+                strength = Math.min(strength, partials[p]);
+            }
+            ruleStrengths[rule] = strength;
+        }
+        if (changedCount == 0 && scored) {
+            return score;
+        }
+
+        // MAX accumulation per output term over the few rules of the base; defuzzify only on a change
+        double[] outputStrengths = workspace.outputStrengths;
+        Arrays.fill(outputStrengths, 0.0);
+        for (int rule = 0; rule < ruleStrengths.length; rule++) {
+            int term = model.ruleOutputTerm(rule);
+            if (ruleStrengths[rule] > outputStrengths[term]) {
+                outputStrengths[term] = ruleStrengths[rule];
+            }
+        }
+        if (scored && Arrays.equals(outputStrengths, previousOutputStrengths)) {
+            return score;
+        }
+        System.arraycopy(outputStrengths, 0, previousOutputStrengths, 0, outputStrengths.length);
+        defuzzifications++;
+        score = orDefault(model.defuzzify(workspace));
+        scored = true;
+        return score;
+    }
+
+    /** Evaluations that had at least one changed input since the previous one. */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /** Evaluations that reached defuzzification, the expensive stage; the rest reused the last score. */
+    public long getDefuzzifications() {
+        return defuzzifications;
+    }
+
+    private double orDefault(double crisp) {
+        return Double.isNaN(crisp) ? model.getDefaultValue() : crisp;
+    }
+
+    // true when any membership of the input moved
+    private boolean refuzzify(int input) {
+        int from = model.inputTermStart(input);
+        int to = model.inputTermStart(input + 1);
+        System.arraycopy(workspace.memberships, from, previousMemberships, from, to - from);
+        model.fuzzifyInput(workspace, input);
+        return !Arrays.equals(workspace.memberships, from, to, previousMemberships, from, to);
+    }
+}
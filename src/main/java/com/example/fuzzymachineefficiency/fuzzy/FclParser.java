@@ -0,0 +1,373 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses the subset of IEC 61131-7 FCL used by our rule bases (piecewise-linear terms,
+ * AND-only rules, MIN activation, MAX accumulation, COG defuzzification) into a {@link FuzzyModel}.
+ * Anything outside that subset is rejected with an {@link IllegalArgumentException}. The subset is mandatory:
+ * every engine, jFuzzyLogic included, takes its input order, DEFAULT and rule names from the parsed model,
+ * so a rule base this parser rejects cannot be loaded at all.
+ */
+public final class FclParser {
+
+    private final List<String> tokens;
+    private int position;
+
+    private final List<String> inputNames = new ArrayList<>();
+    private final Map<String, List<FuzzyModel.Term>> inputTerms = new LinkedHashMap<>();
+    private String outputName;
+    private final List<FuzzyModel.Term> outputTerms = new ArrayList<>();
+    private double defaultValue = Double.NaN;
+    private double rangeMin = Double.NaN;
+    private double rangeMax = Double.NaN;
+    private final List<int[]> ruleAntecedents = new ArrayList<>();
+    private final List<String> ruleNames = new ArrayList<>();
+    private final List<Integer> ruleOutputs = new ArrayList<>();
+
+    private FclParser(String fcl) {
+        this.tokens = tokenize(fcl);
+    }
+
+    public static FuzzyModel parse(String fcl) {
+        return new FclParser(fcl).parseFunctionBlock();
+    }
+
+    private FuzzyModel parseFunctionBlock() {
+        expect("FUNCTION_BLOCK");
+        if (!isKeyword(peek())) {
+            next();
+        }
+
+        List<String> outputNames = new ArrayList<>();
+        List<String[]> pendingRules = new ArrayList<>();
+
+        while (!accept("END_FUNCTION_BLOCK")) {
+            String section = next().toUpperCase(Locale.ROOT);
+            switch (section) {
+                case "VAR_INPUT" -> parseVariableDeclarations(inputNames);
+                case "VAR_OUTPUT" -> parseVariableDeclarations(outputNames);
+                case "FUZZIFY" -> {
+                    String variable = next();
+                    List<FuzzyModel.Term> terms = new ArrayList<>();
+                    while (!accept("END_FUZZIFY")) {
+                        expect("TERM");
+                        terms.add(parseTerm());
+                    }
+                    inputTerms.put(variable, terms);
+                }
+                case "DEFUZZIFY" -> parseDefuzzify();
+                case "RULEBLOCK" -> parseRuleBlock(pendingRules);
+                default -> throw unsupported("section " + section);
+            }
+        }
+
+        if (outputNames.size() != 1) {
+            throw new IllegalArgumentException("FCL: exactly one output variable is supported, found " + outputNames.size());
+        }
+        if (!outputNames.get(0).equals(outputName)) {
+            throw new IllegalArgumentException("FCL: missing DEFUZZIFY block for " + outputNames.get(0));
+        }
+        for (String input : inputNames) {
+            if (!inputTerms.containsKey(input)) {
+                throw new IllegalArgumentException("FCL: missing FUZZIFY block for " + input);
+            }
+        }
+
+        resolveRules(pendingRules);
+        return build();
+    }
+
+    private void parseVariableDeclarations(List<String> names) {
+        while (!accept("END_VAR")) {
+            names.add(next());
+            expect(":");
+            next();
+            expect(";");
+        }
+    }
+
+    private FuzzyModel.Term parseTerm() {
+        String name = next();
+        expect(":=");
+        List<double[]> points = new ArrayList<>();
+        while (accept("(")) {
+            double x = number();
+            expect(",");
+            double y = number();
+            expect(")");
+            points.add(new double[]{x, y});
+        }
+        expect(";");
+        if (points.isEmpty()) {
+            throw unsupported("non piecewise-linear term " + name);
+        }
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            xs[i] = points.get(i)[0];
+            ys[i] = points.get(i)[1];
+            if (i > 0 && xs[i] < xs[i - 1]) {
+                throw new IllegalArgumentException("FCL: term " + name + " points are not sorted");
+            }
+        }
+        return new FuzzyModel.Term(name, xs, ys);
+    }
+
+    private void parseDefuzzify() {
+        outputName = next();
+        while (!accept("END_DEFUZZIFY")) {
+            String keyword = next().toUpperCase(Locale.ROOT);
+            switch (keyword) {
+                case "TERM" -> outputTerms.add(parseTerm());
+                case "METHOD" -> {
+                    expect(":");
+                    expectOperator("COG");
+                    expect(";");
+                }
+                case "DEFAULT" -> {
+                    expect(":=");
+                    String value = next();
+                    defaultValue = value.equalsIgnoreCase("NC") ? Double.NaN : parseNumber(value);
+                    expect(";");
+                }
+                case "RANGE" -> {
+                    expect(":=");
+                    expect("(");
+                    rangeMin = number();
+                    expect("..");
+                    rangeMax = number();
+                    expect(")");
+                    expect(";");
+                }
+                default -> throw unsupported("DEFUZZIFY option " + keyword);
+            }
+        }
+    }
+
+    private void parseRuleBlock(List<String[]> pendingRules) {
+        if (!isKeyword(peek())) {
+            next();
+        }
+        while (!accept("END_RULEBLOCK")) {
+            String keyword = next().toUpperCase(Locale.ROOT);
+            switch (keyword) {
+                case "AND", "ACT" -> {
+                    expect(":");
+                    expectOperator("MIN");
+                    expect(";");
+                }
+                case "OR", "ACCU" -> {
+                    expect(":");
+                    expectOperator("MAX");
+                    expect(";");
+                }
+                case "RULE" -> pendingRules.add(parseRule());
+                default -> throw unsupported("RULEBLOCK option " + keyword);
+            }
+        }
+    }
+
+    // Returns {ruleName, outputVariable, outputTerm, var1, term1, var2, term2, ...}
+    private String[] parseRule() {
+        List<String> parts = new ArrayList<>();
+        parts.add(next());
+        expect(":");
+        expect("IF");
+        parts.add(null);
+        parts.add(null);
+        do {
+            parts.add(next());
+            expect("IS");
+            if (peekIs("NOT")) {
+                throw unsupported("NOT in rule " + parts.get(0));
+            }
+            parts.add(next());
+            if (peekIs("OR")) {
+                throw unsupported("OR in rule " + parts.get(0));
+            }
+        } while (accept("AND"));
+        expect("THEN");
+        parts.set(1, next());
+        expect("IS");
+        parts.set(2, next());
+        if (!peekIs(";")) {
+            throw unsupported("rule modifiers in rule " + parts.get(0));
+        }
+        expect(";");
+        return parts.toArray(new String[0]);
+    }
+
+    private void resolveRules(List<String[]> pendingRules) {
+        for (String[] rule : pendingRules) {
+            if (!rule[1].equals(outputName)) {
+                throw new IllegalArgumentException("FCL: rule " + rule[0] + " targets unknown output " + rule[1]);
+            }
+            int[] antecedents = new int[(rule.length - 3) / 2];
+            for (int i = 0; i < antecedents.length; i++) {
+                antecedents[i] = inputTermIndex(rule[3 + i * 2], rule[4 + i * 2]);
+            }
+            int outputTerm = termIndex(outputTerms, rule[2]);
+            if (outputTerm < 0) {
+                throw new IllegalArgumentException("FCL: unknown output term " + rule[2]);
+            }
+            ruleNames.add(rule[0]);
+            ruleAntecedents.add(antecedents);
+            ruleOutputs.add(outputTerm);
+        }
+    }
+
+    private int inputTermIndex(String variable, String term) {
+        int offset = 0;
+        for (String input : inputNames) {
+            List<FuzzyModel.Term> terms = inputTerms.get(input);
+            if (input.equals(variable)) {
+                int index = termIndex(terms, term);
+                if (index < 0) {
+                    throw new IllegalArgumentException("FCL: unknown term " + variable + "." + term);
+                }
+                return offset + index;
+            }
+            offset += terms.size();
+        }
+        throw new IllegalArgumentException("FCL: unknown input variable " + variable);
+    }
+
+    private static int termIndex(List<FuzzyModel.Term> terms, String name) {
+        for (int i = 0; i < terms.size(); i++) {
+            if (terms.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private FuzzyModel build() {
+        List<List<FuzzyModel.Term>> orderedInputTerms = new ArrayList<>();
+        for (String input : inputNames) {
+            orderedInputTerms.add(inputTerms.get(input));
+        }
+
+        double min = rangeMin;
+        double max = rangeMax;
+        if (Double.isNaN(min) || Double.isNaN(max)) {
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            for (FuzzyModel.Term term : outputTerms) {
+                min = Math.min(min, term.xs()[0]);
+                max = Math.max(max, term.xs()[term.xs().length - 1]);
+            }
+        }
+
+        int[] outputs = new int[ruleOutputs.size()];
+        for (int i = 0; i < outputs.length; i++) {
+            outputs[i] = ruleOutputs.get(i);
+        }
+
+        return new FuzzyModel(inputNames.toArray(new String[0]), orderedInputTerms, outputName, outputTerms,
+        min, max, defaultValue, ruleNames.toArray(new String[0]), ruleAntecedents.toArray(new int[0][]), outputs);
+    }
+
+    private void expectOperator(String operator) {
+        String actual = next();
+        if (!actual.equalsIgnoreCase(operator)) {
+            throw unsupported("operator " + actual);
+        }
+    }
+
+    private double number() {
+        return parseNumber(next());
+    }
+
+    private static double parseNumber(String token) {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("FCL: number expected, found " + token);
+        }
+    }
+
+    private String peek() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("FCL: unexpected end of file");
+        }
+        return tokens.get(position);
+    }
+
+    private boolean peekIs(String token) {
+        return peek().equalsIgnoreCase(token);
+    }
+
+    private String next() {
+        String token = peek();
+        position++;
+        return token;
+    }
+
+    private boolean accept(String token) {
+        if (peekIs(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        String actual = next();
+        if (!actual.equalsIgnoreCase(token)) {
+            throw new IllegalArgumentException("FCL: expected '" + token + "' but found '" + actual + "'");
+        }
+    }
+
+    private static boolean isKeyword(String token) {
+        return switch (token.toUpperCase(Locale.ROOT)) {
+            case "VAR_INPUT", "VAR_OUTPUT", "FUZZIFY", "DEFUZZIFY", "RULEBLOCK", "END_FUNCTION_BLOCK",
+                 "AND", "OR", "ACT", "ACCU", "RULE", "END_RULEBLOCK" -> true;
+            default -> false;
+        };
+    }
+
+    private static IllegalArgumentException unsupported(String what) {
+        return new IllegalArgumentException("FCL: unsupported " + what);
+    }
+
+    private static List<String> tokenize(String fcl) {
+        List<String> result = new ArrayList<>();
+        int i = 0;
+        int length = fcl.length();
+        while (i < length) {
+            char c = fcl.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (fcl.startsWith("//", i)) {
+                while (i < length && fcl.charAt(i) != '\n') i++;
+            } else if (fcl.startsWith("(*", i)) {
+                int end = fcl.indexOf("*)", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (fcl.startsWith(":=", i) || fcl.startsWith("..", i)) {
+                result.add(fcl.substring(i, i + 2));
+                i += 2;
+            } else if ("(),;:".indexOf(c) >= 0) {
+                result.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                i++;
+                while (i < length) {
+                    char d = fcl.charAt(i);
+                    boolean wordChar = Character.isLetterOrDigit(d) || d == '_'
+                    || (d == '.' && !fcl.startsWith("..", i))
+                    || ((d == '-' || d == '+') && (fcl.charAt(i - 1) == 'e' || fcl.charAt(i - 1) == 'E'));
+                    if (!wordChar) break;
+                    i++;
+                }
+                result.add(fcl.substring(start, i));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+/**
+ * Evaluates the crisp output of the rule base for the inputs currently stored in a workspace.
+ * Returns {@code NaN} when no rule fires.
+ */
+public interface FuzzyEngine {
+
+    double evaluate(FuzzyWorkspace workspace);
+}
@@ -0,0 +1,396 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, flattened Mamdani rule base compiled from FCL. All term breakpoints, rule antecedents and
+ * the sampled output terms live in primitive arrays, and evaluation writes only into a caller supplied
+ * {@link FuzzyWorkspace}, so a call allocates nothing. The output universe is sampled exactly like
+ * jFuzzyLogic's continuous COG defuzzifier (1000 points, accumulated step) to reproduce its results.
+ * <p>
+ * An inverted index from each input term to the rules that use it lets {@link #fireRules} visit only
+ * rules reachable from terms with non-zero membership; a rule fires when all its antecedent terms are
+ * active, so the cost follows the active rules rather than the size of the rule base.
+ */
+public final class FuzzyModel implements FuzzyEngine {
+
+    static final int NUMBER_OF_POINTS = 1000;
+
+    record Term(String name, double[] xs, double[] ys) {
+    }
+
+    private final String[] inputNames;
+    private final int[] inputTermStart;
+    private final String[] inputTermNames;
+    private final int[] termPointStart;
+    private final double[] pointX;
+    private final double[] pointY;
+
+    private final String[] ruleNames;
+    private final int[] ruleAntecedentStart;
+    private final int[] antecedentTerms;
+    private final int[] ruleOutputTerms;
+    private final int[] ruleDistinctTerms;
+    private final int[] termRuleStart;
+    private final int[] termRules;
+    private final int[] termInputs;
+    private final int[] inputRuleStart;
+    private final int[] inputRules;
+
+    private final String outputName;
+    private final String[] outputTermNames;
+    private final double universeMin;
+    private final double universeMax;
+    private final double[] samplePositions;
+    private final double[] outputSamples;
+    private final int[] outputSupportStart;
+    private final int[] outputSupportEnd;
+    private final double defaultValue;
+
+    FuzzyModel(String[] inputNames, List<List<Term>> inputTerms, String outputName, List<Term> outputTerms,
+               double universeMin, double universeMax, double defaultValue,
+               String[] ruleNames, int[][] ruleAntecedents, int[] ruleOutputTerms) {
+        this.inputNames = inputNames;
+        this.outputName = outputName;
+        this.universeMin = universeMin;
+        this.universeMax = universeMax;
+        this.defaultValue = defaultValue;
+        this.ruleNames = ruleNames;
+        this.ruleOutputTerms = ruleOutputTerms;
+
+        int termCount = 0;
+        int pointCount = 0;
+        for (List<Term> terms : inputTerms) {
+            termCount += terms.size();
+            for (Term term : terms) {
+                pointCount += term.xs().length;
+            }
+        }
+
+        this.inputTermStart = new int[inputNames.length + 1];
+        this.inputTermNames = new String[termCount];
+        this.termPointStart = new int[termCount + 1];
+        this.pointX = new double[pointCount];
+        this.pointY = new double[pointCount];
+
+        int term = 0;
+        int point = 0;
+        for (int input = 0; input < inputNames.length; input++) {
+            inputTermStart[input] = term;
+            for (Term t : inputTerms.get(input)) {
+                inputTermNames[term] = t.name();
+                termPointStart[term] = point;
+                System.arraycopy(t.xs(), 0, pointX, point, t.xs().length);
+                System.arraycopy(t.ys(), 0, pointY, point, t.ys().length);
+                point += t.xs().length;
+                term++;
+            }
+        }
+        inputTermStart[inputNames.length] = term;
+        termPointStart[termCount] = point;
+
+        this.ruleAntecedentStart = new int[ruleAntecedents.length + 1];
+        int antecedentCount = 0;
+        for (int[] antecedents : ruleAntecedents) {
+            antecedentCount += antecedents.length;
+        }
+        this.antecedentTerms = new int[antecedentCount];
+        int antecedent = 0;
+        for (int rule = 0; rule < ruleAntecedents.length; rule++) {
+            ruleAntecedentStart[rule] = antecedent;
+            System.arraycopy(ruleAntecedents[rule], 0, antecedentTerms, antecedent, ruleAntecedents[rule].length);
+            antecedent += ruleAntecedents[rule].length;
+        }
+        ruleAntecedentStart[ruleAntecedents.length] = antecedent;
+
+        int[][] distinctTerms = new int[ruleAntecedents.length][];
+        this.ruleDistinctTerms = new int[ruleAntecedents.length];
+        int[] termRuleCounts = new int[termCount];
+        for (int rule = 0; rule < ruleAntecedents.length; rule++) {
+            distinctTerms[rule] = Arrays.stream(ruleAntecedents[rule]).distinct().toArray();
+            ruleDistinctTerms[rule] = distinctTerms[rule].length;
+            for (int t : distinctTerms[rule]) {
+                termRuleCounts[t]++;
+            }
+        }
+        this.termRuleStart = new int[termCount + 1];
+        for (int t = 0; t < termCount; t++) {
+            termRuleStart[t + 1] = termRuleStart[t] + termRuleCounts[t];
+        }
+        this.termRules = new int[termRuleStart[termCount]];
+        int[] termFill = Arrays.copyOf(termRuleStart, termCount);
+        for (int rule = 0; rule < ruleAntecedents.length; rule++) {
+            for (int t : distinctTerms[rule]) {
+                termRules[termFill[t]++] = rule;
+            }
+        }
+
+        this.termInputs = new int[termCount];
+        for (int input = 0; input < inputNames.length; input++) {
+            Arrays.fill(termInputs, inputTermStart[input], inputTermStart[input + 1], input);
+        }
+        int[][] rulesByInput = new int[inputNames.length][];
+        for (int input = 0; input < inputNames.length; input++) {
+            int in = input;
+            rulesByInput[input] = IntStream.range(0, ruleAntecedents.length)
+            .filter(rule -> Arrays.stream(ruleAntecedents[rule]).anyMatch(t -> termInputs[t] == in))
+            .toArray();
+        }
+        this.inputRuleStart = new int[inputNames.length + 1];
+        for (int input = 0; input < inputNames.length; input++) {
+            inputRuleStart[input + 1] = inputRuleStart[input] + rulesByInput[input].length;
+        }
+        this.inputRules = new int[inputRuleStart[inputNames.length]];
+        for (int input = 0; input < inputNames.length; input++) {
+            System.arraycopy(rulesByInput[input], 0, inputRules, inputRuleStart[input], rulesByInput[input].length);
+        }
+
+        this.outputTermNames = new String[outputTerms.size()];
+        this.samplePositions = new double[NUMBER_OF_POINTS];
+        this.outputSamples = new double[outputTerms.size() * NUMBER_OF_POINTS];
+        double step = (universeMax - universeMin) / NUMBER_OF_POINTS;
+        double x = universeMin;
+        for (int i = 0; i < NUMBER_OF_POINTS; i++, x += step) {
+            samplePositions[i] = x;
+        }
+        this.outputSupportStart = new int[outputTerms.size()];
+        this.outputSupportEnd = new int[outputTerms.size()];
+        for (int t = 0; t < outputTerms.size(); t++) {
+            Term outputTerm = outputTerms.get(t);
+            outputTermNames[t] = outputTerm.name();
+            outputSupportStart[t] = NUMBER_OF_POINTS;
+            for (int i = 0; i < NUMBER_OF_POINTS; i++) {
+                double sample = piecewiseLinear(outputTerm.xs(), outputTerm.ys(), samplePositions[i]);
+                outputSamples[t * NUMBER_OF_POINTS + i] = sample;
+                if (sample > 0.0) {
+                    outputSupportStart[t] = Math.min(outputSupportStart[t], i);
+                    outputSupportEnd[t] = i + 1;
+                }
+            }
+        }
+    }
+
+    public FuzzyWorkspace newWorkspace() {
+        return new FuzzyWorkspace(inputNames.length, inputTermNames.length, ruleNames.length, outputTermNames.length);
+    }
+
+    @Override
+    public double evaluate(FuzzyWorkspace workspace) {
+        fuzzify(workspace);
+        fireRules(workspace);
+        return defuzzify(workspace);
+    }
+
+    public void fuzzify(FuzzyWorkspace workspace) {
+        for (int input = 0; input < inputNames.length; input++) {
+            fuzzifyInput(workspace, input);
+        }
+    }
+
+    public void fuzzifyInput(FuzzyWorkspace workspace, int input) {
+        double value = workspace.inputs[input];
+        for (int term = inputTermStart[input]; term < inputTermStart[input + 1]; term++) {
+            workspace.memberships[term] = membership(term, value);
+        }
+    }
+
+    public void fireRules(FuzzyWorkspace workspace) {
+        double[] outputStrengths = workspace.outputStrengths;
+        double[] ruleStrengths = workspace.ruleStrengths;
+        double[] memberships = workspace.memberships;
+        int[] hits = workspace.ruleHits;
+        int[] touched = workspace.touchedRules;
+        int[] active = workspace.activeRules;
+
+        for (int t = 0; t < outputStrengths.length; t++) {
+            outputStrengths[t] = 0.0;
+        }
+        for (int i = 0; i < workspace.activeRuleCount; i++) {
+            ruleStrengths[active[i]] = 0.0;
+        }
+
+        int touchedCount = 0;
+        for (int term = 0; term < memberships.length; term++) {
+            if (memberships[term] > 0.0) {
+                for (int r = termRuleStart[term]; r < termRuleStart[term + 1]; r++) {
+                    int rule = termRules[r];
+                    if (hits[rule]++ == 0) {
+                        touched[touchedCount++] = rule;
+                    }
+                }
+            }
+        }
+
+        int activeCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int rule = touched[i];
+            if (hits[rule] == ruleDistinctTerms[rule]) {
+                double strength = 1.0;
+                for (int a = ruleAntecedentStart[rule]; a < ruleAntecedentStart[rule + 1]; a++) {
+                    strength = Math.min(strength, memberships[antecedentTerms[a]]);
+                }
+                ruleStrengths[rule] = strength;
+                active[activeCount++] = rule;
+                int outputTerm = ruleOutputTerms[rule];
+                if (strength > outputStrengths[outputTerm]) {
+                    outputStrengths[outputTerm] = strength;
+                }
+            }
+            hits[rule] = 0;
+        }
+        workspace.activeRuleCount = activeCount;
+    }
+
+    // MIN activation followed by MAX accumulation collapses to one clipping level per output term:
+    // max_r min(s_r, mu_t(x)) == min(max_r s_r, mu_t(x)).
+    // Only the sample range covered by clipped output terms is aggregated; the zeros outside it would
+    // not change either sum.
+    public double defuzzify(FuzzyWorkspace workspace) {
+        double[] outputStrengths = workspace.outputStrengths;
+        int from = NUMBER_OF_POINTS;
+        int to = 0;
+        for (int t = 0; t < outputTermNames.length; t++) {
+            if (outputStrengths[t] > 0.0) {
+                from = Math.min(from, outputSupportStart[t]);
+                to = Math.max(to, outputSupportEnd[t]);
+            }
+        }
+        if (from >= to) {
+            return Double.NaN;
+        }
+
+        double[] aggregated = workspace.aggregated;
+        for (int i = from; i < to; i++) {
+            aggregated[i] = 0.0;
+        }
+        for (int t = 0; t < outputTermNames.length; t++) {
+            double level = outputStrengths[t];
+            if (level <= 0.0) {
+                continue;
+            }
+            int offset = t * NUMBER_OF_POINTS;
+            for (int i = outputSupportStart[t]; i < outputSupportEnd[t]; i++) {
+                double value = Math.min(level, outputSamples[offset + i]);
+                if (value > aggregated[i]) {
+                    aggregated[i] = value;
+                }
+            }
+        }
+
+        double sum = 0.0;
+        double weightedSum = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += aggregated[i];
+            weightedSum += samplePositions[i] * aggregated[i];
+        }
+        return sum > 0.0 ? weightedSum / sum : Double.NaN;
+    }
+
+    // Incremental evaluation support for EvaluationSession: the rules depending on one input, and the
+    // MIN over a rule's antecedents on that input (1.0 when the rule does not use it).
+
+    int inputTermStart(int input) {
+        return inputTermStart[input];
+    }
+
+    int inputRuleStart(int input) {
+        return inputRuleStart[input];
+    }
+
+    int inputRule(int index) {
+        return inputRules[index];
+    }
+
+    double antecedentStrength(FuzzyWorkspace workspace, int rule, int input) {
+        double strength = 1.0;
+        for (int a = ruleAntecedentStart[rule]; a < ruleAntecedentStart[rule + 1]; a++) {
+            int term = antecedentTerms[a];
+            if (termInputs[term] == input) {
+                strength = Math.min(strength, workspace.memberships[term]);
+            }
+        }
+        return strength;
+    }
+
+    int ruleOutputTerm(int rule) {
+        return ruleOutputTerms[rule];
+    }
+
+    int outputTermCount() {
+        return outputTermNames.length;
+    }
+
+    double membership(int term, double value) {
+        int first = termPointStart[term];
+        int last = termPointStart[term + 1] - 1;
+        if (value <= pointX[first]) return pointY[first];
+        if (value > pointX[last]) return pointY[last];
+        int p = first + 1;
+        while (value > pointX[p]) {
+            p++;
+        }
+        double x0 = pointX[p - 1];
+        double y0 = pointY[p - 1];
+        return y0 + (pointY[p] - y0) * (value - x0) / (pointX[p] - x0);
+    }
+
+    private static double piecewiseLinear(double[] xs, double[] ys, double value) {
+        int last = xs.length - 1;
+        if (value <= xs[0]) return ys[0];
+        if (value > xs[last]) return ys[last];
+        int p = 1;
+        while (value > xs[p]) {
+            p++;
+        }
+        return ys[p - 1] + (ys[p] - ys[p - 1]) * (value - xs[p - 1]) / (xs[p] - xs[p - 1]);
+    }
+
+    public int getInputCount() {
+        return inputNames.length;
+    }
+
+    public String getInputName(int input) {
+        return inputNames[input];
+    }
+
+    public int getInputIndex(String name) {
+        for (int i = 0; i < inputNames.length; i++) {
+            if (inputNames[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown fuzzy input: " + name);
+    }
+
+    public double[] getInputBreakpoints(int input) {
+        int first = termPointStart[inputTermStart[input]];
+        int last = termPointStart[inputTermStart[input + 1]];
+        return Arrays.copyOfRange(pointX, first, last);
+    }
+
+    public String getOutputName() {
+        return outputName;
+    }
+
+    public int getRuleCount() {
+        return ruleNames.length;
+    }
+
+    public String getRuleName(int rule) {
+        return ruleNames[rule];
+    }
+
+    public double getUniverseMin() {
+        return universeMin;
+    }
+
+    public double getUniverseMax() {
+        return universeMax;
+    }
+
+    public double getDefaultValue() {
+        return defaultValue;
+    }
+}
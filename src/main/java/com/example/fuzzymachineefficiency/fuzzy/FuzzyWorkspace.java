@@ -0,0 +1,54 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+/**
+ * Mutable per-thread scratch state for {@link FuzzyModel} evaluation. Not thread-safe; obtain one per
+ * thread via {@link FuzzyModel#newWorkspace()} and reuse it across calls.
+ */
+public final class FuzzyWorkspace {
+
+    final double[] inputs;
+    final double[] memberships;
+    final double[] ruleStrengths;
+    final int[] ruleHits;
+    final int[] touchedRules;
+    final int[] activeRules;
+    int activeRuleCount;
+    final double[] outputStrengths;
+    final double[] aggregated;
+    final int[] gridCells;
+    final double[] gridFractions;
+
+    FuzzyWorkspace(int inputCount, int termCount, int ruleCount, int outputTermCount) {
+        this.inputs = new double[inputCount];
+        this.memberships = new double[termCount];
+        this.ruleStrengths = new double[ruleCount];
+        this.ruleHits = new int[ruleCount];
+        this.touchedRules = new int[ruleCount];
+        this.activeRules = new int[ruleCount];
+        this.outputStrengths = new double[outputTermCount];
+        this.aggregated = new double[FuzzyModel.NUMBER_OF_POINTS];
+        this.gridCells = new int[inputCount];
+        this.gridFractions = new double[inputCount];
+    }
+
+    public void setInput(int input, double value) {
+        inputs[input] = value;
+    }
+
+    public double getInput(int input) {
+        return inputs[input];
+    }
+
+    public double getRuleStrength(int rule) {
+        return ruleStrengths[rule];
+    }
+
+    /** Number of rules that fired in the last {@link FuzzyModel#fireRules} call. */
+    public int getActiveRuleCount() {
+        return activeRuleCount;
+    }
+
+    public int getActiveRule(int index) {
+        return activeRules[index];
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import net.sourceforge.jFuzzyLogic.FIS;
+import net.sourceforge.jFuzzyLogic.FunctionBlock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reference engine backed by jFuzzyLogic. jFuzzyLogic stores input/output values inside the
+ * FunctionBlock, so every concurrent evaluation needs its own instance. Blocks are parsed once from
+ * the cached definition and recycled, never re-parsed per call.
+ */
+public class JFuzzyLogicEngine implements FuzzyEngine {
+
+    private final String fclDefinition;
+    private final String[] inputNames;
+    private final String outputName;
+    private final Queue<FunctionBlock> idleFunctionBlocks = new ConcurrentLinkedQueue<>();
+
+    public JFuzzyLogicEngine(String fclDefinition, FuzzyModel model) {
+        this.fclDefinition = fclDefinition;
+        this.inputNames = new String[model.getInputCount()];
+        for (int i = 0; i < inputNames.length; i++) {
+            inputNames[i] = model.getInputName(i);
+        }
+        this.outputName = model.getOutputName();
+        idleFunctionBlocks.add(createFunctionBlock());
+    }
+
+    @Override
+    public double evaluate(FuzzyWorkspace workspace) {
+        FunctionBlock fb = borrowFunctionBlock();
+        try {
+            for (int i = 0; i < inputNames.length; i++) {
+                fb.setVariable(inputNames[i], workspace.getInput(i));
+            }
+
+            fb.evaluate();
+
+            return fb.getVariable(outputName).getValue();
+        } finally {
+            idleFunctionBlocks.offer(fb);
+        }
+    }
+
+    private FunctionBlock borrowFunctionBlock() {
+        FunctionBlock fb = idleFunctionBlocks.poll();
+        return fb != null ? fb : createFunctionBlock();
+    }
+
+    private FunctionBlock createFunctionBlock() {
+        FIS fis = FIS.createFromString(fclDefinition, false);
+        if (fis == null) {
+            throw new RuntimeException("ERROR: FIS loading failed.");
+        }
+        return fis.getFunctionBlock(null);
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.fuzzymachineefficiency.index;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.service.FuzzyService;
+import com.example.fuzzymachineefficiency.util.TopKSelector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * k-d tree over what decides whether a machine fits a production target: effective daily production,
+ * energy consumption and error margin. Every node also keeps the best efficiency score below it.
+ * <p>
+ * {@link #top} is a best-first branch-and-bound: subtrees are visited in order of an upper bound the
+ * caller derives from the node's bounding box, and the search stops once no remaining subtree can beat
+ * the k-th machine found so far. Machines that cannot reach the target in time or within budget sit in
+ * subtrees whose bound is too low and are never looked at, so the work follows the result size instead
+ * of the fleet size.
+ * <p>
+ * The trees are immutable. Saves and deletes go to a small map of recent changes that every query scans
+ * in full; once it holds more than {@value #MAX_RECENT} entries, a background task folds all changes since
+ * the base tree was built into a second, delta tree, or, once those outgrow an eighth of the base tree,
+ * merges them into a new base tree. Queries keep using the previous state until the result is swapped in.
+ */
+@Slf4j
+@Component
+public class MachineCapacityIndex {
+
+    private static final int LEAF_SIZE = 32;
+    private static final int MAX_RECENT = 512;
+    private static final int MIN_CHANGES_BEFORE_MERGE = 4096;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Point REMOVED = new Point(-1L, 0.0, 0.0, 0.0, 0.0);
+
+    public record Point(long machineId, double effectiveProduction, double energyConsumption, double errorMargin,
+                        double efficiencyScore) {
+    }
+
+    /** Bounds of every point in a subtree. */
+    public record Box(double minEffectiveProduction, double maxEffectiveProduction, double minEnergyConsumption,
+                      double maxEnergyConsumption, double minErrorMargin, double maxErrorMargin,
+                      double maxEfficiencyScore) {
+    }
+
+    public interface Objective {
+
+        double score(Point point);
+
+        /** Must never be below {@link #score} of any point inside {@code box}. */
+        double upperBound(Box box);
+    }
+
+    public record Hit(long machineId, double value, double efficiencyScore) {
+    }
+
+    public record Selection(List<Hit> hits, long examined) {
+    }
+
+    private static final Comparator<Hit> HIT_ORDER = Comparator
+    .comparingDouble(Hit::value).reversed()
+    .thenComparing(Comparator.comparingDouble(Hit::efficiencyScore).reversed())
+    .thenComparingLong(Hit::machineId);
+
+    private final MachineRepository machineRepository;
+    private final FuzzyService fuzzyService;
+    private final ExecutorService mergeExecutor =
+    Executors.newSingleThreadExecutor(Thread.ofPlatform().name("capacity-index-merge").daemon().factory());
+    private volatile State state = State.of(Tree.build(new Point[0]), Map.of());
+    // bumped by every rebuild so a merge started before it is discarded instead of swapped in
+    private long generation;
+    private boolean mergeScheduled;
+    private Map<Long, Point> changesDuringRebuild;
+
+    public MachineCapacityIndex(MachineRepository machineRepository, FuzzyService fuzzyService) {
+        this.machineRepository = machineRepository;
+        this.fuzzyService = fuzzyService;
+    }
+
+    /** Reloads the index from the table; changes arriving during the scan are kept on top of it. */
+    public void rebuild() {
+        synchronized (this) {
+            if (changesDuringRebuild != null) {
+                return;
+            }
+            changesDuringRebuild = new HashMap<>();
+        }
+
+        List<Point> points = new ArrayList<>();
+        Tree base;
+        long start;
+        try {
+            long afterId = 0L;
+            List<MachineExportRow> rows;
+            do {
+                rows = machineRepository.findExportRowsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (MachineExportRow row : rows) {
+                    points.add(point(row.getId(), row.getDailyProduction(), row.getErrorMargin(),
+                    row.getMaintenanceInterval(), row.getStandbyTime(), row.getEnergyConsumption(),
+                    row.getEfficiencyScore()));
+                    afterId = row.getId();
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+            start = System.nanoTime();
+            base = Tree.build(points.toArray(new Point[0]));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            generation++;
+            state = State.of(base, changesDuringRebuild);
+            changesDuringRebuild = null;
+            scheduleMergeIfNeeded();
+        }
+        log.info("Machine capacity index built: {} machines in {} ms", points.size(),
+        (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onMachineSaved(MachineSavedEvent event) {
+        Point point = point(event.machine());
+        synchronized (this) {
+            recordChange(event.machine().getId(), point);
+            scheduleMergeIfNeeded();
+        }
+    }
+
+    @EventListener
+    public void onMachinesSaved(MachinesSavedEvent event) {
+        List<Point> points = event.machines().stream().map(this::point).toList();
+        synchronized (this) {
+            for (Point point : points) {
+                recordChange(point.machineId(), point);
+            }
+            scheduleMergeIfNeeded();
+        }
+    }
+
+    @EventListener
+    public synchronized void onMachineDeleted(MachineDeletedEvent event) {
+        recordChange(event.machineId(), REMOVED);
+        scheduleMergeIfNeeded();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mergeExecutor.shutdownNow();
+    }
+
+    /**
+     * The {@code limit} machines with the highest {@link Objective#score}, ties broken by efficiency score
+     * and then id, best first.
+     */
+    public Selection top(Objective objective, int limit) {
+        State current = state;
+        TopKSelector<Hit> selector = new TopKSelector<>(limit, HIT_ORDER);
+        long examined = 0;
+
+        // recent changes first: they are scanned anyway and tighten the cutoff early
+        for (Point point : current.recent().values()) {
+            if (point != REMOVED) {
+                selector.offer(new Hit(point.machineId(), objective.score(point), point.efficiencyScore()));
+                examined++;
+            }
+        }
+        examined += search(current.delta(), current.recent(), objective, limit, selector);
+        examined += search(current.base(), current.changed(), objective, limit, selector);
+
+        return new Selection(selector.toSortedList(), examined);
+    }
+
+    // Branch-and-bound over one tree, skipping machines whose point there is outdated.
+    private static long search(Tree tree, Map<Long, Point> outdated, Objective objective, int limit,
+                               TopKSelector<Hit> selector) {
+        long examined = 0;
+        if (tree.size() > 0 && limit > 0) {
+            PriorityQueue<NodeBound> queue = new PriorityQueue<>(
+            Comparator.comparingDouble(NodeBound::bound).reversed());
+            queue.add(new NodeBound(0, objective.upperBound(tree.box(0))));
+
+            while (!queue.isEmpty()) {
+                NodeBound next = queue.poll();
+                Hit cutoff = selector.cutoff();
+                if (cutoff != null && next.bound() < cutoff.value()) {
+                    break;
+                }
+                int node = next.node();
+                if (tree.isLeaf(node)) {
+                    for (int i = tree.from[node]; i < tree.to[node]; i++) {
+                        Point point = tree.points[i];
+                        if (!outdated.isEmpty() && outdated.containsKey(point.machineId())) {
+                            continue;
+                        }
+                        selector.offer(new Hit(point.machineId(), objective.score(point), point.efficiencyScore()));
+                        examined++;
+                    }
+                } else {
+                    for (int child : new int[]{tree.left[node], tree.right[node]}) {
+                        double bound = objective.upperBound(tree.box(child));
+                        if (cutoff == null || bound >= cutoff.value()) {
+                            queue.add(new NodeBound(child, bound));
+                        }
+                    }
+                }
+            }
+        }
+        return examined;
+    }
+
+    // Both maps are written under the monitor; queries read them concurrently.
+    private void recordChange(long machineId, Point point) {
+        State current = state;
+        current.changed().put(machineId, point);
+        current.recent().put(machineId, point);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.put(machineId, point);
+        }
+    }
+
+    private void scheduleMergeIfNeeded() {
+        if (!mergeScheduled && state.recent().size() > MAX_RECENT) {
+            mergeScheduled = true;
+            mergeExecutor.execute(this::merge);
+        }
+    }
+
+    /**
+     * Builds the next delta or base tree from a copy of the changes without holding the monitor. Changes
+     * recorded meanwhile stay in the recent map of the swapped-in state; they are recognised by identity,
+     * as every change is a new point (or the shared removal marker, which leaves the same result).
+     */
+    private void merge() {
+        State current;
+        Map<Long, Point> captured;
+        long startedGeneration;
+        synchronized (this) {
+            current = state;
+            captured = new HashMap<>(current.changed());
+            startedGeneration = generation;
+        }
+
+        boolean full = captured.size() > Math.max(MIN_CHANGES_BEFORE_MERGE, current.base().size() / 8);
+        List<Point> points = new ArrayList<>(full ? current.base().size() + captured.size() : captured.size());
+        if (full) {
+            for (Point point : current.base().points) {
+                if (!captured.containsKey(point.machineId())) {
+                    points.add(point);
+                }
+            }
+        }
+        for (Point point : captured.values()) {
+            if (point != REMOVED) {
+                points.add(point);
+            }
+        }
+        Tree merged = Tree.build(points.toArray(new Point[0]));
+
+        synchronized (this) {
+            mergeScheduled = false;
+            if (generation == startedGeneration) {
+                State latest = state;
+                Map<Long, Point> recent = new ConcurrentHashMap<>();
+                latest.recent().forEach((id, point) -> {
+                    if (captured.get(id) != point) {
+                        recent.put(id, point);
+                    }
+                });
+                state = full
+                ? new State(merged, Tree.build(new Point[0]), new ConcurrentHashMap<>(recent), recent)
+                : new State(latest.base(), merged, latest.changed(), recent);
+            }
+            scheduleMergeIfNeeded();
+        }
+    }
+
+    private Point point(Machine machine) {
+        return point(machine.getId(), machine.getDailyProduction(), machine.getErrorMargin(),
+        machine.getMaintenanceInterval(), machine.getStandbyTime(), machine.getEnergyConsumption(),
+        machine.getEfficiencyScore());
+    }
+
+    private Point point(Long id, Double dailyProduction, Double errorMargin, Double maintenanceInterval,
+                        Double standbyTime, Double energyConsumption, Double efficiencyScore) {
+        double production = dailyProduction != null ? dailyProduction : 0.0;
+        double error = errorMargin != null ? errorMargin : 0.0;
+        double energy = energyConsumption != null ? energyConsumption : 0.0;
+        double score;
+        if (efficiencyScore != null) {
+            score = efficiencyScore;
+        } else {
+            score = fuzzyService.score(production, error, maintenanceInterval != null ? maintenanceInterval : 0.0,
+            standbyTime != null ? standbyTime : 0.0, energy);
+            score = Math.round(score * 100.0) / 100.0;
+        }
+        return new Point(id, production * (1 - error / 100), energy, error, score);
+    }
+
+    /**
+     * {@code changed} holds every change since {@code base} was built, so those base points are skipped;
+     * {@code delta} holds the points of the changes folded so far, and {@code recent} the changes after
+     * that, which also shadow the delta.
+     */
+    private record State(Tree base, Tree delta, Map<Long, Point> changed, Map<Long, Point> recent) {
+
+        static State of(Tree base, Map<Long, Point> changes) {
+            return new State(base, Tree.build(new Point[0]), new ConcurrentHashMap<>(changes),
+            new ConcurrentHashMap<>(changes));
+        }
+    }
+
+    private record NodeBound(int node, double bound) {
+    }
+
+    /**
+     * Implicit k-d tree: {@code points} is reordered so every node covers the range {@code [from, to)}, and
+     * inner nodes split their range at the median of the dimension with the widest spread.
+     */
+    private static final class Tree {
+
+        private static final int DIMENSIONS = 3;
+        private static final int BOX_FIELDS = 7;
+
+        private final Point[] points;
+        private final int[] from;
+        private final int[] to;
+        private final int[] left;
+        private final int[] right;
+        private final double[] boxes;
+        private int nodeCount;
+
+        private Tree(Point[] points) {
+            this.points = points;
+            int capacity = 2 * (points.length / LEAF_SIZE + 1) * 2;
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.left = new int[capacity];
+            this.right = new int[capacity];
+            this.boxes = new double[capacity * BOX_FIELDS];
+        }
+
+        static Tree build(Point[] points) {
+            Tree tree = new Tree(points);
+            if (points.length > 0) {
+                tree.buildNode(0, points.length);
+            }
+            return tree;
+        }
+
+        int size() {
+            return points.length;
+        }
+
+        boolean isLeaf(int node) {
+            return left[node] < 0;
+        }
+
+        Box box(int node) {
+            int b = node * BOX_FIELDS;
+            return new Box(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], boxes[b + 4], boxes[b + 5], boxes[b + 6]);
+        }
+
+        private int buildNode(int start, int end) {
+            int node = nodeCount++;
+            from[node] = start;
+            to[node] = end;
+
+            double[] min = new double[DIMENSIONS];
+            double[] max = new double[DIMENSIONS];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            double maxScore = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    double value = coordinate(points[i], d);
+                    min[d] = Math.min(min[d], value);
+                    max[d] = Math.max(max[d], value);
+                }
+                maxScore = Math.max(maxScore, points[i].efficiencyScore());
+            }
+            int b = node * BOX_FIELDS;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                boxes[b + 2 * d] = min[d];
+                boxes[b + 2 * d + 1] = max[d];
+            }
+            boxes[b + 6] = maxScore;
+
+            int widest = 0;
+            for (int d = 1; d < DIMENSIONS; d++) {
+                if (max[d] - min[d] > max[widest] - min[widest]) {
+                    widest = d;
+                }
+            }
+            if (end - start <= LEAF_SIZE || !(max[widest] > min[widest])) {
+                left[node] = -1;
+                right[node] = -1;
+                return node;
+            }
+
+            int middle = (start + end) >>> 1;
+            select(start, end - 1, middle, widest);
+            left[node] = buildNode(start, middle);
+            right[node] = buildNode(middle, end);
+            return node;
+        }
+
+        // Hoare quickselect: afterwards points[k] holds the k-th smallest coordinate in [lo, hi], smaller
+        // ones to its left and larger ones to its right.
+        private void select(int lo, int hi, int k, int dimension) {
+            while (lo < hi) {
+                double pivot = coordinate(points[(lo + hi) >>> 1], dimension);
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (coordinate(points[i], dimension) < pivot) {
+                        i++;
+                    }
+                    while (coordinate(points[j], dimension) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        Point swap = points[i];
+                        points[i] = points[j];
+                        points[j] = swap;
+                        i++;
+                        j--;
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private static double coordinate(Point point, int dimension) {
+            return switch (dimension) {
+                case 0 -> point.effectiveProduction();
+                case 1 -> point.energyConsumption();
+                default -> point.errorMargin();
+            };
+        }
+    }
+}
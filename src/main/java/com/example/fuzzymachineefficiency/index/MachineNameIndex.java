@@ -0,0 +1,355 @@
+package com.example.fuzzymachineefficiency.index;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.util.TopKSelector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory trigram index over machine names for substring and prefix search.
+ * <p>
+ * Names are folded character by character so that I, İ, ı and i all match each other (and the folded
+ * name keeps its length, unlike {@code "İ".toLowerCase()}). Every name is padded with two start markers,
+ * so short prefixes have their own trigrams, and every character and character pair is posted under a
+ * gram marker, so one- and two-character queries only look at names that contain them. A query of three
+ * or more characters only verifies the machines in its rarest trigram's posting list. Renamed or deleted
+ * machines leave a dead slot behind that verification skips; the postings are compacted once dead slots
+ * outnumber live ones.
+ * <p>
+ * A rebuild fills a fresh index without holding the lock and swaps it in; changes arriving meanwhile are
+ * applied to both.
+ */
+@Slf4j
+@Component
+public class MachineNameIndex {
+
+    private static final char START = '\u0002';
+    private static final char GRAM = '\u0003';
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MIN_DEAD_SLOTS_FOR_COMPACTION = 10_000;
+    // one- and two-character queries verify at most this many non-prefix candidates
+    private static final int MAX_INNER_CANDIDATES = 10_000;
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::rank)
+    .thenComparingInt(Hit::position)
+    .thenComparingInt(Hit::length)
+    .thenComparingLong(Hit::machineId);
+
+    private final MachineRepository machineRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index current = new Index();
+    private List<Consumer<Index>> pendingDuringRebuild;
+
+    public MachineNameIndex(MachineRepository machineRepository) {
+        this.machineRepository = machineRepository;
+    }
+
+    /** Lower-cases {@code value} one char at a time, folding the Turkish dotted and dotless i into 'i'. */
+    public static String fold(String value) {
+        char[] folded = new char[value.length()];
+        for (int i = 0; i < folded.length; i++) {
+            char c = value.charAt(i);
+            folded[i] = c == 'ı' || c == 'İ' || c == 'I' ? 'i' : Character.toLowerCase(c);
+        }
+        return new String(folded);
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                return;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = new Index();
+        try {
+            long afterId = 0L;
+            List<MachineExportRow> rows;
+            do {
+                rows = machineRepository.findExportRowsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (MachineExportRow row : rows) {
+                    rebuilt.put(row.getId(), row.getName());
+                    afterId = row.getId();
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild.forEach(change -> change.accept(rebuilt));
+            pendingDuringRebuild = null;
+            current = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Machine name index built: {} names, {} postings", rebuilt.slotById.size(), rebuilt.postings.size());
+    }
+
+    @EventListener
+    public void onMachineSaved(MachineSavedEvent event) {
+        Long id = event.machine().getId();
+        String name = event.machine().getName();
+        apply(index -> index.put(id, name));
+    }
+
+    @EventListener
+    public void onMachinesSaved(MachinesSavedEvent event) {
+        List<Machine> machines = List.copyOf(event.machines());
+        apply(index -> machines.forEach(machine -> index.put(machine.getId(), machine.getName())));
+    }
+
+    @EventListener
+    public void onMachineDeleted(MachineDeletedEvent event) {
+        Long id = event.machineId();
+        apply(index -> index.remove(id));
+    }
+
+    /**
+     * Ids of at most {@code limit} machines whose name contains {@code query}, best match first: exact
+     * name, then prefix, then a match at a word start, then any other match; within a class earlier and
+     * shorter names win. For one- and two-character queries the matches after the prefix ones are picked
+     * from a bounded number of candidates.
+     */
+    public List<Long> search(String query, int limit) {
+        String folded = fold(query);
+        if (folded.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Index index = current;
+            TopKSelector<Hit> selector = new TopKSelector<>(limit, RANKING);
+            if (folded.length() >= 3) {
+                IntList candidates = index.rarestPosting(folded);
+                if (candidates != null) {
+                    index.offerMatches(candidates, folded, selector, Integer.MAX_VALUE, false);
+                }
+            } else {
+                IntList prefixed = index.postings.get(trigram(START, folded.length() == 1 ? START : folded.charAt(0),
+                folded.charAt(folded.length() - 1)));
+                if (prefixed != null) {
+                    index.offerMatches(prefixed, folded, selector, Integer.MAX_VALUE, false);
+                }
+                // prefix hits outrank everything else, so only look for inner matches if they don't fill the page
+                if (selector.size() < limit) {
+                    IntList containing = index.postings.get(trigram(GRAM, folded.length() == 1 ? GRAM : folded.charAt(0),
+                    folded.charAt(folded.length() - 1)));
+                    if (containing != null) {
+                        index.offerMatches(containing, folded, selector, MAX_INNER_CANDIDATES, true);
+                    }
+                }
+            }
+
+            List<Long> ids = new ArrayList<>(selector.size());
+            for (Hit hit : selector.toSortedList()) {
+                ids.add(hit.machineId());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(current);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long trigram(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    private record Hit(long machineId, int rank, int position, int length) {
+    }
+
+    private static final class Index {
+
+        private final Map<Long, Integer> slotById = new HashMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+        private long[] slotIds = new long[1024];
+        private String[] slotNames = new String[1024];
+        private int slotCount;
+        private int deadSlots;
+
+        IntList rarestPosting(String folded) {
+            IntList rarest = null;
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                IntList posting = postings.get(trigram(folded.charAt(i), folded.charAt(i + 1), folded.charAt(i + 2)));
+                if (posting == null) {
+                    return null;
+                }
+                if (rarest == null || posting.size < rarest.size) {
+                    rarest = posting;
+                }
+            }
+            return rarest;
+        }
+
+        void offerMatches(IntList slots, String folded, TopKSelector<Hit> selector, int maxCandidates,
+                          boolean skipPrefixes) {
+            int examined = 0;
+            for (int i = 0; i < slots.size && examined < maxCandidates; i++) {
+                String name = slotNames[slots.values[i]];
+                if (name == null || skipPrefixes && name.startsWith(folded)) {
+                    continue;
+                }
+                examined++;
+                offerIfMatch(slots.values[i], folded, selector);
+            }
+        }
+
+        private void offerIfMatch(int slot, String folded, TopKSelector<Hit> selector) {
+            String name = slotNames[slot];
+            int position = name.indexOf(folded);
+            if (position < 0) {
+                return;
+            }
+
+            int rank;
+            if (position == 0) {
+                rank = name.length() == folded.length() ? 0 : 1;
+            } else {
+                rank = 3;
+                for (int p = position; p >= 0; p = name.indexOf(folded, p + 1)) {
+                    if (!Character.isLetterOrDigit(name.charAt(p - 1))) {
+                        rank = 2;
+                        position = p;
+                        break;
+                    }
+                }
+            }
+            selector.offer(new Hit(slotIds[slot], rank, position, name.length()));
+        }
+
+        void put(Long id, String name) {
+            Integer existing = slotById.get(id);
+            String folded = name != null ? fold(name) : null;
+            if (existing != null) {
+                if (slotNames[existing].equals(folded)) {
+                    return;
+                }
+                remove(id);
+            }
+            if (folded == null) {
+                return;
+            }
+
+            if (slotCount == slotIds.length) {
+                slotIds = Arrays.copyOf(slotIds, slotCount * 2);
+                slotNames = Arrays.copyOf(slotNames, slotCount * 2);
+            }
+            int slot = slotCount++;
+            slotIds[slot] = id;
+            slotNames[slot] = folded;
+            slotById.put(id, slot);
+            addPostings(slot, folded);
+        }
+
+        void remove(Long id) {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            slotNames[slot] = null;
+            deadSlots++;
+            if (deadSlots >= MIN_DEAD_SLOTS_FOR_COMPACTION && deadSlots > slotById.size()) {
+                compact();
+            }
+        }
+
+        private void addPostings(int slot, String folded) {
+            String padded = "" + START + START + folded;
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                post(trigram(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)), slot, seen);
+            }
+            for (int i = 0; i < folded.length(); i++) {
+                post(trigram(GRAM, GRAM, folded.charAt(i)), slot, seen);
+                if (i + 1 < folded.length()) {
+                    post(trigram(GRAM, folded.charAt(i), folded.charAt(i + 1)), slot, seen);
+                }
+            }
+        }
+
+        private void post(long key, int slot, Set<Long> seen) {
+            if (seen.add(key)) {
+                postings.computeIfAbsent(key, k -> new IntList()).add(slot);
+            }
+        }
+
+        private void compact() {
+            long[] liveIds = new long[slotById.size()];
+            String[] liveNames = new String[slotById.size()];
+            int live = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slotNames[slot] != null) {
+                    liveIds[live] = slotIds[slot];
+                    liveNames[live] = slotNames[slot];
+                    live++;
+                }
+            }
+
+            slotById.clear();
+            postings.clear();
+            slotIds = new long[1024];
+            slotNames = new String[1024];
+            slotCount = 0;
+            deadSlots = 0;
+            for (int i = 0; i < live; i++) {
+                put(liveIds[i], liveNames[i]);
+            }
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.fuzzymachineefficiency.index;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Ordered in-memory index of persisted efficiency scores for range queries.
+ * <p>
+ * Each machine is one {@code long} key, {@code (score in cents + offset) << 40 | id}, in a skip list, so a
+ * score range is a single sub-set seek and iteration is ordered by score, then id. Machines without a
+ * score sort below every scored one and only show up when no bound is given. A few inputs are kept next
+ * to the key so combined filters run without touching the database. Kept current from the save and
+ * delete events, which includes the startup rescore after a rule base change. Changes are applied one
+ * at a time under the monitor while queries read without locking.
+ */
+@Slf4j
+@Component
+public class MachineScoreIndex {
+
+    private static final int ID_BITS = 40;
+    private static final long MAX_ID = (1L << ID_BITS) - 1;
+    private static final long CENTS_OFFSET = 1L << 21;
+    private static final long UNSCORED = -CENTS_OFFSET;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    public record Facts(long machineId, Double efficiencyScore, Double dailyProduction, Double energyConsumption) {
+    }
+
+    private final MachineRepository machineRepository;
+    private volatile Index current = new Index();
+    private List<Consumer<Index>> pendingDuringRebuild;
+
+    public MachineScoreIndex(MachineRepository machineRepository) {
+        this.machineRepository = machineRepository;
+    }
+
+    /**
+     * Reloads the index from the table into a fresh structure and swaps it in. Queries keep using the old
+     * one meanwhile; events arriving during the scan are applied to both, so none are lost by the swap.
+     */
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingDuringRebuild != null) {
+                return;
+            }
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        Index rebuilt = new Index();
+        try {
+            long afterId = 0L;
+            List<MachineExportRow> rows;
+            do {
+                rows = machineRepository.findExportRowsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (MachineExportRow row : rows) {
+                    rebuilt.put(new Facts(row.getId(), row.getEfficiencyScore(), row.getDailyProduction(),
+                    row.getEnergyConsumption()));
+                    afterId = row.getId();
+                }
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            pendingDuringRebuild.forEach(change -> change.accept(rebuilt));
+            pendingDuringRebuild = null;
+            current = rebuilt;
+        }
+        log.info("Machine score index built: {} machines", rebuilt.entries.size());
+    }
+
+    @EventListener
+    public void onMachineSaved(MachineSavedEvent event) {
+        Facts facts = facts(event.machine());
+        apply(index -> index.put(facts));
+    }
+
+    @EventListener
+    public void onMachinesSaved(MachinesSavedEvent event) {
+        List<Facts> facts = event.machines().stream().map(MachineScoreIndex::facts).toList();
+        apply(index -> facts.forEach(index::put));
+    }
+
+    @EventListener
+    public void onMachineDeleted(MachineDeletedEvent event) {
+        long machineId = event.machineId();
+        apply(index -> index.remove(machineId));
+    }
+
+    /**
+     * Ids of machines with {@code minScore <= score <= maxScore} (either bound may be null) that also pass
+     * {@code filter}, in score then id order, skipping the first {@code offset} matches. The skip list keeps
+     * no ranks, so the offset is walked entry by entry.
+     */
+    public List<Long> find(Double minScore, Double maxScore, Predicate<Facts> filter, long offset, int limit) {
+        long lowerCents = minScore != null ? cents(minScore, RoundingMode.CEILING)
+        : maxScore != null ? UNSCORED + 1 : UNSCORED;
+        long upperCents = maxScore != null ? cents(maxScore, RoundingMode.FLOOR) : CENTS_OFFSET - 1;
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+        if (lowerCents > upperCents || limit <= 0) {
+            return ids;
+        }
+
+        Index index = current;
+        long skipped = 0;
+        for (long key : index.keys.subSet(key(lowerCents, 0), true, key(upperCents, MAX_ID), true)) {
+            long id = key & MAX_ID;
+            if (filter != null) {
+                Entry entry = index.entries.get(id);
+                if (entry == null || entry.key() != key || !filter.test(entry.facts())) {
+                    continue;
+                }
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            ids.add(id);
+            if (ids.size() == limit) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    public int size() {
+        return current.entries.size();
+    }
+
+    private synchronized void apply(Consumer<Index> change) {
+        change.accept(current);
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(change);
+        }
+    }
+
+    private static Facts facts(Machine machine) {
+        return new Facts(machine.getId(), machine.getEfficiencyScore(), machine.getDailyProduction(),
+        machine.getEnergyConsumption());
+    }
+
+    private static long cents(double score, RoundingMode rounding) {
+        long cents = BigDecimal.valueOf(score).movePointRight(2).setScale(0, rounding).longValue();
+        return Math.max(UNSCORED + 1, Math.min(CENTS_OFFSET - 1, cents));
+    }
+
+    private static long key(long cents, long id) {
+        return ((cents + CENTS_OFFSET) << ID_BITS) | id;
+    }
+
+    private record Entry(long key, Facts facts) {
+    }
+
+    private static final class Index {
+
+        private final NavigableSet<Long> keys = new ConcurrentSkipListSet<>();
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(Facts facts) {
+            if (facts.machineId() < 0 || facts.machineId() > MAX_ID) {
+                throw new IllegalArgumentException("Makine id'si indekslenemiyor: " + facts.machineId());
+            }
+            long cents = facts.efficiencyScore() != null ? cents(facts.efficiencyScore(), RoundingMode.HALF_UP) : UNSCORED;
+            long key = key(cents, facts.machineId());
+            Entry previous = entries.put(facts.machineId(), new Entry(key, facts));
+            keys.add(key);
+            if (previous != null && previous.key() != key) {
+                keys.remove(previous.key());
+            }
+        }
+
+        void remove(long machineId) {
+            Entry previous = entries.remove(machineId);
+            if (previous != null) {
+                keys.remove(previous.key());
+            }
+        }
+    }
+}
@@ -9,10 +9,16 @@ import org.mapstruct.MappingTarget;
 @Mapper(componentModel = "spring")
 public interface MachineMapper {
 
+    @Mapping(target = "efficiencyScore", ignore = true)
+    @Mapping(target = "efficiencyStatus", ignore = true)
+    @Mapping(target = "scoreModelVersion", ignore = true)
     Machine dtoToEntity(MachineDto dto);
 
     MachineDto entityToDto(Machine machine);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "efficiencyScore", ignore = true)
+    @Mapping(target = "efficiencyStatus", ignore = true)
+    @Mapping(target = "scoreModelVersion", ignore = true)
     void updateMachineFromDto(MachineDto dto, @MappingTarget Machine entity);
 }
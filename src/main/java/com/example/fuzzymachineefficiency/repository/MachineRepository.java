@@ -1,7 +1,24 @@
 package com.example.fuzzymachineefficiency.repository;
 
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
 import com.example.fuzzymachineefficiency.entity.Machine;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface MachineRepository extends JpaRepository<Machine, Long> {
-}
\ No newline at end of file
+
+    List<Machine> findByEfficiencyScoreLessThan(Double threshold, Pageable pageable);
+
+    List<Machine> findByEfficiencyScoreNotNull(Pageable pageable);
+
+    List<Machine> findByScoreModelVersionIsNullOrScoreModelVersionNot(String scoreModelVersion, Pageable pageable);
+
+    @Query("select new com.example.fuzzymachineefficiency.dto.MachineExportRow(m.id, m.name, m.dailyProduction, "
+    + "m.errorMargin, m.maintenanceInterval, m.standbyTime, m.energyConsumption, m.efficiencyScore) "
+    + "from Machine m where m.id > :afterId order by m.id")
+    List<MachineExportRow> findExportRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
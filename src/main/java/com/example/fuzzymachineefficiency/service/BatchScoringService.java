@@ -0,0 +1,224 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.MachineDataRequest;
+import com.example.fuzzymachineefficiency.util.CsvReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+@Service
+public class BatchScoringService {
+
+    private static final String[] CSV_COLUMNS = {
+        "dailyproduction", "errormargin", "maintenanceinterval", "standbytime", "energyconsumption"
+    };
+
+    private final FuzzyService fuzzyService;
+    private final ExecutorService executor;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public BatchScoringService(FuzzyService fuzzyService,
+                               @Qualifier("batchScoringExecutor") ExecutorService executor,
+                               ObjectMapper objectMapper,
+                               @Value("${scoring.batch.chunk-size:1000}") int chunkSize,
+                               @Value("${scoring.batch.max-chunks-in-flight:16}") int maxChunksInFlight) {
+        this.fuzzyService = fuzzyService;
+        this.executor = executor;
+        this.requestReader = objectMapper.readerFor(MachineDataRequest.class);
+        this.resultWriter = objectMapper.writer();
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Scores NDJSON or CSV rows read from {@code in} and writes one NDJSON result per input row to
+     * {@code out}, in input order. At most {@code max-chunks-in-flight} chunks are held in memory.
+     */
+    public void scoreStream(InputStream in, boolean csv, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        CsvReader csvReader = csv ? new CsvReader(reader) : null;
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+
+        try {
+            int[] csvColumns = null;
+            // NDJSON rows are kept as lines, CSV rows as their quote-aware fields
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            long chunkFirstRow = 0;
+            long rowNumber = 0;
+            boolean firstLine = true;
+
+            Object row;
+            while ((row = csv ? readCsvRecord(csvReader, rowNumber) : reader.readLine()) != null) {
+                if (row instanceof String line) {
+                    if (firstLine && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                        line = line.substring(1);
+                    }
+                    firstLine = false;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    row = line;
+                } else if (row instanceof List<?> fields && fields.size() == 1 && fields.get(0).toString().isBlank()) {
+                    continue;
+                }
+                if (csv && csvColumns == null) {
+                    csvColumns = resolveCsvColumns((List<?>) row);
+                    continue;
+                }
+
+                if (chunk.isEmpty()) {
+                    chunkFirstRow = rowNumber + 1;
+                }
+                chunk.add(row);
+                rowNumber++;
+
+                if (chunk.size() == chunkSize) {
+                    submit(inFlight, chunk, chunkFirstRow, csvColumns, out);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                submit(inFlight, chunk, chunkFirstRow, csvColumns, out);
+            }
+            while (!inFlight.isEmpty()) {
+                writeHead(inFlight, out);
+            }
+            out.flush();
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private List<String> readCsvRecord(CsvReader reader, long rowsRead) throws IOException {
+        try {
+            return reader.readRecord();
+        } catch (IOException e) {
+            throw new IOException("Satır " + (rowsRead + 1) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void submit(Deque<Future<byte[]>> inFlight, List<Object> chunk, long firstRow, int[] csvColumns,
+                        OutputStream out) throws IOException {
+        if (inFlight.size() >= maxChunksInFlight) {
+            writeHead(inFlight, out);
+        }
+        inFlight.addLast(executor.submit(() -> scoreChunk(chunk, firstRow, csvColumns)));
+
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+            writeHead(inFlight, out);
+        }
+    }
+
+    private void writeHead(Deque<Future<byte[]>> inFlight, OutputStream out) throws IOException {
+        try {
+            out.write(inFlight.pollFirst().get());
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Toplu skorlama kesildi", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Toplu skorlama hatası: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private byte[] scoreChunk(List<Object> rows, long firstRow, int[] csvColumns) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(rows.size() * 64);
+
+        for (int i = 0; i < rows.size(); i++) {
+            Object result;
+            try {
+                MachineDataRequest request = rows.get(i) instanceof List<?> fields
+                ? parseCsvRow(fields, csvColumns)
+                : requestReader.readValue((String) rows.get(i));
+                result = fuzzyService.calculate(requireFinite(request));
+            } catch (Exception e) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("row", firstRow + i);
+                error.put("error", e.getMessage());
+                result = error;
+            }
+            buffer.write(resultWriter.writeValueAsBytes(result));
+            buffer.write('\n');
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private int[] resolveCsvColumns(List<?> names) {
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int c = 0; c < CSV_COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).toString().trim().toLowerCase(Locale.ROOT).equals(CSV_COLUMNS[c])) {
+                    columns[c] = i;
+                }
+            }
+            if (columns[c] < 0) {
+                throw new IllegalArgumentException("CSV başlığında eksik sütun: " + CSV_COLUMNS[c]);
+            }
+        }
+        return columns;
+    }
+
+    private MachineDataRequest parseCsvRow(List<?> fields, int[] columns) {
+        MachineDataRequest request = new MachineDataRequest();
+        request.setDailyProduction(csvNumber(fields, columns, 0));
+        request.setErrorMargin(csvNumber(fields, columns, 1));
+        request.setMaintenanceInterval(csvNumber(fields, columns, 2));
+        request.setStandbyTime(csvNumber(fields, columns, 3));
+        request.setEnergyConsumption(csvNumber(fields, columns, 4));
+        return request;
+    }
+
+    // Double.parseDouble and Jackson both accept NaN and Infinity, which no machine can report
+    private static MachineDataRequest requireFinite(MachineDataRequest request) {
+        double[] values = {
+            request.getDailyProduction(), request.getErrorMargin(), request.getMaintenanceInterval(),
+            request.getStandbyTime(), request.getEnergyConsumption()
+        };
+        for (int c = 0; c < values.length; c++) {
+            if (!Double.isFinite(values[c])) {
+                throw new IllegalArgumentException("Geçersiz sayı '" + values[c] + "': " + CSV_COLUMNS[c]);
+            }
+        }
+        return request;
+    }
+
+    private static double csvNumber(List<?> fields, int[] columns, int column) {
+        if (columns[column] >= fields.size()) {
+            throw new IllegalArgumentException("Eksik sütun: " + CSV_COLUMNS[column] + " (" + fields.size()
+            + " alan bulundu)");
+        }
+        String value = fields.get(columns[column]).toString().trim();
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Geçersiz sayı '" + value + "': " + CSV_COLUMNS[column]);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.OptimizationSuggestion;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.fuzzy.EvaluationSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Searches the fuzzy surface around a machine for the input change that buys the most efficiency per
+ * unit of implementation cost. Every lever is boxed between limits derived from its current value and
+ * moves on a lattice of {@value #LATTICE_STEPS} steps across the box, anchored so that step zero is the
+ * current value exactly. A compass search (coordinate moves in both directions, halving the step when
+ * none improves) maximizes score gain divided by cost; it needs no derivatives, which the piecewise
+ * linear surface does not have anyway.
+ * <p>
+ * Lattice points are memoized, so revisited points cost a map lookup instead of an evaluation. New
+ * points go through one {@link EvaluationSession}: a compass move changes a single lever, so only that
+ * input is re-fuzzified and only its rules are refired. The search stops at
+ * {@code optimization.max-evaluations} distinct evaluations or after {@code optimization.time-budget},
+ * returning the best point found so far.
+ */
+@Service
+public class EfficiencyOptimizer {
+
+    private static final int LATTICE_STEPS = 1024;
+    private static final int KEY_BITS = 12;
+    private static final double MIN_IMPROVEMENT = 1e-9;
+
+    // same order as the arguments of FuzzyService.score
+    private static final Lever[] LEVERS = {
+        new Lever("dailyProduction", 1.0, 1.25, 0, 5000, 12000.0, "HARD", null,
+        "Darboğaz istasyonlarının iyileştirilmesi günlük üretim kapasitesini artırır"),
+        new Lever("errorMargin", 0.4, 1.0, 2, 100, 10000.0, "MEDIUM",
+        "Sensör ve kontrol sistemlerinin güncellenmesi hata oranını düşürebilir", null),
+        new Lever("maintenanceInterval", 0.5, 1.5, 15, 180, 5000.0, "MEDIUM",
+        "Daha sık bakım, arıza oranını azaltır ve makine ömrünü uzatır",
+        "Bakım aralığının uzatılması planlı duruş süresini azaltır"),
+        new Lever("standbyTime", 0.4, 1.0, 30, 1440, 2000.0, "EASY",
+        "Bekleme süresinin azaltılması üretim kapasitesini artırır", null),
+        new Lever("energyConsumption", 0.7, 1.0, 60, 1000, 15000.0, "HARD",
+        "Enerji verimliliği sağlayacak yeni ekipmanlar kullanılması", null)
+    };
+
+    private final FuzzyService fuzzyService;
+    private final int maxEvaluations;
+    private final Duration timeBudget;
+
+    public EfficiencyOptimizer(FuzzyService fuzzyService,
+                               @Value("${optimization.max-evaluations:2000}") int maxEvaluations,
+                               @Value("${optimization.time-budget:PT0.1S}") Duration timeBudget) {
+        this.fuzzyService = fuzzyService;
+        this.maxEvaluations = maxEvaluations;
+        this.timeBudget = timeBudget;
+    }
+
+    public record Result(List<OptimizationSuggestion> suggestions, int evaluations, boolean converged) {
+    }
+
+    public Result optimize(Machine machine) {
+        double[] current = {
+            machine.getDailyProduction(), machine.getErrorMargin(), machine.getMaintenanceInterval(),
+            machine.getStandbyTime(), machine.getEnergyConsumption()
+        };
+        Search search = new Search(current, System.nanoTime() + timeBudget.toNanos());
+
+        int[] best = new int[LEVERS.length];
+        double bestValue = 0.0;
+        int[] steps = new int[LEVERS.length];
+        Arrays.fill(steps, LATTICE_STEPS / 2);
+        boolean converged = false;
+
+        search:
+        while (true) {
+            boolean improved = false;
+            for (int d = 0; d < LEVERS.length && !improved; d++) {
+                for (int direction = 1; direction >= -1 && !improved; direction -= 2) {
+                    int target = best[d] + direction * steps[d];
+                    target = Math.max(search.minSteps[d], Math.min(search.maxSteps[d], target));
+                    if (target == best[d]) {
+                        continue;
+                    }
+                    if (!search.withinBudget()) {
+                        break search;
+                    }
+                    int[] candidate = best.clone();
+                    candidate[d] = target;
+                    double value = search.gainPerCost(candidate);
+                    if (value > bestValue + MIN_IMPROVEMENT) {
+                        best = candidate;
+                        bestValue = value;
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) {
+                boolean moving = false;
+                for (int d = 0; d < LEVERS.length; d++) {
+                    steps[d] >>= 1;
+                    moving |= steps[d] > 0;
+                }
+                if (!moving) {
+                    converged = true;
+                    break;
+                }
+            }
+        }
+
+        best = dropRedundantLevers(best, search::score);
+        return new Result(createSuggestions(search, best), search.evaluations, converged);
+    }
+
+    /**
+     * A lever that no longer adds anything next to the others only adds cost. Dropping one can leave
+     * another without a gain of its own, so passes repeat until none is dropped.
+     */
+    static int[] dropRedundantLevers(int[] best, ToDoubleFunction<int[]> score) {
+        boolean dropped = true;
+        while (dropped) {
+            dropped = false;
+            for (int d = 0; d < best.length; d++) {
+                if (best[d] != 0) {
+                    int[] without = best.clone();
+                    without[d] = 0;
+                    if (score.applyAsDouble(without) >= score.applyAsDouble(best)) {
+                        best = without;
+                        dropped = true;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private List<OptimizationSuggestion> createSuggestions(Search search, int[] best) {
+        double bestScore = search.score(best);
+        List<Ranked> ranked = new ArrayList<>();
+
+        for (int d = 0; d < LEVERS.length; d++) {
+            if (best[d] == 0) {
+                continue;
+            }
+            int[] without = best.clone();
+            without[d] = 0;
+            double gain = bestScore - search.score(without);
+            double cost = search.leverCost(best, d);
+            Lever lever = LEVERS[d];
+
+            OptimizationSuggestion suggestion = new OptimizationSuggestion();
+            suggestion.setParameter(lever.parameter());
+            suggestion.setCurrentValue(search.current[d]);
+            // rounded away from the current value so a small move still shows up as a change, unless that
+            // leaves the lever's box
+            double suggested = search.value(best, d) * 100.0;
+            double away = (best[d] < 0 ? Math.floor(suggested) : Math.ceil(suggested)) / 100.0;
+            double toward = (best[d] < 0 ? Math.ceil(suggested) : Math.floor(suggested)) / 100.0;
+            suggestion.setSuggestedValue(search.clamp(d, away) == away ? away : search.clamp(d, toward));
+            suggestion.setPotentialImprovementPercentage(search.currentScore > 0
+            ? Math.round(gain / search.currentScore * 10000.0) / 100.0
+            : 0.0);
+            suggestion.setReasonForSuggestion(best[d] < 0 ? lever.lowerReason() : lever.raiseReason());
+            suggestion.setImplementationDifficulty(lever.difficulty());
+            suggestion.setEstimatedCostOfImplementation(Math.round(cost));
+
+            ranked.add(new Ranked(suggestion, gain / cost));
+        }
+
+        ranked.sort(Comparator.comparingDouble(Ranked::gainPerCost).reversed());
+        return ranked.stream().map(Ranked::suggestion).toList();
+    }
+
+    // one lattice point as a map key: 12 bits per lever hold a step in [-LATTICE_STEPS, LATTICE_STEPS]
+    static long latticeKey(int[] steps) {
+        long key = 0;
+        for (int step : steps) {
+            key = key << KEY_BITS | (step + LATTICE_STEPS);
+        }
+        return key;
+    }
+
+    private record Ranked(OptimizationSuggestion suggestion, double gainPerCost) {
+    }
+
+    private record Lever(String parameter, double minFactor, double maxFactor, double floor, double ceiling,
+                         double fullCost, String difficulty, String lowerReason, String raiseReason) {
+
+        double lowerBound(double current) {
+            return lowerReason == null ? current : Math.min(current, Math.max(floor, current * minFactor));
+        }
+
+        double upperBound(double current) {
+            return raiseReason == null ? current : Math.max(current, Math.min(ceiling, current * maxFactor));
+        }
+    }
+
+    private final class Search {
+
+        private final double[] current;
+        private final double[] unit;
+        private final double[] lower;
+        private final double[] upper;
+        private final int[] minSteps;
+        private final int[] maxSteps;
+        private final long deadline;
+        private final Map<Long, Double> scores = new HashMap<>();
+        private final EvaluationSession session;
+        private final double currentScore;
+        private int evaluations;
+
+        private Search(double[] current, long deadline) {
+            this.current = current;
+            this.deadline = deadline;
+            this.session = fuzzyService.openSession(current[0], current[1], current[2], current[3], current[4]);
+            this.unit = new double[current.length];
+            this.lower = new double[current.length];
+            this.upper = new double[current.length];
+            this.minSteps = new int[current.length];
+            this.maxSteps = new int[current.length];
+            for (int d = 0; d < current.length; d++) {
+                lower[d] = LEVERS[d].lowerBound(current[d]);
+                upper[d] = LEVERS[d].upperBound(current[d]);
+                unit[d] = (upper[d] - lower[d]) / LATTICE_STEPS;
+                if (unit[d] > 0) {
+                    minSteps[d] = -(int) Math.floor((current[d] - lower[d]) / unit[d]);
+                    maxSteps[d] = (int) Math.floor((upper[d] - current[d]) / unit[d]);
+                }
+            }
+            this.currentScore = score(new int[current.length]);
+        }
+
+        private double value(int[] steps, int d) {
+            return current[d] + steps[d] * unit[d];
+        }
+
+        private double clamp(int d, double value) {
+            return Math.max(lower[d], Math.min(upper[d], value));
+        }
+
+        private double score(int[] steps) {
+            long key = latticeKey(steps);
+            Double cached = scores.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            evaluations++;
+            for (int d = 0; d < steps.length; d++) {
+                session.set(d, value(steps, d));
+            }
+            double score = session.evaluate();
+            scores.put(key, score);
+            return score;
+        }
+
+        private boolean withinBudget() {
+            return evaluations < maxEvaluations && System.nanoTime() - deadline < 0;
+        }
+
+        // half of a lever's cost is paid for touching it at all, the rest grows with the distance moved
+        private double leverCost(int[] steps, int d) {
+            if (steps[d] == 0) {
+                return 0.0;
+            }
+            int reach = steps[d] > 0 ? maxSteps[d] : -minSteps[d];
+            return LEVERS[d].fullCost() * (0.5 + 0.5 * Math.abs(steps[d]) / reach);
+        }
+
+        private double gainPerCost(int[] steps) {
+            double cost = 0.0;
+            for (int d = 0; d < steps.length; d++) {
+                cost += leverCost(steps, d);
+            }
+            return cost > 0 ? (score(steps) - currentScore) / cost : 0.0;
+        }
+    }
+}
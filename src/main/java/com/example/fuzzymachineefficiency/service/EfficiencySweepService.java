@@ -0,0 +1,201 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.ParameterSensitivity;
+import com.example.fuzzymachineefficiency.dto.SweepAxis;
+import com.example.fuzzymachineefficiency.dto.SweepRequest;
+import com.example.fuzzymachineefficiency.dto.SweepResponse;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.fuzzy.EvaluationSession;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates the fuzzy model over a 1-D or 2-D grid around a machine's current inputs. Each row of the
+ * grid is one task on the fleet pool with its own {@link EvaluationSession}: the fixed inputs and the
+ * row's value are fuzzified once, and every cell only re-fuzzifies the column parameter and refires the
+ * rules that use it.
+ */
+@Service
+public class EfficiencySweepService {
+
+    private static final int DEFAULT_STEPS = 50;
+    private static final int MAX_STEPS = 1000;
+    private static final double DEFAULT_RANGE_FACTOR = 0.5;
+
+    // API names in the argument order of FuzzyService.score
+    private static final String[] PARAMETERS = {
+        "dailyProduction", "errorMargin", "maintenanceInterval", "standbyTime", "energyConsumption"
+    };
+
+    private final MachineRepository machineRepository;
+    private final FuzzyService fuzzyService;
+    private final FleetScoringExecutor fleetScoringExecutor;
+    private final int maxCells;
+
+    public EfficiencySweepService(MachineRepository machineRepository, FuzzyService fuzzyService,
+                                  FleetScoringExecutor fleetScoringExecutor,
+                                  @Value("${sweep.max-cells:250000}") int maxCells) {
+        this.machineRepository = machineRepository;
+        this.fuzzyService = fuzzyService;
+        this.fleetScoringExecutor = fleetScoringExecutor;
+        this.maxCells = maxCells;
+    }
+
+    public SweepResponse sweep(Long id, SweepRequest request) {
+        Machine machine = machineRepository.findById(id)
+        .orElseThrow(() -> new IllegalArgumentException("Makine bulunamadı: " + id));
+        double[] current = {
+            machine.getDailyProduction(), machine.getErrorMargin(), machine.getMaintenanceInterval(),
+            machine.getStandbyTime(), machine.getEnergyConsumption()
+        };
+
+        List<SweepAxis> axes = request != null ? request.getAxes() : null;
+        if (axes == null || axes.isEmpty() || axes.size() > 2) {
+            throw new IllegalArgumentException("Tarama için bir veya iki eksen gerekli");
+        }
+        int xParameter = parameterIndex(axes.get(0).getParameter());
+        int yParameter = axes.size() == 2 ? parameterIndex(axes.get(1).getParameter()) : -1;
+        if (xParameter == yParameter) {
+            throw new IllegalArgumentException("Tarama eksenleri farklı parametreler olmalı");
+        }
+        double[] xValues = gridValues(axes.get(0), current[xParameter]);
+        double[] yValues = yParameter >= 0 ? gridValues(axes.get(1), current[yParameter]) : null;
+        int rows = yValues != null ? yValues.length : 1;
+        if ((long) rows * xValues.length > maxCells) {
+            throw new IllegalArgumentException("Tarama en fazla " + maxCells + " hücre içerebilir");
+        }
+
+        List<double[]> grid = fleetScoringExecutor.invokeEach(rows,
+        row -> evaluateRow(current, xParameter, xValues, yParameter, yValues != null ? yValues[row] : 0.0));
+        double[][] scores = grid.toArray(new double[0][]);
+
+        EvaluationSession session = openSession(current);
+        double currentScore = session.evaluate();
+        List<ParameterSensitivity> sensitivities = new ArrayList<>(PARAMETERS.length);
+        for (int p = 0; p < PARAMETERS.length; p++) {
+            Double meanSlope = null;
+            if (p == xParameter) {
+                meanSlope = meanAbsoluteSlope(scores, xValues, false);
+            } else if (p == yParameter) {
+                meanSlope = meanAbsoluteSlope(scores, yValues, true);
+            }
+            sensitivities.add(sensitivity(session, p, currentScore, meanSlope));
+        }
+
+        for (double[] row : scores) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = round(row[i]);
+            }
+        }
+
+        SweepResponse response = new SweepResponse();
+        response.setMachineId(machine.getId());
+        response.setMachineName(machine.getName());
+        response.setCurrentScore(round(currentScore));
+        response.setColumnParameter(PARAMETERS[xParameter]);
+        response.setRowParameter(yParameter >= 0 ? PARAMETERS[yParameter] : null);
+        response.setColumnValues(xValues);
+        response.setRowValues(yValues);
+        response.setScores(scores);
+        response.setSensitivities(sensitivities);
+        response.setEvaluations((long) rows * xValues.length + 1 + 2L * PARAMETERS.length);
+        return response;
+    }
+
+    private double[] evaluateRow(double[] current, int xParameter, double[] xValues, int yParameter, double y) {
+        EvaluationSession session = openSession(current);
+        if (yParameter >= 0) {
+            session.set(yParameter, y);
+        }
+        double[] row = new double[xValues.length];
+        for (int i = 0; i < xValues.length; i++) {
+            session.set(xParameter, xValues[i]);
+            row[i] = session.evaluate();
+        }
+        return row;
+    }
+
+    private EvaluationSession openSession(double[] values) {
+        return fuzzyService.openSession(values[0], values[1], values[2], values[3], values[4]);
+    }
+
+    // central difference at the current point, one percent of the value (at least 0.001) either side
+    private static ParameterSensitivity sensitivity(EvaluationSession session, int p, double currentScore,
+                                                    Double meanSlope) {
+        double value = session.get(p);
+        double h = Math.max(Math.abs(value) * 0.01, 1e-3);
+        session.set(p, value + h);
+        double up = session.evaluate();
+        session.set(p, value - h);
+        double down = session.evaluate();
+        session.set(p, value);
+        double derivative = (up - down) / (2 * h);
+
+        ParameterSensitivity sensitivity = new ParameterSensitivity();
+        sensitivity.setParameter(PARAMETERS[p]);
+        sensitivity.setCurrentValue(value);
+        sensitivity.setDerivative(Math.round(derivative * 1e6) / 1e6);
+        sensitivity.setElasticity(currentScore != 0
+        ? Math.round(derivative * value / currentScore * 1e4) / 1e4
+        : 0.0);
+        sensitivity.setMeanAbsoluteSlope(meanSlope != null ? Math.round(meanSlope * 1e6) / 1e6 : null);
+        return sensitivity;
+    }
+
+    // mean |finite difference| along columns (alongRows = false) or down rows
+    private static Double meanAbsoluteSlope(double[][] scores, double[] values, boolean alongRows) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double step = values[1] - values[0];
+        if (step == 0) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        long n = 0;
+        for (int r = 0; r < scores.length; r++) {
+            for (int c = 0; c < scores[r].length; c++) {
+                if (alongRows ? r + 1 < scores.length : c + 1 < scores[r].length) {
+                    double next = alongRows ? scores[r + 1][c] : scores[r][c + 1];
+                    sum += Math.abs(next - scores[r][c]);
+                    n++;
+                }
+            }
+        }
+        return n > 0 ? sum / n / Math.abs(step) : 0.0;
+    }
+
+    private static double[] gridValues(SweepAxis axis, double current) {
+        double min = axis.getMin() != null ? axis.getMin() : Math.max(0.0, current * (1 - DEFAULT_RANGE_FACTOR));
+        double max = axis.getMax() != null ? axis.getMax() : current * (1 + DEFAULT_RANGE_FACTOR);
+        int steps = axis.getSteps() != null ? axis.getSteps() : DEFAULT_STEPS;
+        if (!(min <= max)) {
+            throw new IllegalArgumentException(axis.getParameter() + ": min, max değerinden büyük olamaz");
+        }
+        if (steps < 2 || steps > MAX_STEPS) {
+            throw new IllegalArgumentException("Adım sayısı 2 ile " + MAX_STEPS + " arasında olmalı");
+        }
+        double[] values = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            values[i] = min + (max - min) * i / (steps - 1);
+        }
+        return values;
+    }
+
+    private static int parameterIndex(String parameter) {
+        for (int p = 0; p < PARAMETERS.length; p++) {
+            if (PARAMETERS[p].equals(parameter)) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("Bilinmeyen tarama parametresi: " + parameter);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,553 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.FleetMaintenanceAssignment;
+import com.example.fuzzymachineefficiency.dto.FleetMaintenanceRequest;
+import com.example.fuzzymachineefficiency.dto.FleetMaintenanceScheduleResponse;
+import com.example.fuzzymachineefficiency.dto.MachineMaintenancePlan;
+import com.example.fuzzymachineefficiency.dto.MaintenancePlanRequest;
+import com.example.fuzzymachineefficiency.dto.MaintenanceTask;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceTaskPriority;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fleet-wide maintenance schedule under daily technician-hour and resource capacities.
+ * <p>
+ * Every task of every planned occurrence becomes a job released on its planned date. A list scheduler
+ * sweeps the horizon day by day and fills each working day from a priority queue of released jobs, most
+ * valuable first; a job that does not fit waits for the next day. A job's value grows with its task
+ * priority and with how inefficient its machine is, so critical work on weak machines goes first.
+ * <p>
+ * An improvement pass then revisits the delayed jobs, most valuable first, and pulls each one towards its
+ * planned date, either into spare capacity or by swapping with a less valuable job. Both jobs of a swap
+ * move by the same number of days, so every swap lowers the value-weighted delay.
+ * <p>
+ * A job uses its estimated hours of technician time and one unit of each required resource on the day it
+ * runs; resources without a configured capacity are unlimited.
+ */
+@Service
+@RequiredArgsConstructor
+public class FleetMaintenanceScheduler {
+
+    private static final int MAX_HORIZON_DAYS = 3660;
+    private static final int MAX_FAILED_FITS_PER_DAY = 256;
+    private static final int SWAP_WINDOW_DAYS = 31;
+    private static final int OCCURRENCE_PAGE_SIZE = 1024;
+    private static final int MACHINE_BATCH_SIZE = 1000;
+
+    private final MachineRepository machineRepository;
+
+    public FleetMaintenanceScheduleResponse schedule(FleetMaintenanceRequest request) {
+        return schedule(request, true);
+    }
+
+    // the list schedule alone, without the improvement pass, lets tests measure what the pass gains
+    FleetMaintenanceScheduleResponse schedule(FleetMaintenanceRequest request, boolean improve) {
+        validate(request);
+        Map<Long, Machine> machines = loadMachines(request.getMachines());
+
+        Schedule schedule = new Schedule(request);
+        for (MachineMaintenancePlan plan : request.getMachines()) {
+            schedule.addPlan(machines.get(plan.getMachineId()), plan.getPlan());
+        }
+        schedule.runListScheduler();
+        int moves = improve ? schedule.improve() : 0;
+
+        return schedule.toResponse(moves);
+    }
+
+    private static void validate(FleetMaintenanceRequest request) {
+        if (request.getStartDate() == null) {
+            throw new IllegalArgumentException("Bakım çizelgesi başlangıç tarihi boş olamaz");
+        }
+        if (request.getHorizonDays() <= 0 || request.getHorizonDays() > MAX_HORIZON_DAYS) {
+            throw new IllegalArgumentException("Çizelge ufku 1 ile " + MAX_HORIZON_DAYS + " gün arasında olmalı");
+        }
+        if (request.getDailyTechnicianHours() <= 0) {
+            throw new IllegalArgumentException("Günlük teknisyen kapasitesi pozitif olmalı");
+        }
+        if (request.getMachines() == null || request.getMachines().isEmpty()) {
+            throw new IllegalArgumentException("Makine bakım planları boş olamaz");
+        }
+        for (MachineMaintenancePlan plan : request.getMachines()) {
+            if (plan.getMachineId() == null || plan.getPlan() == null) {
+                throw new IllegalArgumentException("Her makine için makine id'si ve bakım planı gerekli");
+            }
+        }
+    }
+
+    private Map<Long, Machine> loadMachines(List<MachineMaintenancePlan> plans) {
+        List<Long> ids = plans.stream().map(MachineMaintenancePlan::getMachineId).distinct().toList();
+        Map<Long, Machine> machines = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += MACHINE_BATCH_SIZE) {
+            for (Machine machine : machineRepository.findAllById(ids.subList(from, Math.min(from + MACHINE_BATCH_SIZE, ids.size())))) {
+                machines.put(machine.getId(), machine);
+            }
+        }
+        for (Long id : ids) {
+            if (!machines.containsKey(id)) {
+                throw new IllegalArgumentException("Makine bulunamadı: " + id);
+            }
+        }
+        return machines;
+    }
+
+    // value of a job: task priority, scaled up to twice for a machine with efficiency score 0
+    static double value(MaintenanceTaskPriority priority, Double efficiencyScore) {
+        int rank = priority != null ? priority.ordinal() + 1 : MaintenanceTaskPriority.MEDIUM.ordinal() + 1;
+        double efficiency = efficiencyScore != null ? Math.max(0.0, Math.min(100.0, efficiencyScore)) : 50.0;
+        return rank * (2.0 - efficiency / 100.0);
+    }
+
+    private static final class Schedule {
+
+        private final LocalDate start;
+        private final int horizon;
+        private final int technicianHours;
+        private final boolean[] working;
+        private final Map<String, Integer> resourceIds = new HashMap<>();
+        private final int[] resourceCapacity;
+        private final Map<MaintenanceTask, int[]> taskResources = new IdentityHashMap<>();
+
+        private int size;
+        private int[] release = new int[1024];
+        private int[] hours = new int[1024];
+        private double[] value = new double[1024];
+        private int[] day = new int[1024];
+        private Machine[] machine = new Machine[1024];
+        private MaintenanceTask[] task = new MaintenanceTask[1024];
+        private int[][] resources = new int[1024][];
+        private final List<Integer> unschedulable = new ArrayList<>();
+        private final List<String> unschedulableReasons = new ArrayList<>();
+
+        private final int[] hoursUsed;
+        private final int[] resourceUsed;
+        private final IntList[] byDay;
+        private final IntHeap waiting = new IntHeap(this::compare);
+
+        private Schedule(FleetMaintenanceRequest request) {
+            this.start = request.getStartDate();
+            this.horizon = request.getHorizonDays();
+            this.technicianHours = request.getDailyTechnicianHours();
+            this.working = new boolean[horizon];
+            for (int d = 0; d < horizon; d++) {
+                working[d] = request.isWorkOnWeekends() || start.plusDays(d).getDayOfWeek().getValue() <= 5;
+            }
+
+            Map<String, Integer> capacities = request.getDailyResourceCapacity() != null
+            ? request.getDailyResourceCapacity()
+            : Map.of();
+            this.resourceCapacity = new int[capacities.size()];
+            for (Map.Entry<String, Integer> entry : capacities.entrySet()) {
+                int id = resourceIds.size();
+                resourceIds.put(entry.getKey(), id);
+                resourceCapacity[id] = entry.getValue() != null ? Math.max(0, entry.getValue()) : 0;
+            }
+
+            this.hoursUsed = new int[horizon];
+            this.resourceUsed = new int[horizon * resourceCapacity.length];
+            this.byDay = new IntList[horizon];
+            for (int d = 0; d < horizon; d++) {
+                byDay[d] = new IntList();
+            }
+        }
+
+        private void addPlan(Machine owner, MaintenancePlanRequest plan) {
+            List<MaintenanceTask> tasks = plan.getTasks() != null ? plan.getTasks() : List.of();
+            if (tasks.isEmpty()) {
+                return;
+            }
+            MaintenanceRecurrence recurrence = new MaintenanceRecurrence(plan.getStartDate(), plan.getDurationMonths(),
+            plan.getFrequency(), plan.isIncludeWeekends());
+
+            for (long offset = 0; offset < recurrence.count(); offset += OCCURRENCE_PAGE_SIZE) {
+                for (LocalDate date : recurrence.occurrences(offset, OCCURRENCE_PAGE_SIZE)) {
+                    long releaseDay = ChronoUnit.DAYS.between(start, date);
+                    if (releaseDay >= horizon) {
+                        return;
+                    }
+                    if (releaseDay < 0) {
+                        continue;
+                    }
+                    for (MaintenanceTask maintenanceTask : tasks) {
+                        addJob(owner, maintenanceTask, (int) releaseDay);
+                    }
+                }
+            }
+        }
+
+        private void addJob(Machine owner, MaintenanceTask maintenanceTask, int releaseDay) {
+            if (size == release.length) {
+                int capacity = size * 2;
+                release = Arrays.copyOf(release, capacity);
+                hours = Arrays.copyOf(hours, capacity);
+                value = Arrays.copyOf(value, capacity);
+                day = Arrays.copyOf(day, capacity);
+                machine = Arrays.copyOf(machine, capacity);
+                task = Arrays.copyOf(task, capacity);
+                resources = Arrays.copyOf(resources, capacity);
+            }
+            int job = size++;
+            release[job] = releaseDay;
+            hours[job] = Math.max(0, maintenanceTask.getEstimatedHours());
+            value[job] = value(maintenanceTask.getPriority(), owner.getEfficiencyScore());
+            day[job] = -1;
+            machine[job] = owner;
+            task[job] = maintenanceTask;
+            resources[job] = taskResources.computeIfAbsent(maintenanceTask, this::resourcesOf);
+
+            if (hours[job] > technicianHours) {
+                markUnschedulable(job, "Görev süresi günlük teknisyen kapasitesini aşıyor");
+            } else {
+                for (int resource : resources[job]) {
+                    if (resourceCapacity[resource] == 0) {
+                        markUnschedulable(job, "Gerekli kaynağın günlük kapasitesi yok");
+                        break;
+                    }
+                }
+            }
+        }
+
+        private int[] resourcesOf(MaintenanceTask maintenanceTask) {
+            if (maintenanceTask.getRequiredResources() == null) {
+                return new int[0];
+            }
+            return maintenanceTask.getRequiredResources().stream()
+            .map(resourceIds::get)
+            .filter(id -> id != null)
+            .distinct()
+            .mapToInt(Integer::intValue)
+            .toArray();
+        }
+
+        private void markUnschedulable(int job, String reason) {
+            day[job] = -2;
+            unschedulable.add(job);
+            unschedulableReasons.add(reason);
+        }
+
+        // most valuable first, then the one waiting longest
+        private int compare(int a, int b) {
+            int byValue = Double.compare(value[b], value[a]);
+            if (byValue != 0) {
+                return byValue;
+            }
+            int byRelease = Integer.compare(release[a], release[b]);
+            return byRelease != 0 ? byRelease : Integer.compare(a, b);
+        }
+
+        private void runListScheduler() {
+            int[] order = jobsByRelease();
+            int next = 0;
+            IntList failed = new IntList();
+
+            for (int d = 0; d < horizon; d++) {
+                while (next < order.length && release[order[next]] <= d) {
+                    waiting.push(order[next++]);
+                }
+                if (!working[d]) {
+                    continue;
+                }
+
+                // jobs that do not fit are tried again tomorrow; past a few misses the day counts as full
+                failed.clear();
+                while (!waiting.isEmpty() && hoursUsed[d] < technicianHours && failed.size() < MAX_FAILED_FITS_PER_DAY) {
+                    int job = waiting.pop();
+                    if (fits(job, d)) {
+                        place(job, d);
+                    } else {
+                        failed.add(job);
+                    }
+                }
+                for (int i = 0; i < failed.size(); i++) {
+                    waiting.push(failed.get(i));
+                }
+            }
+        }
+
+        private int[] jobsByRelease() {
+            int[] counts = new int[horizon + 1];
+            for (int job = 0; job < size; job++) {
+                if (day[job] == -1) {
+                    counts[release[job] + 1]++;
+                }
+            }
+            for (int d = 0; d < horizon; d++) {
+                counts[d + 1] += counts[d];
+            }
+            int[] order = new int[counts[horizon]];
+            for (int job = 0; job < size; job++) {
+                if (day[job] == -1) {
+                    order[counts[release[job]]++] = job;
+                }
+            }
+            return order;
+        }
+
+        private int improve() {
+            List<Integer> delayed = new ArrayList<>();
+            for (int job = 0; job < size; job++) {
+                if (day[job] > release[job]) {
+                    delayed.add(job);
+                }
+            }
+            delayed.sort(this::compare);
+
+            int moves = 0;
+            for (int job : delayed) {
+                int scheduled = day[job];
+                int last = Math.min(scheduled - 1, release[job] + SWAP_WINDOW_DAYS);
+                for (int d = release[job]; d <= last; d++) {
+                    if (!working[d]) {
+                        continue;
+                    }
+                    if (fits(job, d)) {
+                        unplace(job);
+                        place(job, d);
+                        moves++;
+                        break;
+                    }
+                    int swap = cheapestSwap(job, d, scheduled);
+                    if (swap >= 0) {
+                        unplace(job);
+                        unplace(swap);
+                        place(job, d);
+                        place(swap, scheduled);
+                        moves++;
+                        break;
+                    }
+                }
+            }
+            return moves;
+        }
+
+        private int cheapestSwap(int job, int d, int scheduled) {
+            int best = -1;
+            IntList candidates = byDay[d];
+            for (int i = 0; i < candidates.size(); i++) {
+                int other = candidates.get(i);
+                if (value[other] < value[job] && (best < 0 || value[other] < value[best])
+                && swapFits(job, other, d, scheduled)) {
+                    best = other;
+                }
+            }
+            return best;
+        }
+
+        private boolean fits(int job, int d) {
+            if (hoursUsed[d] + hours[job] > technicianHours) {
+                return false;
+            }
+            int base = d * resourceCapacity.length;
+            for (int resource : resources[job]) {
+                if (resourceUsed[base + resource] + 1 > resourceCapacity[resource]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // `incoming` takes the place of `outgoing` on day d, and `outgoing` moves to day `other`
+        private boolean swapFits(int incoming, int outgoing, int d, int other) {
+            return hoursUsed[d] - hours[outgoing] + hours[incoming] <= technicianHours
+            && hoursUsed[other] - hours[incoming] + hours[outgoing] <= technicianHours
+            && resourcesFitAfterSwap(incoming, outgoing, d)
+            && resourcesFitAfterSwap(outgoing, incoming, other);
+        }
+
+        private boolean resourcesFitAfterSwap(int incoming, int outgoing, int d) {
+            int base = d * resourceCapacity.length;
+            for (int resource : resources[incoming]) {
+                int freed = contains(resources[outgoing], resource) ? 1 : 0;
+                if (resourceUsed[base + resource] - freed + 1 > resourceCapacity[resource]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean contains(int[] values, int value) {
+            for (int v : values) {
+                if (v == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void place(int job, int d) {
+            day[job] = d;
+            hoursUsed[d] += hours[job];
+            int base = d * resourceCapacity.length;
+            for (int resource : resources[job]) {
+                resourceUsed[base + resource]++;
+            }
+            byDay[d].add(job);
+        }
+
+        private void unplace(int job) {
+            int d = day[job];
+            hoursUsed[d] -= hours[job];
+            int base = d * resourceCapacity.length;
+            for (int resource : resources[job]) {
+                resourceUsed[base + resource]--;
+            }
+            byDay[d].remove(job);
+            day[job] = -1;
+        }
+
+        private FleetMaintenanceScheduleResponse toResponse(int moves) {
+            List<FleetMaintenanceAssignment> assignments = new ArrayList<>();
+            long totalHours = 0;
+            long totalDelay = 0;
+            int peakHours = 0;
+            for (int d = 0; d < horizon; d++) {
+                IntList jobs = byDay[d];
+                for (int i = 0; i < jobs.size(); i++) {
+                    int job = jobs.get(i);
+                    FleetMaintenanceAssignment assignment = assignment(job, "SCHEDULED", null);
+                    assignment.setScheduledDate(start.plusDays(d));
+                    assignment.setDelayDays(d - release[job]);
+                    assignments.add(assignment);
+                    totalDelay += d - release[job];
+                }
+                totalHours += hoursUsed[d];
+                peakHours = Math.max(peakHours, hoursUsed[d]);
+            }
+
+            List<FleetMaintenanceAssignment> unscheduled = new ArrayList<>();
+            for (int i = 0; i < unschedulable.size(); i++) {
+                unscheduled.add(assignment(unschedulable.get(i), "UNSCHEDULED", unschedulableReasons.get(i)));
+            }
+            while (!waiting.isEmpty()) {
+                unscheduled.add(assignment(waiting.pop(), "UNSCHEDULED", "Ufuk içinde yeterli kapasite bulunamadı"));
+            }
+
+            FleetMaintenanceScheduleResponse response = new FleetMaintenanceScheduleResponse();
+            response.setAssignments(assignments);
+            response.setUnscheduled(unscheduled);
+            response.setTotalScheduledHours(totalHours);
+            response.setTotalDelayDays(totalDelay);
+            response.setPeakDailyHours(peakHours);
+            response.setImprovementMoves(moves);
+            return response;
+        }
+
+        private FleetMaintenanceAssignment assignment(int job, String status, String reason) {
+            FleetMaintenanceAssignment assignment = new FleetMaintenanceAssignment();
+            assignment.setMachineId(machine[job].getId());
+            assignment.setMachineName(machine[job].getName());
+            assignment.setTaskName(task[job].getName());
+            assignment.setPriority(task[job].getPriority());
+            assignment.setEstimatedHours(hours[job]);
+            assignment.setRequiredResources(task[job].getRequiredResources());
+            assignment.setPlannedDate(start.plusDays(release[job]));
+            assignment.setStatus(status);
+            assignment.setReason(reason);
+            return assignment;
+        }
+    }
+
+    private interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    /** Binary min-heap of job indices, so the queue neither boxes nor allocates per job. */
+    private static final class IntHeap {
+
+        private final IntComparator comparator;
+        private int[] items = new int[1024];
+        private int size;
+
+        private IntHeap(IntComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (comparator.compare(item, items[parent]) >= 0) {
+                    break;
+                }
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = item;
+        }
+
+        int pop() {
+            int top = items[0];
+            int last = items[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && comparator.compare(items[child + 1], items[child]) < 0) {
+                    child++;
+                }
+                if (comparator.compare(items[child], last) >= 0) {
+                    break;
+                }
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] items = new int[16];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return items[index];
+        }
+
+        void add(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        void remove(int item) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == item) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
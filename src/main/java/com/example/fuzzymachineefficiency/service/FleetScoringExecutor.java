@@ -0,0 +1,112 @@
+package com.example.fuzzymachineefficiency.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Fork-join pool reserved for fleet-wide scoring, so large scans neither run on one core nor compete
+ * with everything else on the common pool. The pool never grows beyond its parallelism. Lists are
+ * split in halves down to {@code chunk-size} items and every result is written back to its input
+ * position, so the output order is the input order regardless of scheduling.
+ */
+@Service
+public class FleetScoringExecutor {
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public FleetScoringExecutor(@Value("${scoring.fleet.parallelism:0}") int parallelism,
+                                @Value("${scoring.fleet.chunk-size:256}") int chunkSize) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("fleet-scoring-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false, 0, threads, 1, null, 60, TimeUnit.SECONDS);
+    }
+
+    /** Applies {@code mapper} to every item in parallel and returns the results in input order. */
+    public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> mapper) {
+        if (items.size() <= chunkSize) {
+            List<R> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(mapper.apply(item));
+            }
+            return results;
+        }
+
+        Object[] results = new Object[items.size()];
+        pool.invoke(new MapTask<>(items, mapper, results, 0, items.size()));
+
+        @SuppressWarnings("unchecked")
+        List<R> ordered = (List<R>) Arrays.asList(results);
+        return ordered;
+    }
+
+    /** Runs {@code task} for every index in {@code [0, count)} as its own pool task; results in index order. */
+    public <R> List<R> invokeEach(int count, IntFunction<? extends R> task) {
+        List<ForkJoinTask<? extends R>> forks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            forks.add(pool.submit(() -> task.apply(index)));
+        }
+        List<R> results = new ArrayList<>(count);
+        for (ForkJoinTask<? extends R> fork : forks) {
+            results.add(fork.join());
+        }
+        return results;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private final class MapTask<T, R> extends RecursiveAction {
+
+        private final List<T> items;
+        private final Function<? super T, ? extends R> mapper;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        private MapTask(List<T> items, Function<? super T, ? extends R> mapper, Object[] results, int from, int to) {
+            this.items = items;
+            this.mapper = mapper;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = mapper.apply(items.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapTask<>(items, mapper, results, from, middle),
+            new MapTask<>(items, mapper, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Fleet statistics kept up to date from {@link MachineSavedEvent}s and {@link MachineDeletedEvent}s, so
+ * reading them costs O(1). Every machine's last contribution is remembered, which lets an update or
+ * delete take back exactly what was added. Scores are summed in cents to keep that exact; min/max
+ * come from a set ordered by (score, id), and ties resolve to the lowest id as the old full scan did.
+ * A periodic full reconciliation rebuilds everything from the database in case an event was missed.
+ */
+@Slf4j
+@Service
+public class FleetStatisticsAggregator {
+
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+    private static final String[] BUCKETS = {"VERY_GOOD", "GOOD", "MEDIUM", "BAD", "VERY_BAD"};
+    // daily production bands of 500 units; the last one is open-ended
+    private static final int PRODUCTION_BAND_WIDTH = 500;
+    private static final int PRODUCTION_BANDS = 10;
+
+    private final MachineRepository machineRepository;
+
+    private Aggregates current = new Aggregates();
+    private List<Consumer<Aggregates>> pendingDuringReconcile;
+
+    public FleetStatisticsAggregator(MachineRepository machineRepository) {
+        this.machineRepository = machineRepository;
+    }
+
+    public record FleetStatistics(int totalMachines, double averageEfficiencyScore, Long mostEfficientMachineId,
+                                  Long leastEfficientMachineId, Map<String, Integer> efficiencyDistribution,
+                                  double averageMaintenanceInterval, double averageEnergyConsumption,
+                                  Map<String, Double> efficiencyByProductionBand) {
+    }
+
+    public synchronized FleetStatistics snapshot() {
+        return current.snapshot();
+    }
+
+    @EventListener
+    public void onMachineSaved(MachineSavedEvent event) {
+        Contribution contribution = contribution(event.machine());
+        apply(aggregates -> aggregates.put(contribution));
+    }
+
+    @EventListener
+    public void onMachinesSaved(MachinesSavedEvent event) {
+        List<Contribution> contributions = event.machines().stream().map(FleetStatisticsAggregator::contribution).toList();
+        apply(aggregates -> contributions.forEach(aggregates::put));
+    }
+
+    @EventListener
+    public void onMachineDeleted(MachineDeletedEvent event) {
+        long id = event.machineId();
+        apply(aggregates -> aggregates.remove(id));
+    }
+
+    /**
+     * Rebuilds the aggregates from the machines table. Events arriving during the scan are applied to
+     * both the live and the rebuilt aggregates, so none are lost when the rebuilt one is swapped in.
+     */
+    @Scheduled(fixedDelayString = "${statistics.reconcile-interval:PT15M}",
+    initialDelayString = "${statistics.reconcile-interval:PT15M}")
+    public void reconcile() {
+        synchronized (this) {
+            if (pendingDuringReconcile != null) {
+                return;
+            }
+            pendingDuringReconcile = new ArrayList<>();
+        }
+
+        Aggregates rebuilt = new Aggregates();
+        try {
+            long afterId = 0L;
+            List<MachineExportRow> rows;
+            do {
+                rows = machineRepository.findExportRowsAfter(afterId, PageRequest.of(0, RECONCILE_BATCH_SIZE));
+                for (MachineExportRow row : rows) {
+                    rebuilt.put(new Contribution(row.getId(), toCents(row.getEfficiencyScore()),
+                    row.getDailyProduction(), row.getMaintenanceInterval(), row.getEnergyConsumption()));
+                    afterId = row.getId();
+                }
+            } while (rows.size() == RECONCILE_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDuringReconcile = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            pendingDuringReconcile.forEach(change -> change.accept(rebuilt));
+            pendingDuringReconcile = null;
+            if (rebuilt.scoreCentsSum != current.scoreCentsSum || rebuilt.byId.size() != current.byId.size()) {
+                log.info("Fleet statistics drifted from the database and were rebuilt ({} machines)", rebuilt.byId.size());
+            }
+            current = rebuilt;
+        }
+    }
+
+    private synchronized void apply(Consumer<Aggregates> change) {
+        change.accept(current);
+        if (pendingDuringReconcile != null) {
+            pendingDuringReconcile.add(change);
+        }
+    }
+
+    private static Contribution contribution(Machine machine) {
+        return new Contribution(machine.getId(), toCents(machine.getEfficiencyScore()), machine.getDailyProduction(),
+        machine.getMaintenanceInterval(), machine.getEnergyConsumption());
+    }
+
+    private static Long toCents(Double score) {
+        return score != null ? Math.round(score * 100.0) : null;
+    }
+
+    private record Contribution(long id, Long scoreCents, Double dailyProduction, Double maintenanceInterval,
+                                Double energyConsumption) {
+    }
+
+    private static final class Aggregates {
+
+        private final Map<Long, Contribution> byId = new HashMap<>();
+        private final TreeSet<Contribution> byScore = new TreeSet<>(
+        Comparator.comparingLong(Contribution::scoreCents).thenComparingLong(Contribution::id));
+        private final int[] buckets = new int[BUCKETS.length];
+        private final long[] bandScoreCents = new long[PRODUCTION_BANDS];
+        private final int[] bandCounts = new int[PRODUCTION_BANDS];
+        private long scoreCentsSum;
+        private double maintenanceSum;
+        private int maintenanceCount;
+        private double energySum;
+        private int energyCount;
+
+        void put(Contribution contribution) {
+            remove(contribution.id());
+            byId.put(contribution.id(), contribution);
+            if (contribution.scoreCents() != null) {
+                byScore.add(contribution);
+                scoreCentsSum += contribution.scoreCents();
+                buckets[bucket(contribution.scoreCents())]++;
+                if (contribution.dailyProduction() != null) {
+                    int band = productionBand(contribution.dailyProduction());
+                    bandScoreCents[band] += contribution.scoreCents();
+                    bandCounts[band]++;
+                }
+            }
+            if (contribution.maintenanceInterval() != null) {
+                maintenanceSum += contribution.maintenanceInterval();
+                maintenanceCount++;
+            }
+            if (contribution.energyConsumption() != null) {
+                energySum += contribution.energyConsumption();
+                energyCount++;
+            }
+        }
+
+        void remove(long id) {
+            Contribution contribution = byId.remove(id);
+            if (contribution == null) {
+                return;
+            }
+            if (contribution.scoreCents() != null) {
+                byScore.remove(contribution);
+                scoreCentsSum -= contribution.scoreCents();
+                buckets[bucket(contribution.scoreCents())]--;
+                if (contribution.dailyProduction() != null) {
+                    int band = productionBand(contribution.dailyProduction());
+                    bandScoreCents[band] -= contribution.scoreCents();
+                    bandCounts[band]--;
+                }
+            }
+            if (contribution.maintenanceInterval() != null) {
+                maintenanceSum -= contribution.maintenanceInterval();
+                maintenanceCount--;
+            }
+            if (contribution.energyConsumption() != null) {
+                energySum -= contribution.energyConsumption();
+                energyCount--;
+            }
+        }
+
+        FleetStatistics snapshot() {
+            Long mostEfficient = null;
+            Long leastEfficient = null;
+            if (!byScore.isEmpty()) {
+                leastEfficient = byScore.first().id();
+                long maxCents = byScore.last().scoreCents();
+                mostEfficient = byScore.ceiling(new Contribution(Long.MIN_VALUE, maxCents, null, null, null)).id();
+            }
+
+            Map<String, Integer> distribution = new LinkedHashMap<>();
+            for (int b = 0; b < BUCKETS.length; b++) {
+                distribution.put(BUCKETS[b], buckets[b]);
+            }
+
+            Map<String, Double> byProduction = new LinkedHashMap<>();
+            for (int band = 0; band < PRODUCTION_BANDS; band++) {
+                if (bandCounts[band] > 0) {
+                    long from = (long) band * PRODUCTION_BAND_WIDTH;
+                    String label = band + 1 < PRODUCTION_BANDS ? from + "-" + (from + PRODUCTION_BAND_WIDTH) : from + "+";
+                    byProduction.put(label, Math.round((double) bandScoreCents[band] / bandCounts[band]) / 100.0);
+                }
+            }
+
+            return new FleetStatistics(byId.size(),
+            byScore.isEmpty() ? 0.0 : scoreCentsSum / 100.0 / byScore.size(),
+            mostEfficient, leastEfficient, distribution,
+            maintenanceCount > 0 ? maintenanceSum / maintenanceCount : 0.0,
+            energyCount > 0 ? energySum / energyCount : 0.0,
+            byProduction);
+        }
+
+        private static int productionBand(double dailyProduction) {
+            return (int) Math.max(0, Math.min(PRODUCTION_BANDS - 1, Math.floor(dailyProduction / PRODUCTION_BAND_WIDTH)));
+        }
+
+        private static int bucket(long scoreCents) {
+            if (scoreCents >= 9000) return 0;
+            if (scoreCents >= 7500) return 1;
+            if (scoreCents >= 5000) return 2;
+            if (scoreCents >= 2500) return 3;
+            return 4;
+        }
+    }
+}
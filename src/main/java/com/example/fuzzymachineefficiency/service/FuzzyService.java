@@ -2,53 +2,237 @@ package com.example.fuzzymachineefficiency.service;
 
 import com.example.fuzzymachineefficiency.dto.MachineAnalysisResponse;
 import com.example.fuzzymachineefficiency.dto.MachineDataRequest;
-import net.sourceforge.jFuzzyLogic.FIS;
-import net.sourceforge.jFuzzyLogic.FunctionBlock;
-import net.sourceforge.jFuzzyLogic.rule.Variable;
+import com.example.fuzzymachineefficiency.fuzzy.EfficiencySurfaceTable;
+import com.example.fuzzymachineefficiency.fuzzy.EvaluationSession;
+import com.example.fuzzymachineefficiency.fuzzy.FclParser;
+import com.example.fuzzymachineefficiency.fuzzy.FuzzyEngine;
+import com.example.fuzzymachineefficiency.fuzzy.FuzzyModel;
+import com.example.fuzzymachineefficiency.fuzzy.FuzzyWorkspace;
+import com.example.fuzzymachineefficiency.fuzzy.JFuzzyLogicEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
+@Slf4j
 @Service
 public class FuzzyService {
 
     private static final String FCL_FILENAME = "machineefficiency.fcl";
 
-    public MachineAnalysisResponse calculate(MachineDataRequest request) {
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream(FCL_FILENAME);
-        if (in == null) {
-            throw new RuntimeException("ERROR: FCL file not found! Check resources folder.");
+    private final FuzzyModel model;
+    private final String modelVersion;
+    private final FuzzyEngine engine;
+    private final ThreadLocal<FuzzyWorkspace> workspaces;
+
+    private final int productionIndex;
+    private final int errorIndex;
+    private final int maintenanceIndex;
+    private final int standbyIndex;
+    private final int energyIndex;
+
+    private final int stageSampling;
+    private final Timer evaluationTimer;
+    private final Timer fuzzificationTimer;
+    private final Timer ruleEvaluationTimer;
+    private final Timer defuzzificationTimer;
+    private final Counter fallbackCounter;
+    private final Counter[] ruleFirings;
+
+    public FuzzyService(@Value("${fuzzy.engine:native}") String engineType,
+                        @Value("${fuzzy.lut.subdivisions:1}") int lutSubdivisions,
+                        @Value("${fuzzy.lut.file:}") String lutFile,
+                        @Value("${fuzzy.lut.validation-samples:20000}") int lutValidationSamples,
+                        @Value("${fuzzy.lut.max-error:1}") double lutMaxError,
+                        @Value("${fuzzy.metrics.stage-sampling:64}") int stageSampling,
+                        @Value("${fuzzy.metrics.rule-firings:true}") boolean countRuleFirings,
+                        MeterRegistry meterRegistry) {
+        long loadStart = System.nanoTime();
+        String fclDefinition = readFclDefinition();
+        try {
+            this.model = FclParser.parse(fclDefinition);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("ERROR: " + FCL_FILENAME + " uses FCL outside the supported subset, "
+            + "no fuzzy engine can be started: " + e.getMessage(), e);
         }
-
-        FIS fis = FIS.load(in, true);
-        if (fis == null) {
-            throw new RuntimeException("ERROR: FIS loading failed.");
+        Timer.builder("fuzzy.fcl.load")
+        .description("Reading and compiling the FCL rule base")
+        .register(meterRegistry)
+        .record(System.nanoTime() - loadStart, TimeUnit.NANOSECONDS);
+
+        String engineName = engineType.toLowerCase();
+        FuzzyEngine selected = switch (engineName) {
+            case "native" -> model;
+            case "jfuzzylogic" -> new JFuzzyLogicEngine(fclDefinition, model);
+            case "lut" -> EfficiencySurfaceTable.build(model, fingerprint(fclDefinition), lutSubdivisions,
+            lutFile.isBlank() ? null : Path.of(lutFile), lutValidationSamples, lutMaxError);
+            default -> throw new IllegalArgumentException("ERROR: unknown fuzzy engine: " + engineType);
+        };
+        if (selected instanceof EfficiencySurfaceTable table) {
+            Gauge.builder("fuzzy.lut.error", table, EfficiencySurfaceTable::getMaxError)
+            .description("Largest deviation of the lookup table from the exact model over the validation samples")
+            .tag("stat", "max")
+            .register(meterRegistry);
+            Gauge.builder("fuzzy.lut.error", table, EfficiencySurfaceTable::getMeanError)
+            .description("Mean deviation of the lookup table from the exact model over the validation samples")
+            .tag("stat", "mean")
+            .register(meterRegistry);
+            if (!(table.getMaxError() <= lutMaxError)) {
+                log.warn("Efficiency surface max error {} exceeds fuzzy.lut.max-error {}, falling back to the native engine",
+                table.getMaxError(), lutMaxError);
+                selected = model;
+                engineName = "native";
+            }
+        }
+        this.engine = selected;
+        // stored scores depend on the rule base and on the engine that produced them, so switching engines or
+        // the table resolution or tolerance marks every machine stale
+        this.modelVersion = Long.toHexString(fingerprint(fclDefinition)) + "-" + engineName
+        + (engine instanceof EfficiencySurfaceTable ? "-s" + lutSubdivisions + "-e" + lutMaxError : "");
+        this.workspaces = ThreadLocal.withInitial(model::newWorkspace);
+
+        this.productionIndex = model.getInputIndex("productionAmount");
+        this.errorIndex = model.getInputIndex("errorRate");
+        this.maintenanceIndex = model.getInputIndex("maintenanceInterval");
+        this.standbyIndex = model.getInputIndex("standbyTime");
+        this.energyIndex = model.getInputIndex("energyConsumption");
+
+        this.stageSampling = stageSampling;
+        this.evaluationTimer = stageTimer(meterRegistry, engineName, "total");
+        this.fuzzificationTimer = stageTimer(meterRegistry, engineName, "fuzzification");
+        this.ruleEvaluationTimer = stageTimer(meterRegistry, engineName, "rule-evaluation");
+        this.defuzzificationTimer = stageTimer(meterRegistry, engineName, "defuzzification");
+        this.fallbackCounter = Counter.builder("fuzzy.fallback.default")
+        .description("Evaluations where no rule fired and the rule base's DEFAULT score was returned")
+        .register(meterRegistry);
+        // only the native model exposes rule strengths after an evaluation
+        this.ruleFirings = countRuleFirings && engine == model ? new Counter[model.getRuleCount()] : null;
+        if (ruleFirings != null) {
+            for (int rule = 0; rule < ruleFirings.length; rule++) {
+                ruleFirings[rule] = Counter.builder("fuzzy.rule.firings")
+                .description("Evaluations in which the rule fired with non-zero strength")
+                .tag("rule", model.getRuleName(rule))
+                .register(meterRegistry);
+            }
         }
 
-        FunctionBlock fb = fis.getFunctionBlock(null);
+        log.info("Fuzzy engine '{}' ready: {} inputs, {} rules", engineName, model.getInputCount(), model.getRuleCount());
+    }
 
+    public MachineAnalysisResponse calculate(MachineDataRequest request) {
+        double score = score(request.getDailyProduction(), request.getErrorMargin(), request.getMaintenanceInterval(),
+        request.getStandbyTime(), request.getEnergyConsumption());
 
-        fb.setVariable("productionAmount", request.getDailyProduction());
-        fb.setVariable("errorRate", request.getErrorMargin());
-        fb.setVariable("maintenanceInterval", request.getMaintenanceInterval());
-        fb.setVariable("standbyTime", request.getStandbyTime()); 
-        fb.setVariable("energyConsumption", request.getEnergyConsumption());
+        MachineAnalysisResponse response = new MachineAnalysisResponse();
+        response.setEfficiencyScore(Math.round(score * 100.0) / 100.0);
+        response.setEfficiencyStatus(getStatusBasedOnScore(score));
 
-        fb.evaluate();
+        return response;
+    }
 
-        Variable resultVariable = fb.getVariable("efficiencyScore");
+    /** Crisp efficiency score; the rule base's DEFAULT when no rule fires. */
+    public double score(double dailyProduction, double errorMargin, double maintenanceInterval,
+                        double standbyTime, double energyConsumption) {
+        FuzzyWorkspace workspace = workspaces.get();
+        workspace.setInput(productionIndex, dailyProduction);
+        workspace.setInput(errorIndex, errorMargin);
+        workspace.setInput(maintenanceIndex, maintenanceInterval);
+        workspace.setInput(standbyIndex, standbyTime);
+        workspace.setInput(energyIndex, energyConsumption);
+
+        double result = stageSampling > 0 && ThreadLocalRandom.current().nextInt(stageSampling) == 0
+        ? evaluateTimed(workspace)
+        : engine.evaluate(workspace);
+
+        if (ruleFirings != null) {
+            for (int i = 0; i < workspace.getActiveRuleCount(); i++) {
+                ruleFirings[workspace.getActiveRule(i)].increment();
+            }
+        }
+        if (Double.isNaN(result)) {
+            fallbackCounter.increment();
+            return model.getDefaultValue();
+        }
+        return result;
+    }
 
-        double score = resultVariable.getValue();
+    /**
+     * Opens a what-if session at the given inputs; {@link EvaluationSession#set} takes positions in the
+     * argument order of {@link #score}. Session evaluations are not sampled into the stage timers or rule
+     * counters.
+     */
+    public EvaluationSession openSession(double dailyProduction, double errorMargin, double maintenanceInterval,
+                                         double standbyTime, double energyConsumption) {
+        return new EvaluationSession(model, engine,
+        new int[]{productionIndex, errorIndex, maintenanceIndex, standbyIndex, energyIndex},
+        new double[]{dailyProduction, errorMargin, maintenanceInterval, standbyTime, energyConsumption});
+    }
 
-        if (Double.isNaN(score)) {
-            score = 50.0;
+    // Every stage-sampling-th call is timed; the stage split exists only for the native model.
+    private double evaluateTimed(FuzzyWorkspace workspace) {
+        long start = System.nanoTime();
+        double result;
+        if (engine == model) {
+            model.fuzzify(workspace);
+            long fuzzified = System.nanoTime();
+            model.fireRules(workspace);
+            long fired = System.nanoTime();
+            result = model.defuzzify(workspace);
+            long end = System.nanoTime();
+
+            fuzzificationTimer.record(fuzzified - start, TimeUnit.NANOSECONDS);
+            ruleEvaluationTimer.record(fired - fuzzified, TimeUnit.NANOSECONDS);
+            defuzzificationTimer.record(end - fired, TimeUnit.NANOSECONDS);
+        } else {
+            result = engine.evaluate(workspace);
         }
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
 
-        MachineAnalysisResponse response = new MachineAnalysisResponse();
-        response.setEfficiencyScore(Math.round(score * 100.0) / 100.0);
-        response.setEfficiencyStatus(getStatusBasedOnScore(score));
+    private static Timer stageTimer(MeterRegistry meterRegistry, String engineType, String stage) {
+        return Timer.builder("fuzzy.evaluation")
+        .description("Sampled fuzzy evaluation latency per stage")
+        .tag("engine", engineType)
+        .tag("stage", stage)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    }
 
-        return response;
+    public FuzzyModel getModel() {
+        return model;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    private static long fingerprint(String fclDefinition) {
+        CRC32 crc = new CRC32();
+        crc.update(fclDefinition.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private String readFclDefinition() {
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(FCL_FILENAME)) {
+            if (in == null) {
+                throw new RuntimeException("ERROR: FCL file not found! Check resources folder.");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("ERROR: FCL file could not be read.", e);
+        }
     }
 
     private String getStatusBasedOnScore(double score) {
@@ -58,4 +242,4 @@ public class FuzzyService {
         if (score >= 25) return "Bad (Inefficient)";
         return "Very Bad (Critical)";
     }
-}
\ No newline at end of file
+}
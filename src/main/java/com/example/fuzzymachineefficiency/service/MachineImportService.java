@@ -0,0 +1,343 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.ImportJobStatus;
+import com.example.fuzzymachineefficiency.dto.ImportResponse;
+import com.example.fuzzymachineefficiency.dto.MachineDto;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.mapper.MachineMapper;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.util.CsvReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Streams a CSV upload (same layout as the export) into the machines table. Records are read one at a
+ * time, validated and scored in parallel per chunk on the fleet scoring pool, and every chunk is written
+ * with one {@code saveAll} so Hibernate can send it as JDBC batches (the pooled {@code machines_seq} id
+ * makes that possible).
+ * Imports run on the import executor; asynchronous ones are tracked as jobs that can be polled.
+ */
+@Slf4j
+@Service
+public class MachineImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(1);
+
+    private final MachineRepository machineRepository;
+    private final MachineService machineService;
+    private final MachineMapper machineMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FleetScoringExecutor fleetScoringExecutor;
+    private final ExecutorService executor;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int maxReportedMachines;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public MachineImportService(MachineRepository machineRepository,
+                                MachineService machineService,
+                                MachineMapper machineMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                FleetScoringExecutor fleetScoringExecutor,
+                                @Qualifier("machineImportExecutor") ExecutorService executor,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${import.batch-size:1000}") int batchSize,
+                                @Value("${import.max-reported-machines:1000}") int maxReportedMachines) {
+        this.machineRepository = machineRepository;
+        this.machineService = machineService;
+        this.machineMapper = machineMapper;
+        this.eventPublisher = eventPublisher;
+        this.fleetScoringExecutor = fleetScoringExecutor;
+        this.executor = executor;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxReportedMachines = maxReportedMachines;
+    }
+
+    /**
+     * Imports the file and waits for the result. Runs on the import executor as well, so the request's
+     * open persistence context does not collect every imported entity. Both entry points throw
+     * {@link RejectedExecutionException} when the import queue is full.
+     */
+    public ImportResponse importMachines(MultipartFile file) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), maxReportedMachines);
+        Future<?> future = executor.submit(() -> run(job, file::getInputStream));
+
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            job.fail("İçe aktarma kesildi");
+        } catch (ExecutionException e) {
+            job.fail(e.getCause().getMessage());
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Copies the upload to a temporary file (the multipart part is gone once the request ends) and
+     * imports it in the background. Poll {@link #getJobStatus(String)} for progress.
+     */
+    public ImportJobStatus startImport(MultipartFile file) throws IOException {
+        evictFinishedJobs(LocalDateTime.now());
+
+        Path upload = Files.createTempFile("machine-import-", ".csv");
+        try {
+            file.transferTo(upload);
+        } catch (IOException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), 0);
+        jobs.put(job.id, job);
+        try {
+            executor.submit(() -> {
+                try {
+                    run(job, () -> Files.newInputStream(upload));
+                } finally {
+                    deleteUpload(upload);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteUpload(upload);
+            throw e;
+        }
+        return job.toStatus();
+    }
+
+    public ImportJobStatus getJobStatus(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("İçe aktarma işi bulunamadı: " + jobId);
+        }
+        return job.toStatus();
+    }
+
+    /**
+     * Moves {@code machines_seq} past the highest existing id. Rows created while the table still used an
+     * identity column would otherwise collide with the first ids handed out by the sequence.
+     */
+    public void alignIdSequence() {
+        try {
+            jdbcTemplate.queryForObject("SELECT setval('machines_seq', GREATEST("
+            + "(SELECT COALESCE(MAX(id), 0) FROM machines), (SELECT last_value FROM machines_seq)))", Long.class);
+        } catch (DataAccessException e) {
+            log.warn("machines_seq could not be aligned with existing ids: {}", e.getMessage());
+        }
+    }
+
+    private void run(ImportJob job, UploadSource source) {
+        job.start();
+        try (CsvReader reader = new CsvReader(new InputStreamReader(source.open(), StandardCharsets.UTF_8))) {
+            List<CsvRow> chunk = new ArrayList<>(batchSize);
+            long rowNumber = 0;
+
+            reader.readRecord();
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                rowNumber++;
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                chunk.add(new CsvRow(rowNumber, record));
+                if (chunk.size() == batchSize) {
+                    importChunk(job, chunk);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(job, chunk);
+            }
+            job.complete();
+        } catch (Exception e) {
+            log.warn("Machine import {} failed: {}", job.id, e.getMessage());
+            job.fail(e.getMessage());
+        }
+    }
+
+    private void importChunk(ImportJob job, List<CsvRow> chunk) {
+        List<ParsedRow> parsed = fleetScoringExecutor.map(chunk, this::parse);
+
+        List<Machine> machines = new ArrayList<>(parsed.size());
+        for (ParsedRow row : parsed) {
+            if (row.machine() != null) {
+                machines.add(row.machine());
+            }
+        }
+        machineRepository.saveAll(machines);
+        if (!machines.isEmpty()) {
+            eventPublisher.publishEvent(new MachinesSavedEvent(machines));
+        }
+        job.recordChunk(parsed, machines, machineMapper);
+    }
+
+    private ParsedRow parse(CsvRow row) {
+        try {
+            List<String> values = row.values();
+            if (values.size() < 7) {
+                throw new IllegalArgumentException("Yetersiz veri sütunu: " + values.size());
+            }
+            String name = values.get(1).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Makine adı boş olamaz");
+            }
+
+            Machine machine = new Machine();
+            machine.setName(name);
+            machine.setDailyProduction(parseNumber(values.get(2), "dailyProduction"));
+            machine.setErrorMargin(parseNumber(values.get(3), "errorMargin"));
+            machine.setMaintenanceInterval(parseNumber(values.get(4), "maintenanceInterval"));
+            machine.setStandbyTime(parseNumber(values.get(5), "standbyTime"));
+            machine.setEnergyConsumption(parseNumber(values.get(6), "energyConsumption"));
+            machineService.applyEfficiencyScore(machine);
+            return new ParsedRow(row.number(), machine, null);
+        } catch (Exception e) {
+            return new ParsedRow(row.number(), null, e.getMessage());
+        }
+    }
+
+    private static double parseNumber(String value, String column) {
+        double number;
+        try {
+            number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " sayı değil: " + value);
+        }
+        if (!Double.isFinite(number)) {
+            throw new IllegalArgumentException(column + " geçersiz: " + value);
+        }
+        return number;
+    }
+
+    private static void deleteUpload(Path upload) {
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            log.warn("Import upload {} could not be deleted: {}", upload, e.getMessage());
+        }
+    }
+
+    void evictFinishedJobs(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(FINISHED_JOB_RETENTION);
+        jobs.values().removeIf(job -> job.isFinishedBefore(cutoff));
+    }
+
+    @FunctionalInterface
+    private interface UploadSource {
+        InputStream open() throws IOException;
+    }
+
+    private record CsvRow(long number, List<String> values) {
+    }
+
+    private record ParsedRow(long number, Machine machine, String error) {
+    }
+
+    private static final class ImportJob {
+
+        private final String id;
+        private final int maxReportedMachines;
+        private final List<String> errors = new ArrayList<>();
+        private final List<MachineDto> importedMachines = new ArrayList<>();
+        private String status = "QUEUED";
+        private long processedRecords;
+        private long successfulImports;
+        private long failedImports;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+
+        private ImportJob(String id, int maxReportedMachines) {
+            this.id = id;
+            this.maxReportedMachines = maxReportedMachines;
+        }
+
+        synchronized void start() {
+            status = "RUNNING";
+            startedAt = LocalDateTime.now();
+        }
+
+        synchronized void recordChunk(List<ParsedRow> rows, List<Machine> saved, MachineMapper mapper) {
+            processedRecords += rows.size();
+            successfulImports += saved.size();
+            failedImports += rows.size() - saved.size();
+            for (ParsedRow row : rows) {
+                if (row.error() != null && errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Satır " + row.number() + ": " + row.error());
+                }
+            }
+            for (Machine machine : saved) {
+                if (importedMachines.size() >= maxReportedMachines) {
+                    break;
+                }
+                importedMachines.add(mapper.entityToDto(machine));
+            }
+        }
+
+        synchronized void complete() {
+            status = "COMPLETED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        synchronized void fail(String message) {
+            status = "FAILED";
+            finishedAt = LocalDateTime.now();
+            errors.add("Dosya işleme hatası: " + message);
+        }
+
+        synchronized boolean isFinishedBefore(LocalDateTime cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        synchronized ImportJobStatus toStatus() {
+            ImportJobStatus jobStatus = new ImportJobStatus();
+            jobStatus.setJobId(id);
+            jobStatus.setStatus(status);
+            jobStatus.setProcessedRecords(processedRecords);
+            jobStatus.setSuccessfulImports(successfulImports);
+            jobStatus.setFailedImports(failedImports);
+            jobStatus.setErrors(new ArrayList<>(errors));
+            jobStatus.setStartedAt(startedAt);
+            jobStatus.setFinishedAt(finishedAt);
+            return jobStatus;
+        }
+
+        synchronized ImportResponse toResponse() {
+            ImportResponse response = new ImportResponse();
+            response.setTotalRecords((int) processedRecords);
+            response.setSuccessfulImports((int) successfulImports);
+            response.setFailedImports((int) failedImports);
+            response.setErrors(new ArrayList<>(errors));
+            response.setImportedMachines(new ArrayList<>(importedMachines));
+            return response;
+        }
+    }
+}
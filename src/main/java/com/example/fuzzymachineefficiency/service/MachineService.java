@@ -2,36 +2,71 @@ package com.example.fuzzymachineefficiency.service;
 
 import com.example.fuzzymachineefficiency.dto.*;
 import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.RollupGranularity;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.index.MachineCapacityIndex;
+import com.example.fuzzymachineefficiency.index.MachineNameIndex;
+import com.example.fuzzymachineefficiency.index.MachineScoreIndex;
 import com.example.fuzzymachineefficiency.mapper.MachineMapper;
 import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.util.CsvUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class MachineService {
 
+    private static final int RESCORE_BATCH_SIZE = 500;
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final int SCAN_BATCH_SIZE = 1000;
+    private static final int MAINTENANCE_PREVIEW_SIZE = 10;
+    private static final int TREND_MONTHS = 6;
+    private static final int TREND_DAYS = 30;
+    private static final int MAX_HISTORICAL_MONTHS = 36;
+
     private final MachineRepository machineRepository;
     private final FuzzyService fuzzyService;
     private final MachineMapper machineMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FleetStatisticsAggregator statisticsAggregator;
+    private final MachineNameIndex machineNameIndex;
+    private final MachineScoreIndex machineScoreIndex;
+    private final MachineCapacityIndex machineCapacityIndex;
+    private final FleetScoringExecutor fleetScoringExecutor;
+    private final MeterRegistry meterRegistry;
+    private final EfficiencyOptimizer efficiencyOptimizer;
+    private final MonteCarloSimulator monteCarloSimulator;
+    private final ScoreHistoryService scoreHistoryService;
 
     public Machine addMachine(MachineDto machineDto) {
         if (machineDto == null) {
             throw new IllegalArgumentException("Makine bilgileri boş olamaz");
         }
         Machine machine = machineMapper.dtoToEntity(machineDto);
-        return machineRepository.save(machine);
+        applyEfficiencyScore(machine);
+        Machine savedMachine = machineRepository.save(machine);
+        eventPublisher.publishEvent(new MachineSavedEvent(savedMachine));
+        return savedMachine;
     }
 
     public FullAnalysisResponse simulate(SimulationRequest request) {
@@ -59,6 +94,10 @@ public class MachineService {
         totalEnergyCost, totalLaborCost, totalMaintenanceCost);
         response.setCostDetails(costDetails);
 
+        if (request.getTrials() != null && request.getTrials() > 0) {
+            response.setMonteCarlo(monteCarloSimulator.run(machine, request));
+        }
+
         return response;
     }
 
@@ -79,8 +118,10 @@ public class MachineService {
 
         machineDto.setId(id);
         machineMapper.updateMachineFromDto(machineDto, existingMachine);
+        applyEfficiencyScore(existingMachine);
 
         Machine updatedMachine = machineRepository.save(existingMachine);
+        eventPublisher.publishEvent(new MachineSavedEvent(updatedMachine));
         return machineMapper.entityToDto(updatedMachine);
     }
 
@@ -89,6 +130,7 @@ public class MachineService {
             throw new IllegalArgumentException("Makine bulunamadı: " + id);
         }
         machineRepository.deleteById(id);
+        eventPublisher.publishEvent(new MachineDeletedEvent(id));
     }
 
     public Page<MachineDto> getPagedMachines(int page, int size, String sortBy, String direction) {
@@ -102,32 +144,33 @@ public class MachineService {
         return machinePage.map(machineMapper::entityToDto);
     }
 
-    public List<MachineDto> filterMachinesByEfficiency(Double minEfficiency, Double maxEfficiency) {
-        List<Machine> allMachines = machineRepository.findAll();
-
-        if (minEfficiency == null && maxEfficiency == null) {
-            return allMachines.stream()
-            .map(machineMapper::entityToDto)
-            .collect(Collectors.toList());
-        }
+    /**
+     * Score range filter answered from {@link MachineScoreIndex}; energy and production bounds are checked
+     * on the indexed facts as well, so only the returned page is loaded from the database.
+     */
+    public List<MachineDto> filterMachinesByEfficiency(MachineFilterRequest request) {
+        int size = request.getSize() != null ? request.getSize() : Integer.MAX_VALUE;
+        long offset = request.getSize() != null ? (long) request.getPage() * size : 0L;
 
-        return allMachines.stream()
-        .filter(machine -> {
-            MachineDataRequest request = createMachineDataRequest(machine);
-            MachineAnalysisResponse analysis = fuzzyService.calculate(request);
+        List<Long> ids = machineScoreIndex.find(request.getMinEfficiency(), request.getMaxEfficiency(),
+        createFactsFilter(request), offset, size);
+        return findMachinesInOrder(ids, machineMapper::entityToDto);
+    }
 
-            double score = analysis.getEfficiencyScore();
+    private static Predicate<MachineScoreIndex.Facts> createFactsFilter(MachineFilterRequest request) {
+        if (request.getMinEnergy() == null && request.getMaxEnergy() == null
+        && request.getMinProduction() == null && request.getMaxProduction() == null) {
+            return null;
+        }
+        return facts -> isWithin(facts.energyConsumption(), request.getMinEnergy(), request.getMaxEnergy())
+        && isWithin(facts.dailyProduction(), request.getMinProduction(), request.getMaxProduction());
+    }
 
-            if (minEfficiency != null && maxEfficiency != null) {
-                return score >= minEfficiency && score <= maxEfficiency;
-            } else if (minEfficiency != null) {
-                return score >= minEfficiency;
-            } else {
-                return score <= maxEfficiency;
-            }
-        })
-        .map(machineMapper::entityToDto)
-        .collect(Collectors.toList());
+    private static boolean isWithin(Double value, Double min, Double max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        return value != null && (min == null || value >= min) && (max == null || value <= max);
     }
 
     public MachineAnalysisResponse getEfficiencyAnalysis(Long id) {
@@ -136,51 +179,73 @@ public class MachineService {
         return fuzzyService.calculate(request);
     }
 
+    /**
+     * Describes the plan as a recurrence rule with closed-form totals. Only the first
+     * {@value #MAINTENANCE_PREVIEW_SIZE} occurrences are expanded; the rest are served page by page by
+     * {@link #getMaintenanceOccurrences}.
+     */
     public MaintenancePlanResponse createMaintenancePlan(Long id, MaintenancePlanRequest request) {
         Machine machine = findMachineById(id);
 
-        List<ScheduledMaintenance> scheduledMaintenances = new ArrayList<>();
+        MaintenanceRecurrence recurrence = createRecurrence(request);
+        List<MaintenanceTask> tasks = request.getTasks() != null ? List.copyOf(request.getTasks()) : List.of();
+        int hoursPerOccurrence = tasks.stream().mapToInt(MaintenanceTask::getEstimatedHours).sum();
+        // long arithmetic: a daily plan over a long window exceeds the int range
+        long totalMaintenanceHours = recurrence.count() * hoursPerOccurrence;
+
+        List<LocalDate> previewDates = recurrence.occurrences(0, MAINTENANCE_PREVIEW_SIZE);
+        MaintenancePlanResponse response = getMaintenancePlanResponse(totalMaintenanceHours, machine,
+        createScheduledMaintenances(previewDates, tasks, hoursPerOccurrence));
+
+        MaintenanceRecurrenceDto recurrenceDto = new MaintenanceRecurrenceDto();
+        recurrenceDto.setFrequency(recurrence.getFrequency());
+        recurrenceDto.setFirstDate(previewDates.isEmpty() ? null : previewDates.getFirst());
+        recurrenceDto.setUntilDate(recurrence.getEnd());
+        recurrenceDto.setWeekendsShiftedToMonday(!recurrence.isIncludeWeekends());
+        recurrenceDto.setOccurrenceCount(recurrence.count());
+        recurrenceDto.setHoursPerOccurrence(hoursPerOccurrence);
+        recurrenceDto.setTasks(tasks);
+        response.setRecurrence(recurrenceDto);
+
+        return response;
+    }
 
-        LocalDate currentDate = request.getStartDate();
-        LocalDate endDate = request.getStartDate().plusMonths(request.getDurationMonths());
+    public List<ScheduledMaintenance> getMaintenanceOccurrences(Long id, MaintenancePlanRequest request, int page,
+                                                                int size) {
+        findMachineById(id);
+        if (page < 0 || size <= 0) {
+            throw new IllegalArgumentException("Geçersiz sayfa: page >= 0 ve size > 0 olmalı");
+        }
 
-        while (currentDate.isBefore(endDate)) {
-            if (!request.isIncludeWeekends() && (currentDate.getDayOfWeek().getValue() > 5)) {
-                currentDate = currentDate.plusDays(1);
-                continue;
-            }
+        List<MaintenanceTask> tasks = request.getTasks() != null ? List.copyOf(request.getTasks()) : List.of();
+        int hoursPerOccurrence = tasks.stream().mapToInt(MaintenanceTask::getEstimatedHours).sum();
+        List<LocalDate> dates = createRecurrence(request).occurrences((long) page * size, size);
+        return createScheduledMaintenances(dates, tasks, hoursPerOccurrence);
+    }
+
+    private static MaintenanceRecurrence createRecurrence(MaintenancePlanRequest request) {
+        return new MaintenanceRecurrence(request.getStartDate(), request.getDurationMonths(), request.getFrequency(),
+        request.isIncludeWeekends());
+    }
 
+    // every occurrence shares one immutable task list instead of copying it
+    private static List<ScheduledMaintenance> createScheduledMaintenances(List<LocalDate> dates,
+                                                                          List<MaintenanceTask> tasks,
+                                                                          int hoursPerOccurrence) {
+        List<ScheduledMaintenance> scheduledMaintenances = new ArrayList<>(dates.size());
+        for (LocalDate date : dates) {
             ScheduledMaintenance maintenance = new ScheduledMaintenance();
-            maintenance.setDate(currentDate);
-            maintenance.setTasks(new ArrayList<>(request.getTasks()));
+            maintenance.setDate(date);
+            maintenance.setTasks(tasks);
             maintenance.setStatus("SCHEDULED");
-
-            int totalDuration = request.getTasks().stream()
-            .mapToInt(MaintenanceTask::getEstimatedHours)
-            .sum();
-            maintenance.setTotalDuration(totalDuration);
-
+            maintenance.setTotalDuration(hoursPerOccurrence);
             scheduledMaintenances.add(maintenance);
-
-            currentDate = switch (request.getFrequency()) {
-                case DAILY -> currentDate.plusDays(1);
-                case WEEKLY -> currentDate.plusWeeks(1);
-                case BIWEEKLY -> currentDate.plusWeeks(2);
-                case MONTHLY -> currentDate.plusMonths(1);
-                case QUARTERLY -> currentDate.plusMonths(3);
-                case YEARLY -> currentDate.plusYears(1);
-            };
         }
-
-        int totalMaintenanceHours = scheduledMaintenances.stream()
-        .mapToInt(ScheduledMaintenance::getTotalDuration)
-        .sum();
-
-        return getMaintenancePlanResponse(totalMaintenanceHours, machine, scheduledMaintenances);
+        return scheduledMaintenances;
     }
 
-    private static MaintenancePlanResponse getMaintenancePlanResponse(int totalMaintenanceHours, Machine machine, List<ScheduledMaintenance> scheduledMaintenances) {
-        double estimatedCost = totalMaintenanceHours * 150;
+    private static MaintenancePlanResponse getMaintenancePlanResponse(long totalMaintenanceHours, Machine machine, List<ScheduledMaintenance> scheduledMaintenances) {
+        double estimatedCost = totalMaintenanceHours * 150.0;
 
         MaintenancePlanResponse response = new MaintenancePlanResponse();
         response.setMachineId(machine.getId());
@@ -270,6 +335,10 @@ public class MachineService {
         ComparisonChart barChart = createBarChart(comparisonItems);
         charts.add(barChart);
 
+        if (request.isIncludeHistoricalData()) {
+            charts.add(createHistoryChart(comparisonItems, request.getHistoricalMonths()));
+        }
+
         MachineComparisonResponse response = new MachineComparisonResponse();
         response.setComparisonResults(comparisonItems);
         response.setBestOverallPerformer(bestOverall);
@@ -333,13 +402,41 @@ public class MachineService {
         return barChart;
     }
 
+    // monthly averages from the score rollups; months without snapshots stay null and show as gaps
+    private ComparisonChart createHistoryChart(List<MachineComparisonItem> items, Integer historicalMonths) {
+        int months = historicalMonths != null ? historicalMonths : TREND_MONTHS;
+        if (months < 1 || months > MAX_HISTORICAL_MONTHS) {
+            throw new IllegalArgumentException("Geçmiş ay sayısı 1 ile " + MAX_HISTORICAL_MONTHS + " arasında olmalı");
+        }
+        ScoreHistoryService.MonthlyScores history = scoreHistoryService.machineMonthlyScores(items.stream()
+        .map(MachineComparisonItem::getMachineId)
+        .collect(Collectors.toList()), months);
+
+        ComparisonChart lineChart = new ComparisonChart();
+        lineChart.setChartType("line");
+        lineChart.setTitle("Aylık Verimlilik Geçmişi");
+        lineChart.setLabels(history.labels());
+
+        List<ChartDataset> datasets = new ArrayList<>();
+        for (MachineComparisonItem item : items) {
+            ChartDataset dataset = new ChartDataset();
+            dataset.setLabel(item.getMachineName());
+            dataset.setData(history.averages().get(item.getMachineId()));
+            datasets.add(dataset);
+        }
+
+        lineChart.setDatasets(datasets);
+        return lineChart;
+    }
+
     public OptimizationResponse getOptimizationSuggestions(Long id) {
         Machine machine = findMachineById(id);
 
         MachineDataRequest currentRequest = createMachineDataRequest(machine);
         MachineAnalysisResponse currentAnalysis = fuzzyService.calculate(currentRequest);
 
-        List<OptimizationSuggestion> suggestions = createOptimizationSuggestions(machine);
+        EfficiencyOptimizer.Result optimization = efficiencyOptimizer.optimize(machine);
+        List<OptimizationSuggestion> suggestions = optimization.suggestions();
 
         MachineDataRequest optimizedRequest = createOptimizedRequest(machine, suggestions);
         MachineAnalysisResponse optimizedAnalysis = fuzzyService.calculate(optimizedRequest);
@@ -365,73 +462,20 @@ public class MachineService {
         response.setCurrentEfficiencyScore(currentAnalysis.getEfficiencyScore());
         response.setSuggestions(suggestions);
         response.setPotentialOptimizedState(optimizedState);
+        response.setSearchEvaluations(optimization.evaluations());
+        response.setSearchConverged(optimization.converged());
 
         return response;
     }
 
-    private List<OptimizationSuggestion> createOptimizationSuggestions(Machine machine) {
-        List<OptimizationSuggestion> suggestions = new ArrayList<>();
-
-        if (machine.getMaintenanceInterval() > 30) {
-            OptimizationSuggestion maintenanceSuggestion = new OptimizationSuggestion();
-            maintenanceSuggestion.setParameter("maintenanceInterval");
-            maintenanceSuggestion.setCurrentValue(machine.getMaintenanceInterval());
-            maintenanceSuggestion.setSuggestedValue(Math.max(15, machine.getMaintenanceInterval() * 0.7));
-            maintenanceSuggestion.setPotentialImprovementPercentage(15.0);
-            maintenanceSuggestion.setReasonForSuggestion("Daha sık bakım, arıza oranını azaltır ve makine ömrünü uzatır");
-            maintenanceSuggestion.setImplementationDifficulty("MEDIUM");
-            maintenanceSuggestion.setEstimatedCostOfImplementation(5000.0);
-
-            suggestions.add(maintenanceSuggestion);
-        }
-
-        if (machine.getStandbyTime() > 60) {
-            OptimizationSuggestion standbyTimeSuggestion = new OptimizationSuggestion();
-            standbyTimeSuggestion.setParameter("standbyTime");
-            standbyTimeSuggestion.setCurrentValue(machine.getStandbyTime());
-            standbyTimeSuggestion.setSuggestedValue(Math.max(30, machine.getStandbyTime() * 0.6));
-            standbyTimeSuggestion.setPotentialImprovementPercentage(20.0);
-            standbyTimeSuggestion.setReasonForSuggestion("Bekleme süresinin azaltılması üretim kapasitesini artırır");
-            standbyTimeSuggestion.setImplementationDifficulty("EASY");
-            standbyTimeSuggestion.setEstimatedCostOfImplementation(2000.0);
-
-            suggestions.add(standbyTimeSuggestion);
-        }
-
-        if (machine.getEnergyConsumption() > 80) {
-            OptimizationSuggestion energySuggestion = new OptimizationSuggestion();
-            energySuggestion.setParameter("energyConsumption");
-            energySuggestion.setCurrentValue(machine.getEnergyConsumption());
-            energySuggestion.setSuggestedValue(Math.max(60, machine.getEnergyConsumption() * 0.8));
-            energySuggestion.setPotentialImprovementPercentage(25.0);
-            energySuggestion.setReasonForSuggestion("Enerji verimliliği sağlayacak yeni ekipmanlar kullanılması");
-            energySuggestion.setImplementationDifficulty("HARD");
-            energySuggestion.setEstimatedCostOfImplementation(15000.0);
-
-            suggestions.add(energySuggestion);
-        }
-
-        if (machine.getErrorMargin() > 5) {
-            OptimizationSuggestion errorSuggestion = new OptimizationSuggestion();
-            errorSuggestion.setParameter("errorMargin");
-            errorSuggestion.setCurrentValue(machine.getErrorMargin());
-            errorSuggestion.setSuggestedValue(Math.max(2, machine.getErrorMargin() * 0.6));
-            errorSuggestion.setPotentialImprovementPercentage(30.0);
-            errorSuggestion.setReasonForSuggestion("Sensör ve kontrol sistemlerinin güncellenmesi hata oranını düşürebilir");
-            errorSuggestion.setImplementationDifficulty("MEDIUM");
-            errorSuggestion.setEstimatedCostOfImplementation(10000.0);
-
-            suggestions.add(errorSuggestion);
-        }
-
-        return suggestions;
-    }
-
     private MachineDataRequest createOptimizedRequest(Machine machine, List<OptimizationSuggestion> suggestions) {
         MachineDataRequest optimizedRequest = createMachineDataRequest(machine);
 
         for (OptimizationSuggestion suggestion : suggestions) {
             switch (suggestion.getParameter()) {
+                case "dailyProduction":
+                    optimizedRequest.setDailyProduction(suggestion.getSuggestedValue());
+                    break;
                 case "maintenanceInterval":
                     optimizedRequest.setMaintenanceInterval(suggestion.getSuggestedValue());
                     break;
@@ -464,31 +508,74 @@ public class MachineService {
     }
 
     public List<MachineRecommendationDto> recommendMachines(ProductionTargetRequest request) {
-        List<Machine> allMachines = machineRepository.findAll();
+        return recommendMachines(request, null);
+    }
+
+    /**
+     * Ranks machines by match score, then efficiency score, then id. Candidates come from the capacity
+     * index, which skips every part of the fleet that cannot beat the {@code limit}-th match, so only the
+     * returned machines are loaded and described.
+     */
+    public List<MachineRecommendationDto> recommendMachines(ProductionTargetRequest request, Integer limit) {
+        Comparator<MachineRecommendationDto> order = Comparator
+        .comparingDouble(MachineRecommendationDto::getMatchScore).reversed()
+        .thenComparing(Comparator.comparingDouble(MachineRecommendationDto::getEfficiencyScore).reversed())
+        .thenComparing(MachineRecommendationDto::getMachineId);
+
+        MachineCapacityIndex.Selection selection = machineCapacityIndex.top(matchObjective(request),
+        limit == null ? Integer.MAX_VALUE : Math.max(limit, 0));
+        recordFleetScan("recommend", selection.examined());
+
+        List<Long> ids = selection.hits().stream().map(MachineCapacityIndex.Hit::machineId).toList();
+        List<MachineRecommendationDto> recommendations =
+        new ArrayList<>(findMachinesInOrder(ids, machine -> createMachineRecommendation(machine, request)));
+        recommendations.sort(order);
+        return recommendations;
+    }
+
+    private MachineCapacityIndex.Objective matchObjective(ProductionTargetRequest request) {
+        return new MachineCapacityIndex.Objective() {
+            @Override
+            public double score(MachineCapacityIndex.Point point) {
+                int daysNeeded = daysNeeded(point.effectiveProduction(), request);
+                double totalCost = dailyCost(point.energyConsumption()) * daysNeeded;
+                return calculateMatchScore(point.efficiencyScore(), daysNeeded <= request.getDeadlineDays(),
+                totalCost <= request.getMaxBudget(), point.effectiveProduction(), point.errorMargin(),
+                point.energyConsumption(), request);
+            }
 
-        return allMachines.stream()
-        .map(machine -> createMachineRecommendation(machine, request))
-        .sorted(Comparator.comparing(MachineRecommendationDto::getMatchScore).reversed())
-        .collect(Collectors.toList());
+            // The match score only grows with production and efficiency and only shrinks with energy and
+            // error margin, so the best corner of the box bounds every machine inside it. Non-positive
+            // production or targets make days and costs behave oddly; those boxes are never pruned.
+            @Override
+            public double upperBound(MachineCapacityIndex.Box box) {
+                boolean unbounded = request.getDailyProductionTarget() <= 0 || box.minEffectiveProduction() <= 0
+                || dailyCost(box.minEnergyConsumption()) < 0;
+                int fewestDays = daysNeeded(box.maxEffectiveProduction(), request);
+                boolean canMeetDeadline = unbounded || fewestDays <= request.getDeadlineDays();
+                boolean withinBudget = unbounded
+                || dailyCost(box.minEnergyConsumption()) * fewestDays <= request.getMaxBudget();
+                return calculateMatchScore(box.maxEfficiencyScore(), canMeetDeadline, withinBudget,
+                box.maxEffectiveProduction(), box.minErrorMargin(), box.minEnergyConsumption(), request);
+            }
+        };
     }
 
     private MachineRecommendationDto createMachineRecommendation(Machine machine, ProductionTargetRequest request) {
         double effectiveProduction = machine.getDailyProduction() * (1 - machine.getErrorMargin() / 100);
-        int daysNeeded = (int) Math.ceil(request.getDailyProductionTarget() / effectiveProduction);
+        int daysNeeded = daysNeeded(effectiveProduction, request);
 
-        MachineDataRequest dataRequest = createMachineDataRequest(machine);
-        MachineAnalysisResponse analysis = fuzzyService.calculate(dataRequest);
+        double efficiencyScore = machine.getEfficiencyScore() != null
+        ? machine.getEfficiencyScore()
+        : fuzzyService.calculate(createMachineDataRequest(machine)).getEfficiencyScore();
 
-        double energyCostPerDay = machine.getEnergyConsumption() * 5;
-        double operationalCostPerDay = 1000;
-        double dailyCost = energyCostPerDay + operationalCostPerDay;
-        double totalCost = dailyCost * daysNeeded;
+        double totalCost = dailyCost(machine.getEnergyConsumption()) * daysNeeded;
 
         boolean canMeetDeadline = daysNeeded <= request.getDeadlineDays();
         boolean withinBudget = totalCost <= request.getMaxBudget();
 
-        double matchScore = calculateMatchScore(machine, analysis, canMeetDeadline, withinBudget,
-        effectiveProduction, request);
+        double matchScore = calculateMatchScore(efficiencyScore, canMeetDeadline, withinBudget,
+        effectiveProduction, machine.getErrorMargin(), machine.getEnergyConsumption(), request);
 
         List<String> strengths = getStrengths(machine, effectiveProduction, canMeetDeadline,
         withinBudget, request);
@@ -498,7 +585,7 @@ public class MachineService {
         MachineRecommendationDto recommendation = new MachineRecommendationDto();
         recommendation.setMachineId(machine.getId());
         recommendation.setMachineName(machine.getName());
-        recommendation.setEfficiencyScore(analysis.getEfficiencyScore());
+        recommendation.setEfficiencyScore(efficiencyScore);
         recommendation.setMatchScore(matchScore);
         recommendation.setWithinBudget(withinBudget);
         recommendation.setEstimatedCost(totalCost);
@@ -510,9 +597,19 @@ public class MachineService {
         return recommendation;
     }
 
-    private double calculateMatchScore(Machine machine, MachineAnalysisResponse analysis,
-                                       boolean canMeetDeadline, boolean withinBudget,
-                                       double effectiveProduction, ProductionTargetRequest request) {
+    private static int daysNeeded(double effectiveProduction, ProductionTargetRequest request) {
+        return (int) Math.ceil(request.getDailyProductionTarget() / effectiveProduction);
+    }
+
+    private static double dailyCost(double energyConsumption) {
+        double energyCostPerDay = energyConsumption * 5;
+        double operationalCostPerDay = 1000;
+        return energyCostPerDay + operationalCostPerDay;
+    }
+
+    private double calculateMatchScore(double efficiencyScore, boolean canMeetDeadline, boolean withinBudget,
+                                       double effectiveProduction, double errorMargin, double energyConsumption,
+                                       ProductionTargetRequest request) {
         double matchScore = 0.0;
 
         if (canMeetDeadline) {
@@ -523,9 +620,9 @@ public class MachineService {
             matchScore += 30;
         }
 
-        matchScore += analysis.getEfficiencyScore() * 0.3;
+        matchScore += efficiencyScore * 0.3;
 
-        if (request.isPrioritizeQuality() && machine.getErrorMargin() < 5) {
+        if (request.isPrioritizeQuality() && errorMargin < 5) {
             matchScore += 10;
         }
 
@@ -533,7 +630,7 @@ public class MachineService {
             matchScore += 10;
         }
 
-        if (request.isPrioritizeEnergySaving() && machine.getEnergyConsumption() < 70) {
+        if (request.isPrioritizeEnergySaving() && energyConsumption < 70) {
             matchScore += 10;
         }
 
@@ -596,252 +693,205 @@ public class MachineService {
         return limitations;
     }
 
-    public List<MachineDto> getTopPerformingMachines(int limit) {
-        List<Machine> allMachines = machineRepository.findAll();
+    /**
+     * Best (or, with {@code bottom}, worst) scored machines, ties broken by daily production and id. The
+     * persisted score is indexed, so the database answers this with a bounded top-N sort.
+     */
+    public List<MachineDto> getTopPerformingMachines(int limit, boolean bottom) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
 
-        return allMachines.stream()
-        .map(machine -> {
-            MachineDataRequest request = createMachineDataRequest(machine);
-            MachineAnalysisResponse analysis = fuzzyService.calculate(request);
+        Sort.Direction direction = bottom ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, "efficiencyScore")
+        .and(Sort.by(direction, "dailyProduction"))
+        .and(Sort.by(Sort.Direction.ASC, "id"));
 
-            return new AbstractMap.SimpleEntry<>(machine, analysis.getEfficiencyScore());
-        })
-        .sorted(Map.Entry.<Machine, Double>comparingByValue().reversed())
-        .limit(limit)
-        .map(entry -> machineMapper.entityToDto(entry.getKey()))
+        return machineRepository.findByEfficiencyScoreNotNull(PageRequest.of(0, limit, sort)).stream()
+        .map(machineMapper::entityToDto)
         .collect(Collectors.toList());
     }
 
-    public List<MachineDto> getMachinesNeedingImprovement() {
-        List<Machine> allMachines = machineRepository.findAll();
-
-        return allMachines.stream()
-        .map(machine -> {
-            MachineDataRequest request = createMachineDataRequest(machine);
-            MachineAnalysisResponse analysis = fuzzyService.calculate(request);
+    public List<MachineDto> getMachinesNeedingImprovement(double threshold, int page, int size) {
+        if (page < 0 || size <= 0) {
+            throw new IllegalArgumentException("Geçersiz sayfa: page >= 0 ve size > 0 olmalı");
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "efficiencyScore")
+        .and(Sort.by(Sort.Direction.ASC, "id")));
 
-            return new AbstractMap.SimpleEntry<>(machine, analysis.getEfficiencyScore());
-        })
-        .filter(entry -> entry.getValue() < 50.0)
-        .map(entry -> machineMapper.entityToDto(entry.getKey()))
+        return machineRepository.findByEfficiencyScoreLessThan(threshold, pageable).stream()
+        .map(machineMapper::entityToDto)
         .collect(Collectors.toList());
     }
 
-    public Resource exportMachinesToExcel() {
-        List<Machine> machines = machineRepository.findAll();
-
-        StringBuilder csvContent = new StringBuilder();
-
-        csvContent.append("ID,Makine Adı,Günlük Üretim,Hata Payı,Bakım Aralığı,Bekleme Süresi,Enerji Tüketimi,Verimlilik Skoru\n");
-
-        for (Machine machine : machines) {
-            MachineDataRequest request = createMachineDataRequest(machine);
-            MachineAnalysisResponse analysis = fuzzyService.calculate(request);
-
-            csvContent.append(machine.getId())
-            .append(",").append(machine.getName())
-            .append(",").append(machine.getDailyProduction())
-            .append(",").append(machine.getErrorMargin())
-            .append(",").append(machine.getMaintenanceInterval())
-            .append(",").append(machine.getStandbyTime())
-            .append(",").append(machine.getEnergyConsumption())
-            .append(",").append(analysis.getEfficiencyScore())
-            .append("\n");
-        }
-
-        byte[] bom = new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
-        byte[] contentBytes = csvContent.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-
-        byte[] finalBytes = new byte[bom.length + contentBytes.length];
-        System.arraycopy(bom, 0, finalBytes, 0, bom.length);
-        System.arraycopy(contentBytes, 0, finalBytes, bom.length, contentBytes.length);
-
-        return new ByteArrayResource(finalBytes);
-    }
-
-    public ImportResponse importMachinesFromExcel(MultipartFile file) {
-        ImportResponse response = new ImportResponse();
-        response.setTotalRecords(0);
-        response.setSuccessfulImports(0);
-        response.setFailedImports(0);
-        response.setErrors(new ArrayList<>());
-        response.setImportedMachines(new ArrayList<>());
-
-        try {
-            String content = new String(file.getBytes());
-            String[] lines = content.split("\n");
-
-            response.setTotalRecords(lines.length - 1);
-
-            for (int i = 1; i < lines.length; i++) {
-                String line = lines[i].trim();
-                if (line.isEmpty()) continue;
-
-                String[] values = line.split(",");
-
-                try {
-                    if (values.length < 6) {
-                        throw new IllegalArgumentException("Yetersiz veri sütunu: " + values.length);
-                    }
-
-                    MachineDto machineDto = new MachineDto();
-                    machineDto.setName(values[1]);
-                    machineDto.setDailyProduction(Double.parseDouble(values[2]));
-                    machineDto.setErrorMargin(Double.parseDouble(values[3]));
-                    machineDto.setMaintenanceInterval(Double.parseDouble(values[4]));
-                    machineDto.setStandbyTime(Double.parseDouble(values[5]));
-                    machineDto.setEnergyConsumption(Double.parseDouble(values[6]));
-
-                    Machine savedMachine = addMachine(machineDto);
-                    machineDto.setId(savedMachine.getId());
-
-                    response.getImportedMachines().add(machineDto);
-                    response.setSuccessfulImports(response.getSuccessfulImports() + 1);
-                } catch (Exception e) {
-                    response.setFailedImports(response.getFailedImports() + 1);
-                    response.getErrors().add("Satır " + i + ": " + e.getMessage());
-                }
+    public void exportMachinesToExcel(OutputStream out) throws IOException {
+        out.write(CsvUtils.UTF8_BOM);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        writer.write("ID,Makine Adı,Günlük Üretim,Hata Payı,Bakım Aralığı,Bekleme Süresi,Enerji Tüketimi,Verimlilik Skoru\n");
+        writer.flush();
+
+        Pageable batch = PageRequest.of(0, EXPORT_BATCH_SIZE);
+        long lastId = 0L;
+        long exported = 0L;
+        List<MachineExportRow> rows;
+
+        while (!(rows = machineRepository.findExportRowsAfter(lastId, batch)).isEmpty()) {
+            List<Double> scores = fleetScoringExecutor.map(rows, this::exportScore);
+            for (int i = 0; i < rows.size(); i++) {
+                MachineExportRow row = rows.get(i);
+                writer.write(String.valueOf(row.getId()));
+                writer.write(',');
+                writer.write(CsvUtils.escape(row.getName()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getDailyProduction()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getErrorMargin()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getMaintenanceInterval()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getStandbyTime()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getEnergyConsumption()));
+                writer.write(',');
+                writer.write(String.valueOf(scores.get(i)));
+                writer.write('\n');
             }
-        } catch (Exception e) {
-            response.getErrors().add("Dosya işleme hatası: " + e.getMessage());
+            writer.flush();
+            lastId = rows.get(rows.size() - 1).getId();
+            exported += rows.size();
         }
+        recordFleetScan("export", exported);
+    }
 
-        return response;
+    private Double exportScore(MachineExportRow row) {
+        if (row.getEfficiencyScore() != null || row.getDailyProduction() == null || row.getErrorMargin() == null
+        || row.getMaintenanceInterval() == null || row.getStandbyTime() == null || row.getEnergyConsumption() == null) {
+            return row.getEfficiencyScore();
+        }
+
+        MachineDataRequest request = new MachineDataRequest();
+        request.setDailyProduction(row.getDailyProduction());
+        request.setErrorMargin(row.getErrorMargin());
+        request.setMaintenanceInterval(row.getMaintenanceInterval());
+        request.setStandbyTime(row.getStandbyTime());
+        request.setEnergyConsumption(row.getEnergyConsumption());
+        return fuzzyService.calculate(request).getEfficiencyScore();
     }
 
     public MachineStatisticsDto getMachineStatistics() {
-        List<Machine> machines = machineRepository.findAll();
+        FleetStatisticsAggregator.FleetStatistics fleet = statisticsAggregator.snapshot();
 
         MachineStatisticsDto stats = new MachineStatisticsDto();
-        stats.setTotalMachines(machines.size());
+        stats.setTotalMachines(fleet.totalMachines());
 
-        if (machines.isEmpty()) {
+        if (fleet.totalMachines() == 0) {
             stats.setAverageEfficiencyScore(0.0);
             stats.setAverageMaintenanceInterval(0.0);
             stats.setAverageEnergyConsumption(0.0);
             return stats;
         }
 
-        List<AbstractMap.SimpleEntry<Machine, Double>> machinesWithScores = machines.stream()
-        .map(machine -> {
-            MachineDataRequest request = createMachineDataRequest(machine);
-            MachineAnalysisResponse analysis = fuzzyService.calculate(request);
-            return new AbstractMap.SimpleEntry<>(machine, analysis.getEfficiencyScore());
-        })
-        .collect(Collectors.toList());
-
-        double avgEfficiency = machinesWithScores.stream()
-        .mapToDouble(Map.Entry::getValue)
-        .average()
-        .orElse(0.0);
-        stats.setAverageEfficiencyScore(avgEfficiency);
-
-        AbstractMap.SimpleEntry<Machine, Double> mostEfficient = machinesWithScores.stream()
-        .max(Map.Entry.comparingByValue())
-        .orElse(null);
+        stats.setAverageEfficiencyScore(fleet.averageEfficiencyScore());
 
-        AbstractMap.SimpleEntry<Machine, Double> leastEfficient = machinesWithScores.stream()
-        .min(Map.Entry.comparingByValue())
-        .orElse(null);
-
-        if (mostEfficient != null) {
-            stats.setMostEfficientMachine(machineMapper.entityToDto(mostEfficient.getKey()));
+        if (fleet.mostEfficientMachineId() != null) {
+            machineRepository.findById(fleet.mostEfficientMachineId())
+            .map(machineMapper::entityToDto)
+            .ifPresent(stats::setMostEfficientMachine);
         }
 
-        if (leastEfficient != null) {
-            stats.setLeastEfficientMachine(machineMapper.entityToDto(leastEfficient.getKey()));
+        if (fleet.leastEfficientMachineId() != null) {
+            machineRepository.findById(fleet.leastEfficientMachineId())
+            .map(machineMapper::entityToDto)
+            .ifPresent(stats::setLeastEfficientMachine);
         }
 
-        Map<String, Integer> efficiencyDistribution = createEfficiencyDistribution(machinesWithScores);
-        stats.setEfficiencyDistribution(efficiencyDistribution);
+        stats.setEfficiencyDistribution(fleet.efficiencyDistribution());
+        stats.setAverageMaintenanceInterval(fleet.averageMaintenanceInterval());
+        stats.setAverageEnergyConsumption(fleet.averageEnergyConsumption());
 
-        double avgMaintenanceInterval = machines.stream()
-        .mapToDouble(Machine::getMaintenanceInterval)
-        .average()
-        .orElse(0.0);
-        stats.setAverageMaintenanceInterval(avgMaintenanceInterval);
+        stats.setEfficiencyTrendByMonth(scoreHistoryService.fleetTrend(RollupGranularity.MONTH, TREND_MONTHS));
+        stats.setEfficiencyTrendByDay(scoreHistoryService.fleetTrend(RollupGranularity.DAY, TREND_DAYS));
+        stats.setProductionVsEfficiency(createProductionVsEfficiency(fleet.efficiencyByProductionBand()));
 
-        double avgEnergyConsumption = machines.stream()
-        .mapToDouble(Machine::getEnergyConsumption)
-        .average()
-        .orElse(0.0);
-        stats.setAverageEnergyConsumption(avgEnergyConsumption);
+        return stats;
+    }
 
-        stats.setEfficiencyTrendByMonth(createEfficiencyTrend());
-        stats.setProductionVsEfficiency(createProductionVsEfficiency());
+    private List<ChartData> createProductionVsEfficiency(Map<String, Double> efficiencyByProductionBand) {
+        List<ChartData> productionVsEfficiency = new ArrayList<>();
 
-        return stats;
+        efficiencyByProductionBand.forEach((band, averageScore) -> {
+            ChartData chartData = new ChartData();
+            chartData.setLabel(band);
+            chartData.setValue(averageScore);
+            productionVsEfficiency.add(chartData);
+        });
+
+        return productionVsEfficiency;
     }
 
-    private Map<String, Integer> createEfficiencyDistribution(List<AbstractMap.SimpleEntry<Machine, Double>> machinesWithScores) {
-        Map<String, Integer> efficiencyDistribution = new HashMap<>();
-        efficiencyDistribution.put("VERY_GOOD", 0);
-        efficiencyDistribution.put("GOOD", 0);
-        efficiencyDistribution.put("MEDIUM", 0);
-        efficiencyDistribution.put("BAD", 0);
-        efficiencyDistribution.put("VERY_BAD", 0);
-
-        for (AbstractMap.SimpleEntry<Machine, Double> entry : machinesWithScores) {
-            double score = entry.getValue();
-
-            if (score >= 90) {
-                efficiencyDistribution.put("VERY_GOOD", efficiencyDistribution.get("VERY_GOOD") + 1);
-            } else if (score >= 75) {
-                efficiencyDistribution.put("GOOD", efficiencyDistribution.get("GOOD") + 1);
-            } else if (score >= 50) {
-                efficiencyDistribution.put("MEDIUM", efficiencyDistribution.get("MEDIUM") + 1);
-            } else if (score >= 25) {
-                efficiencyDistribution.put("BAD", efficiencyDistribution.get("BAD") + 1);
-            } else {
-                efficiencyDistribution.put("VERY_BAD", efficiencyDistribution.get("VERY_BAD") + 1);
-            }
+    public List<MachineDto> searchMachinesByName(String name, int limit) {
+        if (name == null || name.trim().isEmpty()) {
+            return getAllMachines();
         }
 
-        return efficiencyDistribution;
+        return findMachinesInOrder(machineNameIndex.search(name.trim(), limit), machineMapper::entityToDto);
     }
 
-    private List<ChartData> createEfficiencyTrend() {
-        List<ChartData> efficiencyTrend = new ArrayList<>();
-        String[] months = {"Ocak", "Şubat", "Mart", "Nisan", "Mayıs", "Haziran"};
-        double[] monthlyEfficiency = {65.3, 67.1, 70.2, 72.5, 75.8, 78.2};
+    public int rescoreStaleMachines() {
+        String modelVersion = fuzzyService.getModelVersion();
+        Pageable batch = PageRequest.of(0, RESCORE_BATCH_SIZE);
+        int rescored = 0;
 
-        for (int i = 0; i < months.length; i++) {
-            ChartData chartData = new ChartData();
-            chartData.setLabel(months[i]);
-            chartData.setValue(monthlyEfficiency[i]);
-            efficiencyTrend.add(chartData);
+        List<Machine> staleMachines;
+        while (!(staleMachines = machineRepository.findByScoreModelVersionIsNullOrScoreModelVersionNot(modelVersion, batch)).isEmpty()) {
+            fleetScoringExecutor.map(staleMachines, machine -> {
+                applyEfficiencyScore(machine);
+                return machine;
+            });
+            machineRepository.saveAll(staleMachines)
+            .forEach(machine -> eventPublisher.publishEvent(new MachineSavedEvent(machine)));
+            rescored += staleMachines.size();
         }
+        recordFleetScan("rescore", rescored);
 
-        return efficiencyTrend;
+        return rescored;
     }
 
-    private List<ChartData> createProductionVsEfficiency() {
-        List<ChartData> productionVsEfficiency = new ArrayList<>();
-
-        double[] productionLevels = {100, 200, 300, 400, 500, 600};
-        double[] efficiencyLevels = {60.0, 65.5, 70.2, 68.7, 72.1, 69.5};
+    void applyEfficiencyScore(Machine machine) {
+        machine.setScoreModelVersion(fuzzyService.getModelVersion());
 
-        for (int i = 0; i < productionLevels.length; i++) {
-            ChartData chartData = new ChartData();
-            chartData.setLabel(String.valueOf(productionLevels[i]));
-            chartData.setValue(efficiencyLevels[i]);
-            productionVsEfficiency.add(chartData);
+        if (machine.getDailyProduction() == null || machine.getErrorMargin() == null
+        || machine.getMaintenanceInterval() == null || machine.getStandbyTime() == null
+        || machine.getEnergyConsumption() == null) {
+            machine.setEfficiencyScore(null);
+            machine.setEfficiencyStatus(null);
+            return;
         }
 
-        return productionVsEfficiency;
+        MachineAnalysisResponse analysis = fuzzyService.calculate(createMachineDataRequest(machine));
+        machine.setEfficiencyScore(analysis.getEfficiencyScore());
+        machine.setEfficiencyStatus(analysis.getEfficiencyStatus());
     }
 
-    public List<MachineDto> searchMachinesByName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            return getAllMachines();
-        }
-
-        String searchTerm = name.toLowerCase();
+    private void recordFleetScan(String operation, long machines) {
+        meterRegistry.summary("fleet.scan.size", "operation", operation).record(machines);
+    }
 
-        return machineRepository.findAll().stream()
-        .filter(machine -> machine.getName().toLowerCase().contains(searchTerm))
-        .map(machineMapper::entityToDto)
-        .collect(Collectors.toList());
+    private <R> List<R> findMachinesInOrder(List<Long> ids, Function<Machine, R> mapper) {
+        List<R> result = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += SCAN_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + SCAN_BATCH_SIZE, ids.size()));
+            Map<Long, Machine> machinesById = machineRepository.findAllById(batch).stream()
+            .collect(Collectors.toMap(Machine::getId, machine -> machine));
+            for (Long id : batch) {
+                Machine machine = machinesById.get(id);
+                if (machine != null) {
+                    result.add(mapper.apply(machine));
+                }
+            }
+        }
+        return result;
     }
 
     private Machine findMachineById(Long id) {
@@ -0,0 +1,165 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceFrequency;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A maintenance plan kept as a recurrence rule instead of a list of dates. Weekend handling matches the
+ * original day-by-day generation: without weekends an occurrence falling on Saturday or Sunday moves to
+ * Monday, and the following occurrences continue from the moved date.
+ * <p>
+ * Daily and weekly rules are counted and indexed in closed form, so the size of the window does not
+ * matter. Month-based rules have at most one occurrence per month, and their moved dates carry over to
+ * later months, so they are walked.
+ */
+public final class MaintenanceRecurrence {
+
+    private final MaintenanceFrequency frequency;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final boolean includeWeekends;
+    private final LocalDate firstDay;
+    private final long count;
+
+    public MaintenanceRecurrence(LocalDate start, int durationMonths, MaintenanceFrequency frequency,
+                                 boolean includeWeekends) {
+        if (start == null) {
+            throw new IllegalArgumentException("Bakım planı başlangıç tarihi boş olamaz");
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("Bakım sıklığı boş olamaz");
+        }
+        this.frequency = frequency;
+        this.start = start;
+        this.end = start.plusMonths(Math.max(durationMonths, 0));
+        this.includeWeekends = includeWeekends;
+        this.firstDay = includeWeekends ? start : nextWeekday(start);
+        this.count = countOccurrences();
+    }
+
+    public MaintenanceFrequency getFrequency() {
+        return frequency;
+    }
+
+    /** Exclusive end of the plan window. */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public boolean isIncludeWeekends() {
+        return includeWeekends;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** Dates of the occurrences {@code offset} to {@code offset + limit - 1}, in order. */
+    public List<LocalDate> occurrences(long offset, int limit) {
+        long to = Math.min(count, offset + Math.max(limit, 0));
+        List<LocalDate> dates = new ArrayList<>((int) Math.max(0, Math.min(to - offset, 1024)));
+        if (offset >= to) {
+            return dates;
+        }
+
+        switch (frequency) {
+            case DAILY, WEEKLY, BIWEEKLY -> {
+                for (long n = offset; n < to; n++) {
+                    dates.add(dayBasedOccurrence(n));
+                }
+            }
+            default -> {
+                long n = 0;
+                LocalDate date = start;
+                while (n < to) {
+                    date = skipWeekend(date);
+                    if (n >= offset) {
+                        dates.add(date);
+                    }
+                    n++;
+                    date = advance(date);
+                }
+            }
+        }
+        return dates;
+    }
+
+    private long countOccurrences() {
+        if (!firstDay.isBefore(end)) {
+            return 0;
+        }
+        long days = ChronoUnit.DAYS.between(firstDay, end);
+        return switch (frequency) {
+            case DAILY -> includeWeekends ? days : weekdaysBefore(firstDay, days);
+            case WEEKLY -> Math.ceilDiv(days, 7);
+            case BIWEEKLY -> Math.ceilDiv(days, 14);
+            default -> {
+                long n = 0;
+                for (LocalDate date = skipWeekend(start); date.isBefore(end); date = skipWeekend(advance(date))) {
+                    n++;
+                }
+                yield n;
+            }
+        };
+    }
+
+    private LocalDate dayBasedOccurrence(long n) {
+        return switch (frequency) {
+            case WEEKLY -> firstDay.plusWeeks(n);
+            case BIWEEKLY -> firstDay.plusWeeks(2 * n);
+            default -> includeWeekends ? firstDay.plusDays(n) : nthWeekday(firstDay, n);
+        };
+    }
+
+    private LocalDate advance(LocalDate date) {
+        return switch (frequency) {
+            case DAILY -> date.plusDays(1);
+            case WEEKLY -> date.plusWeeks(1);
+            case BIWEEKLY -> date.plusWeeks(2);
+            case MONTHLY -> date.plusMonths(1);
+            case QUARTERLY -> date.plusMonths(3);
+            case YEARLY -> date.plusYears(1);
+        };
+    }
+
+    private LocalDate skipWeekend(LocalDate date) {
+        return includeWeekends ? date : nextWeekday(date);
+    }
+
+    private static LocalDate nextWeekday(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY) {
+            return date.plusDays(2);
+        }
+        return day == DayOfWeek.SUNDAY ? date.plusDays(1) : date;
+    }
+
+    // weekdays among the `days` days starting at `from`
+    private static long weekdaysBefore(LocalDate from, long days) {
+        long weekdays = days / 7 * 5;
+        LocalDate date = from;
+        for (long i = 0; i < days % 7; i++, date = date.plusDays(1)) {
+            if (date.getDayOfWeek().getValue() <= 5) {
+                weekdays++;
+            }
+        }
+        return weekdays;
+    }
+
+    // `first` is a weekday, so every whole week from it lands on the same weekday
+    private static LocalDate nthWeekday(LocalDate first, long n) {
+        LocalDate date = first.plusWeeks(n / 5);
+        for (long remaining = n % 5; remaining > 0; ) {
+            date = date.plusDays(1);
+            if (date.getDayOfWeek().getValue() <= 5) {
+                remaining--;
+            }
+        }
+        return date;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.HistogramBin;
+import com.example.fuzzymachineefficiency.dto.MonteCarloResult;
+import com.example.fuzzymachineefficiency.dto.ParameterDistribution;
+import com.example.fuzzymachineefficiency.dto.SimulationRequest;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.DistributionType;
+import com.example.fuzzymachineefficiency.util.QuantileSketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Stochastic version of the production simulation. Each trial draws error margin, standby time and
+ * downtime from the requested distributions, derives the days needed to reach the target, and costs the
+ * run over the deadline window or, when the target comes later, until it is reached.
+ * <p>
+ * Trials are split into chunks of a fixed size on the fleet pool. Every chunk gets its own
+ * {@link SplittableRandom}, split from one root generator in chunk order, and the chunk count depends
+ * only on the number of trials, so a given seed always yields the same draws no matter how many
+ * threads the pool has or which thread runs which chunk. Costs and days go into per-chunk {@link QuantileSketch}es that are merged
+ * at the end, so memory does not grow with the number of trials. Chunks stop early once
+ * {@code simulation.time-budget} has passed and the result reports how many trials actually ran.
+ */
+@Service
+public class MonteCarloSimulator {
+
+    private static final int TRIALS_PER_CHUNK = 16_384;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final double SKETCH_ACCURACY = 0.005;
+    private static final int SKETCH_MAX_BUCKETS = 2048;
+    private static final int HISTOGRAM_BINS = 20;
+    private static final double MINUTES_PER_DAY = 1440.0;
+
+    private final FleetScoringExecutor fleetScoringExecutor;
+    private final int maxTrials;
+    private final Duration timeBudget;
+
+    public MonteCarloSimulator(FleetScoringExecutor fleetScoringExecutor,
+                               @Value("${simulation.max-trials:1000000}") int maxTrials,
+                               @Value("${simulation.time-budget:PT2S}") Duration timeBudget) {
+        this.fleetScoringExecutor = fleetScoringExecutor;
+        this.maxTrials = maxTrials;
+        this.timeBudget = timeBudget;
+    }
+
+    public MonteCarloResult run(Machine machine, SimulationRequest request) {
+        int trials = request.getTrials();
+        if (trials <= 0 || trials > maxTrials) {
+            throw new IllegalArgumentException("Deneme sayısı 1 ile " + maxTrials + " arasında olmalı");
+        }
+        if (machine.getDailyProduction() <= 0) {
+            throw new IllegalArgumentException("Makinenin günlük üretimi pozitif olmalı");
+        }
+        if (request.getTargetProduction() <= 0) {
+            throw new IllegalArgumentException("Hedef üretim pozitif olmalı");
+        }
+
+        Model model = new Model(machine, request);
+        long seed = request.getSeed() != null ? request.getSeed() : new SplittableRandom().nextLong();
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+
+        int chunks = Math.ceilDiv(trials, TRIALS_PER_CHUNK);
+        SplittableRandom root = new SplittableRandom(seed);
+        List<SplittableRandom> randoms = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            randoms.add(root.split());
+        }
+        List<Chunk> results = fleetScoringExecutor.invokeEach(chunks,
+        chunk -> model.run(randoms.get(chunk), trials / chunks + (chunk < trials % chunks ? 1 : 0), deadline));
+
+        Chunk total = results.get(0);
+        for (int i = 1; i < results.size(); i++) {
+            total.merge(results.get(i));
+        }
+        return toResult(total, seed, total.trials < trials, System.nanoTime() - start);
+    }
+
+    private static MonteCarloResult toResult(Chunk total, long seed, boolean budgetExhausted, long elapsedNanos) {
+        MonteCarloResult result = new MonteCarloResult();
+        result.setTrials(total.trials);
+        result.setSeed(seed);
+        result.setBudgetExhausted(budgetExhausted);
+        result.setElapsedMillis(elapsedNanos / 1_000_000);
+        result.setRelativeAccuracy(SKETCH_ACCURACY);
+        if (total.trials == 0) {
+            result.setCostHistogram(List.of());
+            return result;
+        }
+
+        result.setMeanCost(round(total.costs.getMean()));
+        result.setCostP50(round(total.costs.quantile(0.50)));
+        result.setCostP90(round(total.costs.quantile(0.90)));
+        result.setCostP99(round(total.costs.quantile(0.99)));
+        result.setDaysP50(round(total.days.quantile(0.50)));
+        result.setDaysP90(round(total.days.quantile(0.90)));
+        result.setDaysP99(round(total.days.quantile(0.99)));
+        result.setDeadlineMetProbability(Math.round((double) total.deadlineMet / total.trials * 10000.0) / 10000.0);
+
+        long[] counts = total.costs.histogram(HISTOGRAM_BINS);
+        double min = total.costs.getMin();
+        double width = (total.costs.getMax() - min) / counts.length;
+        List<HistogramBin> histogram = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            HistogramBin bin = new HistogramBin();
+            bin.setLowerBound(round(min + i * width));
+            bin.setUpperBound(round(min + (i + 1) * width));
+            bin.setCount(counts[i]);
+            histogram.add(bin);
+        }
+        result.setCostHistogram(histogram);
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /** Per-trial arithmetic with everything that does not depend on the draws folded in up front. */
+    private static final class Model {
+
+        private final Sampler errorMargin;
+        private final Sampler standbyTime;
+        private final Sampler downtime;
+        private final double dailyProduction;
+        private final double activeMinutes;
+        private final double targetProduction;
+        private final int deadlineDays;
+        private final double costPerDay;
+
+        private Model(Machine machine, SimulationRequest request) {
+            this.errorMargin = Sampler.of(request.getErrorMarginDistribution(), machine.getErrorMargin(), 0.0, 99.9,
+            "errorMarginDistribution");
+            this.standbyTime = Sampler.of(request.getStandbyTimeDistribution(), machine.getStandbyTime(), 0.0,
+            MINUTES_PER_DAY - 1, "standbyTimeDistribution");
+            this.downtime = Sampler.of(request.getDowntimeDistribution(), 0.0, 0.0, 99.0, "downtimeDistribution");
+            this.dailyProduction = machine.getDailyProduction();
+            // the machine's production figure already reflects its own standby time
+            this.activeMinutes = Math.max(1.0, MINUTES_PER_DAY - Math.min(machine.getStandbyTime(), MINUTES_PER_DAY - 1));
+            this.targetProduction = request.getTargetProduction();
+            this.deadlineDays = request.getDeadlineDays();
+            this.costPerDay = machine.getEnergyConsumption() * request.getElectricityCost()
+            + 8 * request.getLaborCostPerHour()
+            + request.getMaintenanceCostPerSession() / machine.getMaintenanceInterval();
+        }
+
+        private Chunk run(SplittableRandom random, int trials, long deadline) {
+            Chunk chunk = new Chunk();
+            for (int i = 0; i < trials; i++) {
+                if (i % DEADLINE_CHECK_INTERVAL == 0 && i > 0 && System.nanoTime() - deadline > 0) {
+                    break;
+                }
+                double error = errorMargin.sample(random);
+                double standby = standbyTime.sample(random);
+                double lost = downtime.sample(random);
+
+                double effectiveProduction = dailyProduction * (1 - error / 100)
+                * ((MINUTES_PER_DAY - standby) / activeMinutes) * (1 - lost / 100);
+                double daysNeeded = targetProduction / effectiveProduction;
+                double costedDays = Math.max(deadlineDays, daysNeeded);
+
+                chunk.days.add(daysNeeded);
+                chunk.costs.add(Math.max(0.0, costedDays * costPerDay));
+                if (daysNeeded <= deadlineDays) {
+                    chunk.deadlineMet++;
+                }
+                chunk.trials++;
+            }
+            return chunk;
+        }
+    }
+
+    private static final class Chunk {
+
+        private final QuantileSketch costs = new QuantileSketch(SKETCH_ACCURACY, SKETCH_MAX_BUCKETS);
+        private final QuantileSketch days = new QuantileSketch(SKETCH_ACCURACY, SKETCH_MAX_BUCKETS);
+        private long deadlineMet;
+        private long trials;
+
+        private void merge(Chunk other) {
+            costs.merge(other.costs);
+            days.merge(other.days);
+            deadlineMet += other.deadlineMet;
+            trials += other.trials;
+        }
+    }
+
+    /** A validated distribution, clamped to the range the parameter can physically take. */
+    private record Sampler(DistributionType type, double a, double b, double c, double lower, double upper) {
+
+        static Sampler of(ParameterDistribution distribution, double current, double lower, double upper, String name) {
+            if (distribution == null || distribution.getType() == null) {
+                return new Sampler(DistributionType.FIXED, current, 0, 0, lower, upper);
+            }
+            double mean = distribution.getMean() != null ? distribution.getMean() : current;
+            double min = distribution.getMin() != null ? Math.max(lower, distribution.getMin()) : lower;
+            double max = distribution.getMax() != null ? Math.min(upper, distribution.getMax()) : upper;
+            if (min > max) {
+                throw new IllegalArgumentException(name + ": min, max değerinden büyük olamaz");
+            }
+            return switch (distribution.getType()) {
+                case FIXED -> new Sampler(DistributionType.FIXED, mean, 0, 0, min, max);
+                case UNIFORM -> {
+                    if (distribution.getMin() == null || distribution.getMax() == null) {
+                        throw new IllegalArgumentException(name + ": UNIFORM dağılım için min ve max gerekli");
+                    }
+                    yield new Sampler(DistributionType.UNIFORM, min, max, 0, min, max);
+                }
+                case NORMAL -> {
+                    if (distribution.getStdDev() == null || distribution.getStdDev() < 0) {
+                        throw new IllegalArgumentException(name + ": NORMAL dağılım için negatif olmayan stdDev gerekli");
+                    }
+                    yield new Sampler(DistributionType.NORMAL, mean, distribution.getStdDev(), 0, min, max);
+                }
+                case TRIANGULAR -> {
+                    if (distribution.getMin() == null || distribution.getMax() == null) {
+                        throw new IllegalArgumentException(name + ": TRIANGULAR dağılım için min ve max gerekli");
+                    }
+                    double mode = distribution.getMode() != null ? distribution.getMode() : current;
+                    if (mode < min || mode > max) {
+                        throw new IllegalArgumentException(name + ": mode, min ile max arasında olmalı");
+                    }
+                    yield new Sampler(DistributionType.TRIANGULAR, min, mode, max, min, max);
+                }
+            };
+        }
+
+        double sample(SplittableRandom random) {
+            double value = switch (type) {
+                case FIXED -> a;
+                case UNIFORM -> a + (b - a) * random.nextDouble();
+                case NORMAL -> a + b * random.nextGaussian();
+                case TRIANGULAR -> {
+                    // inverse CDF of the triangle min = a, mode = b, max = c
+                    double u = random.nextDouble();
+                    double width = c - a;
+                    if (width <= 0) {
+                        yield a;
+                    }
+                    double split = (b - a) / width;
+                    yield u < split
+                    ? a + Math.sqrt(u * width * (b - a))
+                    : c - Math.sqrt((1 - u) * width * (c - b));
+                }
+            };
+            return Math.max(lower, Math.min(upper, value));
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.ChartData;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.RollupGranularity;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Score history with precomputed trends. Every saved machine with a score (single or bulk event) becomes a snapshot
+ * in an in-memory queue. A scheduled flush appends the queued snapshots to {@code machine_score_history}
+ * and adds them to each machine's day and month rollups, in one transaction. The fleet's rollups of the
+ * periods a batch touched are then recomputed in the same transaction from one value per machine, its
+ * average over the period, so a machine that is saved often weighs no more than one saved once.
+ * <p>
+ * The history table is partitioned by month; partitions are created as snapshots for a new month arrive.
+ * Trends are read from the rollups only. The fleet's recent rollups are also kept in memory, so the
+ * statistics endpoint does not query the database for them. If a flush fails, its snapshots go back to
+ * the front of the queue and are retried on the next run.
+ */
+@Slf4j
+@Service
+public class ScoreHistoryService {
+
+    private static final int MAX_PENDING = 1_000_000;
+    private static final int CACHED_DAYS = 90;
+    private static final int CACHED_MONTHS = 36;
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    private static final String CREATE_HISTORY_TABLE = "CREATE TABLE IF NOT EXISTS machine_score_history ("
+    + "machine_id bigint NOT NULL, recorded_at timestamptz NOT NULL, efficiency_score double precision NOT NULL, "
+    + "daily_production double precision, error_margin double precision, maintenance_interval double precision, "
+    + "standby_time double precision, energy_consumption double precision, score_model_version varchar(255)"
+    + ") PARTITION BY RANGE (recorded_at)";
+    private static final String CREATE_HISTORY_INDEX = "CREATE INDEX IF NOT EXISTS idx_score_history_machine "
+    + "ON machine_score_history (machine_id, recorded_at)";
+    private static final String CREATE_HISTORY_PARTITION = "CREATE TABLE IF NOT EXISTS machine_score_history_%s "
+    + "PARTITION OF machine_score_history FOR VALUES FROM ('%s') TO ('%s')";
+
+    private static final String INSERT_SNAPSHOT = "INSERT INTO machine_score_history (machine_id, recorded_at, "
+    + "efficiency_score, daily_production, error_margin, maintenance_interval, standby_time, energy_consumption, "
+    + "score_model_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_MACHINE_ROLLUP = "INSERT INTO machine_score_rollups (granularity, period_start, "
+    + "machine_id, score_sum, score_min, score_max, sample_count) VALUES (?, ?, ?, ?, ?, ?, ?) "
+    + "ON CONFLICT (granularity, period_start, machine_id) DO UPDATE SET " + mergeColumns("machine_score_rollups");
+    private static final String SELECT_FLEET_PERIOD = "SELECT SUM(score_sum / sample_count), "
+    + "MIN(score_sum / sample_count), MAX(score_sum / sample_count), COUNT(*) FROM machine_score_rollups "
+    + "WHERE granularity = ? AND period_start = ?";
+    private static final String UPSERT_FLEET_ROLLUP = "INSERT INTO fleet_score_rollups (granularity, period_start, "
+    + "score_sum, score_min, score_max, sample_count) VALUES (?, ?, ?, ?, ?, ?) "
+    + "ON CONFLICT (granularity, period_start) DO UPDATE SET score_sum = EXCLUDED.score_sum, "
+    + "score_min = EXCLUDED.score_min, score_max = EXCLUDED.score_max, sample_count = EXCLUDED.sample_count";
+
+    private static final String SELECT_FLEET_ROLLUPS = "SELECT granularity, period_start, score_sum, score_min, "
+    + "score_max, sample_count FROM fleet_score_rollups "
+    + "WHERE (granularity = 'DAY' AND period_start >= ?) OR (granularity = 'MONTH' AND period_start >= ?)";
+    private static final String SELECT_MACHINE_MONTHS = "SELECT machine_id, period_start, score_sum, sample_count "
+    + "FROM machine_score_rollups WHERE granularity = 'MONTH' AND period_start >= ? AND machine_id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone;
+    private final int batchSize;
+
+    private final ArrayDeque<Snapshot> pending = new ArrayDeque<>();
+    private long droppedSnapshots;
+
+    // touched only by flush, which is synchronized
+    private final Set<LocalDate> partitions = new HashSet<>();
+    private boolean historyTableCreated;
+
+    private final Map<RollupGranularity, ConcurrentSkipListMap<LocalDate, Rollup>> fleetRollups =
+    new EnumMap<>(RollupGranularity.class);
+
+    public ScoreHistoryService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               @Value("${history.zone:Europe/Istanbul}") ZoneId zone,
+                               @Value("${history.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zone = zone;
+        this.batchSize = batchSize;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            fleetRollups.put(granularity, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /** Trend columns: average, min, max and count of a machine's snapshots, or of the fleet's machine averages. */
+    public record Rollup(double sum, double min, double max, long count) {
+
+        static Rollup of(double score) {
+            return new Rollup(score, score, score, 1);
+        }
+
+        Rollup plus(Rollup other) {
+            return new Rollup(sum + other.sum, Math.min(min, other.min), Math.max(max, other.max), count + other.count);
+        }
+
+        public double average() {
+            return sum / count;
+        }
+    }
+
+    /** Month labels of a comparison and each machine's monthly average, {@code null} for months without data. */
+    public record MonthlyScores(List<String> labels, Map<Long, List<Double>> averages) {
+    }
+
+    @EventListener
+    public void onMachineSaved(MachineSavedEvent event) {
+        enqueue(List.of(event.machine()));
+    }
+
+    @EventListener
+    public void onMachinesSaved(MachinesSavedEvent event) {
+        enqueue(event.machines());
+    }
+
+    private void enqueue(List<Machine> machines) {
+        Instant now = Instant.now();
+        synchronized (pending) {
+            for (Machine machine : machines) {
+                if (machine.getId() == null || machine.getEfficiencyScore() == null) {
+                    continue;
+                }
+                if (pending.size() >= MAX_PENDING) {
+                    pending.pollFirst();
+                    droppedSnapshots++;
+                }
+                pending.addLast(new Snapshot(machine.getId(), now, machine.getEfficiencyScore(),
+                machine.getDailyProduction(), machine.getErrorMargin(), machine.getMaintenanceInterval(),
+                machine.getStandbyTime(), machine.getEnergyConsumption(), machine.getScoreModelVersion()));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${history.flush-interval:PT5S}")
+    public synchronized void flush() {
+        // only what was queued when the run started, so steady saves cannot keep a flush going
+        int remaining;
+        synchronized (pending) {
+            remaining = pending.size();
+        }
+        List<Snapshot> batch;
+        while (remaining > 0 && !(batch = takePending(remaining)).isEmpty()) {
+            remaining -= batch.size();
+            try {
+                write(batch);
+            } catch (DataAccessException e) {
+                requeue(batch);
+                log.warn("Score history could not be written, {} snapshots will be retried: {}", batch.size(),
+                e.getMessage());
+                return;
+            }
+        }
+        long dropped;
+        synchronized (pending) {
+            dropped = droppedSnapshots;
+            droppedSnapshots = 0;
+        }
+        if (dropped > 0) {
+            log.warn("Score history queue overflowed, {} oldest snapshots were dropped", dropped);
+        }
+    }
+
+    /** Reloads the cached fleet rollups at startup under the flush lock, so no period gets an older value. */
+    public synchronized void loadFleetRollups() {
+        LocalDate today = LocalDate.now(zone);
+        Map<RollupGranularity, ConcurrentSkipListMap<LocalDate, Rollup>> loaded = new EnumMap<>(RollupGranularity.class);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            loaded.put(granularity, new ConcurrentSkipListMap<>());
+        }
+        jdbcTemplate.query(SELECT_FLEET_ROLLUPS, rs -> {
+            loaded.get(RollupGranularity.valueOf(rs.getString(1))).put(rs.getObject(2, LocalDate.class),
+            new Rollup(rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getLong(6)));
+        }, oldestCached(RollupGranularity.DAY, today), oldestCached(RollupGranularity.MONTH, today));
+        loaded.forEach((granularity, rollups) -> {
+            ConcurrentSkipListMap<LocalDate, Rollup> cached = fleetRollups.get(granularity);
+            cached.putAll(rollups);
+            cached.keySet().retainAll(rollups.keySet());
+        });
+    }
+
+    /** The fleet's last {@code periods} days or months that have snapshots, oldest first. */
+    public List<ChartData> fleetTrend(RollupGranularity granularity, int periods) {
+        LocalDate today = LocalDate.now(zone);
+        LocalDate from = granularity == RollupGranularity.DAY ? today.minusDays(periods - 1)
+        : today.withDayOfMonth(1).minusMonths(periods - 1);
+
+        List<ChartData> trend = new ArrayList<>();
+        fleetRollups.get(granularity).tailMap(from).forEach((periodStart, rollup) -> {
+            ChartData chartData = new ChartData();
+            chartData.setLabel(granularity == RollupGranularity.DAY ? periodStart.toString() : monthLabel(periodStart));
+            chartData.setValue(round(rollup.average()));
+            trend.add(chartData);
+        });
+        return trend;
+    }
+
+    /** Monthly averages of the given machines over the current and the previous {@code months - 1} months. */
+    public MonthlyScores machineMonthlyScores(List<Long> machineIds, int months) {
+        LocalDate first = LocalDate.now(zone).withDayOfMonth(1).minusMonths(months - 1);
+        List<String> labels = new ArrayList<>(months);
+        for (int m = 0; m < months; m++) {
+            labels.add(monthLabel(first.plusMonths(m)));
+        }
+
+        Map<Long, List<Double>> averages = new LinkedHashMap<>();
+        for (Long machineId : machineIds) {
+            averages.put(machineId, new ArrayList<>(Collections.nCopies(months, (Double) null)));
+        }
+        if (!machineIds.isEmpty()) {
+            String placeholders = String.join(", ", Collections.nCopies(machineIds.size(), "?"));
+            List<Object> args = new ArrayList<>(machineIds.size() + 1);
+            args.add(first);
+            args.addAll(machineIds);
+            jdbcTemplate.query(String.format(SELECT_MACHINE_MONTHS, placeholders), rs -> {
+                LocalDate month = rs.getObject(2, LocalDate.class);
+                int index = (month.getYear() - first.getYear()) * 12 + month.getMonthValue() - first.getMonthValue();
+                if (index >= 0 && index < months) {
+                    averages.get(rs.getLong(1)).set(index, round(rs.getDouble(3) / rs.getLong(4)));
+                }
+            }, args.toArray());
+        }
+        return new MonthlyScores(labels, averages);
+    }
+
+    private List<Snapshot> takePending(int max) {
+        synchronized (pending) {
+            int n = Math.min(Math.min(pending.size(), max), batchSize * 10);
+            List<Snapshot> batch = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                batch.add(pending.pollFirst());
+            }
+            return batch;
+        }
+    }
+
+    private void requeue(List<Snapshot> batch) {
+        synchronized (pending) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                pending.addFirst(batch.get(i));
+            }
+        }
+    }
+
+    private void write(List<Snapshot> batch) {
+        Map<MachinePeriod, Rollup> machineDeltas = new TreeMap<>();
+        Set<FleetPeriod> fleetPeriods = new TreeSet<>();
+        for (Snapshot snapshot : batch) {
+            LocalDate day = LocalDate.ofInstant(snapshot.recordedAt(), zone);
+            LocalDate month = day.withDayOfMonth(1);
+            Rollup one = Rollup.of(snapshot.score());
+            machineDeltas.merge(new MachinePeriod(RollupGranularity.DAY, day, snapshot.machineId()), one, Rollup::plus);
+            machineDeltas.merge(new MachinePeriod(RollupGranularity.MONTH, month, snapshot.machineId()), one, Rollup::plus);
+            fleetPeriods.add(new FleetPeriod(RollupGranularity.DAY, day));
+            fleetPeriods.add(new FleetPeriod(RollupGranularity.MONTH, month));
+        }
+        for (FleetPeriod period : fleetPeriods) {
+            if (period.granularity() == RollupGranularity.MONTH) {
+                createPartition(period.start());
+            }
+        }
+
+        // rollup keys are sorted, so concurrent writers lock rows in the same order
+        List<Map.Entry<MachinePeriod, Rollup>> machineRows = new ArrayList<>(machineDeltas.entrySet());
+        List<Map.Entry<FleetPeriod, Rollup>> fleetRows = new ArrayList<>(fleetPeriods.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, batch, batchSize, (statement, snapshot) -> {
+                statement.setLong(1, snapshot.machineId());
+                statement.setObject(2, OffsetDateTime.ofInstant(snapshot.recordedAt(), ZoneOffset.UTC));
+                statement.setDouble(3, snapshot.score());
+                setNullable(statement, 4, snapshot.dailyProduction());
+                setNullable(statement, 5, snapshot.errorMargin());
+                setNullable(statement, 6, snapshot.maintenanceInterval());
+                setNullable(statement, 7, snapshot.standbyTime());
+                setNullable(statement, 8, snapshot.energyConsumption());
+                statement.setString(9, snapshot.modelVersion());
+            });
+            jdbcTemplate.batchUpdate(UPSERT_MACHINE_ROLLUP, machineRows, batchSize, (statement, row) -> {
+                statement.setString(1, row.getKey().granularity().name());
+                statement.setObject(2, row.getKey().start());
+                statement.setLong(3, row.getKey().machineId());
+                setRollup(statement, 4, row.getValue());
+            });
+            // the period's machine rows, this batch included, through the (granularity, period_start) index prefix
+            for (FleetPeriod period : fleetPeriods) {
+                fleetRows.add(Map.entry(period, jdbcTemplate.queryForObject(SELECT_FLEET_PERIOD,
+                (rs, rowNum) -> new Rollup(rs.getDouble(1), rs.getDouble(2), rs.getDouble(3), rs.getLong(4)),
+                period.granularity().name(), period.start())));
+            }
+            jdbcTemplate.batchUpdate(UPSERT_FLEET_ROLLUP, fleetRows, batchSize, (statement, row) -> {
+                statement.setString(1, row.getKey().granularity().name());
+                statement.setObject(2, row.getKey().start());
+                setRollup(statement, 3, row.getValue());
+            });
+        });
+
+        LocalDate today = LocalDate.now(zone);
+        for (Map.Entry<FleetPeriod, Rollup> row : fleetRows) {
+            ConcurrentSkipListMap<LocalDate, Rollup> cached = fleetRollups.get(row.getKey().granularity());
+            cached.put(row.getKey().start(), row.getValue());
+            cached.headMap(oldestCached(row.getKey().granularity(), today)).clear();
+        }
+    }
+
+    private void createPartition(LocalDate month) {
+        if (partitions.contains(month)) {
+            return;
+        }
+        if (!historyTableCreated) {
+            jdbcTemplate.execute(CREATE_HISTORY_TABLE);
+            jdbcTemplate.execute(CREATE_HISTORY_INDEX);
+            historyTableCreated = true;
+        }
+        jdbcTemplate.execute(String.format(CREATE_HISTORY_PARTITION,
+        String.format("y%04dm%02d", month.getYear(), month.getMonthValue()),
+        month.atStartOfDay(zone).toOffsetDateTime(), month.plusMonths(1).atStartOfDay(zone).toOffsetDateTime()));
+        partitions.add(month);
+    }
+
+    private static LocalDate oldestCached(RollupGranularity granularity, LocalDate today) {
+        return granularity == RollupGranularity.DAY ? today.minusDays(CACHED_DAYS)
+        : today.withDayOfMonth(1).minusMonths(CACHED_MONTHS);
+    }
+
+    private static void setRollup(PreparedStatement statement, int first, Rollup rollup) throws SQLException {
+        statement.setDouble(first, rollup.sum());
+        statement.setDouble(first + 1, rollup.min());
+        statement.setDouble(first + 2, rollup.max());
+        statement.setLong(first + 3, rollup.count());
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, Double value) throws SQLException {
+        if (value != null) {
+            statement.setDouble(index, value);
+        } else {
+            statement.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    private static String mergeColumns(String table) {
+        return "score_sum = " + table + ".score_sum + EXCLUDED.score_sum, "
+        + "score_min = LEAST(" + table + ".score_min, EXCLUDED.score_min), "
+        + "score_max = GREATEST(" + table + ".score_max, EXCLUDED.score_max), "
+        + "sample_count = " + table + ".sample_count + EXCLUDED.sample_count";
+    }
+
+    private static String monthLabel(LocalDate month) {
+        return month.getMonth().getDisplayName(TextStyle.FULL, TURKISH) + " " + month.getYear();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private record Snapshot(long machineId, Instant recordedAt, double score, Double dailyProduction,
+                            Double errorMargin, Double maintenanceInterval, Double standbyTime,
+                            Double energyConsumption, String modelVersion) {
+    }
+
+    private record MachinePeriod(RollupGranularity granularity, LocalDate start, long machineId)
+    implements Comparable<MachinePeriod> {
+
+        @Override
+        public int compareTo(MachinePeriod other) {
+            int byGranularity = granularity.compareTo(other.granularity);
+            if (byGranularity != 0) {
+                return byGranularity;
+            }
+            int byStart = start.compareTo(other.start);
+            return byStart != 0 ? byStart : Long.compare(machineId, other.machineId);
+        }
+    }
+
+    private record FleetPeriod(RollupGranularity granularity, LocalDate start) implements Comparable<FleetPeriod> {
+
+        @Override
+        public int compareTo(FleetPeriod other) {
+            int byGranularity = granularity.compareTo(other.granularity);
+            return byGranularity != 0 ? byGranularity : start.compareTo(other.start);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.TelemetryIngestResponse;
+import com.example.fuzzymachineefficiency.dto.TelemetryReading;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.util.BoundedRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PLC telemetry pipeline. Request threads only validate readings and copy them into a bounded ring
+ * buffer; when it is full the whole batch is refused so the caller can back off (429). A batch larger than
+ * the buffer could never fit and is refused outright (413). A scheduled flush drains the buffer and
+ * coalesces readings per machine into windows of {@code telemetry.window}.
+ * <p>
+ * A window closes once {@code telemetry.allowed-lateness} has passed after its end. Closed windows are
+ * written in one transaction of JDBC batch upserts, so a reading that arrives after its window was
+ * written is still added to it. Each machine's newest closed window is then rolled into its production,
+ * error margin, standby time and energy consumption, and the machine is rescored. Only those columns and
+ * the score are updated, and only while all five fuzzy inputs still hold the values they were loaded with,
+ * so an edit made in the meantime is neither overwritten nor scored with stale inputs.
+ * Machines whose score changed are announced in one {@link MachinesSavedEvent}.
+ * <p>
+ * If a write fails, the windows stay in memory for the next flush, and ingestion answers 503 until a
+ * write succeeds again.
+ */
+@Slf4j
+@Service
+public class TelemetryIngestionService {
+
+    public enum Admission { ACCEPTED, BUFFER_FULL, TOO_LARGE, UNAVAILABLE }
+
+    private static final int MACHINE_BATCH_SIZE = 1000;
+    private static final double SECONDS_PER_DAY = 86_400.0;
+    private static final double MINUTES_PER_DAY = 1_440.0;
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private static final String UPSERT_WINDOW = "INSERT INTO machine_telemetry_windows (machine_id, window_start, "
+    + "reading_count, covered_seconds, produced_units, defective_units, energy_kwh, standby_seconds) "
+    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (machine_id, window_start) DO UPDATE SET "
+    + "reading_count = machine_telemetry_windows.reading_count + EXCLUDED.reading_count, "
+    + "covered_seconds = machine_telemetry_windows.covered_seconds + EXCLUDED.covered_seconds, "
+    + "produced_units = machine_telemetry_windows.produced_units + EXCLUDED.produced_units, "
+    + "defective_units = machine_telemetry_windows.defective_units + EXCLUDED.defective_units, "
+    + "energy_kwh = machine_telemetry_windows.energy_kwh + EXCLUDED.energy_kwh, "
+    + "standby_seconds = machine_telemetry_windows.standby_seconds + EXCLUDED.standby_seconds";
+
+    private static final String UPDATE_ROLLED_MACHINE = "UPDATE machines SET daily_production = ?, error_margin = ?, "
+    + "standby_time = ?, energy_consumption = ?, efficiency_score = ?, efficiency_status = ?, score_model_version = ? "
+    + "WHERE id = ? AND daily_production IS NOT DISTINCT FROM ? AND error_margin IS NOT DISTINCT FROM ? "
+    + "AND maintenance_interval IS NOT DISTINCT FROM ? AND standby_time IS NOT DISTINCT FROM ? "
+    + "AND energy_consumption IS NOT DISTINCT FROM ?";
+
+    private final MachineRepository machineRepository;
+    private final MachineService machineService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedRingBuffer<TelemetryReading> buffer;
+    private final long windowMillis;
+    private final long latenessMillis;
+    private final int batchSize;
+
+    // touched only by flush, which is synchronized
+    private final Map<WindowKey, Window> openWindows = new HashMap<>();
+    // also cleared when a machine is deleted, which must not wait for a flush
+    private final Map<Long, Long> lastRolledWindow = new ConcurrentHashMap<>();
+    private volatile boolean writable = true;
+
+    private final Counter acceptedReadings;
+    private final Counter bufferFullReadings;
+    private final Counter tooLargeReadings;
+    private final Counter unavailableReadings;
+    private final Counter writtenWindows;
+    private final Counter orphanWindows;
+    private final Counter rolledMachines;
+    private final Timer flushTimer;
+
+    public TelemetryIngestionService(MachineRepository machineRepository,
+                                     MachineService machineService,
+                                     ApplicationEventPublisher eventPublisher,
+                                     JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${telemetry.buffer-capacity:262144}") int bufferCapacity,
+                                     @Value("${telemetry.window:PT1M}") Duration window,
+                                     @Value("${telemetry.allowed-lateness:PT5S}") Duration allowedLateness,
+                                     @Value("${telemetry.batch-size:1000}") int batchSize) {
+        if (window.toMillis() <= 0) {
+            throw new IllegalArgumentException("telemetry.window must be positive: " + window);
+        }
+        this.machineRepository = machineRepository;
+        this.machineService = machineService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.buffer = new BoundedRingBuffer<>(bufferCapacity);
+        this.windowMillis = window.toMillis();
+        this.latenessMillis = allowedLateness.toMillis();
+        this.batchSize = batchSize;
+
+        this.acceptedReadings = readingCounter(meterRegistry, "accepted");
+        this.bufferFullReadings = readingCounter(meterRegistry, "buffer_full");
+        this.tooLargeReadings = readingCounter(meterRegistry, "too_large");
+        this.unavailableReadings = readingCounter(meterRegistry, "unavailable");
+        this.writtenWindows = Counter.builder("telemetry.windows.written")
+        .description("Coalesced telemetry windows upserted into machine_telemetry_windows")
+        .register(meterRegistry);
+        this.orphanWindows = Counter.builder("telemetry.windows.orphaned")
+        .description("Telemetry windows dropped because their machine does not exist")
+        .register(meterRegistry);
+        this.rolledMachines = Counter.builder("telemetry.machines.rolled")
+        .description("Machines whose fuzzy inputs were updated from a telemetry window")
+        .register(meterRegistry);
+        this.flushTimer = Timer.builder("telemetry.flush")
+        .description("Draining, writing and rolling up buffered telemetry")
+        .register(meterRegistry);
+        Gauge.builder("telemetry.buffer.size", buffer, BoundedRingBuffer::size)
+        .description("Readings waiting in the ingestion buffer")
+        .register(meterRegistry);
+    }
+
+    public Admission offer(List<TelemetryReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            throw new IllegalArgumentException("Telemetri okumaları boş olamaz");
+        }
+        if (readings.size() > buffer.capacity()) {
+            tooLargeReadings.increment(readings.size());
+            return Admission.TOO_LARGE;
+        }
+        Instant latest = Instant.now().plus(MAX_CLOCK_SKEW);
+        for (TelemetryReading reading : readings) {
+            validate(reading, latest);
+        }
+
+        if (!writable) {
+            unavailableReadings.increment(readings.size());
+            return Admission.UNAVAILABLE;
+        }
+        if (!buffer.tryPublishAll(readings)) {
+            bufferFullReadings.increment(readings.size());
+            return Admission.BUFFER_FULL;
+        }
+        acceptedReadings.increment(readings.size());
+        return Admission.ACCEPTED;
+    }
+
+    public TelemetryIngestResponse describe(int acceptedReadings) {
+        TelemetryIngestResponse response = new TelemetryIngestResponse();
+        response.setAcceptedReadings(acceptedReadings);
+        response.setBufferedReadings(buffer.size());
+        response.setBufferCapacity(buffer.capacity());
+        return response;
+    }
+
+    @EventListener
+    public void onMachineDeleted(MachineDeletedEvent event) {
+        lastRolledWindow.remove(event.machineId());
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.flush-interval:PT1S}")
+    public synchronized void flush() {
+        flushTimer.record(() -> flush(System.currentTimeMillis() - windowMillis - latenessMillis));
+    }
+
+    /** Writes every open window, complete or not, so nothing buffered is lost on shutdown. */
+    @PreDestroy
+    public synchronized void flushAll() {
+        flush(Long.MAX_VALUE);
+    }
+
+    private void flush(long closeWindowsStartingBefore) {
+        // at most one buffer's worth per run, so steady producers cannot keep a flush from finishing
+        int remaining = buffer.capacity();
+        int drained;
+        do {
+            drained = buffer.drain(this::coalesce, Math.min(remaining, batchSize * 16));
+            remaining -= drained;
+        } while (drained > 0 && remaining > 0);
+
+        List<Window> closed = new ArrayList<>();
+        for (Window window : openWindows.values()) {
+            if (window.start < closeWindowsStartingBefore) {
+                closed.add(window);
+            }
+        }
+        if (closed.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Machine> machines;
+        try {
+            machines = loadMachines(closed);
+        } catch (DataAccessException e) {
+            markUnwritable(e);
+            return;
+        }
+
+        List<Window> known = new ArrayList<>(closed.size());
+        for (Window window : closed) {
+            if (machines.containsKey(window.machineId)) {
+                known.add(window);
+            } else {
+                openWindows.remove(new WindowKey(window.machineId, window.start));
+                orphanWindows.increment();
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_WINDOW, known, batchSize,
+            (statement, window) -> {
+                statement.setLong(1, window.machineId);
+                statement.setObject(2, OffsetDateTime.ofInstant(Instant.ofEpochMilli(window.start), ZoneOffset.UTC));
+                statement.setLong(3, window.readings);
+                statement.setDouble(4, window.coveredSeconds);
+                statement.setDouble(5, window.producedUnits);
+                statement.setDouble(6, window.defectiveUnits);
+                statement.setDouble(7, window.energyKwh);
+                statement.setDouble(8, window.standbySeconds);
+            }));
+        } catch (DataAccessException e) {
+            markUnwritable(e);
+            return;
+        }
+        for (Window window : known) {
+            openWindows.remove(new WindowKey(window.machineId, window.start));
+        }
+        writtenWindows.increment(known.size());
+        if (!writable) {
+            log.info("Telemetry writes recovered, accepting readings again");
+            writable = true;
+        }
+
+        try {
+            rollIntoMachines(known, machines);
+        } catch (DataAccessException e) {
+            log.warn("Telemetry windows were written but machines could not be updated: {}", e.getMessage());
+        }
+    }
+
+    private void coalesce(TelemetryReading reading) {
+        long start = Math.floorDiv(reading.getTimestamp().toEpochMilli(), windowMillis) * windowMillis;
+        openWindows.computeIfAbsent(new WindowKey(reading.getMachineId(), start),
+        key -> new Window(key.machineId(), key.start())).add(reading);
+    }
+
+    private Map<Long, Machine> loadMachines(List<Window> windows) {
+        List<Long> ids = windows.stream().map(window -> window.machineId).distinct().toList();
+        Map<Long, Machine> machines = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += MACHINE_BATCH_SIZE) {
+            for (Machine machine : machineRepository.findAllById(ids.subList(from, Math.min(from + MACHINE_BATCH_SIZE, ids.size())))) {
+                machines.put(machine.getId(), machine);
+            }
+        }
+        return machines;
+    }
+
+    // Only a machine's newest window counts, and only the first time it is written: a late fragment of an
+    // older or already rolled window would describe a fraction of the window.
+    private void rollIntoMachines(List<Window> windows, Map<Long, Machine> machines) {
+        Map<Long, Window> newest = new HashMap<>();
+        for (Window window : windows) {
+            Long rolled = lastRolledWindow.get(window.machineId);
+            if ((rolled == null || window.start > rolled) && window.coveredSeconds > 0) {
+                newest.merge(window.machineId, window, (a, b) -> a.start >= b.start ? a : b);
+            }
+        }
+
+        List<Rolled> rolled = new ArrayList<>(newest.size());
+        for (Window window : newest.values()) {
+            Machine machine = machines.get(window.machineId);
+            Rolled entry = new Rolled(machine, window.start, machine.getDailyProduction(), machine.getErrorMargin(),
+            machine.getStandbyTime(), machine.getEnergyConsumption(), machine.getEfficiencyScore());
+            double perDay = SECONDS_PER_DAY / window.coveredSeconds;
+            machine.setDailyProduction(window.producedUnits * perDay);
+            if (window.producedUnits > 0) {
+                machine.setErrorMargin(window.defectiveUnits / window.producedUnits * 100.0);
+            }
+            machine.setStandbyTime(Math.min(MINUTES_PER_DAY, window.standbySeconds / window.coveredSeconds * MINUTES_PER_DAY));
+            machine.setEnergyConsumption(window.energyKwh * perDay);
+            machineService.applyEfficiencyScore(machine);
+            rolled.add(entry);
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_ROLLED_MACHINE, rolled, MACHINE_BATCH_SIZE, (statement, entry) -> {
+            Machine machine = entry.machine();
+            statement.setObject(1, machine.getDailyProduction(), Types.DOUBLE);
+            statement.setObject(2, machine.getErrorMargin(), Types.DOUBLE);
+            statement.setObject(3, machine.getStandbyTime(), Types.DOUBLE);
+            statement.setObject(4, machine.getEnergyConsumption(), Types.DOUBLE);
+            statement.setObject(5, machine.getEfficiencyScore(), Types.DOUBLE);
+            statement.setString(6, machine.getEfficiencyStatus());
+            statement.setString(7, machine.getScoreModelVersion());
+            statement.setLong(8, machine.getId());
+            statement.setObject(9, entry.previousDailyProduction(), Types.DOUBLE);
+            statement.setObject(10, entry.previousErrorMargin(), Types.DOUBLE);
+            statement.setObject(11, machine.getMaintenanceInterval(), Types.DOUBLE);
+            statement.setObject(12, entry.previousStandbyTime(), Types.DOUBLE);
+            statement.setObject(13, entry.previousEnergyConsumption(), Types.DOUBLE);
+        });
+
+        // a machine edited or deleted since it was loaded matched no row; its next window is rolled instead
+        List<Machine> rescored = new ArrayList<>();
+        int updated = 0;
+        for (int i = 0; i < rolled.size(); i++) {
+            if (counts[i / MACHINE_BATCH_SIZE][i % MACHINE_BATCH_SIZE] == 0) {
+                continue;
+            }
+            Rolled entry = rolled.get(i);
+            lastRolledWindow.put(entry.machine().getId(), entry.windowStart());
+            if (!Objects.equals(entry.previousScore(), entry.machine().getEfficiencyScore())) {
+                rescored.add(entry.machine());
+            }
+            updated++;
+        }
+        if (!rescored.isEmpty()) {
+            eventPublisher.publishEvent(new MachinesSavedEvent(rescored));
+        }
+        rolledMachines.increment(updated);
+    }
+
+    private void markUnwritable(DataAccessException e) {
+        if (writable) {
+            log.warn("Telemetry windows could not be written, refusing readings until the next successful flush: {}",
+            e.getMessage());
+        }
+        writable = false;
+    }
+
+    private static void validate(TelemetryReading reading, Instant latest) {
+        if (reading == null || reading.getMachineId() == null || reading.getTimestamp() == null) {
+            throw new IllegalArgumentException("Her okuma için makine id'si ve zaman damgası gerekli");
+        }
+        if (reading.getTimestamp().isAfter(latest)) {
+            throw new IllegalArgumentException("Okuma zaman damgası gelecekte olamaz: " + reading.getTimestamp());
+        }
+        if (!(reading.getIntervalSeconds() > 0) || !Double.isFinite(reading.getIntervalSeconds())) {
+            throw new IllegalArgumentException("Okuma aralığı pozitif olmalı: " + reading.getIntervalSeconds());
+        }
+        if (!isAmount(reading.getProducedUnits()) || !isAmount(reading.getDefectiveUnits())
+        || !isAmount(reading.getEnergyKwh()) || !isAmount(reading.getStandbySeconds())) {
+            throw new IllegalArgumentException("Okuma değerleri negatif olmayan sayılar olmalı");
+        }
+        if (reading.getDefectiveUnits() > reading.getProducedUnits()) {
+            throw new IllegalArgumentException("Hatalı ürün sayısı üretimden büyük olamaz");
+        }
+    }
+
+    private static boolean isAmount(double value) {
+        return value >= 0 && Double.isFinite(value);
+    }
+
+    private static Counter readingCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("telemetry.readings")
+        .description("Telemetry readings offered for ingestion, by outcome")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+    }
+
+    private record WindowKey(long machineId, long start) {
+    }
+
+    private record Rolled(Machine machine, long windowStart, Double previousDailyProduction, Double previousErrorMargin,
+                          Double previousStandbyTime, Double previousEnergyConsumption, Double previousScore) {
+    }
+
+    private static final class Window {
+
+        private final long machineId;
+        private final long start;
+        private long readings;
+        private double coveredSeconds;
+        private double producedUnits;
+        private double defectiveUnits;
+        private double energyKwh;
+        private double standbySeconds;
+
+        private Window(long machineId, long start) {
+            this.machineId = machineId;
+            this.start = start;
+        }
+
+        private void add(TelemetryReading reading) {
+            readings++;
+            coveredSeconds += reading.getIntervalSeconds();
+            producedUnits += reading.getProducedUnits();
+            defectiveUnits += reading.getDefectiveUnits();
+            energyKwh += reading.getEnergyKwh();
+            standbySeconds += reading.getStandbySeconds();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.fuzzymachineefficiency.util;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-capacity FIFO ring for many producers and one consumer. Producers publish whole batches: a batch
+ * is either copied in completely or refused, so a caller can report backpressure for exactly what it
+ * sent. The consumer drains in bulk. Both sides hold the lock only for an array copy, never for the
+ * work done with the items.
+ */
+public final class BoundedRingBuffer<T> {
+
+    private final Object[] items;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long head;
+    private long tail;
+
+    public BoundedRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Kapasite pozitif olmalı: " + capacity);
+        }
+        this.items = new Object[capacity];
+    }
+
+    /** Appends every item of {@code batch}, or none of them when they do not all fit. */
+    public boolean tryPublishAll(List<? extends T> batch) {
+        lock.lock();
+        try {
+            if (tail - head + batch.size() > items.length) {
+                return false;
+            }
+            for (T item : batch) {
+                items[(int) (tail++ % items.length)] = item;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Hands up to {@code max} of the oldest items to {@code consumer}, outside the lock; returns how many. */
+    public int drain(Consumer<? super T> consumer, int max) {
+        Object[] batch;
+        lock.lock();
+        try {
+            int n = (int) Math.min(max, tail - head);
+            batch = new Object[n];
+            for (int i = 0; i < n; i++) {
+                int slot = (int) (head++ % items.length);
+                batch[i] = items[slot];
+                items[slot] = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Object item : batch) {
+            @SuppressWarnings("unchecked")
+            T typed = (T) item;
+            consumer.accept(typed);
+        }
+        return batch.length;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.fuzzymachineefficiency.util;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch over non-negative values with logarithmic buckets: bucket {@code i} holds
+ * the values in {@code (gamma^(i-1), gamma^i]}, so any quantile is returned within the configured
+ * relative error. At most {@code maxBuckets} buckets are kept; past that the lowest buckets are folded
+ * into one, which only costs accuracy at the bottom of the distribution. Memory is constant in the
+ * number of values, and sketches with the same accuracy merge exactly, so parallel workers can each
+ * fill their own and combine them at the end.
+ */
+public final class QuantileSketch {
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final int maxBuckets;
+
+    // counts[i] is bucket offset + i
+    private long[] counts = new long[64];
+    private int offset;
+    private int used;
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Göreli doğruluk 0 ile 1 arasında olmalı: " + relativeAccuracy);
+        }
+        if (maxBuckets < 2) {
+            throw new IllegalArgumentException("En az 2 kova gerekli: " + maxBuckets);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.maxBuckets = maxBuckets;
+    }
+
+    public void add(double value) {
+        if (!(value >= 0) || value == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Değer sonlu ve negatif olmayan bir sayı olmalı: " + value);
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value == 0) {
+            zeroCount++;
+        } else {
+            addToBucket((int) Math.ceil(Math.log(value) / logGamma), 1);
+        }
+    }
+
+    /** Adds every value of {@code other}, which must have been created with the same accuracy. */
+    public void merge(QuantileSketch other) {
+        if (other.gamma != gamma) {
+            throw new IllegalArgumentException("Farklı doğruluktaki taslaklar birleştirilemez");
+        }
+        for (int i = 0; i < other.used; i++) {
+            if (other.counts[i] > 0) {
+                addToBucket(other.offset + i, other.counts[i]);
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** The value at quantile {@code q} in [0, 1]; NaN while the sketch is empty. */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Kantil 0 ile 1 arasında olmalı: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank == 0 || rank == count - 1) {
+            return rank == 0 ? min : max;
+        }
+        if (rank < zeroCount) {
+            return 0.0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < used; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return Math.max(min, Math.min(max, bucketValue(offset + i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Counts of values in {@code bins} equal-width bins from {@link #getMin} to {@link #getMax}, each bucket
+     * attributed to the bin of its representative value.
+     */
+    public long[] histogram(int bins) {
+        long[] histogram = new long[Math.max(bins, 1)];
+        if (count == 0) {
+            return histogram;
+        }
+        double width = (max - min) / histogram.length;
+        histogram[0] += zeroCount;
+        for (int i = 0; i < used; i++) {
+            if (counts[i] > 0) {
+                double value = Math.max(min, Math.min(max, bucketValue(offset + i)));
+                int bin = width > 0 ? (int) ((value - min) / width) : 0;
+                histogram[Math.min(bin, histogram.length - 1)] += counts[i];
+            }
+        }
+        return histogram;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    public double getMin() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    public double getMax() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    // midpoint of the bucket in relative terms, so its error is the same either way
+    private double bucketValue(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private void addToBucket(int index, long n) {
+        if (used == 0) {
+            offset = index;
+            used = 1;
+        } else if (index < offset) {
+            // the window grows down to maxBuckets; a value below it joins the lowest bucket kept, so
+            // buckets stay in value order whatever order the values arrive in
+            index = Math.max(index, offset + used - maxBuckets);
+            int shift = offset - index;
+            if (shift > 0) {
+                ensureCapacity(used + shift);
+                System.arraycopy(counts, 0, counts, shift, used);
+                Arrays.fill(counts, 0, shift, 0L);
+                offset = index;
+                used += shift;
+            }
+        } else if (index >= offset + used) {
+            if (index - offset + 1 > maxBuckets) {
+                collapseBelow(index - maxBuckets + 1);
+            }
+            ensureCapacity(index - offset + 1);
+            used = index - offset + 1;
+        }
+        counts[index - offset] += n;
+    }
+
+    // folds every bucket below `newOffset` into bucket `newOffset`
+    private void collapseBelow(int newOffset) {
+        int n = Math.min(newOffset - offset, used);
+        long folded = 0;
+        for (int i = 0; i < n; i++) {
+            folded += counts[i];
+        }
+        System.arraycopy(counts, n, counts, 0, used - n);
+        Arrays.fill(counts, used - n, used, 0L);
+        used = Math.max(used - n, 1);
+        offset = newOffset;
+        counts[0] += folded;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > counts.length) {
+            counts = Arrays.copyOf(counts, Math.min(Math.max(size, counts.length * 2), Math.max(size, maxBuckets)));
+        }
+    }
+}
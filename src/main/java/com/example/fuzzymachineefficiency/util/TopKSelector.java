@@ -0,0 +1,55 @@
+package com.example.fuzzymachineefficiency.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first {@code k} items of a stream under {@code order} in a bounded heap whose head is the
+ * worst item retained, so selecting from N items costs O(N log k) time and O(k) memory. Pass a reversed
+ * comparator for bottom-k; chain {@code thenComparing} for multi-key ordering and deterministic ties.
+ */
+public final class TopKSelector<T> {
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+
+    public TopKSelector(int k, Comparator<? super T> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k negatif olamaz: " + k);
+        }
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.min(k, 1024) + 1, order.reversed());
+    }
+
+    public void offer(T item) {
+        if (k == 0) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.add(item);
+        } else if (order.compare(item, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /** The worst retained item once {@code k} items are held, or null while the selector still has room. */
+    public T cutoff() {
+        return k > 0 && heap.size() == k ? heap.peek() : null;
+    }
+
+    /** Retained items, best first. */
+    public List<T> toSortedList() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EfficiencySurfaceTableTest {
+
+    private static final double TOLERANCE = 1e-4;
+    private static final double INTERPOLATE_EVERYWHERE = Double.POSITIVE_INFINITY;
+
+    // Breakpoints a: 0, 5, 10, 20 and b: 0, 4, 6, 8, 10. No rule fires for a > 10 with b < 6, nor for
+    // a < 5 with b > 8, so the surface jumps to DEFAULT along those edges.
+    private static final String FCL = """
+            FUNCTION_BLOCK surface
+            VAR_INPUT
+                a : REAL;
+                b : REAL;
+            END_VAR
+            VAR_OUTPUT
+                score : REAL;
+            END_VAR
+            FUZZIFY a
+                TERM low  := (0, 1) (10, 0);
+                TERM high := (5, 0) (20, 1);
+            END_FUZZIFY
+            FUZZIFY b
+                TERM low  := (0, 1) (4, 1) (8, 0);
+                TERM high := (6, 0) (10, 1);
+            END_FUZZIFY
+            DEFUZZIFY score
+                TERM bad  := (0, 1) (50, 0);
+                TERM good := (50, 0) (100, 1);
+                METHOD : COG;
+                DEFAULT := 50;
+            END_DEFUZZIFY
+            RULEBLOCK Rules
+                AND : MIN;
+                ACT : MIN;
+                ACCU : MAX;
+                RULE 1 : IF a IS low AND b IS low THEN score IS bad;
+                RULE 2 : IF a IS high AND b IS high THEN score IS good;
+            END_RULEBLOCK
+            END_FUNCTION_BLOCK
+            """;
+
+    private FuzzyModel model;
+    private FuzzyWorkspace workspace;
+
+    @BeforeEach
+    void setUp() {
+        model = FclParser.parse(FCL);
+        workspace = model.newWorkspace();
+    }
+
+    @Test
+    void placesNodesOnEveryBreakpointAndSubdivision() {
+        assertEquals(4 * 5, build(1L, 1, null, 0).getNodeCount());
+        assertEquals(7 * 9, build(1L, 2, null, 0).getNodeCount());
+    }
+
+    @Test
+    void reproducesTheModelOnEveryNode() {
+        EfficiencySurfaceTable table = build(1L, 2, null, 0);
+
+        for (double a : new double[]{0, 2.5, 5, 7.5, 10, 15, 20}) {
+            for (double b : new double[]{0, 2, 4, 5, 6, 7, 8, 9, 10}) {
+                assertMatchesModel(table, a, b, TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    void interpolatesBetweenCornersWhereRulesFire() {
+        EfficiencySurfaceTable table = build(1L, 1, null, 0);
+
+        double corners = (evaluate(model, 0, 0) + evaluate(model, 5, 0) + evaluate(model, 0, 4)
+        + evaluate(model, 5, 4)) / 4;
+        assertEquals(corners, evaluate(table, 2.5, 2), TOLERANCE);
+
+        double edge = 0.2 * evaluate(model, 0, 0) + 0.8 * evaluate(model, 5, 0);
+        assertEquals(edge, evaluate(table, 4, 0), TOLERANCE);
+    }
+
+    @Test
+    void clampsOutsideTheOuterBreakpoints() {
+        EfficiencySurfaceTable table = build(1L, 1, null, 0);
+
+        assertEquals(evaluate(table, 0, 0), evaluate(table, -10, -3), TOLERANCE);
+        assertEquals(evaluate(table, 20, 10), evaluate(table, 500, 40), TOLERANCE);
+    }
+
+    @Test
+    void handsNaNInputsToTheModel() {
+        EfficiencySurfaceTable table = build(1L, 1, null, 0);
+
+        assertEquals(evaluate(model, Double.NaN, 2), evaluate(table, Double.NaN, 2));
+        assertEquals(evaluate(model, 2.5, Double.NaN), evaluate(table, 2.5, Double.NaN));
+        assertEquals(evaluate(model, Double.NaN, Double.NaN), evaluate(table, Double.NaN, Double.NaN));
+        // infinities clamp like any value beyond the outer breakpoints
+        assertEquals(evaluate(table, 0, 0), evaluate(table, Double.NEGATIVE_INFINITY, 0), TOLERANCE);
+        assertEquals(evaluate(table, 20, 10), evaluate(table, Double.POSITIVE_INFINITY, 10), TOLERANCE);
+    }
+
+    @Test
+    void evaluatesCellsNextToTheDefaultEdgeExactly() {
+        EfficiencySurfaceTable table = build(1L, 1, null, 0);
+
+        // corner (10, 4) fires no rule, so the whole cell [5, 10] x [4, 6] is left to the model
+        assertEquals(evaluate(model, 7, 5), evaluate(table, 7, 5));
+        assertEquals(evaluate(model, 9.9, 4.1), evaluate(table, 9.9, 4.1));
+        assertTrue(Double.isNaN(evaluate(table, 15, 2)));
+        assertTrue(Double.isNaN(evaluate(table, 2, 9.5)));
+    }
+
+    @Test
+    void reportsInterpolationError() {
+        EfficiencySurfaceTable table = build(1L, 1, null, 5000);
+
+        assertTrue(table.getMaxError() < Double.POSITIVE_INFINITY, "a DEFAULT edge was interpolated");
+        assertTrue(table.getMeanError() <= table.getMaxError());
+
+        Random random = new Random(7);
+        double worst = 0.0;
+        for (int n = 0; n < 5000; n++) {
+            double a = random.nextDouble() * 20;
+            double b = random.nextDouble() * 10;
+            double exact = evaluate(model, a, b);
+            if (!Double.isNaN(exact)) {
+                worst = Math.max(worst, Math.abs(exact - evaluate(table, a, b)));
+            }
+        }
+        assertTrue(worst <= table.getMaxError() + 1.0, "measured " + table.getMaxError() + ", found " + worst);
+    }
+
+    @Test
+    void keepsTheShippedRuleBaseWithinTheDefaultTolerance() throws IOException {
+        String fcl;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("machineefficiency.fcl")) {
+            fcl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        EfficiencySurfaceTable table = EfficiencySurfaceTable.build(FclParser.parse(fcl), 1L, 1, null, 20000, 1.0);
+
+        // fuzzy.lut.max-error defaults to one score point
+        assertTrue(table.getMaxError() <= 1.0, "max error " + table.getMaxError());
+        assertTrue(table.getMeanError() <= 0.05, "mean error " + table.getMeanError());
+        assertTrue(table.getExactCellCount() < table.getNodeCount() / 2, table.getExactCellCount() + " exact cells");
+    }
+
+    @Test
+    void mapsThePersistedSurfaceOnTheNextBuild() throws IOException {
+        Path file = Files.createTempFile("surface", ".lut");
+        try {
+            Files.delete(file);
+            EfficiencySurfaceTable written = build(42L, 1, file, 0);
+            long size = Files.size(file);
+
+            // patch node (0, 0), the first value of the payload before one word of cell marks, to prove the
+            // file is read back
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Float.BYTES).putFloat(0, 12.5f), size - Long.BYTES - 20L * Float.BYTES);
+            }
+            EfficiencySurfaceTable mapped = build(42L, 1, file, 0);
+            assertEquals(12.5, evaluate(mapped, 0, 0));
+            assertEquals(evaluate(written, 7.5, 3), evaluate(mapped, 7.5, 3), TOLERANCE);
+
+            // another fingerprint means another rule base, so the file is resampled and rewritten
+            EfficiencySurfaceTable resampled = build(43L, 1, file, 0);
+            assertEquals(evaluate(model, 0, 0), evaluate(resampled, 0, 0), TOLERANCE);
+            assertEquals(size, Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void mapsTheCellMarksAndResamplesForAnotherTolerance() throws IOException {
+        Path file = Files.createTempFile("surface", ".lut");
+        try {
+            Files.delete(file);
+            EfficiencySurfaceTable written = EfficiencySurfaceTable.build(model, 42L, 1, file, 0, 0.5);
+            EfficiencySurfaceTable mapped = EfficiencySurfaceTable.build(model, 42L, 1, file, 0, 0.5);
+            assertTrue(written.getExactCellCount() > 0);
+            assertEquals(written.getExactCellCount(), mapped.getExactCellCount());
+
+            EfficiencySurfaceTable looser = EfficiencySurfaceTable.build(model, 42L, 1, file, 0, INTERPOLATE_EVERYWHERE);
+            assertEquals(0, looser.getExactCellCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void leavesCellsThatMissTheToleranceToTheModel() {
+        double tolerance = 0.5;
+        EfficiencySurfaceTable interpolated = build(1L, 1, null, 0);
+        EfficiencySurfaceTable table = EfficiencySurfaceTable.build(model, 1L, 1, null, 0, tolerance);
+
+        // every cell centre is a probe, so none of them can be off by more than the probe margin
+        double[] as = {0, 5, 10, 20};
+        double[] bs = {0, 4, 6, 8, 10};
+        int missed = 0;
+        for (int i = 0; i + 1 < as.length; i++) {
+            for (int j = 0; j + 1 < bs.length; j++) {
+                double a = (as[i] + as[i + 1]) / 2;
+                double b = (bs[j] + bs[j + 1]) / 2;
+                double exact = evaluate(model, a, b);
+                if (Double.isNaN(exact)) {
+                    continue;
+                }
+                assertEquals(exact, evaluate(table, a, b), tolerance / 4, "at (" + a + ", " + b + ")");
+                if (Math.abs(exact - evaluate(interpolated, a, b)) > tolerance / 4) {
+                    missed++;
+                }
+            }
+        }
+        assertTrue(missed > 0, "no cell of the test surface misses the tolerance");
+        assertEquals(0, interpolated.getExactCellCount());
+        assertTrue(table.getExactCellCount() >= missed);
+    }
+
+    @Test
+    void resamplesTruncatedOrEmptyFiles() throws IOException {
+        Path file = Files.createTempFile("surface", ".lut");
+        try {
+            build(42L, 1, file, 0);
+            long size = Files.size(file);
+
+            for (long truncated : new long[]{size - 1, 30, 0}) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(truncated);
+                }
+                EfficiencySurfaceTable table = build(42L, 1, file, 0);
+                assertMatchesModel(table, 2.5, 2, 1.0);
+                assertEquals(size, Files.size(file), "file rewritten after truncation to " + truncated);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void assertMatchesModel(FuzzyEngine table, double a, double b, double tolerance) {
+        double exact = evaluate(model, a, b);
+        double actual = evaluate(table, a, b);
+        if (Double.isNaN(exact)) {
+            assertTrue(Double.isNaN(actual), "expected no rule to fire at (" + a + ", " + b + ")");
+        } else {
+            assertEquals(exact, actual, tolerance, "at (" + a + ", " + b + ")");
+        }
+    }
+
+    private EfficiencySurfaceTable build(long fingerprint, int subdivisions, Path file, int validationSamples) {
+        return EfficiencySurfaceTable.build(model, fingerprint, subdivisions, file, validationSamples,
+        INTERPOLATE_EVERYWHERE);
+    }
+
+    private double evaluate(FuzzyEngine engine, double a, double b) {
+        workspace.setInput(model.getInputIndex("a"), a);
+        workspace.setInput(model.getInputIndex("b"), b);
+        return engine.evaluate(workspace);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.fuzzymachineefficiency.fuzzy;
+
+import net.sourceforge.jFuzzyLogic.FIS;
+import net.sourceforge.jFuzzyLogic.FunctionBlock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyModelTest {
+
+    private static final double TOLERANCE = 1e-6;
+
+    private static final double[] UNIVERSE_MAX = {5000, 100, 365, 1440, 1000};
+
+    private String fcl;
+    private FuzzyModel model;
+    private FunctionBlock reference;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("machineefficiency.fcl")) {
+            fcl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        model = FclParser.parse(fcl);
+        reference = FIS.createFromString(fcl, false).getFunctionBlock(null);
+    }
+
+    @Test
+    void matchesJFuzzyLogicOnRandomInputs() {
+        Random random = new Random(42);
+        FuzzyWorkspace workspace = model.newWorkspace();
+
+        for (int n = 0; n < 5000; n++) {
+            double[] inputs = new double[UNIVERSE_MAX.length];
+            for (int i = 0; i < inputs.length; i++) {
+                // Bias half of the samples towards the lower part of each universe, where most terms live.
+                double span = random.nextBoolean() ? UNIVERSE_MAX[i] : UNIVERSE_MAX[i] / 10;
+                inputs[i] = random.nextDouble() * span;
+            }
+            assertMatchesReference(workspace, inputs);
+        }
+    }
+
+    @Test
+    void matchesJFuzzyLogicOnTermBreakpoints() {
+        FuzzyWorkspace workspace = model.newWorkspace();
+
+        assertMatchesReference(workspace, new double[]{0, 0, 0, 0, 0});
+        assertMatchesReference(workspace, new double[]{3500, 3, 90, 45, 50});
+        assertMatchesReference(workspace, new double[]{2000, 6, 45, 90, 50});
+        assertMatchesReference(workspace, new double[]{4500, 1, 180, 15, 20});
+        assertMatchesReference(workspace, new double[]{400, 20, 5, 300, 140});
+        assertMatchesReference(workspace, new double[]{9000, 150, 500, 2000, 1500});
+    }
+
+    @Test
+    void clearsRulesThatStopFiring() {
+        FuzzyWorkspace workspace = model.newWorkspace();
+
+        assertMatchesReference(workspace, new double[]{400, 20, 5, 300, 140});
+        assertTrue(workspace.getActiveRuleCount() > 0);
+
+        assertMatchesReference(workspace, new double[]{2000, 12, 60, 200, 90});
+        assertEquals(0, workspace.getActiveRuleCount());
+        for (int rule = 0; rule < model.getRuleCount(); rule++) {
+            assertEquals(0.0, workspace.getRuleStrength(rule));
+        }
+    }
+
+    @Test
+    void sessionMatchesFullEvaluationWhileInputsChangeOneAtATime() {
+        Random random = new Random(7);
+        int[] order = {0, 1, 2, 3, 4};
+        double[] inputs = new double[UNIVERSE_MAX.length];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = random.nextDouble() * UNIVERSE_MAX[i] / 10;
+        }
+        EvaluationSession session = new EvaluationSession(model, model, order, inputs);
+        FuzzyWorkspace workspace = model.newWorkspace();
+
+        for (int n = 0; n < 20000; n++) {
+            int input = random.nextInt(inputs.length);
+            double span = random.nextBoolean() ? UNIVERSE_MAX[input] : UNIVERSE_MAX[input] / 10;
+            inputs[input] = random.nextInt(4) == 0 ? inputs[input] : random.nextDouble() * span;
+            session.set(input, inputs[input]);
+            for (int i = 0; i < inputs.length; i++) {
+                workspace.setInput(i, inputs[i]);
+            }
+
+            assertEquals(withDefault(model.evaluate(workspace)), withDefault(session.evaluate()), 0.0,
+            () -> "inputs " + Arrays.toString(inputs));
+        }
+        assertTrue(session.getDefuzzifications() < session.getEvaluations());
+    }
+
+    @Test
+    void rejectsUnsupportedOperators() {
+        String productActivation = fcl.replace("ACT : MIN;", "ACT : PROD;");
+
+        assertThrows(IllegalArgumentException.class, () -> FclParser.parse(productActivation));
+    }
+
+    private void assertMatchesReference(FuzzyWorkspace workspace, double[] inputs) {
+        for (int i = 0; i < inputs.length; i++) {
+            workspace.setInput(i, inputs[i]);
+            reference.setVariable(model.getInputName(i), inputs[i]);
+        }
+        reference.evaluate();
+
+        double expected = withDefault(reference.getVariable(model.getOutputName()).getValue());
+        double actual = withDefault(model.evaluate(workspace));
+
+        assertEquals(expected, actual, TOLERANCE, () -> "inputs " + Arrays.toString(inputs));
+    }
+
+    private double withDefault(double score) {
+        return Double.isNaN(score) ? model.getDefaultValue() : score;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.fuzzymachineefficiency.index;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MachineCapacityIndexTest {
+
+    // most output minus energy; the bound takes the best corner of the box
+    private static final MachineCapacityIndex.Objective NET_OUTPUT = new MachineCapacityIndex.Objective() {
+        @Override
+        public double score(MachineCapacityIndex.Point point) {
+            return point.effectiveProduction() - point.energyConsumption();
+        }
+
+        @Override
+        public double upperBound(MachineCapacityIndex.Box box) {
+            return box.maxEffectiveProduction() - box.minEnergyConsumption();
+        }
+    };
+
+    private static final Comparator<MachineCapacityIndex.Hit> HIT_ORDER = Comparator
+    .comparingDouble(MachineCapacityIndex.Hit::value).reversed()
+    .thenComparing(Comparator.comparingDouble(MachineCapacityIndex.Hit::efficiencyScore).reversed())
+    .thenComparingLong(MachineCapacityIndex.Hit::machineId);
+
+    private MachineCapacityIndex index;
+
+    @AfterEach
+    void tearDown() {
+        if (index != null) {
+            index.shutdown();
+        }
+    }
+
+    @Test
+    void matchesALinearScanWhileChangesAreMerged() throws InterruptedException {
+        Random random = new Random(18);
+        Map<Long, Machine> machines = new HashMap<>();
+        for (long id = 1; id <= 3000; id++) {
+            machines.put(id, randomMachine(random, id));
+        }
+        index = new MachineCapacityIndex(repository(machines), null);
+        index.rebuild();
+
+        // ids beyond the initial fleet push the change count past the full-merge threshold
+        for (int round = 0; round < 40_000; round++) {
+            long id = 1 + random.nextInt(8000);
+            int action = random.nextInt(20);
+            if (action == 0) {
+                machines.remove(id);
+                index.onMachineDeleted(new MachineDeletedEvent(id));
+            } else if (action == 1) {
+                List<Machine> batch = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    Machine machine = randomMachine(random, 1 + random.nextInt(8000));
+                    machines.put(machine.getId(), machine);
+                    batch.add(machine);
+                }
+                index.onMachinesSaved(new MachinesSavedEvent(batch));
+            } else {
+                Machine machine = randomMachine(random, id);
+                machines.put(id, machine);
+                index.onMachineSaved(new MachineSavedEvent(machine));
+            }
+
+            if (round % 500 == 0) {
+                int limit = 1 + random.nextInt(60);
+                assertEquals(linearScan(machines, limit), index.top(NET_OUTPUT, limit).hits(), "round " + round);
+            }
+            if (round % 5000 == 0) {
+                // let a pending merge land so queries also run against merged trees
+                Thread.sleep(50);
+            }
+        }
+
+        Thread.sleep(200);
+        for (int limit : new int[]{1, 10, 200, 20_000}) {
+            assertEquals(linearScan(machines, limit), index.top(NET_OUTPUT, limit).hits());
+        }
+    }
+
+    @Test
+    void rebuildKeepsChangesMadeWhileScanning() {
+        Random random = new Random(3);
+        Map<Long, Machine> machines = new HashMap<>();
+        for (long id = 1; id <= 5; id++) {
+            machines.put(id, randomMachine(random, id));
+        }
+        Machine added = randomMachine(random, 9);
+        MachineRepository table = repository(Map.copyOf(machines));
+        MachineRepository repository = mock(MachineRepository.class);
+        when(repository.findExportRowsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            // the events arrive before the page they change is returned
+            index.onMachineSaved(new MachineSavedEvent(added));
+            index.onMachineDeleted(new MachineDeletedEvent(2L));
+            return table.findExportRowsAfter(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        index = new MachineCapacityIndex(repository, null);
+
+        index.rebuild();
+
+        machines.put(9L, added);
+        machines.remove(2L);
+        assertEquals(linearScan(machines, 10), index.top(NET_OUTPUT, 10).hits());
+    }
+
+    private static List<MachineCapacityIndex.Hit> linearScan(Map<Long, Machine> machines, int limit) {
+        return machines.values().stream()
+        .map(machine -> {
+            double effective = machine.getDailyProduction() * (1 - machine.getErrorMargin() / 100);
+            return new MachineCapacityIndex.Hit(machine.getId(), effective - machine.getEnergyConsumption(),
+            machine.getEfficiencyScore());
+        })
+        .sorted(HIT_ORDER)
+        .limit(limit)
+        .toList();
+    }
+
+    private static MachineRepository repository(Map<Long, Machine> machines) {
+        MachineRepository repository = mock(MachineRepository.class);
+        when(repository.findExportRowsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            return machines.values().stream()
+            .filter(machine -> machine.getId() > afterId)
+            .sorted(Comparator.comparing(Machine::getId))
+            .map(machine -> new MachineExportRow(machine.getId(), machine.getName(),
+            machine.getDailyProduction(), machine.getErrorMargin(), machine.getMaintenanceInterval(),
+            machine.getStandbyTime(), machine.getEnergyConsumption(), machine.getEfficiencyScore()))
+            .toList();
+        });
+        return repository;
+    }
+
+    // coarse values so that equal objective values and scores are common
+    private static Machine randomMachine(Random random, long id) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setName("Makine " + id);
+        machine.setDailyProduction((double) (10 * random.nextInt(50)));
+        machine.setErrorMargin((double) (10 * random.nextInt(3)));
+        machine.setMaintenanceInterval(30.0);
+        machine.setStandbyTime(2.0);
+        machine.setEnergyConsumption((double) (10 * random.nextInt(30)));
+        machine.setEfficiencyScore((double) random.nextInt(5));
+        return machine;
+    }
+}
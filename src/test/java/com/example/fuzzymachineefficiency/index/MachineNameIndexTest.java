@@ -0,0 +1,205 @@
+package com.example.fuzzymachineefficiency.index;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MachineNameIndexTest {
+
+    private MachineNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MachineNameIndex(null);
+    }
+
+    @Test
+    void foldsTurkishDottedAndDotlessI() {
+        assertEquals("iiii", MachineNameIndex.fold("İıIi"));
+        assertEquals("istanbul", MachineNameIndex.fold("İSTANBUL"));
+        assertEquals("ışık".length(), MachineNameIndex.fold("IŞIK").length());
+
+        save(1, "İSTANBUL Pres");
+        save(2, "Işık Kesim");
+        save(3, "ızgara hattı");
+        save(4, "Freze");
+
+        // all three are prefix matches, so the shorter folded name wins
+        for (String query : new String[]{"i", "I", "İ", "ı"}) {
+            assertEquals(List.of(2L, 3L, 1L), index.search(query, 10), query);
+        }
+        assertEquals(List.of(1L), index.search("istanbul", 10));
+        assertEquals(List.of(1L), index.search("ıstanbul", 10));
+        assertEquals(List.of(2L), index.search("IŞIK", 10));
+        assertEquals(List.of(3L), index.search("hattİ", 10));
+    }
+
+    @Test
+    void ranksExactThenPrefixThenWordStartThenInner() {
+        save(10, "Torna Merkezi");
+        save(11, "Pres");
+        save(12, "Hidrolik Pres");
+        save(13, "Presleme Hattı");
+        save(14, "Kompresör");
+        save(15, "Preshane");
+
+        assertEquals(List.of(11L, 15L, 13L, 12L, 14L), index.search("pres", 10));
+        assertEquals(List.of(11L, 15L), index.search("pres", 2));
+    }
+
+    @Test
+    void breaksTiesByPositionThenLengthThenId() {
+        save(7, "ab pres");
+        save(3, "abc pres");
+        save(5, "x pres");
+        save(4, "x pres");
+
+        // all match at a word start: earlier position first, then shorter name, then lower id
+        assertEquals(List.of(4L, 5L, 7L, 3L), index.search("pres", 10));
+    }
+
+    @Test
+    void findsInnerMatchesOfShortQueries() {
+        save(1, "Kaynak");
+        save(2, "Pres");
+        save(3, "Ayna");
+        save(4, "Boya Ünitesi");
+
+        assertEquals(List.of(3L, 1L), index.search("ay", 10));
+        assertEquals(List.of(3L, 1L, 4L), index.search("a", 10));
+        assertEquals(List.of(4L), index.search("ü", 10));
+        assertEquals(List.of(), index.search("zq", 10));
+    }
+
+    @Test
+    void forgetsRenamedAndDeletedMachines() {
+        save(1, "Pres A");
+        save(2, "Pres B");
+        save(1, "Torna");
+        index.onMachineDeleted(new MachineDeletedEvent(2L));
+
+        assertEquals(List.of(), index.search("pres", 10));
+        assertEquals(List.of(), index.search("p", 10));
+        assertEquals(List.of(1L), index.search("to", 10));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomNames() {
+        Random random = new Random(5);
+        String alphabet = "abıİ -";
+        Map<Long, String> names = new HashMap<>();
+        for (int round = 0; round < 3000; round++) {
+            long id = random.nextInt(400);
+            if (random.nextInt(10) == 0) {
+                names.remove(id);
+                index.onMachineDeleted(new MachineDeletedEvent(id));
+            } else {
+                String name = randomString(random, alphabet, 1 + random.nextInt(8));
+                names.put(id, name);
+                save(id, name);
+            }
+        }
+
+        for (int q = 0; q < 300; q++) {
+            String query = randomString(random, alphabet.replace(" ", ""), 1 + random.nextInt(4));
+            int limit = 1 + random.nextInt(20);
+            assertEquals(bruteForce(names, query, limit), index.search(query, limit), query);
+        }
+    }
+
+    @Test
+    void rebuildKeepsChangesMadeWhileScanning() {
+        List<MachineExportRow> rows = List.of(row(1, "Pres"), row(2, "Torna"), row(3, "Freze"));
+        MachineRepository repository = mock(MachineRepository.class);
+        when(repository.findExportRowsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            // machine 4 is added and machine 2 removed between reading the rows and returning them
+            index.onMachineSaved(new MachineSavedEvent(machine(4, "Pres Hattı")));
+            index.onMachineDeleted(new MachineDeletedEvent(2L));
+            long afterId = invocation.getArgument(0);
+            return rows.stream().filter(row -> row.getId() > afterId).toList();
+        });
+        index = new MachineNameIndex(repository);
+        save(9, "Eski Pres");
+
+        index.rebuild();
+
+        assertEquals(List.of(1L, 4L), index.search("pres", 10));
+        assertEquals(List.of(), index.search("torna", 10));
+        assertEquals(List.of(3L), index.search("fr", 10));
+    }
+
+    @Test
+    void appliesBulkSaves() {
+        index.onMachinesSaved(new MachinesSavedEvent(List.of(machine(1, "Pres"), machine(2, "Pres Hattı"))));
+
+        assertEquals(List.of(1L, 2L), index.search("pr", 10));
+    }
+
+    private List<Long> bruteForce(Map<Long, String> names, String query, int limit) {
+        String folded = MachineNameIndex.fold(query);
+        List<long[]> hits = new ArrayList<>();
+        names.forEach((id, name) -> {
+            String foldedName = MachineNameIndex.fold(name);
+            int position = foldedName.indexOf(folded);
+            if (position < 0) {
+                return;
+            }
+            int rank = position == 0 ? (foldedName.length() == folded.length() ? 0 : 1) : 3;
+            if (rank == 3) {
+                for (int p = position; p >= 0; p = foldedName.indexOf(folded, p + 1)) {
+                    if (!Character.isLetterOrDigit(foldedName.charAt(p - 1))) {
+                        rank = 2;
+                        position = p;
+                        break;
+                    }
+                }
+            }
+            hits.add(new long[]{rank, position, foldedName.length(), id});
+        });
+        hits.sort(Comparator.<long[]>comparingLong(hit -> hit[0]).thenComparingLong(hit -> hit[1])
+        .thenComparingLong(hit -> hit[2]).thenComparingLong(hit -> hit[3]));
+        return hits.stream().limit(limit).map(hit -> hit[3]).toList();
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private void save(long id, String name) {
+        index.onMachineSaved(new MachineSavedEvent(machine(id, name)));
+    }
+
+    private static Machine machine(long id, String name) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setName(name);
+        return machine;
+    }
+
+    private static MachineExportRow row(long id, String name) {
+        return new MachineExportRow(id, name, null, null, null, null, null, null);
+    }
+}
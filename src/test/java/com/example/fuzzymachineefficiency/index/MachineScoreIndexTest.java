@@ -0,0 +1,202 @@
+package com.example.fuzzymachineefficiency.index;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MachineScoreIndexTest {
+
+    private static final long MAX_ID = (1L << 40) - 1;
+
+    private final Map<Long, Machine> table = new TreeMap<>();
+    private MachineScoreIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MachineScoreIndex(null);
+    }
+
+    @Test
+    void matchesALinearScanForRandomRangesAndPages() {
+        Random random = new Random(12);
+        for (int round = 0; round < 3000; round++) {
+            // ids at both ends of the 40 id bits, so the id never spills into the score part of the key
+            long id = random.nextBoolean() ? 1 + random.nextInt(300) : MAX_ID - random.nextInt(300);
+            if (random.nextInt(8) == 0) {
+                table.remove(id);
+                index.onMachineDeleted(new MachineDeletedEvent(id));
+            } else {
+                save(machine(id, randomScore(random), (double) random.nextInt(1000)));
+            }
+        }
+
+        for (int q = 0; q < 500; q++) {
+            Double minScore = random.nextInt(4) == 0 ? null : randomBound(random);
+            Double maxScore = random.nextInt(4) == 0 ? null : randomBound(random);
+            double energyLimit = random.nextInt(1000);
+            Predicate<MachineScoreIndex.Facts> filter = random.nextBoolean() ? null
+            : facts -> facts.energyConsumption() < energyLimit;
+            List<Long> expected = linearScan(minScore, maxScore, filter);
+            String query = minScore + ".." + maxScore + (filter != null ? " energy < " + energyLimit : "");
+
+            assertEquals(expected, index.find(minScore, maxScore, filter, 0, Integer.MAX_VALUE), query);
+
+            int limit = 1 + random.nextInt(40);
+            List<Long> paged = new ArrayList<>();
+            for (long offset = 0; offset <= expected.size(); offset += limit) {
+                List<Long> page = index.find(minScore, maxScore, filter, offset, limit);
+                assertEquals(expected.subList((int) offset, (int) Math.min(expected.size(), offset + limit)), page, query);
+                paged.addAll(page);
+            }
+            assertEquals(expected, paged, query);
+        }
+    }
+
+    @Test
+    void roundsScoresToCentsAndBoundsInward() {
+        save(machine(1, 49.994, 0.0));
+        save(machine(2, 49.995, 0.0));
+        save(machine(3, 50.0, 0.0));
+        save(machine(4, -0.004, 0.0));
+        save(machine(5, null, 0.0));
+        save(machine(MAX_ID, 50.0, 0.0));
+
+        assertEquals(List.of(5L, 4L, 1L, 2L, 3L, MAX_ID), index.find(null, null, null, 0, 10));
+        // 49.995 is stored as 50.00; a bound of 49.999 only admits whole cents from 50.00 up
+        assertEquals(List.of(2L, 3L, MAX_ID), index.find(49.999, null, null, 0, 10));
+        assertEquals(List.of(4L, 1L), index.find(null, 49.999, null, 0, 10));
+        assertEquals(List.of(4L), index.find(-0.001, 0.001, null, 0, 10));
+        assertEquals(List.of(), index.find(50.001, 50.009, null, 0, 10));
+        assertEquals(List.of(3L, MAX_ID), index.find(null, null, null, 4, 10));
+        assertEquals(List.of(), index.find(null, null, null, 0, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> save(machine(MAX_ID + 1, 50.0, 0.0)));
+        assertThrows(IllegalArgumentException.class, () -> save(machine(-1, 50.0, 0.0)));
+    }
+
+    @Test
+    void rebuildKeepsChangesMadeWhileScanning() {
+        Random random = new Random(13);
+        for (long id = 1; id <= 2500; id++) {
+            table.put(id, machine(id, randomScore(random), (double) random.nextInt(1000)));
+        }
+        List<Integer> pagesRead = new ArrayList<>();
+        MachineRepository repository = mock(MachineRepository.class);
+        when(repository.findExportRowsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            List<MachineExportRow> rows = table.values().stream().filter(machine -> machine.getId() > afterId)
+            .limit(pageable.getPageSize()).map(MachineScoreIndexTest::row).toList();
+            pagesRead.add(rows.size());
+            if (pagesRead.size() == 1) {
+                // machine 5 was read with its old score; machine 1800 is deleted before its page is read
+                save(machine(5, 99.99, 0.0));
+                delete(6);
+                delete(1800);
+                saveAll(machine(2600, 0.01, 0.0), machine(1900, null, 0.0));
+            }
+            return rows;
+        });
+        index = new MachineScoreIndex(repository);
+        // known only to the old index; gone from the table without an event
+        index.onMachineSaved(new MachineSavedEvent(machine(9999, 50.0, 0.0)));
+
+        index.rebuild();
+
+        assertEquals(List.of(1000, 1000, 500), pagesRead);
+        assertEquals(table.size(), index.size());
+        assertEquals(linearScan(null, null, null), index.find(null, null, null, 0, Integer.MAX_VALUE));
+        assertEquals(List.of(5L), index.find(99.99, null, null, 0, 10));
+    }
+
+    private List<Long> linearScan(Double minScore, Double maxScore, Predicate<MachineScoreIndex.Facts> filter) {
+        BigDecimal min = minScore != null ? BigDecimal.valueOf(minScore) : null;
+        BigDecimal max = maxScore != null ? BigDecimal.valueOf(maxScore) : null;
+        return table.values().stream()
+        .filter(machine -> filter == null || filter.test(facts(machine)))
+        .filter(machine -> {
+            if (machine.getEfficiencyScore() == null) {
+                return min == null && max == null;
+            }
+            BigDecimal score = rounded(machine);
+            return (min == null || score.compareTo(min) >= 0) && (max == null || score.compareTo(max) <= 0);
+        })
+        .sorted(Comparator.<Machine, BigDecimal>comparing(machine -> machine.getEfficiencyScore() != null
+        ? rounded(machine) : BigDecimal.valueOf(Long.MIN_VALUE)).thenComparing(Machine::getId))
+        .map(Machine::getId)
+        .toList();
+    }
+
+    private static BigDecimal rounded(Machine machine) {
+        return BigDecimal.valueOf(machine.getEfficiencyScore()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // a narrow range with three decimals, so equal cents and bounds between cents are common
+    private static Double randomScore(Random random) {
+        return random.nextInt(10) == 0 ? null : (random.nextInt(20_000) - 5_000) / 1000.0;
+    }
+
+    private static Double randomBound(Random random) {
+        return (random.nextInt(22_000) - 6_000) / 1000.0;
+    }
+
+    private void save(Machine machine) {
+        table.put(machine.getId(), machine);
+        index.onMachineSaved(new MachineSavedEvent(machine));
+    }
+
+    private void saveAll(Machine... machines) {
+        for (Machine machine : machines) {
+            table.put(machine.getId(), machine);
+        }
+        index.onMachinesSaved(new MachinesSavedEvent(List.of(machines)));
+    }
+
+    private void delete(long id) {
+        table.remove(id);
+        index.onMachineDeleted(new MachineDeletedEvent(id));
+    }
+
+    private static MachineScoreIndex.Facts facts(Machine machine) {
+        return new MachineScoreIndex.Facts(machine.getId(), machine.getEfficiencyScore(), machine.getDailyProduction(),
+        machine.getEnergyConsumption());
+    }
+
+    private static Machine machine(long id, Double score, Double energyConsumption) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setEfficiencyScore(score);
+        machine.setDailyProduction(100.0);
+        machine.setEnergyConsumption(energyConsumption);
+        return machine;
+    }
+
+    private static MachineExportRow row(Machine machine) {
+        return new MachineExportRow(machine.getId(), machine.getName(), machine.getDailyProduction(), machine.getErrorMargin(),
+        machine.getMaintenanceInterval(), machine.getStandbyTime(), machine.getEnergyConsumption(),
+        machine.getEfficiencyScore());
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.MachineDataRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchScoringServiceTest {
+
+    private static final int CHUNK_SIZE = 7;
+    private static final int MAX_CHUNKS_IN_FLIGHT = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FuzzyService fuzzyService;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        fuzzyService = new FuzzyService("native", 1, "", 1000, 1, 0, false, new SimpleMeterRegistry());
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void writesResultsInInputOrderWhenChunksFinishOutOfOrder() throws Exception {
+        Random random = new Random(5);
+        List<MachineDataRequest> requests = new ArrayList<>();
+        StringBuilder ndjson = new StringBuilder("\uFEFF");
+        for (int i = 0; i < 100; i++) {
+            MachineDataRequest request = request(random.nextDouble() * 1000, random.nextDouble() * 10,
+            random.nextDouble() * 100, random.nextDouble() * 24, random.nextDouble() * 500);
+            requests.add(request);
+            ndjson.append(objectMapper.writeValueAsString(request)).append('\n');
+            if (i % 10 == 0) {
+                ndjson.append("\n");
+            }
+        }
+        // within every four chunks the last one finishes first
+        ExecutorService executor = mock(ExecutorService.class);
+        AtomicInteger submitted = new AtomicInteger();
+        when(executor.submit(any(Callable.class))).thenAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            long delay = 10L * (3 - submitted.getAndIncrement() % 4);
+            return pool.submit(() -> {
+                Thread.sleep(delay);
+                return task.call();
+            });
+        });
+
+        List<JsonNode> results = score(service(executor), ndjson.toString(), false);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(objectMapper.valueToTree(fuzzyService.calculate(requests.get(i))), results.get(i), "satır " + (i + 1));
+        }
+    }
+
+    @Test
+    void holdsAtMostMaxChunksInFlight() throws Exception {
+        StringBuilder csv = new StringBuilder("dailyProduction,errorMargin,maintenanceInterval,standbyTime,energyConsumption\n");
+        for (int i = 0; i < CHUNK_SIZE * 10; i++) {
+            csv.append(500 + i).append(",2,30,4,").append(100 + i).append('\n');
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+        ExecutorService executor = mock(ExecutorService.class);
+        when(executor.submit(any(Callable.class))).thenAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            mostInFlight.accumulateAndGet(submitted.incrementAndGet() - written.get(), Math::max);
+            return pool.submit(() -> {
+                release.await();
+                return task.call();
+            });
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] bytes, int offset, int length) {
+                written.incrementAndGet();
+                super.write(bytes, offset, length);
+            }
+        };
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                service(executor).scoreStream(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), true, out);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+
+        // with every chunk held back, reading stops once the cap is reached
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (submitted.get() < MAX_CHUNKS_IN_FLIGHT && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(200);
+        assertEquals(MAX_CHUNKS_IN_FLIGHT, submitted.get());
+        assertTrue(reader.isAlive());
+
+        release.countDown();
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(reader.isAlive());
+        assertNull(failure.get());
+        assertEquals(10, submitted.get());
+        assertEquals(10, written.get());
+        assertEquals(MAX_CHUNKS_IN_FLIGHT, mostInFlight.get());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(CHUNK_SIZE * 10, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode expected = objectMapper.valueToTree(fuzzyService.calculate(request(500 + i, 2, 30, 4, 100 + i)));
+            assertEquals(expected, objectMapper.readTree(lines[i]), "satır " + (i + 1));
+        }
+    }
+
+    @Test
+    void reportsEachBadCsvRowOnItsOwnLine() throws Exception {
+        String csv = """
+        id,energyConsumption,standbyTime,maintenanceInterval,errorMargin,dailyProduction
+        1,120,4,30,2,"1,5e2"
+        2,120,4,30,2,650
+        3,120,NaN,30,2,650
+        4,120,4,Infinity,2,650
+        5,120,4,-Infinity,2,650
+        6,120,4,30,2,abc
+        7,120,4
+
+        8,"1""20",4,30,2,650
+        9,120,4,30,2,700
+        """;
+
+        List<JsonNode> results = score(service(pool), csv, true);
+
+        assertEquals(9, results.size());
+        assertError(results.get(0), 1, "Geçersiz sayı '1,5e2': dailyproduction");
+        assertEquals(objectMapper.valueToTree(fuzzyService.calculate(request(650, 2, 30, 4, 120))), results.get(1));
+        assertError(results.get(2), 3, "Geçersiz sayı 'NaN': standbytime");
+        assertError(results.get(3), 4, "Geçersiz sayı 'Infinity': maintenanceinterval");
+        assertError(results.get(4), 5, "Geçersiz sayı '-Infinity': maintenanceinterval");
+        assertError(results.get(5), 6, "Geçersiz sayı 'abc': dailyproduction");
+        assertError(results.get(6), 7, "Eksik sütun: dailyproduction (3 alan bulundu)");
+        assertError(results.get(7), 8, "Geçersiz sayı '1\"20': energyconsumption");
+        assertEquals(objectMapper.valueToTree(fuzzyService.calculate(request(700, 2, 30, 4, 120))), results.get(8));
+    }
+
+    @Test
+    void reportsEachBadNdjsonRowOnItsOwnLine() throws Exception {
+        String ndjson = """
+        {"dailyProduction":650,"errorMargin":2,"maintenanceInterval":30,"standbyTime":4,"energyConsumption":120}
+        {"dailyProduction":"NaN","errorMargin":2,"maintenanceInterval":30,"standbyTime":4,"energyConsumption":120}
+        {"dailyProduction":650,"errorMargin":2,"maintenanceInterval":30,"standbyTime":4,"energyConsumption":"-Infinity"}
+        {"dailyProduction":650,"errorMargin":
+        {"dailyProduction":700,"errorMargin":2,"maintenanceInterval":30,"standbyTime":4,"energyConsumption":120}
+        """;
+
+        List<JsonNode> results = score(service(pool), ndjson, false);
+
+        assertEquals(5, results.size());
+        assertEquals(objectMapper.valueToTree(fuzzyService.calculate(request(650, 2, 30, 4, 120))), results.get(0));
+        assertError(results.get(1), 2, "Geçersiz sayı 'NaN': dailyproduction");
+        assertError(results.get(2), 3, "Geçersiz sayı '-Infinity': energyconsumption");
+        assertEquals(4, results.get(3).get("row").asLong());
+        assertFalse(results.get(3).get("error").asText().isEmpty());
+        assertEquals(objectMapper.valueToTree(fuzzyService.calculate(request(700, 2, 30, 4, 120))), results.get(4));
+    }
+
+    private BatchScoringService service(ExecutorService executor) {
+        return new BatchScoringService(fuzzyService, executor, objectMapper, CHUNK_SIZE, MAX_CHUNKS_IN_FLIGHT);
+    }
+
+    private List<JsonNode> score(BatchScoringService service, String input, boolean csv) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.scoreStream(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), csv, out);
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readTree(line));
+        }
+        return results;
+    }
+
+    private static void assertError(JsonNode result, long row, String message) {
+        assertEquals(row, result.get("row").asLong());
+        assertEquals(message, result.get("error").asText());
+    }
+
+    private static MachineDataRequest request(double dailyProduction, double errorMargin, double maintenanceInterval,
+                                              double standbyTime, double energyConsumption) {
+        MachineDataRequest request = new MachineDataRequest();
+        request.setDailyProduction(dailyProduction);
+        request.setErrorMargin(errorMargin);
+        request.setMaintenanceInterval(maintenanceInterval);
+        request.setStandbyTime(standbyTime);
+        request.setEnergyConsumption(energyConsumption);
+        return request;
+    }
+}
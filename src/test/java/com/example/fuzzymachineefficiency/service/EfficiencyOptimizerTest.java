@@ -0,0 +1,167 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.OptimizationSuggestion;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EfficiencyOptimizerTest {
+
+    private static final List<String> PARAMETERS = List.of(
+        "dailyProduction", "errorMargin", "maintenanceInterval", "standbyTime", "energyConsumption");
+    // per lever: lowest factor, highest factor, floor, ceiling; a factor of 1 is a direction it never moves in
+    private static final double[][] BOXES = {
+        {1.0, 1.25, 0, 5000},
+        {0.4, 1.0, 2, 100},
+        {0.5, 1.5, 15, 180},
+        {0.4, 1.0, 30, 1440},
+        {0.7, 1.0, 60, 1000}
+    };
+
+    private FuzzyService fuzzyService;
+
+    @BeforeEach
+    void setUp() {
+        fuzzyService = new FuzzyService("native", 1, "", 1000, 1, 0, false, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void latticeKeyGivesEveryLeverItsOwnTwelveBits() {
+        Random random = new Random(17);
+        for (int round = 0; round < 10_000; round++) {
+            int[] steps = new int[5];
+            for (int d = 0; d < steps.length; d++) {
+                steps[d] = round == 0 ? -1024 : round == 1 ? 1024 : random.nextInt(2049) - 1024;
+            }
+            long key = EfficiencyOptimizer.latticeKey(steps);
+            assertTrue(key >= 0 && key < 1L << 60);
+            for (int d = 0; d < steps.length; d++) {
+                assertEquals(steps[d], (int) (key >>> 12 * (4 - d) & 0xFFF) - 1024);
+            }
+        }
+        assertEquals(0L, EfficiencyOptimizer.latticeKey(new int[]{-1024, -1024, -1024, -1024, -1024}));
+        assertNotEquals(EfficiencyOptimizer.latticeKey(new int[]{0, 0, 0, 1, 0}),
+        EfficiencyOptimizer.latticeKey(new int[]{0, 0, 0, 0, 1}));
+    }
+
+    @Test
+    void dropsLeversThatAddNothingNextToTheOthers() {
+        // levers 0 and 1 saturate each other, lever 2 adds on its own, lever 3 adds nothing
+        ToDoubleFunction<int[]> saturating = steps -> 10 * Math.min(1, used(steps, 0) + used(steps, 1))
+        + 5 * used(steps, 2);
+        assertArrayEquals(new int[]{0, 5, 2, 0, 0},
+        EfficiencyOptimizer.dropRedundantLevers(new int[]{3, 5, 2, -1, 0}, saturating));
+
+        // lever 3 costs score that lever 0 wins back; once lever 3 is dropped, lever 0 has nothing left to add
+        ToDoubleFunction<int[]> compensating = steps -> 10 - 5 * used(steps, 3) * (1 - used(steps, 0));
+        assertArrayEquals(new int[]{0, 0, 0, 0, 0},
+        EfficiencyOptimizer.dropRedundantLevers(new int[]{4, 0, 0, 7, 0}, compensating));
+
+        ToDoubleFunction<int[]> additive = steps -> used(steps, 0) + used(steps, 4);
+        assertArrayEquals(new int[]{-2, 0, 0, 0, 9},
+        EfficiencyOptimizer.dropRedundantLevers(new int[]{-2, 0, 0, 0, 9}, additive));
+    }
+
+    @Test
+    void everySuggestionGainsAndStaysInsideItsBox() {
+        EfficiencyOptimizer optimizer = new EfficiencyOptimizer(fuzzyService, 100_000, Duration.ofSeconds(10));
+        Random random = new Random(18);
+        int suggestions = 0;
+        for (int round = 0; round < 150; round++) {
+            // three decimals, so bounds such as 0.4 * errorMargin fall between cents
+            double[] current = {
+                round(50 + random.nextDouble() * 4500), round(random.nextDouble() * 30),
+                round(5 + random.nextDouble() * 200), round(random.nextDouble() * 600),
+                round(20 + random.nextDouble() * 900)
+            };
+            EfficiencyOptimizer.Result result = optimizer.optimize(machine(current));
+            assertTrue(result.converged());
+
+            double[] suggested = current.clone();
+            for (OptimizationSuggestion suggestion : result.suggestions()) {
+                int d = PARAMETERS.indexOf(suggestion.getParameter());
+                double[] box = BOXES[d];
+                double lower = Math.min(current[d], Math.max(box[2], current[d] * box[0]));
+                double upper = Math.max(current[d], Math.min(box[3], current[d] * box[1]));
+                String where = suggestion.getParameter() + " " + current[d] + " -> " + suggestion.getSuggestedValue();
+
+                assertEquals(current[d], suggestion.getCurrentValue());
+                assertTrue(suggestion.getSuggestedValue() != current[d], where);
+                assertTrue(suggestion.getSuggestedValue() >= lower && suggestion.getSuggestedValue() <= upper, where);
+                assertTrue(suggestion.getPotentialImprovementPercentage() >= 0, where);
+                suggested[d] = suggestion.getSuggestedValue();
+                suggestions++;
+            }
+            // after pruning, taking back any one suggestion loses score
+            for (OptimizationSuggestion suggestion : result.suggestions()) {
+                int d = PARAMETERS.indexOf(suggestion.getParameter());
+                double[] without = suggested.clone();
+                without[d] = current[d];
+                assertTrue(score(suggested) > score(without), suggestion.getParameter() + " in round " + round);
+            }
+        }
+        assertTrue(suggestions > 100);
+    }
+
+    @Test
+    void stopsAtTheEvaluationLimit() {
+        Machine machine = machine(new double[]{900, 12, 40, 300, 400});
+        EfficiencyOptimizer.Result unlimited = new EfficiencyOptimizer(fuzzyService, 100_000, Duration.ofSeconds(10))
+        .optimize(machine);
+        assertTrue(unlimited.converged());
+        assertTrue(unlimited.evaluations() > 50);
+
+        EfficiencyOptimizer.Result limited = new EfficiencyOptimizer(fuzzyService, 20, Duration.ofSeconds(10))
+        .optimize(machine);
+
+        assertFalse(limited.converged());
+        // the search itself stops at the limit; pruning and the per-lever gains may add two points per lever
+        assertTrue(limited.evaluations() >= 20 && limited.evaluations() <= 20 + 2 * PARAMETERS.size(),
+        String.valueOf(limited.evaluations()));
+    }
+
+    @Test
+    void stopsWhenTheTimeBudgetRunsOut() {
+        EfficiencyOptimizer.Result result = new EfficiencyOptimizer(fuzzyService, 100_000, Duration.ZERO)
+        .optimize(machine(new double[]{900, 12, 40, 300, 400}));
+
+        assertFalse(result.converged());
+        // only the current point was scored
+        assertEquals(1, result.evaluations());
+        assertTrue(result.suggestions().isEmpty());
+    }
+
+    private static int used(int[] steps, int d) {
+        return steps[d] != 0 ? 1 : 0;
+    }
+
+    private double score(double[] values) {
+        return fuzzyService.openSession(values[0], values[1], values[2], values[3], values[4]).evaluate();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    private static Machine machine(double[] values) {
+        Machine machine = new Machine();
+        machine.setDailyProduction(values[0]);
+        machine.setErrorMargin(values[1]);
+        machine.setMaintenanceInterval(values[2]);
+        machine.setStandbyTime(values[3]);
+        machine.setEnergyConsumption(values[4]);
+        return machine;
+    }
+}
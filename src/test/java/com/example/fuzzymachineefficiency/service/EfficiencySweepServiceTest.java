@@ -0,0 +1,165 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.SweepAxis;
+import com.example.fuzzymachineefficiency.dto.SweepRequest;
+import com.example.fuzzymachineefficiency.dto.SweepResponse;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EfficiencySweepServiceTest {
+
+    private static final String[] PARAMETERS = {
+        "dailyProduction", "errorMargin", "maintenanceInterval", "standbyTime", "energyConsumption"
+    };
+
+    private Machine machine;
+    private FuzzyService fuzzyService;
+    private FleetScoringExecutor executor;
+    private EfficiencySweepService service;
+
+    @BeforeEach
+    void setUp() {
+        machine = machine(new double[]{120, 4, 30, 45, 60});
+        MachineRepository repository = mock(MachineRepository.class);
+        when(repository.findById(anyLong()))
+        .thenAnswer(invocation -> machine.getId().equals(invocation.getArgument(0)) ? Optional.of(machine) : Optional.empty());
+        fuzzyService = new FuzzyService("native", 1, "", 1000, 1, 0, false, new SimpleMeterRegistry());
+        executor = new FleetScoringExecutor(2, 256);
+        service = new EfficiencySweepService(repository, fuzzyService, executor, 250_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void surfaceMatchesPointwiseScoring() {
+        Random random = new Random(22);
+        for (int round = 0; round < 30; round++) {
+            machine = machine(new double[]{
+                20 + random.nextDouble() * 300, random.nextDouble() * 30, 5 + random.nextDouble() * 90,
+                random.nextDouble() * 240, 10 + random.nextDouble() * 200
+            });
+            int x = random.nextInt(PARAMETERS.length);
+            int y = (x + 1 + random.nextInt(PARAMETERS.length - 1)) % PARAMETERS.length;
+            // wide axes, so parts of the grid leave the ranges where any rule fires
+            SweepRequest request = request(axis(x, 0.0, 3 * current(x) + 1, 2 + random.nextInt(30)),
+            axis(y, 0.0, 3 * current(y) + 1, 2 + random.nextInt(30)));
+
+            SweepResponse response = service.sweep(machine.getId(), request);
+
+            double[] inputs = currentInputs();
+            assertEquals(response.getRowValues().length, response.getScores().length);
+            for (int r = 0; r < response.getRowValues().length; r++) {
+                inputs[y] = response.getRowValues()[r];
+                assertEquals(response.getColumnValues().length, response.getScores()[r].length);
+                for (int c = 0; c < response.getColumnValues().length; c++) {
+                    inputs[x] = response.getColumnValues()[c];
+                    assertEquals(pointwise(inputs), response.getScores()[r][c],
+                    PARAMETERS[x] + "=" + inputs[x] + ", " + PARAMETERS[y] + "=" + inputs[y]);
+                }
+            }
+            assertEquals(pointwise(currentInputs()), response.getCurrentScore());
+        }
+    }
+
+    @Test
+    void curveMatchesPointwiseScoring() {
+        for (int x = 0; x < PARAMETERS.length; x++) {
+            SweepResponse response = service.sweep(machine.getId(), request(axis(x, null, null, 200)));
+
+            assertNull(response.getRowValues());
+            assertEquals(1, response.getScores().length);
+            double[] inputs = currentInputs();
+            for (int c = 0; c < response.getColumnValues().length; c++) {
+                inputs[x] = response.getColumnValues()[c];
+                assertEquals(pointwise(inputs), response.getScores()[0][c], PARAMETERS[x] + "=" + inputs[x]);
+            }
+            // the default axis runs from half to one and a half times the current value
+            assertEquals(current(x) * 0.5, response.getColumnValues()[0], 1e-9);
+            assertEquals(current(x) * 1.5, response.getColumnValues()[199], 1e-9);
+        }
+    }
+
+    @Test
+    void spacesGridValuesEvenly() {
+        SweepResponse response = service.sweep(machine.getId(), request(axis(1, 0.0, 10.0, 5)));
+
+        assertArrayEquals(new double[]{0.0, 2.5, 5.0, 7.5, 10.0}, response.getColumnValues());
+    }
+
+    @Test
+    void rejectsInvalidSweeps() {
+        Long id = machine.getId();
+
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(id, request()));
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(id, request(axis(0, null, null, 10),
+        axis(0, null, null, 10))));
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(id, request(axis(1, 5.0, 1.0, 10))));
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(id, request(axis(1, null, null, 1))));
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(id, request(axis(1, null, null, 1000),
+        axis(2, null, null, 1000))));
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(99L, request(axis(1, null, null, 10))));
+    }
+
+    // the same rounding the sweep applies to every cell
+    private double pointwise(double[] inputs) {
+        double score = fuzzyService.score(inputs[0], inputs[1], inputs[2], inputs[3], inputs[4]);
+        return Math.round(score * 100.0) / 100.0;
+    }
+
+    private double current(int parameter) {
+        return currentInputs()[parameter];
+    }
+
+    private double[] currentInputs() {
+        return new double[]{
+            machine.getDailyProduction(), machine.getErrorMargin(), machine.getMaintenanceInterval(),
+            machine.getStandbyTime(), machine.getEnergyConsumption()
+        };
+    }
+
+    private static SweepRequest request(SweepAxis... axes) {
+        SweepRequest request = new SweepRequest();
+        request.setAxes(List.of(axes));
+        return request;
+    }
+
+    private static SweepAxis axis(int parameter, Double min, Double max, Integer steps) {
+        SweepAxis axis = new SweepAxis();
+        axis.setParameter(PARAMETERS[parameter]);
+        axis.setMin(min);
+        axis.setMax(max);
+        axis.setSteps(steps);
+        return axis;
+    }
+
+    private static Machine machine(double[] inputs) {
+        Machine machine = new Machine();
+        machine.setId(7L);
+        machine.setName("Torna");
+        machine.setDailyProduction(inputs[0]);
+        machine.setErrorMargin(inputs[1]);
+        machine.setMaintenanceInterval(inputs[2]);
+        machine.setStandbyTime(inputs[3]);
+        machine.setEnergyConsumption(inputs[4]);
+        return machine;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.FleetMaintenanceAssignment;
+import com.example.fuzzymachineefficiency.dto.FleetMaintenanceRequest;
+import com.example.fuzzymachineefficiency.dto.FleetMaintenanceScheduleResponse;
+import com.example.fuzzymachineefficiency.dto.MachineMaintenancePlan;
+import com.example.fuzzymachineefficiency.dto.MaintenancePlanRequest;
+import com.example.fuzzymachineefficiency.dto.MaintenanceTask;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceFrequency;
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceTaskPriority;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FleetMaintenanceSchedulerTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 3);
+    private static final List<String> RESOURCES = List.of("vinç", "kaynak makinesi", "forklift");
+
+    private final Map<Long, Machine> machines = new HashMap<>();
+    private final FleetMaintenanceScheduler scheduler = new FleetMaintenanceScheduler(repository());
+
+    @Test
+    void neverExceedsDailyCapacity() {
+        Random random = new Random(20);
+        for (int round = 0; round < 40; round++) {
+            FleetMaintenanceRequest request = round % 2 == 0 ? randomRequest(random) : congestedRequest(random);
+            FleetMaintenanceScheduleResponse response = scheduler.schedule(request);
+
+            Map<LocalDate, Integer> hours = new HashMap<>();
+            Map<String, Integer> resourceUse = new HashMap<>();
+            for (FleetMaintenanceAssignment assignment : response.getAssignments()) {
+                LocalDate date = assignment.getScheduledDate();
+                assertTrue(!date.isBefore(assignment.getPlannedDate()), "scheduled before its planned date");
+                assertTrue(date.isBefore(START.plusDays(request.getHorizonDays())), "scheduled past the horizon");
+                assertEquals(ChronoUnit.DAYS.between(assignment.getPlannedDate(), date), assignment.getDelayDays());
+                assertTrue(request.isWorkOnWeekends() || date.getDayOfWeek().getValue() <= 5, "scheduled on " + date);
+
+                hours.merge(date, assignment.getEstimatedHours(), Integer::sum);
+                for (String resource : assignment.getRequiredResources()) {
+                    resourceUse.merge(date + "/" + resource, 1, Integer::sum);
+                }
+            }
+
+            hours.forEach((date, used) -> assertTrue(used <= request.getDailyTechnicianHours(),
+            used + " technician hours on " + date));
+            resourceUse.forEach((key, used) -> {
+                Integer capacity = request.getDailyResourceCapacity().get(key.substring(key.indexOf('/') + 1));
+                assertTrue(capacity == null || used <= capacity, used + " units of " + key);
+            });
+            assertEquals(hours.values().stream().mapToLong(Integer::longValue).sum(), response.getTotalScheduledHours());
+            assertTrue(response.getPeakDailyHours() <= request.getDailyTechnicianHours());
+            assertEquals(jobCount(request), response.getAssignments().size() + response.getUnscheduled().size());
+        }
+    }
+
+    @Test
+    void improvementNeverIncreasesTheWeightedDelay() {
+        Random random = new Random(21);
+        int improvedRounds = 0;
+        for (int round = 0; round < 40; round++) {
+            FleetMaintenanceRequest request = round % 2 == 0 ? randomRequest(random) : congestedRequest(random);
+            FleetMaintenanceScheduleResponse listSchedule = scheduler.schedule(request, false);
+            FleetMaintenanceScheduleResponse improved = scheduler.schedule(request, true);
+
+            double before = weightedDelay(listSchedule);
+            double after = weightedDelay(improved);
+            assertTrue(after <= before + 1e-9, "weighted delay grew from " + before + " to " + after);
+            if (improved.getImprovementMoves() > 0) {
+                assertTrue(after < before, improved.getImprovementMoves() + " moves without a gain");
+                improvedRounds++;
+            }
+
+            // the pass only moves scheduled jobs, it neither drops nor adds any
+            assertEquals(listSchedule.getAssignments().size(), improved.getAssignments().size());
+            assertEquals(listSchedule.getTotalScheduledHours(), improved.getTotalScheduledHours());
+            assertEquals(listSchedule.getUnscheduled().size(), improved.getUnscheduled().size());
+        }
+        assertTrue(improvedRounds > 0, "no round exercised the improvement pass");
+    }
+
+    @Test
+    void reportsTasksThatCanNeverFit() {
+        Machine machine = machine(1L, 40.0);
+        FleetMaintenanceRequest request = request(8, Map.of("vinç", 0), false,
+        plan(machine, MaintenanceFrequency.WEEKLY, task("Revizyon", 12, MaintenanceTaskPriority.HIGH),
+        task("Vinç bakımı", 2, MaintenanceTaskPriority.LOW, "vinç")));
+        request.setHorizonDays(14);
+
+        FleetMaintenanceScheduleResponse response = scheduler.schedule(request);
+
+        assertEquals(List.of(), response.getAssignments());
+        assertEquals(4, response.getUnscheduled().size());
+        assertTrue(response.getUnscheduled().stream().allMatch(assignment -> "UNSCHEDULED".equals(assignment.getStatus())
+        && assignment.getReason() != null));
+    }
+
+    private double weightedDelay(FleetMaintenanceScheduleResponse response) {
+        double total = 0.0;
+        for (FleetMaintenanceAssignment assignment : response.getAssignments()) {
+            Machine machine = machines.get(assignment.getMachineId());
+            total += FleetMaintenanceScheduler.value(assignment.getPriority(), machine.getEfficiencyScore())
+            * assignment.getDelayDays();
+        }
+        return total;
+    }
+
+    private static long jobCount(FleetMaintenanceRequest request) {
+        long jobs = 0;
+        for (MachineMaintenancePlan machinePlan : request.getMachines()) {
+            MaintenancePlanRequest plan = machinePlan.getPlan();
+            MaintenanceRecurrence recurrence = new MaintenanceRecurrence(plan.getStartDate(), plan.getDurationMonths(),
+            plan.getFrequency(), plan.isIncludeWeekends());
+            for (LocalDate date : recurrence.occurrences(0, (int) recurrence.count())) {
+                long releaseDay = ChronoUnit.DAYS.between(START, date);
+                if (releaseDay >= 0 && releaseDay < request.getHorizonDays()) {
+                    jobs += plan.getTasks().size();
+                }
+            }
+        }
+        return jobs;
+    }
+
+    // tight capacities, so most rounds delay some jobs
+    private FleetMaintenanceRequest randomRequest(Random random) {
+        machines.clear();
+        List<MachineMaintenancePlan> plans = new ArrayList<>();
+        int machineCount = 5 + random.nextInt(25);
+        for (long id = 1; id <= machineCount; id++) {
+            Machine machine = machine(id, random.nextInt(4) == 0 ? null : random.nextDouble() * 100);
+            MaintenanceFrequency frequency = MaintenanceFrequency.values()[random.nextInt(4)];
+            MaintenanceTask[] tasks = new MaintenanceTask[1 + random.nextInt(3)];
+            for (int i = 0; i < tasks.length; i++) {
+                String[] required = random.nextBoolean()
+                ? new String[0]
+                : new String[]{RESOURCES.get(random.nextInt(RESOURCES.size()))};
+                tasks[i] = task("Görev " + i, 1 + random.nextInt(6),
+                MaintenanceTaskPriority.values()[random.nextInt(4)], required);
+            }
+            MachineMaintenancePlan plan = plan(machine, frequency, tasks);
+            plan.getPlan().setStartDate(START.plusDays(random.nextInt(10) - 3));
+            plans.add(plan);
+        }
+
+        // forklift has no configured capacity, so it is unlimited
+        FleetMaintenanceRequest request = request(6 + random.nextInt(10),
+        Map.of("vinç", 1 + random.nextInt(2), "kaynak makinesi", 1 + random.nextInt(3)), random.nextBoolean(),
+        plans.toArray(new MachineMaintenancePlan[0]));
+        request.setHorizonDays(30 + random.nextInt(90));
+        return request;
+    }
+
+    /*
+     * Hundreds of critical crane jobs exhaust the fit attempts of the first days, so the list scheduler
+     * counts those days as full while technician hours are left; the fillers then start late, and the
+     * improvement pass pulls them back into the spare hours.
+     */
+    private FleetMaintenanceRequest congestedRequest(Random random) {
+        machines.clear();
+        List<MachineMaintenancePlan> plans = new ArrayList<>();
+        int craneCapacity = 5 + random.nextInt(15);
+        MaintenanceTask craneTask = task("Vinç kontrolü", 1, MaintenanceTaskPriority.CRITICAL, "vinç");
+        int craneJobs = 256 + craneCapacity * (1 + random.nextInt(6)) + random.nextInt(50);
+        plans.add(yearly(machine(1L, 10.0), START, craneJobs, craneTask));
+
+        int fillers = 1 + random.nextInt(40);
+        for (long id = 2; id <= 1 + fillers; id++) {
+            MaintenanceTask filler = task("Genel bakım", 1 + random.nextInt(4),
+            MaintenanceTaskPriority.values()[random.nextInt(3)]);
+            plans.add(yearly(machine(id, random.nextDouble() * 100), START.plusDays(random.nextInt(7)),
+            1 + random.nextInt(3), filler));
+        }
+
+        FleetMaintenanceRequest request = request(craneCapacity + 5 + random.nextInt(10), Map.of("vinç", craneCapacity),
+        true, plans.toArray(new MachineMaintenancePlan[0]));
+        request.setHorizonDays(60);
+        return request;
+    }
+
+    private static MachineMaintenancePlan yearly(Machine machine, LocalDate date, int copies, MaintenanceTask task) {
+        MachineMaintenancePlan plan = plan(machine, MaintenanceFrequency.YEARLY,
+        Collections.nCopies(copies, task).toArray(new MaintenanceTask[0]));
+        plan.getPlan().setStartDate(date);
+        return plan;
+    }
+
+    private static FleetMaintenanceRequest request(int technicianHours, Map<String, Integer> capacities,
+                                                   boolean workOnWeekends, MachineMaintenancePlan... plans) {
+        FleetMaintenanceRequest request = new FleetMaintenanceRequest();
+        request.setStartDate(START);
+        request.setDailyTechnicianHours(technicianHours);
+        request.setDailyResourceCapacity(capacities);
+        request.setWorkOnWeekends(workOnWeekends);
+        request.setMachines(List.of(plans));
+        return request;
+    }
+
+    private static MachineMaintenancePlan plan(Machine machine, MaintenanceFrequency frequency,
+                                               MaintenanceTask... tasks) {
+        MaintenancePlanRequest plan = new MaintenancePlanRequest();
+        plan.setStartDate(START);
+        plan.setDurationMonths(4);
+        plan.setFrequency(frequency);
+        plan.setIncludeWeekends(true);
+        plan.setTasks(List.of(tasks));
+
+        MachineMaintenancePlan machinePlan = new MachineMaintenancePlan();
+        machinePlan.setMachineId(machine.getId());
+        machinePlan.setPlan(plan);
+        return machinePlan;
+    }
+
+    private static MaintenanceTask task(String name, int hours, MaintenanceTaskPriority priority,
+                                        String... resources) {
+        MaintenanceTask task = new MaintenanceTask();
+        task.setName(name);
+        task.setEstimatedHours(hours);
+        task.setPriority(priority);
+        task.setRequiredResources(List.of(resources));
+        return task;
+    }
+
+    private Machine machine(long id, Double efficiencyScore) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setName("Makine " + id);
+        machine.setEfficiencyScore(efficiencyScore);
+        machines.put(id, machine);
+        return machine;
+    }
+
+    private MachineRepository repository() {
+        MachineRepository repository = mock(MachineRepository.class);
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Machine> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (machines.containsKey(id)) {
+                    found.add(machines.get(id));
+                }
+            }
+            return found;
+        });
+        return repository;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.MachineExportRow;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachineDeletedEvent;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.service.FleetStatisticsAggregator.FleetStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FleetStatisticsAggregatorTest {
+
+    // the machines table; reconcile reads it a page at a time
+    private final TreeMap<Long, Machine> table = new TreeMap<>();
+    private final List<Integer> pagesRead = new ArrayList<>();
+    private IntConsumer duringScan = page -> {
+    };
+    private MachineRepository repository;
+    private FleetStatisticsAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(MachineRepository.class);
+        when(repository.findExportRowsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            List<MachineExportRow> rows = table.tailMap(afterId, false).values().stream().limit(pageable.getPageSize())
+            .map(FleetStatisticsAggregatorTest::row).toList();
+            pagesRead.add(rows.size());
+            // changes made here are committed after the page was read
+            duringScan.accept(pagesRead.size());
+            return rows;
+        });
+        aggregator = new FleetStatisticsAggregator(repository);
+    }
+
+    @Test
+    void summarisesSavesUpdatesDeletesAndBulkSaves() {
+        save(machine(5, 91.0, 120.0, 30.0, 100.0));
+        save(machine(3, 91.0, 640.0, 10.0, 300.0));
+        save(machine(8, 40.0, 5200.0, null, null));
+        // no score: counted as a machine, left out of every score figure
+        save(machine(9, null, 700.0, 20.0, 200.0));
+
+        FleetStatistics statistics = aggregator.snapshot();
+        assertEquals(4, statistics.totalMachines());
+        assertEquals(74.0, statistics.averageEfficiencyScore(), 1e-9);
+        assertEquals(Long.valueOf(3), statistics.mostEfficientMachineId());
+        assertEquals(Long.valueOf(8), statistics.leastEfficientMachineId());
+        assertEquals(distribution(2, 0, 0, 1, 0), statistics.efficiencyDistribution());
+        assertEquals(20.0, statistics.averageMaintenanceInterval(), 1e-9);
+        assertEquals(200.0, statistics.averageEnergyConsumption(), 1e-9);
+        assertEquals(Map.of("0-500", 91.0, "500-1000", 91.0, "4500+", 40.0), statistics.efficiencyByProductionBand());
+
+        // an update takes back the old contribution before adding the new one
+        save(machine(3, 20.0, 640.0, 40.0, 300.0));
+        aggregator.onMachineDeleted(new MachineDeletedEvent(5L));
+        table.remove(5L);
+        saveAll(machine(10, 80.0, 900.0, 30.0, 100.0), machine(11, 55.5, 950.0, 30.0, 100.0));
+        // deleting an unknown machine changes nothing
+        aggregator.onMachineDeleted(new MachineDeletedEvent(404L));
+
+        statistics = aggregator.snapshot();
+        assertEquals(5, statistics.totalMachines());
+        assertEquals(48.875, statistics.averageEfficiencyScore(), 1e-9);
+        assertEquals(Long.valueOf(10), statistics.mostEfficientMachineId());
+        assertEquals(Long.valueOf(3), statistics.leastEfficientMachineId());
+        assertEquals(distribution(0, 1, 1, 1, 1), statistics.efficiencyDistribution());
+        assertEquals(30.0, statistics.averageMaintenanceInterval(), 1e-9);
+        assertEquals(175.0, statistics.averageEnergyConsumption(), 1e-9);
+        assertEquals(Map.of("500-1000", 51.83, "4500+", 40.0), statistics.efficiencyByProductionBand());
+        assertEquals(reconciled(), aggregator.snapshot());
+    }
+
+    @Test
+    void randomEventsEndWhereAFreshReconcileDoes() {
+        Random random = new Random(10);
+        for (int round = 0; round < 4000; round++) {
+            int action = random.nextInt(10);
+            if (action == 0) {
+                long id = 1 + random.nextInt(2500);
+                table.remove(id);
+                aggregator.onMachineDeleted(new MachineDeletedEvent(id));
+            } else if (action == 1) {
+                List<Machine> machines = new ArrayList<>();
+                for (int i = random.nextInt(40); i > 0; i--) {
+                    machines.add(randomMachine(random));
+                }
+                saveAll(machines.toArray(Machine[]::new));
+            } else {
+                save(randomMachine(random));
+            }
+        }
+
+        assertEquals(reconciled(), aggregator.snapshot());
+        // more than one page was read
+        assertEquals(3, pagesRead.size());
+    }
+
+    @Test
+    void eventsDuringAReconcileAreKeptAndMissedOnesRepaired() {
+        Random random = new Random(11);
+        for (long id = 1; id <= 2200; id++) {
+            save(randomMachine(random, id));
+        }
+        // missed events: only the database knows about these
+        table.put(3000L, machine(3000, 12.34, 100.0, 10.0, 10.0));
+        table.remove(17L);
+        table.put(18L, machine(18, 99.99, 100.0, 10.0, 10.0));
+
+        duringScan = page -> {
+            if (page == 1) {
+                // rows of the first page were already read, the later ones not yet
+                save(machine(5, 0.0, 4000.0, 5.0, 5.0));
+                table.remove(6L);
+                aggregator.onMachineDeleted(new MachineDeletedEvent(6L));
+                table.remove(1500L);
+                aggregator.onMachineDeleted(new MachineDeletedEvent(1500L));
+                saveAll(machine(1600, 2.0, 50.0, 5.0, 5.0), machine(2500, 3.0, 50.0, 5.0, 5.0));
+            } else if (page == 2) {
+                save(machine(7, 100.0, 9000.0, 5.0, 5.0));
+                save(machine(1, 50.0, 10.0, 5.0, 5.0));
+            }
+        };
+
+        aggregator.reconcile();
+
+        duringScan = page -> {
+        };
+        assertEquals(reconciled(), aggregator.snapshot());
+        FleetStatistics statistics = aggregator.snapshot();
+        assertEquals(table.size(), statistics.totalMachines());
+        assertEquals(Long.valueOf(7), statistics.mostEfficientMachineId());
+        assertEquals(Long.valueOf(5), statistics.leastEfficientMachineId());
+    }
+
+    private FleetStatistics reconciled() {
+        FleetStatisticsAggregator fresh = new FleetStatisticsAggregator(repository);
+        fresh.reconcile();
+        return fresh.snapshot();
+    }
+
+    private void save(Machine machine) {
+        table.put(machine.getId(), machine);
+        aggregator.onMachineSaved(new MachineSavedEvent(machine));
+    }
+
+    private void saveAll(Machine... machines) {
+        for (Machine machine : machines) {
+            table.put(machine.getId(), machine);
+        }
+        aggregator.onMachinesSaved(new MachinesSavedEvent(List.of(machines)));
+    }
+
+    private static Map<String, Integer> distribution(int veryGood, int good, int medium, int bad, int veryBad) {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        distribution.put("VERY_GOOD", veryGood);
+        distribution.put("GOOD", good);
+        distribution.put("MEDIUM", medium);
+        distribution.put("BAD", bad);
+        distribution.put("VERY_BAD", veryBad);
+        return distribution;
+    }
+
+    private static Machine randomMachine(Random random) {
+        return randomMachine(random, 1 + random.nextInt(2500));
+    }
+
+    // whole-number intervals and energies keep the incremental sums exact, so snapshots compare equal
+    private static Machine randomMachine(Random random, long id) {
+        return machine(id,
+        random.nextInt(8) == 0 ? null : random.nextInt(10_001) / 100.0,
+        random.nextInt(8) == 0 ? null : (double) random.nextInt(6000),
+        random.nextInt(8) == 0 ? null : (double) (1 + random.nextInt(90)),
+        random.nextInt(8) == 0 ? null : (double) random.nextInt(500));
+    }
+
+    private static Machine machine(long id, Double score, Double dailyProduction, Double maintenanceInterval,
+                                   Double energyConsumption) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setEfficiencyScore(score);
+        machine.setDailyProduction(dailyProduction);
+        machine.setMaintenanceInterval(maintenanceInterval);
+        machine.setEnergyConsumption(energyConsumption);
+        return machine;
+    }
+
+    private static MachineExportRow row(Machine machine) {
+        return new MachineExportRow(machine.getId(), machine.getName(), machine.getDailyProduction(), machine.getErrorMargin(),
+        machine.getMaintenanceInterval(), machine.getStandbyTime(), machine.getEnergyConsumption(),
+        machine.getEfficiencyScore());
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.ImportJobStatus;
+import com.example.fuzzymachineefficiency.dto.ImportResponse;
+import com.example.fuzzymachineefficiency.dto.MachineDataRequest;
+import com.example.fuzzymachineefficiency.dto.MachineDto;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.mapper.MachineMapper;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MachineImportServiceTest {
+
+    private static final String HEADER = "id,name,dailyProduction,errorMargin,maintenanceInterval,standbyTime,energyConsumption\n";
+    private static final int BATCH_SIZE = 4;
+    private static final int MAX_REPORTED_MACHINES = 3;
+
+    private final List<List<Machine>> savedChunks = new ArrayList<>();
+    private final List<Object> events = new ArrayList<>();
+    private final List<Runnable> queuedImports = new ArrayList<>();
+    private FuzzyService fuzzyService;
+    private FleetScoringExecutor fleetScoringExecutor;
+    private ExecutorService importExecutor;
+    private MachineRepository machineRepository;
+    private MachineMapper machineMapper;
+
+    @BeforeEach
+    void setUp() {
+        fuzzyService = new FuzzyService("native", 1, "", 1000, 1, 0, false, new SimpleMeterRegistry());
+        fleetScoringExecutor = new FleetScoringExecutor(2, 3);
+        importExecutor = Executors.newSingleThreadExecutor();
+
+        machineRepository = mock(MachineRepository.class);
+        when(machineRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<Machine> chunk = new ArrayList<>();
+            invocation.<Iterable<Machine>>getArgument(0).forEach(chunk::add);
+            savedChunks.add(chunk);
+            return chunk;
+        });
+        machineMapper = mock(MachineMapper.class);
+        when(machineMapper.entityToDto(any(Machine.class))).thenAnswer(invocation -> {
+            MachineDto dto = new MachineDto();
+            dto.setName(invocation.<Machine>getArgument(0).getName());
+            return dto;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        fleetScoringExecutor.shutdown();
+        importExecutor.shutdownNow();
+    }
+
+    @Test
+    void importsChunkByChunkAndReportsEveryBadRow() {
+        String csv = HEADER + """
+        1,Torna 1,650,2,30,4,120
+        2,"Pres, 2",700,1.5,45,2,90
+        3,,650,2,30,4,120
+        4,Freze,NaN,2,30,4,120
+
+        6,Kaynak,650,abc,30,4,120
+        7,Kesim,650,2
+        8,Makine 8,800,1,30,4,100
+        9,Makine 9,810,1,30,4,100
+        10,Makine 10,820,1,30,4,100
+        11,Makine 11,830,1,30,4,100
+        """;
+
+        ImportResponse response = service(importExecutor).importMachines(upload(csv));
+
+        assertEquals(10, response.getTotalRecords());
+        assertEquals(6, response.getSuccessfulImports());
+        assertEquals(4, response.getFailedImports());
+        assertEquals(List.of(
+            "Satır 3: Makine adı boş olamaz",
+            "Satır 4: dailyProduction geçersiz: NaN",
+            "Satır 6: errorMargin sayı değil: abc",
+            "Satır 7: Yetersiz veri sütunu: 4"
+        ), response.getErrors());
+        assertEquals(List.of("Torna 1", "Pres, 2", "Makine 8"),
+        response.getImportedMachines().stream().map(MachineDto::getName).toList());
+
+        // one saveAll and one event per chunk of four records, bad records included in the count
+        assertEquals(List.of(List.of("Torna 1", "Pres, 2"), List.of("Makine 8", "Makine 9"), List.of("Makine 10", "Makine 11")),
+        savedChunks.stream().map(chunk -> chunk.stream().map(Machine::getName).toList()).toList());
+        assertEquals(savedChunks.stream().map(MachinesSavedEvent::new).toList(), events);
+        for (List<Machine> chunk : savedChunks) {
+            for (Machine machine : chunk) {
+                MachineDataRequest request = new MachineDataRequest();
+                request.setDailyProduction(machine.getDailyProduction());
+                request.setErrorMargin(machine.getErrorMargin());
+                request.setMaintenanceInterval(machine.getMaintenanceInterval());
+                request.setStandbyTime(machine.getStandbyTime());
+                request.setEnergyConsumption(machine.getEnergyConsumption());
+                assertEquals(fuzzyService.calculate(request).getEfficiencyScore(), machine.getEfficiencyScore().doubleValue());
+                assertEquals(fuzzyService.getModelVersion(), machine.getScoreModelVersion());
+            }
+        }
+    }
+
+    @Test
+    void reportsTheFirstHundredErrorsAndCountsTheRest() {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 250; i++) {
+            csv.append(i).append(",,650,2,30,4,120\n");
+        }
+
+        ImportResponse response = service(importExecutor).importMachines(upload(csv.toString()));
+
+        assertEquals(250, response.getTotalRecords());
+        assertEquals(250, response.getFailedImports());
+        assertEquals(100, response.getErrors().size());
+        assertEquals("Satır 100: Makine adı boş olamaz", response.getErrors().get(99));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void aBackgroundJobIsQueuedRunAndCleanedUp() throws IOException {
+        MachineImportService service = service(queueingExecutor());
+        List<Path> uploads = new ArrayList<>();
+        MultipartFile file = transferringUpload(HEADER + "1,Torna 1,650,2,30,4,120\n2,,650,2,30,4,120\n", uploads);
+
+        ImportJobStatus queued = service.startImport(file);
+
+        assertEquals("QUEUED", queued.getStatus());
+        assertNull(queued.getStartedAt());
+        assertEquals(queued, service.getJobStatus(queued.getJobId()));
+        assertTrue(Files.exists(uploads.get(0)));
+
+        queuedImports.remove(0).run();
+
+        ImportJobStatus completed = service.getJobStatus(queued.getJobId());
+        assertEquals("COMPLETED", completed.getStatus());
+        assertEquals(2, completed.getProcessedRecords());
+        assertEquals(1, completed.getSuccessfulImports());
+        assertEquals(1, completed.getFailedImports());
+        assertEquals(List.of("Satır 2: Makine adı boş olamaz"), completed.getErrors());
+        assertNotNull(completed.getStartedAt());
+        assertNotNull(completed.getFinishedAt());
+        assertFalse(Files.exists(uploads.get(0)));
+
+        ImportJobStatus broken = service.startImport(transferringUpload(HEADER + "1,\"Torna 1,650\n", uploads));
+        queuedImports.remove(0).run();
+
+        ImportJobStatus failed = service.getJobStatus(broken.getJobId());
+        assertEquals("FAILED", failed.getStatus());
+        assertEquals(List.of("Dosya işleme hatası: CSV: kapanmamış tırnak"), failed.getErrors());
+        assertFalse(Files.exists(uploads.get(1)));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.getJobStatus("yok"));
+        assertEquals("İçe aktarma işi bulunamadı: yok", e.getMessage());
+    }
+
+    @Test
+    void finishedJobsAreKeptForAnHour() throws IOException {
+        MachineImportService service = service(queueingExecutor());
+        String finished = service.startImport(transferringUpload(HEADER, new ArrayList<>())).getJobId();
+        queuedImports.remove(0).run();
+        String waiting = service.startImport(transferringUpload(HEADER, new ArrayList<>())).getJobId();
+        LocalDateTime finishedAt = service.getJobStatus(finished).getFinishedAt();
+
+        service.evictFinishedJobs(finishedAt.plusMinutes(59));
+        assertEquals("COMPLETED", service.getJobStatus(finished).getStatus());
+
+        service.evictFinishedJobs(finishedAt.plusMinutes(61));
+        assertThrows(IllegalArgumentException.class, () -> service.getJobStatus(finished));
+
+        // a job that has not finished is never evicted
+        service.evictFinishedJobs(finishedAt.plusDays(1));
+        assertEquals("QUEUED", service.getJobStatus(waiting).getStatus());
+    }
+
+    @Test
+    void aRejectedImportLeavesNoJobOrUploadBehind() throws IOException {
+        ExecutorService fullExecutor = mock(ExecutorService.class);
+        when(fullExecutor.submit(any(Runnable.class))).thenThrow(new RejectedExecutionException("kuyruk dolu"));
+        List<Path> uploads = new ArrayList<>();
+
+        assertThrows(RejectedExecutionException.class,
+        () -> service(fullExecutor).startImport(transferringUpload(HEADER, uploads)));
+
+        assertFalse(Files.exists(uploads.get(0)));
+    }
+
+    // only the scoring path of MachineService is used by the import
+    private MachineImportService service(ExecutorService executor) {
+        MachineService machineService = new MachineService(null, fuzzyService, null, null, null, null, null, null, null,
+        null, null, null, null);
+        return new MachineImportService(machineRepository, machineService, machineMapper, events::add,
+        fleetScoringExecutor, executor, null, BATCH_SIZE, MAX_REPORTED_MACHINES);
+    }
+
+    private ExecutorService queueingExecutor() {
+        ExecutorService executor = mock(ExecutorService.class);
+        when(executor.submit(any(Runnable.class))).thenAnswer(invocation -> {
+            queuedImports.add(invocation.getArgument(0));
+            return null;
+        });
+        return executor;
+    }
+
+    private static MultipartFile upload(String csv) {
+        MultipartFile file = mock(MultipartFile.class);
+        try {
+            when(file.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return file;
+    }
+
+    private static MultipartFile transferringUpload(String csv, List<Path> uploads) throws IOException {
+        MultipartFile file = mock(MultipartFile.class);
+        doAnswer(invocation -> {
+            Path target = invocation.getArgument(0);
+            Files.writeString(target, csv);
+            uploads.add(target);
+            return null;
+        }).when(file).transferTo(any(Path.class));
+        return file;
+    }
+}
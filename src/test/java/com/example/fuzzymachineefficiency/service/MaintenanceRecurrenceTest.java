@@ -0,0 +1,85 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.entity.enums.MaintenanceFrequency;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MaintenanceRecurrenceTest {
+
+    // a Monday, a Saturday, a Sunday, month ends that clamp on the way through February, and a leap day
+    private static final List<LocalDate> STARTS = List.of(LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 9),
+    LocalDate.of(2024, 3, 10), LocalDate.of(2024, 1, 31), LocalDate.of(2023, 8, 31), LocalDate.of(2024, 5, 31),
+    LocalDate.of(2024, 2, 29), LocalDate.of(2023, 12, 30));
+
+    private static final int[] DURATIONS = {0, 1, 2, 7, 25};
+
+    static Stream<Arguments> plans() {
+        List<Arguments> plans = new ArrayList<>();
+        for (MaintenanceFrequency frequency : MaintenanceFrequency.values()) {
+            for (LocalDate start : STARTS) {
+                for (int durationMonths : DURATIONS) {
+                    plans.add(Arguments.of(frequency, start, durationMonths, true));
+                    plans.add(Arguments.of(frequency, start, durationMonths, false));
+                }
+            }
+        }
+        return plans.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("plans")
+    void matchesTheDayByDayGeneration(MaintenanceFrequency frequency, LocalDate start, int durationMonths,
+                                      boolean includeWeekends) {
+        List<LocalDate> expected = dayByDay(frequency, start, durationMonths, includeWeekends);
+        MaintenanceRecurrence recurrence = new MaintenanceRecurrence(start, durationMonths, frequency,
+        includeWeekends);
+        String plan = frequency + " from " + start + " for " + durationMonths + " months, weekends "
+        + includeWeekends;
+
+        assertEquals(expected.size(), recurrence.count(), plan);
+        assertEquals(expected, recurrence.occurrences(0, expected.size() + 5), plan);
+
+        // pages stitch together to the same dates
+        List<LocalDate> paged = new ArrayList<>();
+        for (long offset = 0; offset < recurrence.count(); offset += 17) {
+            paged.addAll(recurrence.occurrences(offset, 17));
+        }
+        assertEquals(expected, paged, plan);
+        assertEquals(List.of(), recurrence.occurrences(recurrence.count(), 10), plan);
+    }
+
+    // the generator the recurrence replaced: walk the dates, stepping weekend days forward one at a time
+    private static List<LocalDate> dayByDay(MaintenanceFrequency frequency, LocalDate start, int durationMonths,
+                                            boolean includeWeekends) {
+        List<LocalDate> dates = new ArrayList<>();
+        LocalDate currentDate = start;
+        LocalDate endDate = start.plusMonths(durationMonths);
+
+        while (currentDate.isBefore(endDate)) {
+            if (!includeWeekends && (currentDate.getDayOfWeek().getValue() > 5)) {
+                currentDate = currentDate.plusDays(1);
+                continue;
+            }
+
+            dates.add(currentDate);
+
+            currentDate = switch (frequency) {
+                case DAILY -> currentDate.plusDays(1);
+                case WEEKLY -> currentDate.plusWeeks(1);
+                case BIWEEKLY -> currentDate.plusWeeks(2);
+                case MONTHLY -> currentDate.plusMonths(1);
+                case QUARTERLY -> currentDate.plusMonths(3);
+                case YEARLY -> currentDate.plusYears(1);
+            };
+        }
+        return dates;
+    }
+}
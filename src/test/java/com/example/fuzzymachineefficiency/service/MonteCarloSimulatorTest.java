@@ -0,0 +1,125 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.MonteCarloResult;
+import com.example.fuzzymachineefficiency.dto.ParameterDistribution;
+import com.example.fuzzymachineefficiency.dto.SimulationRequest;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.DistributionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonteCarloSimulatorTest {
+
+    @Test
+    void aFixedSeedGivesTheSameResultWhateverThePoolSize() {
+        Machine machine = machine();
+        SimulationRequest request = request(100_000, 42L);
+
+        MonteCarloResult expected = run(1, machine, request);
+        for (int parallelism : new int[]{2, 3, 8}) {
+            MonteCarloResult result = run(parallelism, machine, request);
+            // timing is the only field allowed to differ
+            result.setElapsedMillis(expected.getElapsedMillis());
+            assertEquals(expected, result, "parallelism " + parallelism);
+        }
+        assertFalse(expected.isBudgetExhausted());
+        assertEquals(100_000, expected.getTrials());
+    }
+
+    @Test
+    void anotherSeedGivesOtherDraws() {
+        Machine machine = machine();
+
+        SimulationRequest request = request(20_000, 1L);
+        // close to six days are needed, so whether a six-day deadline is met depends on the draws
+        request.setDeadlineDays(6);
+        MonteCarloResult first = run(2, machine, request);
+        request.setSeed(2L);
+        MonteCarloResult second = run(2, machine, request);
+
+        assertNotEquals(first.getDeadlineMetProbability(), second.getDeadlineMetProbability());
+        assertEquals(first.getDeadlineMetProbability(), second.getDeadlineMetProbability(), 0.05);
+        assertEquals(first.getMeanCost(), second.getMeanCost(), first.getMeanCost() * 0.05);
+    }
+
+    @Test
+    void fixedDistributionsReproduceTheDeterministicSimulation() {
+        Machine machine = machine();
+        SimulationRequest request = request(1000, 7L);
+        request.setErrorMarginDistribution(null);
+        request.setStandbyTimeDistribution(null);
+        request.setDowntimeDistribution(null);
+
+        MonteCarloResult result = run(2, machine, request);
+
+        // 1000 / (200 * 0.95) days, costed over the 10-day deadline
+        double days = 1000 / (200 * 0.95);
+        double costPerDay = 50 * 2.0 + 8 * 30.0 + 500.0 / 25;
+        assertEquals(days, result.getDaysP50(), days * 0.005 + 0.01);
+        assertEquals(Math.round(10 * costPerDay * 100.0) / 100.0, result.getMeanCost(), 0.01);
+        assertEquals(1.0, result.getDeadlineMetProbability());
+    }
+
+    @Test
+    void rejectsTrialCountsOutsideTheLimit() {
+        Machine machine = machine();
+
+        assertThrows(IllegalArgumentException.class, () -> run(1, machine, request(0, 1L)));
+        assertThrows(IllegalArgumentException.class, () -> run(1, machine, request(1_000_001, 1L)));
+    }
+
+    private static MonteCarloResult run(int parallelism, Machine machine, SimulationRequest request) {
+        FleetScoringExecutor executor = new FleetScoringExecutor(parallelism, 256);
+        try {
+            return new MonteCarloSimulator(executor, 1_000_000, Duration.ofMinutes(5)).run(machine, request);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Machine machine() {
+        Machine machine = new Machine();
+        machine.setId(1L);
+        machine.setName("Pres");
+        machine.setDailyProduction(200.0);
+        machine.setErrorMargin(5.0);
+        machine.setMaintenanceInterval(25.0);
+        machine.setStandbyTime(60.0);
+        machine.setEnergyConsumption(50.0);
+        return machine;
+    }
+
+    private static SimulationRequest request(int trials, Long seed) {
+        SimulationRequest request = new SimulationRequest();
+        request.setTargetProduction(1000);
+        request.setDeadlineDays(10);
+        request.setElectricityCost(2.0);
+        request.setLaborCostPerHour(30.0);
+        request.setMaintenanceCostPerSession(500.0);
+        request.setTrials(trials);
+        request.setSeed(seed);
+        request.setErrorMarginDistribution(distribution(DistributionType.NORMAL, 5.0, 2.0, null, null, null));
+        request.setStandbyTimeDistribution(distribution(DistributionType.UNIFORM, null, null, 30.0, 120.0, null));
+        request.setDowntimeDistribution(distribution(DistributionType.TRIANGULAR, null, null, 0.0, 20.0, 2.0));
+        return request;
+    }
+
+    private static ParameterDistribution distribution(DistributionType type, Double mean, Double stdDev, Double min,
+                                                      Double max, Double mode) {
+        ParameterDistribution distribution = new ParameterDistribution();
+        distribution.setType(type);
+        distribution.setMean(mean);
+        distribution.setStdDev(stdDev);
+        distribution.setMin(min);
+        distribution.setMax(max);
+        distribution.setMode(mode);
+        return distribution;
+    }
+}
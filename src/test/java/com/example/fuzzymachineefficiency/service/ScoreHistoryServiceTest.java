@@ -0,0 +1,301 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.ChartData;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.entity.enums.RollupGranularity;
+import com.example.fuzzymachineefficiency.event.MachineSavedEvent;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScoreHistoryServiceTest {
+
+    private static final int BATCH_SIZE = 3;
+    private static final ZoneId ZONE = ZoneId.of("Europe/Istanbul");
+
+    private FakeJdbcTemplate jdbcTemplate;
+    private ScoreHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new FakeJdbcTemplate();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        service = new ScoreHistoryService(jdbcTemplate, transactionManager, ZONE, BATCH_SIZE);
+    }
+
+    @Test
+    void rollupsAddUpEverySnapshotAcrossBatchesAndFlushes() {
+        Random random = new Random(25);
+        List<Machine> saved = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            // more than one write per flush (ten JDBC batches each), with machines repeating across writes
+            List<Machine> machines = new ArrayList<>();
+            int count = 20 + random.nextInt(60);
+            for (int i = 0; i < count; i++) {
+                machines.add(machine(1L + random.nextInt(12), Math.round(random.nextDouble() * 10_000) / 100.0));
+            }
+            service.onMachinesSaved(new MachinesSavedEvent(machines));
+            service.onMachineSaved(new MachineSavedEvent(machine(3L, 42.0)));
+            // nothing to record without an id or a score
+            service.onMachineSaved(new MachineSavedEvent(machine(null, 10.0)));
+            service.onMachineSaved(new MachineSavedEvent(machine(4L, null)));
+            saved.addAll(machines);
+            saved.add(machine(3L, 42.0));
+            service.flush();
+        }
+
+        assertEquals(saved.size(), jdbcTemplate.history.size());
+        Map<Long, double[]> expected = new HashMap<>();
+        for (Machine machine : saved) {
+            double[] one = {machine.getEfficiencyScore(), machine.getEfficiencyScore(), machine.getEfficiencyScore(), 1};
+            expected.merge(machine.getId(), one, ScoreHistoryServiceTest::plus);
+        }
+        for (String granularity : new String[]{"DAY", "MONTH"}) {
+            // periods are combined, so a run across midnight still compares whole totals
+            Map<Long, double[]> machineRows = new HashMap<>();
+            jdbcTemplate.machineRollups.forEach((key, row) -> {
+                if (key.startsWith(granularity + "/")) {
+                    machineRows.merge(Long.parseLong(key.substring(key.lastIndexOf('/') + 1)), row, ScoreHistoryServiceTest::plus);
+                }
+            });
+            assertEquals(expected.keySet(), machineRows.keySet());
+            expected.forEach((id, row) -> assertRollup(row, machineRows.get(id), granularity + " machine " + id));
+
+            // every fleet row holds one average per machine with snapshots in that period
+            jdbcTemplate.fleetRollups.forEach((period, row) -> {
+                if (period.startsWith(granularity + "/")) {
+                    assertRollup(jdbcTemplate.fleetPeriod(period), row, period + " fleet");
+                }
+            });
+        }
+
+        // the cached fleet trend holds what the table does
+        List<ChartData> trend = service.fleetTrend(RollupGranularity.MONTH, 1);
+        assertEquals(1, trend.size());
+        double[] month = jdbcTemplate.fleetRollups.get("MONTH/" + LocalDate.now(ZONE).withDayOfMonth(1));
+        assertEquals(Math.round(month[0] / month[3] * 100.0) / 100.0, trend.get(0).getValue(), 1e-9);
+    }
+
+    @Test
+    void theFleetAveragesMachinesNotSaves() {
+        List<Machine> machines = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            machines.add(machine(1L, 90.0));
+        }
+        machines.add(machine(2L, 30.0));
+        service.onMachinesSaved(new MachinesSavedEvent(machines));
+        service.flush();
+
+        String today = LocalDate.now(ZONE).toString();
+        assertRollup(new double[]{120.0, 30.0, 90.0, 2}, jdbcTemplate.fleetRollups.get("DAY/" + today), "first flush");
+        assertEquals(60.0, service.fleetTrend(RollupGranularity.DAY, 1).get(0).getValue(), 1e-9);
+
+        // machine 1 now averages 85 over ten saves; the fleet is still two machines
+        service.onMachineSaved(new MachineSavedEvent(machine(1L, 40.0)));
+        service.flush();
+
+        assertRollup(new double[]{115.0, 30.0, 85.0, 2}, jdbcTemplate.fleetRollups.get("DAY/" + today), "second flush");
+        assertEquals(57.5, service.fleetTrend(RollupGranularity.DAY, 1).get(0).getValue(), 1e-9);
+        assertEquals(57.5, service.fleetTrend(RollupGranularity.MONTH, 1).get(0).getValue(), 1e-9);
+    }
+
+    @Test
+    void aFailedWriteIsRetriedInOrderAndCountedOnce() {
+        List<Machine> first = machines(1, 25);
+        service.onMachinesSaved(new MachinesSavedEvent(first));
+        jdbcTemplate.failingWrites = 1;
+
+        service.flush();
+
+        assertTrue(jdbcTemplate.history.isEmpty());
+        assertTrue(jdbcTemplate.machineRollups.isEmpty());
+        assertTrue(service.fleetTrend(RollupGranularity.DAY, 1).isEmpty());
+
+        List<Machine> second = machines(100, 10);
+        service.onMachinesSaved(new MachinesSavedEvent(second));
+        service.flush();
+
+        List<Long> written = jdbcTemplate.history.stream().map(row -> (Long) row.get(1)).toList();
+        List<Long> expected = new ArrayList<>();
+        first.forEach(machine -> expected.add(machine.getId()));
+        second.forEach(machine -> expected.add(machine.getId()));
+        assertEquals(expected, written);
+        assertEquals(35.0, fleetCount("DAY"));
+        assertEquals(35.0, fleetCount("MONTH"));
+    }
+
+    @Test
+    void aWriteFailingMidFlushKeepsTheWrittenPartAndRetriesTheRest() {
+        // 45 snapshots are two writes of at most 30; the second one fails
+        List<Machine> machines = machines(1, 45);
+        service.onMachinesSaved(new MachinesSavedEvent(machines));
+        jdbcTemplate.skippedWrites = 1;
+        jdbcTemplate.failingWrites = 1;
+
+        service.flush();
+
+        assertEquals(BATCH_SIZE * 10, jdbcTemplate.history.size());
+        assertEquals(BATCH_SIZE * 10.0, fleetCount("DAY"));
+
+        service.flush();
+
+        assertEquals(machines.size(), jdbcTemplate.history.size());
+        for (int i = 0; i < machines.size(); i++) {
+            assertEquals(machines.get(i).getId(), jdbcTemplate.history.get(i).get(1));
+        }
+        assertEquals(machines.size(), fleetCount("DAY"));
+        assertEquals(machines.size(), fleetCount("MONTH"));
+        List<ChartData> trend = service.fleetTrend(RollupGranularity.MONTH, 1);
+        double average = machines.stream().mapToDouble(Machine::getEfficiencyScore).average().orElseThrow();
+        assertEquals(Math.round(average * 100.0) / 100.0, trend.get(0).getValue(), 1e-9);
+    }
+
+    private double fleetCount(String granularity) {
+        return jdbcTemplate.fleetRollups.entrySet().stream().filter(entry -> entry.getKey().startsWith(granularity + "/"))
+        .mapToDouble(entry -> entry.getValue()[3]).sum();
+    }
+
+    private static void assertRollup(double[] expected, double[] actual, String message) {
+        assertEquals(expected[0], actual[0], 1e-6, message + " sum");
+        assertEquals(expected[1], actual[1], message + " min");
+        assertEquals(expected[2], actual[2], message + " max");
+        assertEquals(expected[3], actual[3], message + " count");
+    }
+
+    private static double[] plus(double[] a, double[] b) {
+        return new double[]{a[0] + b[0], Math.min(a[1], b[1]), Math.max(a[2], b[2]), a[3] + b[3]};
+    }
+
+    private static List<Machine> machines(long firstId, int count) {
+        List<Machine> machines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            machines.add(machine(firstId + i, 40.0 + i));
+        }
+        return machines;
+    }
+
+    private static Machine machine(Long id, Double score) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setEfficiencyScore(score);
+        machine.setDailyProduction(100.0);
+        machine.setScoreModelVersion("test");
+        return machine;
+    }
+
+    /**
+     * Runs the flush's statements against maps: machine rollups merge and fleet rollups are replaced, as the
+     * ON CONFLICT clauses do. A write can be made to fail on its first statement, before anything of it is kept.
+     */
+    private static final class FakeJdbcTemplate extends JdbcTemplate {
+
+        private final List<Map<Integer, Object>> history = new ArrayList<>();
+        private final Map<String, double[]> machineRollups = new HashMap<>();
+        private final Map<String, double[]> fleetRollups = new HashMap<>();
+        private int skippedWrites;
+        private int failingWrites;
+
+        @Override
+        public void execute(String sql) {
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> setter) {
+            if (sql.startsWith("INSERT INTO machine_score_history")) {
+                if (skippedWrites > 0) {
+                    skippedWrites--;
+                } else if (failingWrites > 0) {
+                    failingWrites--;
+                    throw new DataAccessResourceFailureException("veritabanı kapalı");
+                }
+            }
+            for (T args : batchArgs) {
+                Map<Integer, Object> row = bind(setter, args);
+                if (sql.startsWith("INSERT INTO machine_score_history")) {
+                    history.add(row);
+                } else if (sql.startsWith("INSERT INTO machine_score_rollups")) {
+                    machineRollups.merge(row.get(1) + "/" + row.get(2) + "/" + row.get(3), rollup(row, 4), ScoreHistoryServiceTest::plus);
+                } else {
+                    fleetRollups.put(row.get(1) + "/" + row.get(2), rollup(row, 3));
+                }
+            }
+            return new int[0][];
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+            double[] fleet = fleetPeriod(args[0] + "/" + args[1]);
+            ResultSet resultSet = mock(ResultSet.class, invocation -> {
+                int column = invocation.getArgument(0);
+                return invocation.getMethod().getName().equals("getLong") ? (Object) (long) fleet[column - 1]
+                : (Object) fleet[column - 1];
+            });
+            try {
+                return rowMapper.mapRow(resultSet, 0);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // sum, min, max and count of the period's per-machine averages
+        private double[] fleetPeriod(String period) {
+            double[] fleet = {0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0};
+            machineRollups.forEach((key, row) -> {
+                if (key.startsWith(period + "/")) {
+                    double average = row[0] / row[3];
+                    fleet[0] += average;
+                    fleet[1] = Math.min(fleet[1], average);
+                    fleet[2] = Math.max(fleet[2], average);
+                    fleet[3]++;
+                }
+            });
+            return fleet;
+        }
+
+        private static double[] rollup(Map<Integer, Object> row, int first) {
+            return new double[]{(Double) row.get(first), (Double) row.get(first + 1), (Double) row.get(first + 2),
+                ((Long) row.get(first + 3)).doubleValue()};
+        }
+
+        private static <T> Map<Integer, Object> bind(ParameterizedPreparedStatementSetter<T> setter, T args) {
+            Map<Integer, Object> row = new HashMap<>();
+            // the setter only binds parameters, so every call is a setX(index, value) or setNull(index, type)
+            PreparedStatement statement = mock(PreparedStatement.class, invocation -> {
+                row.put(invocation.getArgument(0), invocation.getMethod().getName().equals("setNull") ? null : invocation.getArgument(1));
+                return null;
+            });
+            try {
+                setter.setValues(statement, args);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return row;
+        }
+    }
+}
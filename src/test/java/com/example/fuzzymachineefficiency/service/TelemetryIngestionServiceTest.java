@@ -0,0 +1,425 @@
+package com.example.fuzzymachineefficiency.service;
+
+import com.example.fuzzymachineefficiency.dto.TelemetryIngestResponse;
+import com.example.fuzzymachineefficiency.dto.TelemetryReading;
+import com.example.fuzzymachineefficiency.entity.Machine;
+import com.example.fuzzymachineefficiency.event.MachinesSavedEvent;
+import com.example.fuzzymachineefficiency.repository.MachineRepository;
+import com.example.fuzzymachineefficiency.service.TelemetryIngestionService.Admission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TelemetryIngestionServiceTest {
+
+    private static final long MINUTE = 60_000;
+
+    // the machines table; the service only ever sees copies of its rows
+    private final Map<Long, Machine> table = new TreeMap<>();
+    private final List<Object> events = new ArrayList<>();
+    private final FakeJdbcTemplate jdbcTemplate = new FakeJdbcTemplate();
+    private int failingLoads;
+    private FuzzyService fuzzyService;
+    private MachineService machineService;
+    private MachineRepository machineRepository;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    // start of a one-minute window an hour ago, long closed
+    private long window;
+
+    @BeforeEach
+    void setUp() {
+        fuzzyService = new FuzzyService("native", 1, "", 1000, 1, 0, false, new SimpleMeterRegistry());
+        machineService = new MachineService(null, fuzzyService, null, null, null, null, null, null, null, null, null,
+        null, null);
+        table.put(1L, scored(machine(1, 900.0, 15.0, 30.0, 400.0, 350.0)));
+        table.put(2L, scored(machine(2, 2500.0, 1.0, 60.0, 30.0, 700.0)));
+
+        machineRepository = mock(MachineRepository.class);
+        when(machineRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            if (failingLoads > 0) {
+                failingLoads--;
+                throw new DataAccessResourceFailureException("veritabanı kapalı");
+            }
+            List<Machine> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (table.containsKey(id)) {
+                    found.add(copy(table.get(id)));
+                }
+            }
+            return found;
+        });
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        window = Math.floorDiv(System.currentTimeMillis() - 60 * MINUTE, MINUTE) * MINUTE;
+    }
+
+    @Test
+    void admitsWholeBatchesOrSaysWhyNot() {
+        TelemetryIngestionService service = service(4);
+
+        assertEquals(Admission.TOO_LARGE, service.offer(readings(5)));
+        assertEquals(Admission.ACCEPTED, service.offer(readings(3)));
+        assertEquals(Admission.BUFFER_FULL, service.offer(readings(2)));
+        assertEquals(Admission.ACCEPTED, service.offer(readings(1)));
+        TelemetryIngestResponse response = service.describe(1);
+        assertEquals(4, response.getBufferedReadings());
+        assertEquals(4, response.getBufferCapacity());
+        assertEquals(4.0, readingCount("accepted"));
+        assertEquals(2.0, readingCount("buffer_full"));
+        assertEquals(5.0, readingCount("too_large"));
+
+        service.flushAll();
+        assertEquals(0, service.describe(0).getBufferedReadings());
+
+        // one bad reading refuses the whole batch, whatever the buffer holds
+        TelemetryReading future = reading(1, Instant.now().plus(Duration.ofMinutes(5)), 60, 1, 0, 1, 0);
+        assertEquals("Okuma zaman damgası gelecekte olamaz: " + future.getTimestamp(),
+        assertThrows(IllegalArgumentException.class, () -> service.offer(List.of(at(1, 0), future))).getMessage());
+        assertEquals("Hatalı ürün sayısı üretimden büyük olamaz", assertThrows(IllegalArgumentException.class,
+        () -> service.offer(List.of(reading(1, Instant.ofEpochMilli(window), 60, 1, 2, 1, 0)))).getMessage());
+        assertEquals("Okuma aralığı pozitif olmalı: 0.0", assertThrows(IllegalArgumentException.class,
+        () -> service.offer(List.of(reading(1, Instant.ofEpochMilli(window), 0, 1, 0, 1, 0)))).getMessage());
+        assertEquals("Okuma değerleri negatif olmayan sayılar olmalı", assertThrows(IllegalArgumentException.class,
+        () -> service.offer(List.of(reading(1, Instant.ofEpochMilli(window), 60, 1, 0, Double.NaN, 0)))).getMessage());
+        assertEquals("Telemetri okumaları boş olamaz",
+        assertThrows(IllegalArgumentException.class, () -> service.offer(List.of())).getMessage());
+        assertEquals(0, service.describe(0).getBufferedReadings());
+    }
+
+    @Test
+    void coalescesPerMachineAndWindowAndRollsTheNewestWindow() {
+        TelemetryIngestionService service = service(100);
+
+        service.offer(List.of(
+            reading(1, Instant.ofEpochMilli(window + 20_000), 20, 300, 10, 2.0, 5),
+            reading(2, Instant.ofEpochMilli(window + 30_000), 60, 0, 0, 1.0, 90),
+            reading(1, Instant.ofEpochMilli(window + 40_000), 20, 100, 2, 1.0, 1),
+            reading(1, Instant.ofEpochMilli(window + MINUTE + 10_000), 60, 1, 0.05, 0.3, 6),
+            // no such machine: dropped, never written
+            reading(404, Instant.ofEpochMilli(window), 60, 1, 0, 1, 0)));
+        service.flushAll();
+
+        assertEquals(Set.of("1@" + window, "1@" + (window + MINUTE), "2@" + window), jdbcTemplate.windows.keySet());
+        assertArrayEquals(new double[]{2, 40, 400, 12, 3.0, 6}, jdbcTemplate.windows.get("1@" + window), 1e-9);
+        assertArrayEquals(new double[]{1, 60, 1, 0.05, 0.3, 6}, jdbcTemplate.windows.get("1@" + (window + MINUTE)), 1e-9);
+        assertEquals(1.0, meterRegistry.get("telemetry.windows.orphaned").counter().count());
+
+        // machine 1 from its newest window only
+        Machine one = table.get(1L);
+        assertEquals(1440.0, one.getDailyProduction(), 1e-9);
+        assertEquals(5.0, one.getErrorMargin(), 1e-9);
+        assertEquals(144.0, one.getStandbyTime(), 1e-9);
+        assertEquals(432.0, one.getEnergyConsumption(), 1e-9);
+        assertEquals(30.0, one.getMaintenanceInterval().doubleValue());
+        // machine 2 produced nothing, so its error margin stays; standby is capped at a whole day
+        Machine two = table.get(2L);
+        assertEquals(0.0, two.getDailyProduction().doubleValue());
+        assertEquals(1.0, two.getErrorMargin().doubleValue());
+        assertEquals(1440.0, two.getStandbyTime().doubleValue());
+        assertEquals(1440.0, two.getEnergyConsumption(), 1e-9);
+        for (Machine machine : table.values()) {
+            assertEquals(values(scored(copy(machine))), values(machine));
+        }
+
+        assertEquals(1, events.size());
+        assertEquals(Set.of(1L, 2L), ((MachinesSavedEvent) events.get(0)).machines().stream().map(Machine::getId)
+        .collect(Collectors.toSet()));
+        assertEquals(2.0, meterRegistry.get("telemetry.machines.rolled").counter().count());
+    }
+
+    @Test
+    void aScheduledFlushWaitsForTheAllowedLateness() {
+        TelemetryIngestionService service = service(100);
+        service.offer(List.of(at(1, 0), reading(2, Instant.now(), 1, 1, 0, 0.1, 0)));
+
+        service.flush();
+
+        assertEquals(Set.of("1@" + window), jdbcTemplate.windows.keySet());
+        service.flushAll();
+        assertEquals(2, jdbcTemplate.windows.size());
+    }
+
+    @Test
+    void aLateFragmentIsAddedToItsWindowButNotRolledAgain() {
+        TelemetryIngestionService service = service(100);
+        service.offer(List.of(at(1, 0)));
+        service.flushAll();
+        List<Object> rolled = values(table.get(1L));
+        events.clear();
+
+        // the rest of the written window, and a fragment of an older one
+        service.offer(List.of(reading(1, Instant.ofEpochMilli(window + 50_000), 30, 500, 100, 9.0, 30), at(1, -1)));
+        service.flushAll();
+
+        assertArrayEquals(new double[]{2, 90, 506, 100.5, 9.5, 36}, jdbcTemplate.windows.get("1@" + window), 1e-9);
+        assertArrayEquals(new double[]{1, 60, 6, 0.5, 0.5, 6}, jdbcTemplate.windows.get("1@" + (window - MINUTE)), 1e-9);
+        assertEquals(rolled, values(table.get(1L)));
+        assertTrue(events.isEmpty());
+        assertEquals(1, jdbcTemplate.updateCount);
+
+        service.offer(List.of(at(1, 1)));
+        service.flushAll();
+        assertEquals(2, jdbcTemplate.updateCount);
+        assertEquals(8640.0, table.get(1L).getDailyProduction(), 1e-9);
+    }
+
+    @Test
+    void skipsAMachineEditedOrDeletedSinceItWasLoaded() {
+        List<Consumer<Machine>> edits = List.of(
+            machine -> machine.setDailyProduction(1000.0),
+            machine -> machine.setErrorMargin(3.0),
+            machine -> machine.setMaintenanceInterval(45.0),
+            machine -> machine.setStandbyTime(100.0),
+            machine -> machine.setEnergyConsumption(300.0),
+            machine -> table.remove(1L));
+        Machine original = copy(table.get(1L));
+        for (int i = 0; i < edits.size(); i++) {
+            table.put(1L, copy(original));
+            events.clear();
+            Consumer<Machine> edit = edits.get(i);
+            TelemetryIngestionService service = service(100);
+            // the edit commits after the flush loaded the machine and before its update runs
+            jdbcTemplate.beforeUpdate = () -> edit.accept(table.get(1L));
+            service.offer(List.of(at(1, 0)));
+            service.flushAll();
+
+            Machine edited = copy(original);
+            edit.accept(edited);
+            String which = "edit " + i;
+            if (table.containsKey(1L)) {
+                assertEquals(values(edited), values(table.get(1L)), which);
+            }
+            assertTrue(jdbcTemplate.windows.containsKey("1@" + window), which);
+            assertTrue(events.isEmpty(), which);
+
+            // the window was not marked rolled, so the next one is
+            jdbcTemplate.beforeUpdate = null;
+            service.offer(List.of(at(1, 1)));
+            service.flushAll();
+            if (table.containsKey(1L)) {
+                assertEquals(8640.0, table.get(1L).getDailyProduction(), 1e-9, which);
+                assertEquals(edited.getMaintenanceInterval(), table.get(1L).getMaintenanceInterval(), which);
+                assertEquals(1, events.size(), which);
+            }
+            jdbcTemplate.windows.clear();
+        }
+    }
+
+    @Test
+    void refusesReadingsWhileWritesFailAndKeepsTheWindows() {
+        TelemetryIngestionService service = service(100);
+        jdbcTemplate.failingUpserts = 1;
+        service.offer(List.of(at(1, 0)));
+
+        service.flushAll();
+
+        assertTrue(jdbcTemplate.windows.isEmpty());
+        assertEquals(Admission.UNAVAILABLE, service.offer(readings(1)));
+        assertEquals(1.0, readingCount("unavailable"));
+        // bad input is still reported as such
+        assertThrows(IllegalArgumentException.class, () -> service.offer(List.of(reading(1, null, 60, 1, 0, 1, 0))));
+
+        // the kept window is written by the next flush, which opens ingestion again
+        service.flushAll();
+        assertEquals(Set.of("1@" + window), jdbcTemplate.windows.keySet());
+        assertEquals(1440.0 * 6, table.get(1L).getDailyProduction(), 1e-9);
+        assertEquals(Admission.ACCEPTED, service.offer(List.of(at(2, 0))));
+
+        // a failed machine load closes ingestion the same way
+        failingLoads = 1;
+        service.flushAll();
+        assertEquals(Admission.UNAVAILABLE, service.offer(readings(1)));
+        service.flushAll();
+        assertEquals(Set.of("1@" + window, "2@" + window), jdbcTemplate.windows.keySet());
+        assertEquals(Admission.ACCEPTED, service.offer(readings(1)));
+    }
+
+    private TelemetryIngestionService service(int capacity) {
+        return new TelemetryIngestionService(machineRepository, machineService, events::add, jdbcTemplate,
+        transactionManager, meterRegistry, capacity, Duration.ofMinutes(1), Duration.ofSeconds(5), 2);
+    }
+
+    private double readingCount(String outcome) {
+        return meterRegistry.get("telemetry.readings").tag("outcome", outcome).counter().count();
+    }
+
+    private List<TelemetryReading> readings(int count) {
+        List<TelemetryReading> readings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            readings.add(at(1, 0));
+        }
+        return readings;
+    }
+
+    // a whole minute of one machine in the window {@code offset} minutes from the test window
+    private TelemetryReading at(long machineId, int offset) {
+        return reading(machineId, Instant.ofEpochMilli(window + offset * MINUTE + 30_000), 60, 6, 0.5, 0.5, 6);
+    }
+
+    private static TelemetryReading reading(long machineId, Instant timestamp, double intervalSeconds, double producedUnits,
+                                            double defectiveUnits, double energyKwh, double standbySeconds) {
+        TelemetryReading reading = new TelemetryReading();
+        reading.setMachineId(machineId);
+        reading.setTimestamp(timestamp);
+        reading.setIntervalSeconds(intervalSeconds);
+        reading.setProducedUnits(producedUnits);
+        reading.setDefectiveUnits(defectiveUnits);
+        reading.setEnergyKwh(energyKwh);
+        reading.setStandbySeconds(standbySeconds);
+        return reading;
+    }
+
+    private Machine scored(Machine machine) {
+        machineService.applyEfficiencyScore(machine);
+        return machine;
+    }
+
+    private static Machine machine(long id, Double dailyProduction, Double errorMargin, Double maintenanceInterval,
+                                   Double standbyTime, Double energyConsumption) {
+        Machine machine = new Machine();
+        machine.setId(id);
+        machine.setName("Makine " + id);
+        machine.setDailyProduction(dailyProduction);
+        machine.setErrorMargin(errorMargin);
+        machine.setMaintenanceInterval(maintenanceInterval);
+        machine.setStandbyTime(standbyTime);
+        machine.setEnergyConsumption(energyConsumption);
+        return machine;
+    }
+
+    private static Machine copy(Machine machine) {
+        Machine copy = machine(machine.getId(), machine.getDailyProduction(), machine.getErrorMargin(),
+        machine.getMaintenanceInterval(), machine.getStandbyTime(), machine.getEnergyConsumption());
+        copy.setEfficiencyScore(machine.getEfficiencyScore());
+        copy.setEfficiencyStatus(machine.getEfficiencyStatus());
+        copy.setScoreModelVersion(machine.getScoreModelVersion());
+        return copy;
+    }
+
+    private static List<Object> values(Machine machine) {
+        return Arrays.asList(machine.getDailyProduction(), machine.getErrorMargin(), machine.getMaintenanceInterval(),
+        machine.getStandbyTime(), machine.getEnergyConsumption(), machine.getEfficiencyScore(),
+        machine.getEfficiencyStatus(), machine.getScoreModelVersion());
+    }
+
+    /**
+     * Runs the flush's statements against maps: window upserts add up as the ON CONFLICT clause does, and a
+     * machine update applies only where its WHERE clause would match the table row.
+     */
+    private final class FakeJdbcTemplate extends JdbcTemplate {
+
+        // machineId@windowStart: reading count, covered seconds, produced, defective, energy, standby
+        private final Map<String, double[]> windows = new HashMap<>();
+        private int failingUpserts;
+        private int updateCount;
+        private Runnable beforeUpdate;
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> setter) {
+            boolean upsert = sql.startsWith("INSERT INTO machine_telemetry_windows");
+            if (upsert && failingUpserts > 0) {
+                failingUpserts--;
+                throw new DataAccessResourceFailureException("veritabanı kapalı");
+            }
+            if (!upsert && beforeUpdate != null) {
+                beforeUpdate.run();
+            }
+            int[] counts = new int[batchArgs.size()];
+            int i = 0;
+            for (T args : batchArgs) {
+                Map<Integer, Object> row = bind(setter, args);
+                if (upsert) {
+                    long start = ((OffsetDateTime) row.get(2)).toInstant().toEpochMilli();
+                    windows.merge(row.get(1) + "@" + start, new double[]{((Long) row.get(3)).doubleValue(),
+                        (Double) row.get(4), (Double) row.get(5), (Double) row.get(6), (Double) row.get(7),
+                        (Double) row.get(8)}, TelemetryIngestionServiceTest::plus);
+                    counts[i++] = 1;
+                } else {
+                    updateCount++;
+                    counts[i++] = update(row);
+                }
+            }
+            int[][] batches = new int[(counts.length + batchSize - 1) / batchSize][];
+            for (int b = 0; b < batches.length; b++) {
+                batches[b] = Arrays.copyOfRange(counts, b * batchSize, Math.min(counts.length, (b + 1) * batchSize));
+            }
+            return batches;
+        }
+
+        private int update(Map<Integer, Object> row) {
+            Machine machine = table.get((Long) row.get(8));
+            if (machine == null || !Objects.equals(machine.getDailyProduction(), row.get(9))
+            || !Objects.equals(machine.getErrorMargin(), row.get(10))
+            || !Objects.equals(machine.getMaintenanceInterval(), row.get(11))
+            || !Objects.equals(machine.getStandbyTime(), row.get(12))
+            || !Objects.equals(machine.getEnergyConsumption(), row.get(13))) {
+                return 0;
+            }
+            machine.setDailyProduction((Double) row.get(1));
+            machine.setErrorMargin((Double) row.get(2));
+            machine.setStandbyTime((Double) row.get(3));
+            machine.setEnergyConsumption((Double) row.get(4));
+            machine.setEfficiencyScore((Double) row.get(5));
+            machine.setEfficiencyStatus((String) row.get(6));
+            machine.setScoreModelVersion((String) row.get(7));
+            return 1;
+        }
+
+        private static <T> Map<Integer, Object> bind(ParameterizedPreparedStatementSetter<T> setter, T args) {
+            Map<Integer, Object> row = new HashMap<>();
+            // the setter only binds parameters, so every call is a setX(index, value, ...)
+            PreparedStatement statement = mock(PreparedStatement.class, invocation -> {
+                row.put(invocation.getArgument(0), invocation.getArgument(1));
+                return null;
+            });
+            try {
+                setter.setValues(statement, args);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return row;
+        }
+    }
+
+    private static double[] plus(double[] a, double[] b) {
+        double[] sum = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+}
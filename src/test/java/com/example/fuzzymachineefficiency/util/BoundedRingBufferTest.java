@@ -0,0 +1,89 @@
+package com.example.fuzzymachineefficiency.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedRingBufferTest {
+
+    @Test
+    void publishesAWholeBatchOrNothing() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(5);
+
+        assertTrue(buffer.tryPublishAll(List.of(1, 2, 3)));
+        assertFalse(buffer.tryPublishAll(List.of(4, 5, 6)));
+        assertEquals(3, buffer.size());
+        // a batch that exactly fills the rest still fits
+        assertTrue(buffer.tryPublishAll(List.of(4, 5)));
+        assertFalse(buffer.tryPublishAll(List.of(6)));
+        assertTrue(buffer.tryPublishAll(List.of()));
+
+        assertEquals(List.of(1, 2, 3, 4, 5), drain(buffer, Integer.MAX_VALUE));
+        assertEquals(0, buffer.size());
+        assertEquals(5, buffer.capacity());
+    }
+
+    @Test
+    void drainsOldestFirstAcrossTheWrap() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        assertTrue(buffer.tryPublishAll(List.of(1, 2, 3)));
+        assertEquals(List.of(1, 2), drain(buffer, 2));
+        // 4 takes the last slot, 5 and 6 wrap around to the front
+        assertTrue(buffer.tryPublishAll(List.of(4, 5, 6)));
+        assertFalse(buffer.tryPublishAll(List.of(7)));
+
+        assertEquals(List.of(3), drain(buffer, 1));
+        assertEquals(List.of(4, 5, 6), drain(buffer, 10));
+        assertEquals(List.of(), drain(buffer, 10));
+    }
+
+    @Test
+    void behavesLikeABoundedQueue() {
+        Random random = new Random(24);
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(7);
+        Deque<Integer> queue = new ArrayDeque<>();
+        int next = 0;
+        for (int round = 0; round < 20_000; round++) {
+            if (random.nextBoolean()) {
+                List<Integer> batch = new ArrayList<>();
+                for (int i = random.nextInt(5); i > 0; i--) {
+                    batch.add(next++);
+                }
+                boolean fits = queue.size() + batch.size() <= 7;
+                assertEquals(fits, buffer.tryPublishAll(batch));
+                if (fits) {
+                    queue.addAll(batch);
+                }
+            } else {
+                int max = random.nextInt(6);
+                List<Integer> expected = new ArrayList<>();
+                while (expected.size() < max && !queue.isEmpty()) {
+                    expected.add(queue.poll());
+                }
+                assertEquals(expected, drain(buffer, max));
+            }
+            assertEquals(queue.size(), buffer.size());
+        }
+    }
+
+    @Test
+    void rejectsANonPositiveCapacity() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new BoundedRingBuffer<>(0));
+        assertEquals("Kapasite pozitif olmalı: 0", e.getMessage());
+    }
+
+    private static List<Integer> drain(BoundedRingBuffer<Integer> buffer, int max) {
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(buffer.drain(drained::add, max), drained.size());
+        return drained;
+    }
+}
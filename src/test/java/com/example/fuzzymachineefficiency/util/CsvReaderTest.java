@@ -0,0 +1,75 @@
+package com.example.fuzzymachineefficiency.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTest {
+
+    @Test
+    void splitsOnlyOnCommasOutsideQuotes() throws IOException {
+        assertEquals(List.of(
+            List.of("1", "Pres, hidrolik", "", "12.5"),
+            List.of("", "", "")
+        ), read("1,\"Pres, hidrolik\",,12.5\n,,\n"));
+    }
+
+    @Test
+    void readsDoubledQuotesAsOneQuote() throws IOException {
+        assertEquals(List.of(
+            List.of("\"Büyük\" torna", "\"\"", "sonu \"")
+        ), read("\"\"\"Büyük\"\" torna\",\"\"\"\"\"\",\"sonu \"\"\""));
+        // a quote inside an unquoted field is kept as it is
+        assertEquals(List.of(List.of("12\"", "a\"b")), read("12\",a\"b"));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotes() throws IOException {
+        assertEquals(List.of(
+            List.of("1", "satır bir\nsatır iki", "x"),
+            List.of("2", "CR LF\r\niçeride", "y"),
+            List.of("3", "z")
+        ), read("1,\"satır bir\nsatır iki\",x\r\n2,\"CR LF\r\niçeride\",y\r3,z"));
+    }
+
+    @Test
+    void skipsOnlyALeadingBom() throws IOException {
+        assertEquals(List.of(
+            List.of("id", "name"),
+            List.of("1", "\uFEFFad")
+        ), read("\uFEFFid,name\r\n1,\uFEFFad\r\n"));
+        assertEquals(List.of(List.of("a")), read("\uFEFFa"));
+        assertEquals(List.of(), read("\uFEFF"));
+    }
+
+    @Test
+    void reportsBlankLinesAsOneEmptyField() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of(""), List.of("b")), read("a\n\nb\n"));
+        assertEquals(List.of(), read(""));
+    }
+
+    @Test
+    void rejectsAnUnclosedQuote() {
+        IOException e = assertThrows(IOException.class, () -> read("1,\"açık\nkaldı"));
+        assertEquals("CSV: kapanmamış tırnak", e.getMessage());
+    }
+
+    private static List<List<String>> read(String csv) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                records.add(record);
+            }
+            assertNull(reader.readRecord());
+        }
+        return records;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.fuzzymachineefficiency.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+    private static final double[] QUANTILES = {0.0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0};
+
+    @Test
+    void staysWithinTheRelativeErrorBound() {
+        Random random = new Random(21);
+        for (int round = 0; round < 20; round++) {
+            double[] values = new double[1 + random.nextInt(20_000)];
+            for (int i = 0; i < values.length; i++) {
+                // log-normal over several orders of magnitude, with some exact zeros
+                values[i] = random.nextInt(50) == 0 ? 0.0 : Math.exp(3 * random.nextGaussian());
+            }
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+            for (double value : values) {
+                sketch.add(value);
+            }
+
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            for (double q : QUANTILES) {
+                double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+                double estimate = sketch.quantile(q);
+                assertEquals(exact, estimate, exact * ACCURACY * (1 + 1e-9), "q = " + q);
+            }
+            assertEquals(values.length, sketch.getCount());
+            assertEquals(sorted[0], sketch.getMin());
+            assertEquals(sorted[sorted.length - 1], sketch.getMax());
+        }
+    }
+
+    @Test
+    void mergesExactly() {
+        Random random = new Random(4);
+        QuantileSketch whole = new QuantileSketch(ACCURACY, 512);
+        List<QuantileSketch> parts = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            parts.add(new QuantileSketch(ACCURACY, 512));
+        }
+        double sum = 0.0;
+        for (int i = 0; i < 50_000; i++) {
+            // each part sees a different range, so merging also has to extend the bucket window
+            int part = random.nextInt(parts.size());
+            double value = random.nextDouble() * Math.pow(10, part);
+            whole.add(value);
+            parts.get(part).add(value);
+            sum += value;
+        }
+
+        QuantileSketch merged = new QuantileSketch(ACCURACY, 512);
+        for (QuantileSketch part : parts) {
+            merged.merge(part);
+        }
+
+        assertEquals(whole.getCount(), merged.getCount());
+        assertEquals(whole.getMin(), merged.getMin());
+        assertEquals(whole.getMax(), merged.getMax());
+        assertEquals(sum / whole.getCount(), merged.getMean(), 1e-9 * Math.abs(merged.getMean()));
+        for (double q : QUANTILES) {
+            assertEquals(whole.quantile(q), merged.quantile(q), "q = " + q);
+        }
+        assertArrayEquals(whole.histogram(20), merged.histogram(20));
+    }
+
+    @Test
+    void collapsesTheLowestBucketsWhateverTheInsertionOrder() {
+        Random random = new Random(9);
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // log-uniform over [1, 1e6]: about 690 buckets at 1% accuracy, far more than the 400 kept
+            values.add(Math.pow(10, 6 * random.nextDouble()));
+        }
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+
+        List<double[]> answers = new ArrayList<>();
+        for (int order = 0; order < 3; order++) {
+            if (order == 0) {
+                Collections.sort(values);
+            } else if (order == 1) {
+                values.sort(Collections.reverseOrder());
+            } else {
+                Collections.shuffle(values, random);
+            }
+            QuantileSketch sketch = new QuantileSketch(ACCURACY, 400);
+            values.forEach(sketch::add);
+
+            double[] estimates = new double[QUANTILES.length];
+            for (int i = 0; i < QUANTILES.length; i++) {
+                estimates[i] = sketch.quantile(QUANTILES[i]);
+            }
+            answers.add(estimates);
+            assertEquals(values.size(), sketch.getCount());
+        }
+        assertArrayEquals(answers.get(0), answers.get(1));
+        assertArrayEquals(answers.get(0), answers.get(2));
+
+        // the 400 kept buckets span a factor gamma^399 below the maximum; values above that keep the bound,
+        // folded values are only ever overestimated
+        double gamma = (1 + ACCURACY) / (1 - ACCURACY);
+        double keptFrom = sorted[sorted.length - 1] / Math.pow(gamma, 398);
+        double[] estimates = answers.get(0);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            double exact = sorted[(int) Math.floor(QUANTILES[i] * (sorted.length - 1))];
+            if (exact >= keptFrom) {
+                assertEquals(exact, estimates[i], exact * ACCURACY * (1 + 1e-9), "q = " + QUANTILES[i]);
+            } else {
+                assertTrue(estimates[i] >= exact * (1 - ACCURACY), "q = " + QUANTILES[i]);
+            }
+        }
+        assertTrue(keptFrom < sorted[sorted.length / 2], "the median should lie in the kept buckets");
+    }
+
+    @Test
+    void reportsNothingWhileEmpty() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 64);
+
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        assertTrue(Double.isNaN(sketch.getMean()));
+        assertArrayEquals(new long[4], sketch.histogram(4));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 64);
+
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(-1.0));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(0.02, 64)));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0.0, 64));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(ACCURACY, 1));
+    }
+}
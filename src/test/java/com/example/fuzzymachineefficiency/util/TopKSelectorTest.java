@@ -0,0 +1,81 @@
+package com.example.fuzzymachineefficiency.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKSelectorTest {
+
+    private record Item(int score, long id) {
+    }
+
+    // highest score first, lowest id first among equal scores
+    private static final Comparator<Item> ORDER = Comparator.comparingInt(Item::score).reversed()
+    .thenComparingLong(Item::id);
+
+    @Test
+    void matchesAFullSortOnRandomInput() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int n = random.nextInt(300);
+            int k = random.nextInt(40);
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                // a narrow score range so that ties are common
+                items.add(new Item(random.nextInt(10), i));
+            }
+
+            TopKSelector<Item> selector = new TopKSelector<>(k, ORDER);
+            items.forEach(selector::offer);
+
+            List<Item> expected = items.stream().sorted(ORDER).limit(k).toList();
+            assertEquals(expected, selector.toSortedList());
+        }
+    }
+
+    @Test
+    void breaksTiesByTheChainedComparator() {
+        TopKSelector<Item> selector = new TopKSelector<>(3, ORDER);
+        for (long id : new long[]{9, 4, 7, 1, 8, 2}) {
+            selector.offer(new Item(5, id));
+        }
+
+        assertEquals(List.of(new Item(5, 1), new Item(5, 2), new Item(5, 4)), selector.toSortedList());
+        assertEquals(new Item(5, 4), selector.cutoff());
+    }
+
+    @Test
+    void keepsNothingWhenKIsZero() {
+        TopKSelector<Item> selector = new TopKSelector<>(0, ORDER);
+        selector.offer(new Item(1, 1));
+        selector.offer(new Item(2, 2));
+
+        assertEquals(0, selector.size());
+        assertTrue(selector.toSortedList().isEmpty());
+        assertNull(selector.cutoff());
+    }
+
+    @Test
+    void returnsEverythingSortedWhenKExceedsTheInput() {
+        TopKSelector<Item> selector = new TopKSelector<>(10, ORDER);
+        selector.offer(new Item(1, 3));
+        selector.offer(new Item(3, 1));
+        selector.offer(new Item(1, 2));
+
+        assertEquals(List.of(new Item(3, 1), new Item(1, 2), new Item(1, 3)), selector.toSortedList());
+        assertNull(selector.cutoff());
+    }
+
+    @Test
+    void rejectsNegativeK() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKSelector<>(-1, ORDER));
+    }
+}